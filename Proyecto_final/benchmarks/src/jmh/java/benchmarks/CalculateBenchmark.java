@@ -0,0 +1,70 @@
+package benchmarks;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import common.LongList;
+
+/**
+ * SubscriberI.calculate: búsqueda de un subrango repartida en el pool fork/join del worker,
+ * para distintos kernels, tamaños de rango y cantidades de hilos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CalculateBenchmark {
+
+    private static final MethodHandle NEW_SUBSCRIBER = Targets.constructor("SubscriberI", String.class, int.class);
+    private static final MethodHandle CALCULATE = Targets.method("SubscriberI", "calculate",
+            LongList.class, long.class, long.class);
+    private static final MethodHandle SHUTDOWN = Targets.method("SubscriberI", "shutdown", void.class);
+
+    // Kernel forzado (propiedad Worker.Kernel). 'simd' cae a 'sqrt' si la JVM no tiene la Vector API.
+    @Param({"sqrt", "sieve", "simd"})
+    public String kernel;
+
+    @Param({"1", "2", "4"})
+    public int threads;
+
+    @Param({"10000", "100000"})
+    public long rangeSize;
+
+    // Inicio del rango; el costo por número de los kernels de división crece con √n.
+    @Param({"1000000"})
+    public long base;
+
+    private Object subscriber;
+    private PrintStream originalOut;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        subscriber = NEW_SUBSCRIBER.invoke(kernel, threads);
+        // calculate escribe una línea de log por llamada; se sigue formateando, pero no se imprime.
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Throwable {
+        System.setOut(originalOut);
+        SHUTDOWN.invoke(subscriber);
+    }
+
+    @Benchmark
+    public Object calculate() throws Throwable {
+        return CALCULATE.invoke(subscriber, base, base + rangeSize - 1);
+    }
+}
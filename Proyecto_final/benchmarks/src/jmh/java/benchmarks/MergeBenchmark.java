@@ -0,0 +1,76 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Unión de resultados en el Maestro: SortedLongs.merge con los perfectos de cada trozo o subrango, y
+ * Ranges.merge con las partes cubiertas o sin recorrer que se informan al cliente.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MergeBenchmark {
+
+    private static final MethodHandle MERGE = Targets.staticMethod("SortedLongs", "merge", long[].class, List.class);
+    private static final MethodHandle MERGE_RANGES = Targets.staticMethod("Ranges", "merge", List.class, List.class);
+
+    // Cantidad de arrays (trozos, subrangos o partes de caché) a unir.
+    @Param({"8", "64", "512"})
+    public int parts;
+
+    // Valores por array. Los perfectos son escasos: lo habitual es 0 o 1 por trozo.
+    @Param({"1", "64"})
+    public int valuesPerPart;
+
+    // false: cada array sigue al anterior (trozos consecutivos); true: los valores se intercalan.
+    @Param({"false", "true"})
+    public boolean interleaved;
+
+    private List<long[]> results;
+    private List<long[]> ranges;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        results = new ArrayList<>(parts);
+        for (int p = 0; p < parts; p++) {
+            long[] values = new long[valuesPerPart];
+            for (int v = 0; v < valuesPerPart; v++) {
+                values[v] = interleaved ? (long) v * parts + p : (long) p * valuesPerPart + v;
+            }
+            results.add(values);
+        }
+        // Partes {inicio, fin} desordenadas, con solapes y huecos.
+        ranges = new ArrayList<>(parts);
+        for (int p = 0; p < parts; p++) {
+            long start = (long) p * 1_000 + random.nextInt(200);
+            ranges.add(new long[]{start, start + 900 + random.nextInt(300)});
+        }
+        Collections.shuffle(ranges, random);
+    }
+
+    @Benchmark
+    public Object mergeResults() throws Throwable {
+        return MERGE.invoke(results);
+    }
+
+    @Benchmark
+    public Object mergeRanges() throws Throwable {
+        return MERGE_RANGES.invoke(ranges);
+    }
+}
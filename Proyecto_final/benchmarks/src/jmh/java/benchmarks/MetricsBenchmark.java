@@ -0,0 +1,65 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import common.Metrics;
+
+/**
+ * Costo de registrar métricas: lo que SubscriberI.calculate agrega a cada cálculo (un contador, una
+ * observación del histograma y la tasa) y el de exponer todas las series. Comparar con
+ * SequentialCalculateBenchmark, que mide un cálculo completo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MetricsBenchmark {
+
+    private Metrics metrics;
+    private Metrics.Histogram histogram;
+    private Metrics.Counter counter;
+    private Metrics.Gauge gauge;
+    // Duraciones variadas, para no caer siempre en la misma cubeta.
+    private final long[] durations = new long[1024];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        metrics = new Metrics();
+        histogram = metrics.histogram("bench_seconds", "Duraciones.", Metrics.LATENCY_BUCKETS);
+        counter = metrics.counter("bench_total", "Números.");
+        gauge = metrics.gauge("bench_rate", "Tasa.");
+        for (int i = 0; i < durations.length; i++) {
+            durations[i] = (long) Math.pow(10, 5 + (i % 50) / 10.0); // De 100 µs a unos 10 s.
+        }
+        // Algunas series con etiquetas, como las de los workers en el Maestro.
+        for (int w = 1; w <= 8; w++) {
+            metrics.histogram("bench_rtt_seconds", "Ida y vuelta.", Metrics.LATENCY_BUCKETS, "worker", Integer.toString(w))
+                    .observeNanos(durations[w]);
+        }
+    }
+
+    /**
+     * Lo que registra SubscriberI.recordCalculation al terminar cada cálculo.
+     */
+    @Benchmark
+    public void recordCalculation() {
+        long nanos = durations[next++ & (durations.length - 1)];
+        counter.add(10_000L);
+        histogram.observeNanos(nanos);
+        gauge.set(10_000 * 1e9 / nanos);
+    }
+
+    @Benchmark
+    public String render() {
+        return metrics.render();
+    }
+}
@@ -0,0 +1,83 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Reparto de rangos del Maestro (PublisherI.executePerfectNumberSearch): un subrango por worker con
+ * RangePartitioner.partition (modo push) y trozos de costo parecido con splitByCost (modo pull).
+ * Los workers declaran capacidades distintas para que el reparto por costo tenga que ponderarlas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PartitionBenchmark {
+
+    private static final Class<?> COST_MODEL = Targets.type("CostModel");
+    private static final MethodHandle NEW_PARTITIONER = Targets.constructor("RangePartitioner",
+            Targets.type("RangePartitioner$Strategy"));
+    private static final MethodHandle REGISTER_CAPACITY = Targets.method("RangePartitioner", "registerCapacity",
+            void.class, int.class, int.class, double.class);
+    private static final MethodHandle PARTITION = Targets.method("RangePartitioner", "partition",
+            List.class, long.class, long.class, List.class, COST_MODEL);
+    private static final MethodHandle SPLIT_BY_COST = Targets.staticMethod("RangePartitioner", "splitByCost",
+            List.class, long.class, long.class, int.class, COST_MODEL);
+    private static final MethodHandle FOR_KERNEL = Targets.staticMethod("CostModel", "forKernel", COST_MODEL, String.class);
+    private static final int CHUNKS_PER_WORKER = (Integer) Targets.staticField("ChunkScheduler", "CHUNKS_PER_WORKER");
+
+    // Estrategia de Master.Partitioning.
+    @Param({"cost", "width"})
+    public String strategy;
+
+    @Param({"2", "8", "32"})
+    public int workers;
+
+    // Kernel de los workers, que define el modelo de costo.
+    @Param({"sieve", "sqrt"})
+    public String kernel;
+
+    @Param({"1"})
+    public long min;
+
+    @Param({"1000000000"})
+    public long max;
+
+    private Object partitioner;
+    private List<Integer> workerIds;
+    private Object model;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        partitioner = NEW_PARTITIONER.invoke(Targets.enumConstant("RangePartitioner$Strategy", strategy));
+        workerIds = new ArrayList<>();
+        for (int id = 0; id < workers; id++) {
+            workerIds.add(id);
+            // Tres perfiles de máquina: 2, 4 y 8 núcleos.
+            int cores = 2 << (id % 3);
+            REGISTER_CAPACITY.invoke(partitioner, id, cores, cores * 500_000.0);
+        }
+        model = FOR_KERNEL.invoke(kernel);
+    }
+
+    @Benchmark
+    public Object partition() throws Throwable {
+        return PARTITION.invoke(partitioner, min, max, workerIds, model);
+    }
+
+    @Benchmark
+    public Object splitByCost() throws Throwable {
+        return SPLIT_BY_COST.invoke(min, max, workers * CHUNKS_PER_WORKER, model);
+    }
+}
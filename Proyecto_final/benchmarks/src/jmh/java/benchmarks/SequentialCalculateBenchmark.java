@@ -0,0 +1,66 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import common.LongList;
+
+/**
+ * SubscriberI.sequentialCalculate: un kernel recorriendo el subrango completo en un solo hilo.
+ * Junto con CalculateBenchmark permite separar el costo del kernel del de la paralelización.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SequentialCalculateBenchmark {
+
+    private static final Class<?> KERNEL = Targets.type("PerfectNumberKernel");
+    private static final MethodHandle NEW_SUBSCRIBER = Targets.constructor("SubscriberI", String.class, int.class);
+    private static final MethodHandle SEQUENTIAL_CALCULATE = Targets.method("SubscriberI", "sequentialCalculate",
+            LongList.class, long.class, long.class, KERNEL, java.util.function.BooleanSupplier.class);
+    private static final MethodHandle CREATE_SELECTOR = Targets.staticMethod("KernelSelector", "create",
+            Targets.type("KernelSelector"), String.class);
+    private static final MethodHandle KERNEL_FOR = Targets.method("KernelSelector", "kernelFor", KERNEL, long.class);
+    private static final MethodHandle SHUTDOWN = Targets.method("SubscriberI", "shutdown", void.class);
+    private static final Object NOT_CANCELLED = Targets.staticField("PerfectNumberKernel", "NOT_CANCELLED");
+
+    @Param({"sqrt", "sieve", "simd"})
+    public String kernel;
+
+    @Param({"10000", "100000"})
+    public long rangeSize;
+
+    @Param({"1000000"})
+    public long base;
+
+    private Object subscriber;
+    private Object kernelImpl;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Throwable {
+        subscriber = NEW_SUBSCRIBER.invoke(kernel, 1);
+        // Con un kernel forzado el selector devuelve ese kernel para cualquier tamaño.
+        kernelImpl = KERNEL_FOR.invoke(CREATE_SELECTOR.invoke(kernel), rangeSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Throwable {
+        SHUTDOWN.invoke(subscriber);
+    }
+
+    @Benchmark
+    public Object sequentialCalculate() throws Throwable {
+        return SEQUENTIAL_CALCULATE.invoke(subscriber, base, base + rangeSize - 1, kernelImpl, NOT_CANCELLED);
+    }
+}
@@ -0,0 +1,82 @@
+package benchmarks;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Acceso a las clases del Maestro y del worker desde los benchmarks.
+ * Esas clases están en el paquete por defecto, que no se puede importar, y JMH no admite benchmarks en
+ * ese paquete; por eso se llega a ellas con MethodHandles. Guardados en campos static final, el JIT los
+ * trata como constantes y los inlinea, así que no agregan costo a la medición.
+ */
+final class Targets {
+
+    private Targets() {
+    }
+
+    /**
+     * Clase del Maestro o del worker por su nombre (las internas con '$', ej. "RangePartitioner$Strategy").
+     */
+    static Class<?> type(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Clase no encontrada en el classpath de los benchmarks: " + name, e);
+        }
+    }
+
+    static MethodHandle constructor(String className, Class<?>... params) {
+        Class<?> owner = type(className);
+        try {
+            return lookup(owner).findConstructor(owner, MethodType.methodType(void.class, params));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Constructor no encontrado en " + className, e);
+        }
+    }
+
+    static MethodHandle method(String className, String name, Class<?> returnType, Class<?>... params) {
+        Class<?> owner = type(className);
+        MethodType methodType = MethodType.methodType(returnType, params);
+        try {
+            return lookup(owner).findVirtual(owner, name, methodType);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Método no encontrado: " + className + "." + name + methodType, e);
+        }
+    }
+
+    static MethodHandle staticMethod(String className, String name, Class<?> returnType, Class<?>... params) {
+        Class<?> owner = type(className);
+        MethodType methodType = MethodType.methodType(returnType, params);
+        try {
+            return lookup(owner).findStatic(owner, name, methodType);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Método no encontrado: " + className + "." + name + methodType, e);
+        }
+    }
+
+    static Object staticField(String className, String name) {
+        Class<?> owner = type(className);
+        try {
+            return lookup(owner).findStaticVarHandle(owner, name, owner.getDeclaredField(name).getType()).get();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Campo no encontrado: " + className + "." + name, e);
+        }
+    }
+
+    static Object enumConstant(String className, String name) {
+        for (Object constant : type(className).getEnumConstants()) {
+            if (((Enum<?>) constant).name().equalsIgnoreCase(name)) {
+                return constant;
+            }
+        }
+        throw new IllegalArgumentException("Valor desconocido de " + className + ": " + name);
+    }
+
+    /**
+     * Lookup con acceso a los miembros privados y de paquete de la clase (todo el classpath es el módulo sin nombre).
+     */
+    private static MethodHandles.Lookup lookup(Class<?> owner) throws IllegalAccessException {
+        return MethodHandles.privateLookupIn(owner, MethodHandles.lookup());
+    }
+}
@@ -27,27 +27,37 @@ public class Client {
             }
 
             BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
-            System.out.println("Cliente: Ingrese el número de workers, el mínimo y el máximo (ej: 4 1 10000):");
+            System.out.println("Cliente: Ingrese el número de workers, el mínimo y el máximo (ej: 4 1 10000).");
+            System.out.println("Cliente: Opcionalmente agregue el modo 'analitico' o 'analitico-impares' (ej: 4 1 10000 analitico):");
 
             String line = reader.readLine();
             String[] tokens = line.trim().split("\\s+");
 
             // Valida y parsea la entrada del usuario.
-            if (tokens.length != 3) {
-                System.err.println("Cliente: Formato de entrada incorrecto. Debe ser '<num_workers> <min> <max>'.");
+            if (tokens.length != 3 && tokens.length != 4) {
+                System.err.println("Cliente: Formato de entrada incorrecto. Debe ser '<num_workers> <min> <max> [analitico|analitico-impares]'.");
+                System.exit(1);
+            }
+            String mode = (tokens.length == 4) ? tokens[3] : "";
+            if (!mode.isEmpty() && !mode.equals("analitico") && !mode.equals("analitico-impares")) {
+                System.err.println("Cliente: Modo desconocido '" + mode + "'. Use 'analitico' o 'analitico-impares'.");
                 System.exit(1);
             }
 
             int numWorkers = Integer.parseInt(tokens[0]);
-            int min = Integer.parseInt(tokens[1]);
-            int max = Integer.parseInt(tokens[2]);
+            // El rango se lee como long: las operaciones de 64 bits permiten buscar más allá de 2^31.
+            long min = Long.parseLong(tokens[1]);
+            long max = Long.parseLong(tokens[2]);
 
             // Mide el tiempo de ejecución.
             long start = System.currentTimeMillis();
 
             // Realiza la llamada síncrona al Maestro para iniciar el trabajo.
             // Esta llamada es bloqueante hasta que el Maestro devuelve los resultados.
-            int[] result = publisher.startJob(numWorkers, min, max);
+            // En modo analítico el Maestro usa Euclides–Euler y no necesita esperar a numWorkers.
+            long[] result = mode.isEmpty()
+                    ? publisher.startJobLong(numWorkers, min, max)
+                    : publisher.startAnalyticJobLong(min, max, mode.equals("analitico-impares"));
 
             long end = System.currentTimeMillis();
 
@@ -60,6 +70,10 @@ public class Client {
 
             System.out.println("Cliente: Tiempo de ejecución: " + (end - start) + " ms");
 
+        } catch (Demo.QueueFullException e) {
+            // El Maestro rechazó la búsqueda porque su cola está llena.
+            System.err.println("Cliente de Consola: El Maestro está ocupado - " + e.reason);
+            System.exit(1);
         } catch (com.zeroc.Ice.Exception e) {
             // Captura excepciones específicas de ICE (ej. problemas de conexión, objeto no encontrado).
             System.err.println("Cliente de Consola: Error de ICE - " + e.getMessage());
@@ -3,13 +3,14 @@ package client;
 import Demo.PublisherPrx;
 import Demo.ClientCallback;
 import Demo.ClientCallbackPrx;
+import Demo.RangeResult;
 import com.zeroc.Ice.*;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 
 import java.time.Instant;
-import java.util.Arrays; // Para imprimir el array de enteros
+import java.util.Arrays; // Para imprimir el array de números
 
 
 /**
@@ -18,9 +19,11 @@ import java.util.Arrays; // Para imprimir el array de enteros
  */
 public class ClientController implements ClientCallback { // Implementa ClientCallback
     // Componentes de la GUI inyectados por FXML
-    @FXML private TextField startField, endField;
+    @FXML private TextField startField, endField, deadlineField;
     @FXML private TextArea resultArea;
     @FXML private Label executionTimeLabel;
+    @FXML private Label progressLabel;
+    @FXML private ProgressBar progressBar;
 
     // Proxies y comunicador de ICE
     private ClientCallbackPrx selfProxy; // Proxy del propio cliente (para que el Maestro pueda llamarlo de vuelta)
@@ -30,6 +33,16 @@ public class ClientController implements ClientCallback { // Implementa ClientCa
 
     // Variables de estado
     private Instant startTime; // Para medir el tiempo de ejecución de la solicitud
+    // Cantidad de perfectos ya recibidos como resultados parciales en la solicitud actual.
+    // Solo se usa desde el hilo de JavaFX.
+    private int streamedCount = 0;
+    // Aviso de cobertura incompleta de la solicitud actual (null si el Maestro recorrió todo el rango).
+    // Solo se usa desde el hilo de JavaFX.
+    private String coverageNote = null;
+    // Rango de la solicitud actual, ya ordenado, para indicar hasta dónde llegó una búsqueda incompleta.
+    private volatile long requestStart, requestEnd;
+    // ID que el Maestro asignó a la solicitud en curso, para cancelarla (0 si no hay ninguna).
+    private volatile long currentJobId = 0;
     // ID único para esta instancia de cliente, utilizado en la identidad del objeto ICE
     private final String clientId = "client" + java.util.UUID.randomUUID().toString().substring(0, 8);
 
@@ -108,8 +121,14 @@ public class ClientController implements ClientCallback { // Implementa ClientCa
     private void onBuscarClicked() {
         try {
             // Valida y parsea el rango ingresado por el usuario.
-            int start = Integer.parseInt(startField.getText());
-            int end = Integer.parseInt(endField.getText());
+            // Se usan rangos de 64 bits: la búsqueda no está limitada a 2^31.
+            long start = Long.parseLong(startField.getText().trim());
+            long end = Long.parseLong(endField.getText().trim());
+            // Plazo opcional: al vencer, el Maestro devuelve lo encontrado hasta ese momento.
+            String deadlineText = deadlineField.getText().trim();
+            long deadlineMs = deadlineText.isEmpty() ? 0 : Long.parseLong(deadlineText);
+            requestStart = Math.min(start, end);
+            requestEnd = Math.max(start, end);
             startTime = Instant.now(); // Marca el inicio del tiempo de ejecución.
 
             // Valida que el rango sea válido
@@ -134,11 +153,22 @@ public class ClientController implements ClientCallback { // Implementa ClientCa
                         return;
                     }
 
-                    // Envía la solicitud al Maestro, incluyendo el rango y el proxy de callback del propio cliente.
-                    publisher.requestPerfectNumbers(start, end, selfProxy);
+                    // Prepara la GUI antes de enviar la solicitud: el Maestro puede avisar que quedó
+                    // en cola (o enviar resultados parciales) antes de que la llamada retorne.
+                    // Los resultados parciales se irán agregando debajo a medida que lleguen.
+                    Platform.runLater(() -> {
+                        streamedCount = 0;
+                        coverageNote = null;
+                        resultArea.setText("Solicitud enviada. Esperando resultados..." + System.lineSeparator());
+                        progressBar.setProgress(0);
+                        progressLabel.setText("Avance: 0%");
+                    });
 
-                    // Actualiza la GUI para indicar que la solicitud fue enviada.
-                    Platform.runLater(() -> resultArea.setText("Solicitud enviada. Esperando resultados..."));
+                    // Envía la solicitud al Maestro, incluyendo el rango y el proxy de callback del propio cliente.
+                    // El Maestro devuelve el ID de la búsqueda, con el que se puede cancelar.
+                    currentJobId = (deadlineMs > 0)
+                            ? publisher.requestPerfectNumbersWithDeadline(start, end, deadlineMs, selfProxy)
+                            : publisher.requestPerfectNumbersLong(start, end, selfProxy);
                 } catch (com.zeroc.Ice.Exception e) {
                     // Captura errores de comunicación con ICE.
                     System.err.println("Cliente: Error de ICE al enviar solicitud - " + e.getMessage());
@@ -157,6 +187,28 @@ public class ClientController implements ClientCallback { // Implementa ClientCa
         }
     }
 
+    /**
+     * Maneja el evento de clic en el botón "Cancelar" de la GUI.
+     * Pide al Maestro que cancele la solicitud en curso; el Maestro responde igual por el callback,
+     * con los perfectos encontrados hasta ese momento y la cobertura marcada como incompleta.
+     */
+    @FXML
+    private void onCancelarClicked() {
+        long jobId = currentJobId;
+        if (jobId == 0 || publisher == null) {
+            Platform.runLater(() -> progressLabel.setText("No hay ninguna búsqueda en curso."));
+            return;
+        }
+        progressLabel.setText("Cancelando la búsqueda #" + jobId + "...");
+        publisher.cancelJobAsync(jobId).whenComplete((cancelled, ex) -> Platform.runLater(() -> {
+            if (ex != null) {
+                resultArea.appendText("Error al cancelar la búsqueda: " + ex.getMessage() + System.lineSeparator());
+            } else if (!cancelled) {
+                progressLabel.setText("La búsqueda #" + jobId + " ya había terminado.");
+            }
+        }));
+    }
+
     /**
      * Método invocado por el Maestro para devolver los números perfectos encontrados.
      * Implementa el callback ClientCallback.
@@ -166,11 +218,145 @@ public class ClientController implements ClientCallback { // Implementa ClientCa
      */
     @Override
     public void perfectNumbersFound(int[] perfectNums, long durationMs, Current current) {
+        showResults(Arrays.toString(perfectNums), perfectNums.length, durationMs);
+    }
+
+    /**
+     * Versión de 64 bits del callback, usada en respuesta a requestPerfectNumbersLong.
+     * @param perfectNums Array de números perfectos encontrados.
+     * @param durationMs Duración total de la búsqueda en milisegundos (reportada por el Maestro).
+     * @param current Contexto de la llamada ICE.
+     */
+    @Override
+    public void perfectNumbersFoundLong(long[] perfectNums, long durationMs, Current current) {
+        showResults(Arrays.toString(perfectNums), perfectNums.length, durationMs);
+    }
+
+    /**
+     * Resultado de un lote de rangos (requestBatch): los perfectos de cada rango pedido, en el orden del pedido.
+     * @param results Resultado de cada rango.
+     * @param durationMs Duración total del lote en milisegundos (reportada por el Maestro).
+     * @param current Contexto de la llamada ICE.
+     */
+    @Override
+    public void batchResults(RangeResult[] results, long durationMs, Current current) {
+        StringBuilder text = new StringBuilder();
+        int count = 0;
+        for (RangeResult result : results) {
+            text.append(System.lineSeparator()).append("[").append(result.minNum).append(", ").append(result.maxNum).append("]: ")
+                    .append(Arrays.toString(result.perfectNums)).append(result.complete ? "" : " (incompleto)");
+            count += result.perfectNums.length;
+        }
+        showResults(text.toString(), count, durationMs);
+    }
+
+    /**
+     * Método invocado por el Maestro durante la búsqueda con los perfectos encontrados desde el envío anterior.
+     * @param perfectNums Números perfectos encontrados en las partes del rango que acaban de terminar.
+     * @param current Contexto de la llamada ICE.
+     */
+    @Override
+    public void partialResults(long[] perfectNums, Current current) {
+        Platform.runLater(() -> {
+            streamedCount += perfectNums.length;
+            resultArea.appendText("Encontrados: " + Arrays.toString(perfectNums) + System.lineSeparator());
+        });
+    }
+
+    /**
+     * Método invocado por el Maestro durante la búsqueda para informar el avance.
+     * @param coveredFraction Fracción del rango ya recorrida (0 a 1).
+     * @param numbersPerSecond Números recorridos por segundo desde el inicio de la búsqueda.
+     * @param etaMs Tiempo restante estimado en milisegundos (negativo si aún no se puede estimar).
+     * @param current Contexto de la llamada ICE.
+     */
+    @Override
+    public void progress(double coveredFraction, double numbersPerSecond, long etaMs, Current current) {
+        String eta = (etaMs >= 0) ? String.format("%.1f s", etaMs / 1000.0) : "calculando...";
+        Platform.runLater(() -> {
+            progressBar.setProgress(coveredFraction);
+            progressLabel.setText(String.format("Avance: %.1f%% · %,.0f números/s · Tiempo restante: %s",
+                    coveredFraction * 100, numbersPerSecond, eta));
+        });
+    }
+
+    /**
+     * Método invocado por el Maestro cuando la solicitud no puede empezar de inmediato y queda en cola.
+     * @param position Posición estimada en la cola (1 es la próxima en empezar).
+     * @param etaMs Espera estimada en milisegundos hasta que empiece (negativo si aún no se puede estimar).
+     * @param current Contexto de la llamada ICE.
+     */
+    @Override
+    public void queued(int position, long etaMs, Current current) {
+        String eta = (etaMs >= 0) ? String.format("%.1f s", etaMs / 1000.0) : "calculando...";
+        Platform.runLater(() -> progressLabel.setText(String.format("En cola: posición %d · Espera estimada: %s", position, eta)));
+    }
+
+    /**
+     * Método invocado por el Maestro cuando rechaza la solicitud (por ejemplo, con la cola llena).
+     * No llegarán resultados para esta solicitud.
+     * @param reason Motivo del rechazo.
+     * @param current Contexto de la llamada ICE.
+     */
+    @Override
+    public void rejected(String reason, Current current) {
+        currentJobId = 0;
+        Platform.runLater(() -> {
+            resultArea.setText("Solicitud rechazada por el Maestro: " + reason);
+            progressLabel.setText("Avance: -");
+        });
+    }
+
+    /**
+     * Método invocado por el Maestro justo antes del resultado final para indicar si recorrió todo el rango.
+     * Si algún worker falló y no hubo otro que terminara su parte, o la búsqueda se canceló o venció su plazo,
+     * el resultado puede no tener todos los perfectos. Las partes sin recorrer llegan ordenadas.
+     * @param complete true si se recorrió todo el rango.
+     * @param missingRanges Subrangos sin recorrer, como pares consecutivos {inicio, fin}.
+     * @param current Contexto de la llamada ICE.
+     */
+    @Override
+    public void coverage(boolean complete, long[] missingRanges, Current current) {
+        if (complete) {
+            return;
+        }
+        StringBuilder ranges = new StringBuilder();
+        for (int i = 0; i + 1 < missingRanges.length; i += 2) {
+            ranges.append(ranges.length() > 0 ? ", " : "").append("[").append(missingRanges[i]).append(", ")
+                    .append(missingRanges[i + 1]).append("]");
+        }
+        // Todo lo anterior a la primera parte sin recorrer está completo.
+        long firstMissing = (missingRanges.length > 0) ? missingRanges[0] : requestStart;
+        String upTo = (firstMissing > requestStart) ? "Completo hasta " + (firstMissing - 1) + ". " : "";
+        String note = "Atención: resultado incompleto. " + upTo + "Quedaron sin recorrer " + ranges;
+        Platform.runLater(() -> coverageNote = note);
+    }
+
+    /**
+     * Muestra los resultados en la GUI.
+     * Si ya llegaron todos como resultados parciales, solo se agrega el resumen; si no
+     * (búsqueda analítica o un Maestro sin avance), se muestra la lista completa.
+     * @param perfectNumsText Números perfectos ya formateados.
+     * @param count Cantidad de números encontrados.
+     * @param durationMs Duración total de la búsqueda en milisegundos.
+     */
+    private void showResults(String perfectNumsText, int count, long durationMs) {
+        currentJobId = 0;
         // Actualiza la GUI en el hilo de la aplicación JavaFX.
         Platform.runLater(() -> {
-            resultArea.setText("Números perfectos encontrados: " + Arrays.toString(perfectNums));
+            if (streamedCount == count && count > 0) {
+                resultArea.appendText("Búsqueda completada. Números perfectos encontrados: " + perfectNumsText);
+            } else {
+                resultArea.setText("Números perfectos encontrados: " + perfectNumsText);
+            }
+            progressBar.setProgress(1);
+            progressLabel.setText("Avance: 100%");
             executionTimeLabel.setText("Tiempo de ejecución total: " + durationMs + " ms");
-            System.out.println("Cliente: Resultados recibidos. Tiempo total: " + durationMs + " ms. Cantidad de números: " + perfectNums.length);
+            if (coverageNote != null) {
+                resultArea.appendText(System.lineSeparator() + coverageNote);
+                progressLabel.setText("Avance: incompleto");
+            }
+            System.out.println("Cliente: Resultados recibidos. Tiempo total: " + durationMs + " ms. Cantidad de números: " + count);
         });
     }
 
@@ -179,6 +365,15 @@ public class ClientController implements ClientCallback { // Implementa ClientCa
      * Llamado desde MainApp cuando la ventana principal se cierra.
      */
     public void shutdownIce() {
+        long jobId = currentJobId;
+        if (jobId != 0 && publisher != null) {
+            // Nadie va a recibir el resultado: se libera a los workers sin esperar a que el Maestro note la desconexión.
+            try {
+                publisher.cancelJob(jobId);
+            } catch (com.zeroc.Ice.Exception e) {
+                System.err.println("Cliente: No se pudo cancelar la búsqueda #" + jobId + " - " + e.getMessage());
+            }
+        }
         if (communicator != null) {
             System.out.println("Apagando Communicator de ICE para el cliente " + clientId + "...");
             communicator.shutdown(); // Cierra el Communicator
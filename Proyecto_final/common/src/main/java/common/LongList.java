@@ -0,0 +1,98 @@
+package common;
+
+import java.util.Arrays;
+
+/**
+ * Lista creciente de long sin boxing, para acumular perfectos (resultados de los kernels, puntos de
+ * control, envíos de avance).
+ * Los perfectos son escasos, así que la mayoría de las listas quedan vacías: el array se reserva
+ * recién con el primer valor y una lista vacía no ocupa más que el objeto.
+ * La usan el Maestro y el worker. No es segura entre hilos.
+ */
+public final class LongList {
+
+    private static final long[] EMPTY = new long[0];
+
+    // Capacidad con la que arranca el array al agregar el primer valor.
+    private static final int INITIAL_CAPACITY = 4;
+
+    private long[] values = EMPTY;
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Índice " + index + " con tamaño " + size);
+        }
+        return values[index];
+    }
+
+    public void add(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.max(INITIAL_CAPACITY, size * 2));
+        }
+        values[size++] = value;
+    }
+
+    /**
+     * Agrega al final todos los valores de otra lista.
+     * @param other Lista a agregar (no se modifica).
+     */
+    public void addAll(LongList other) {
+        append(other.values, other.size);
+    }
+
+    /**
+     * Agrega al final los valores de un array.
+     */
+    public void addAll(long[] other) {
+        append(other, other.length);
+    }
+
+    /**
+     * Vacía la lista conservando su capacidad.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return Array con los valores, en orden (el array vacío compartido si no hay ninguno).
+     */
+    public long[] toArray() {
+        return (size == 0) ? EMPTY : Arrays.copyOf(values, size);
+    }
+
+    /**
+     * @return true si other tiene los mismos valores en el mismo orden.
+     */
+    public boolean contentEquals(LongList other) {
+        return Arrays.equals(values, 0, size, other.values, 0, other.size);
+    }
+
+    /**
+     * Mismo formato que List.toString: "[6, 28, 496]".
+     */
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    private void append(long[] source, int count) {
+        if (count == 0) {
+            return;
+        }
+        if (size + count > values.length) {
+            values = Arrays.copyOf(values, Math.max(size + count, size * 2));
+        }
+        System.arraycopy(source, 0, values, size, count);
+        size += count;
+    }
+}
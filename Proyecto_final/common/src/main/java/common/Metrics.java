@@ -0,0 +1,275 @@
+package common;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Métricas del proceso (contadores, indicadores e histogramas de duraciones) y su exposición en el
+ * formato de texto de Prometheus, que devuelven MetricsEndpoint y la operación getMetrics del Maestro.
+ * Registrar un valor no toma bloqueos ni reserva memoria: contadores y cubetas son LongAdder, así que
+ * quien mide guarda la serie que obtuvo al registrarla y la usa directamente.
+ * Cada serie se identifica por su nombre y sus etiquetas; pedirla otra vez devuelve la misma.
+ */
+public class Metrics {
+
+    // Límites por defecto de las cubetas de duraciones, en segundos (de 1 ms a 5 min).
+    public static final double[] LATENCY_BUCKETS = {
+            0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 300};
+
+    private enum Type {
+        counter, gauge, histogram
+    }
+
+    /**
+     * Métrica con todas sus series, una por combinación de etiquetas.
+     */
+    private static final class Family {
+        final Type type;
+        final String help;
+        // Series por etiquetas ya formateadas (ej. worker="3"; vacío si no tiene), en orden para una salida estable.
+        final ConcurrentSkipListMap<String, Object> series = new ConcurrentSkipListMap<>();
+
+        Family(Type type, String help) {
+            this.type = type;
+            this.help = help;
+        }
+    }
+
+    /**
+     * Contador monótono.
+     */
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void inc() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    /**
+     * Indicador: un valor que se fija (set) o que se lee de una función en cada exposición.
+     */
+    public static final class Gauge {
+        private final DoubleSupplier supplier;
+        private volatile double value;
+
+        Gauge(DoubleSupplier supplier) {
+            this.supplier = supplier;
+        }
+
+        public void set(double value) {
+            this.value = value;
+        }
+
+        public double get() {
+            return (supplier != null) ? supplier.getAsDouble() : value;
+        }
+    }
+
+    /**
+     * Histograma de duraciones con cubetas fijas. Las duraciones se registran en nanosegundos y se
+     * exponen en segundos.
+     */
+    public static final class Histogram {
+        // Límites superiores de las cubetas, en segundos y en nanosegundos.
+        private final double[] bounds;
+        private final long[] boundsNanos;
+        // Observaciones por cubeta (no acumuladas); la última es +Inf.
+        private final LongAdder[] buckets;
+        private final LongAdder sumNanos = new LongAdder();
+
+        Histogram(double[] bounds) {
+            this.bounds = bounds.clone();
+            this.boundsNanos = new long[bounds.length];
+            this.buckets = new LongAdder[bounds.length + 1];
+            for (int i = 0; i < bounds.length; i++) {
+                boundsNanos[i] = (long) (bounds[i] * 1e9);
+            }
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        /**
+         * Registra una duración.
+         * @param nanos Duración en nanosegundos.
+         */
+        public void observeNanos(long nanos) {
+            int i = 0;
+            while (i < boundsNanos.length && nanos > boundsNanos[i]) {
+                i++;
+            }
+            buckets[i].increment();
+            sumNanos.add(nanos);
+        }
+
+        public long count() {
+            long count = 0;
+            for (LongAdder bucket : buckets) {
+                count += bucket.sum();
+            }
+            return count;
+        }
+    }
+
+    // Métricas por nombre, en orden alfabético.
+    private final ConcurrentSkipListMap<String, Family> families = new ConcurrentSkipListMap<>();
+
+    /**
+     * @param name Nombre de la métrica (por convención, terminado en _total).
+     * @param help Descripción.
+     * @param labels Pares nombre, valor de las etiquetas de la serie.
+     * @return Contador de la serie.
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) series(name, help, Type.counter, labels, Counter::new);
+    }
+
+    /**
+     * Indicador que se fija con Gauge.set.
+     * @param name Nombre de la métrica.
+     * @param help Descripción.
+     * @param labels Pares nombre, valor de las etiquetas de la serie.
+     * @return Indicador de la serie.
+     */
+    public Gauge gauge(String name, String help, String... labels) {
+        return (Gauge) series(name, help, Type.gauge, labels, () -> new Gauge(null));
+    }
+
+    /**
+     * Indicador sin etiquetas cuyo valor se lee de una función al exponer las métricas.
+     * @param name Nombre de la métrica.
+     * @param help Descripción.
+     * @param supplier Función que da el valor actual; se llama desde el hilo que expone las métricas.
+     * @throws IllegalStateException Si el indicador ya estaba registrado: seguiría leyendo la función anterior.
+     */
+    public void gauge(String name, String help, DoubleSupplier supplier) {
+        Gauge gauge = new Gauge(supplier);
+        if (series(name, help, Type.gauge, new String[0], () -> gauge) != gauge) {
+            throw new IllegalStateException("El indicador " + name + " ya está registrado con otra función");
+        }
+    }
+
+    /**
+     * @param name Nombre de la métrica (por convención, terminado en _seconds).
+     * @param help Descripción.
+     * @param bounds Límites superiores de las cubetas en segundos, ascendentes (ej. LATENCY_BUCKETS).
+     * @param labels Pares nombre, valor de las etiquetas de la serie.
+     * @return Histograma de la serie.
+     */
+    public Histogram histogram(String name, String help, double[] bounds, String... labels) {
+        return (Histogram) series(name, help, Type.histogram, labels, () -> new Histogram(bounds));
+    }
+
+    /**
+     * Todas las series en el formato de texto de Prometheus (versión 0.0.4).
+     */
+    public String render() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Map.Entry<String, Family> entry : families.entrySet()) {
+            String name = entry.getKey();
+            Family family = entry.getValue();
+            out.append("# HELP ").append(name).append(' ').append(escapeHelp(family.help)).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, Object> s : family.series.entrySet()) {
+                String labels = s.getKey();
+                Object metric = s.getValue();
+                if (metric instanceof Counter) {
+                    sample(out, name, labels, ((Counter) metric).get());
+                } else if (metric instanceof Gauge) {
+                    sample(out, name, labels, ((Gauge) metric).get());
+                } else {
+                    Histogram h = (Histogram) metric;
+                    String prefix = labels.isEmpty() ? "" : labels + ",";
+                    long cumulative = 0;
+                    for (int i = 0; i < h.bounds.length; i++) {
+                        cumulative += h.buckets[i].sum();
+                        sample(out, name + "_bucket", prefix + "le=\"" + format(h.bounds[i]) + "\"", cumulative);
+                    }
+                    cumulative += h.buckets[h.bounds.length].sum();
+                    sample(out, name + "_bucket", prefix + "le=\"+Inf\"", cumulative);
+                    sample(out, name + "_sum", labels, h.sumNanos.sum() / 1e9);
+                    sample(out, name + "_count", labels, cumulative);
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Busca o crea una serie. Una métrica no puede registrarse con dos tipos distintos.
+     */
+    private Object series(String name, String help, Type type, String[] labels,
+                          Supplier<Object> factory) {
+        Family family = families.computeIfAbsent(name, n -> new Family(type, help));
+        if (family.type != type) {
+            throw new IllegalArgumentException("La métrica " + name + " ya está registrada como " + family.type);
+        }
+        return family.series.computeIfAbsent(formatLabels(labels), k -> factory.get());
+    }
+
+    private static String formatLabels(String[] labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Las etiquetas van en pares nombre, valor");
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(labels[i]).append("=\"").append(escapeLabel(labels[i + 1])).append('"');
+        }
+        return sb.toString();
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, long value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(format(value)).append('\n');
+    }
+
+    /**
+     * Valor numérico de Prometheus: enteros sin decimales, y +Inf, -Inf o NaN.
+     */
+    private static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return (value > 0) ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static String escapeLabel(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String escapeHelp(String help) {
+        return help.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+}
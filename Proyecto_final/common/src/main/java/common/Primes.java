@@ -0,0 +1,31 @@
+package common;
+
+/**
+ * Primalidad de los exponentes de Mersenne. La usan el Maestro (exponentes candidatos del modo analítico)
+ * y el worker (antes del test de Lucas–Lehmer).
+ */
+public final class Primes {
+
+    private Primes() {
+    }
+
+    /**
+     * Primalidad por división de prueba, suficiente para los exponentes que se manejan.
+     * @param p Número a evaluar.
+     * @return true si p es primo.
+     */
+    public static boolean isPrime(int p) {
+        if (p < 2) {
+            return false;
+        }
+        if (p % 2 == 0) {
+            return p == 2;
+        }
+        for (int d = 3; d <= p / d; d += 2) {
+            if (p % d == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,81 @@
+package loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Latencias y errores de una entrada de la mezcla durante un paso de la prueba.
+ * Guarda todas las latencias (en nanosegundos) para calcular percentiles exactos; con duraciones de
+ * segundos a minutos son a lo sumo cientos de miles de valores. Seguro entre hilos.
+ */
+final class LatencyStats {
+
+    private long[] latencies = new long[1024];
+    private int count;
+    // Errores por tipo: "rejected", "timeout" o el nombre de la excepción.
+    private final Map<String, Integer> errors = new TreeMap<>();
+
+    synchronized void record(long latencyNanos) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyNanos;
+    }
+
+    synchronized void recordError(String kind) {
+        errors.merge(kind, 1, Integer::sum);
+    }
+
+    /**
+     * Resumen inmutable de lo registrado.
+     * @param measuredNanos Duración de la medición, para calcular el throughput.
+     */
+    synchronized Summary summarize(long measuredNanos) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        return new Summary(sorted, new TreeMap<>(errors), measuredNanos);
+    }
+
+    /**
+     * Resumen de un paso: cantidad, throughput, percentiles (rango más cercano) y errores.
+     */
+    static final class Summary {
+        final int completed;
+        final int failed;
+        final double throughputPerSecond;
+        final double meanMs;
+        final double p50Ms;
+        final double p99Ms;
+        final double p999Ms;
+        final double maxMs;
+        final Map<String, Integer> errors;
+
+        private Summary(long[] sorted, Map<String, Integer> errors, long measuredNanos) {
+            this.completed = sorted.length;
+            this.failed = errors.values().stream().mapToInt(Integer::intValue).sum();
+            this.throughputPerSecond = sorted.length * 1e9 / Math.max(1L, measuredNanos);
+            long total = 0;
+            for (long latency : sorted) {
+                total += latency;
+            }
+            this.meanMs = (sorted.length == 0) ? 0 : total / 1e6 / sorted.length;
+            this.p50Ms = percentile(sorted, 0.50);
+            this.p99Ms = percentile(sorted, 0.99);
+            this.p999Ms = percentile(sorted, 0.999);
+            this.maxMs = (sorted.length == 0) ? 0 : sorted[sorted.length - 1] / 1e6;
+            this.errors = errors;
+        }
+
+        /**
+         * Percentil por rango más cercano, en milisegundos (0 si no hay valores).
+         */
+        private static double percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(p * sorted.length);
+            return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package loadtest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import Demo.ClientCallback;
+import Demo.ClientCallbackPrx;
+import Demo.PublisherPrx;
+import Demo.QueueFullException;
+import Demo.RangeResult;
+import com.zeroc.Ice.Current;
+import com.zeroc.Ice.Identity;
+import com.zeroc.Ice.ObjectAdapter;
+import com.zeroc.Ice.Util;
+
+/**
+ * Genera la carga de un paso: tantos clientes concurrentes como indique el paso, cada uno en su hilo y
+ * en lazo cerrado (envía una solicitud, espera la respuesta y envía la siguiente). Cada solicitud se
+ * elige al azar de la mezcla según su peso, sobre un rango de inicio aleatorio. Las solicitudes que
+ * empiezan durante el calentamiento se ejecutan pero no se miden.
+ */
+final class LoadDriver {
+
+    private final Scenario scenario;
+    private final PublisherPrx publisher;
+    private final ObjectAdapter callbacks;
+    private final int totalWeight;
+    // Identidades únicas para los callbacks de requestPerfectNumbers.
+    private final AtomicLong nextCallbackId = new AtomicLong();
+
+    /**
+     * @param scenario Escenario (mezcla, rangos, tiempos).
+     * @param publisher Proxy del Maestro.
+     * @param callbacks Adaptador activo donde se publican los callbacks de cada solicitud.
+     */
+    LoadDriver(Scenario scenario, PublisherPrx publisher, ObjectAdapter callbacks) {
+        this.scenario = scenario;
+        this.publisher = PublisherPrx.uncheckedCast(publisher.ice_invocationTimeout((int) scenario.requestTimeoutMs));
+        this.callbacks = callbacks;
+        this.totalWeight = scenario.mix.stream().mapToInt(e -> e.weight).sum();
+    }
+
+    /**
+     * Ejecuta un paso con la concurrencia indicada.
+     * @param clients Clientes concurrentes.
+     * @return Resumen por entrada de la mezcla (en el orden del escenario) y el total, con la clave "total".
+     */
+    Map<String, LatencyStats.Summary> runStep(int clients) throws InterruptedException {
+        Map<Scenario.MixEntry, LatencyStats> stats = new LinkedHashMap<>();
+        for (Scenario.MixEntry entry : scenario.mix) {
+            stats.put(entry, new LatencyStats());
+        }
+        LatencyStats total = new LatencyStats();
+
+        long measureStart = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(scenario.warmupMs);
+        long measureEnd = measureStart + TimeUnit.MILLISECONDS.toNanos(scenario.durationMs);
+        List<Thread> threads = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            Thread thread = new Thread(() -> {
+                while (System.nanoTime() < measureEnd) {
+                    Scenario.MixEntry entry = pick();
+                    long start = System.nanoTime();
+                    String error = execute(entry);
+                    long end = System.nanoTime();
+                    if (start < measureStart || end > measureEnd) {
+                        continue; // Calentamiento, o terminó después del fin de la medición.
+                    }
+                    if (error == null) {
+                        stats.get(entry).record(end - start);
+                        total.record(end - start);
+                    } else {
+                        stats.get(entry).recordError(error);
+                        total.recordError(error);
+                    }
+                }
+            }, "LoadTest-Client-" + c);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        long measuredNanos = measureEnd - measureStart;
+        Map<String, LatencyStats.Summary> summaries = new LinkedHashMap<>();
+        for (Map.Entry<Scenario.MixEntry, LatencyStats> e : stats.entrySet()) {
+            summaries.put(e.getKey().label(), e.getValue().summarize(measuredNanos));
+        }
+        summaries.put("total", total.summarize(measuredNanos));
+        return summaries;
+    }
+
+    private Scenario.MixEntry pick() {
+        int r = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Scenario.MixEntry entry : scenario.mix) {
+            r -= entry.weight;
+            if (r < 0) {
+                return entry;
+            }
+        }
+        return scenario.mix.get(scenario.mix.size() - 1);
+    }
+
+    /**
+     * Ejecuta una solicitud sobre un rango [min, min + tamaño - 1] con min al azar en [1, RangeSpread].
+     * @return null si terminó bien, o el tipo de error.
+     */
+    private String execute(Scenario.MixEntry entry) {
+        int min = 1 + ThreadLocalRandom.current().nextInt(scenario.rangeSpread);
+        int max = min + entry.rangeSize - 1;
+        try {
+            switch (entry.operation) {
+                case startJob:
+                    publisher.startJob(scenario.workers, min, max);
+                    return null;
+                case requestPerfectNumbers:
+                    return requestWithCallback(min, max);
+                default:
+                    throw new IllegalStateException("Operación sin implementar: " + entry.operation);
+            }
+        } catch (QueueFullException e) {
+            return "rejected"; // Cola llena, como el callback rejected.
+        } catch (com.zeroc.Ice.InvocationTimeoutException e) {
+            return "timeout";
+        } catch (com.zeroc.Ice.Exception e) {
+            return e.getClass().getSimpleName();
+        }
+    }
+
+    /**
+     * requestPerfectNumbers con un callback propio, que se retira al terminar. Si el resultado no llega
+     * a tiempo se cancela la búsqueda en el Maestro para no dejar carga fantasma en los pasos siguientes.
+     */
+    private String requestWithCallback(int min, int max) {
+        PendingRequest pending = new PendingRequest();
+        Identity identity = Util.stringToIdentity("loadtest-" + nextCallbackId.incrementAndGet());
+        ClientCallbackPrx callback = ClientCallbackPrx.uncheckedCast(callbacks.add(pending, identity));
+        long jobId = 0;
+        try {
+            jobId = publisher.requestPerfectNumbers(min, max, callback);
+            return pending.outcome.get(scenario.requestTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (jobId != 0) {
+                try {
+                    publisher.cancelJob(jobId);
+                } catch (com.zeroc.Ice.Exception ignored) {
+                    // La búsqueda se da por perdida igual.
+                }
+            }
+            return "timeout";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "interrupted";
+        } catch (ExecutionException e) {
+            return e.getCause().getClass().getSimpleName();
+        } finally {
+            callbacks.remove(identity);
+        }
+    }
+
+    /**
+     * Callback de una solicitud: se completa con null al recibir los perfectos, o con "rejected" si el
+     * Maestro la rechaza. Los avisos intermedios (avance, cola, cobertura) se ignoran.
+     */
+    private static final class PendingRequest implements ClientCallback {
+        final CompletableFuture<String> outcome = new CompletableFuture<>();
+
+        @Override
+        public void perfectNumbersFound(int[] perfectNums, long durationMs, Current current) {
+            outcome.complete(null);
+        }
+
+        @Override
+        public void perfectNumbersFoundLong(long[] perfectNums, long durationMs, Current current) {
+            outcome.complete(null);
+        }
+
+        @Override
+        public void rejected(String reason, Current current) {
+            outcome.complete("rejected");
+        }
+
+        @Override
+        public void partialResults(long[] perfectNums, Current current) {
+        }
+
+        @Override
+        public void progress(double coveredFraction, double numbersPerSecond, long etaMs, Current current) {
+        }
+
+        @Override
+        public void queued(int position, long etaMs, Current current) {
+        }
+
+        @Override
+        public void coverage(boolean complete, long[] missingRanges, Current current) {
+        }
+
+        @Override
+        public void batchResults(RangeResult[] results, long durationMs, Current current) {
+        }
+    }
+}
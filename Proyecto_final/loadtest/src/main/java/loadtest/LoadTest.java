@@ -0,0 +1,125 @@
+package loadtest;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Map;
+
+import Demo.PublisherPrx;
+import com.zeroc.Ice.Communicator;
+import com.zeroc.Ice.ObjectAdapter;
+import com.zeroc.Ice.Util;
+
+/**
+ * Prueba de carga de extremo a extremo en localhost.
+ * Por cada escenario recibido como argumento levanta un Maestro y sus workers como procesos locales
+ * (LocalCluster), corre un paso de carga por cada valor de LoadTest.Clients (LoadDriver) y guarda
+ * throughput y latencias p50/p99/p999 por operación en build/loadtest/<escenario>-<fecha>.json, y las
+ * métricas del Maestro al terminar en build/loadtest/<escenario>-<fecha>/master-metrics.prom.
+ * Ejecutar con: ./gradlew :loadtest:run -Pscenarios=scenarios/smoke.cfg
+ */
+public class LoadTest {
+
+    private static final DateTimeFormatter RUN_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Uso: LoadTest <escenario.cfg> [<escenario.cfg> ...]");
+            System.exit(2);
+        }
+        // El adaptador de callbacks atiende a todos los clientes concurrentes a la vez.
+        String[] iceArgs = {"--Ice.ThreadPool.Server.Size=4", "--Ice.ThreadPool.Server.SizeMax=256",
+                "--Ice.ThreadPool.Client.SizeMax=64"};
+        try (Communicator communicator = Util.initialize(iceArgs)) {
+            ObjectAdapter callbacks = communicator.createObjectAdapterWithEndpoints("LoadTestCallbacks", "default -h 127.0.0.1");
+            callbacks.activate();
+            for (String arg : args) {
+                runScenario(Scenario.load(Paths.get(arg)), communicator, callbacks);
+            }
+        } catch (java.lang.Exception e) {
+            System.err.println("[LoadTest] Error: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Corre todos los pasos de un escenario sobre un mismo clúster y guarda el reporte.
+     */
+    private static void runScenario(Scenario scenario, Communicator communicator, ObjectAdapter callbacks)
+            throws IOException, InterruptedException {
+        String runName = scenario.name + "-" + LocalDateTime.now().format(RUN_STAMP);
+        Path outputDir = Paths.get("build", "loadtest");
+        System.out.println(String.format("[LoadTest] Escenario '%s': %d workers, clientes %s, calentamiento %d ms, medición %d ms por paso.",
+                scenario.name, scenario.workers, scenario.clients, scenario.warmupMs, scenario.durationMs));
+
+        StringBuilder steps = new StringBuilder();
+        try (LocalCluster cluster = new LocalCluster(scenario, outputDir.resolve(runName))) {
+            PublisherPrx publisher = cluster.start(communicator);
+            LoadDriver driver = new LoadDriver(scenario, publisher, callbacks);
+            for (int clients : scenario.clients) {
+                Map<String, LatencyStats.Summary> summaries = driver.runStep(clients);
+                printStep(clients, summaries);
+                if (steps.length() > 0) {
+                    steps.append(",\n");
+                }
+                appendStep(steps, clients, summaries);
+            }
+            // Métricas del Maestro al final del escenario (latencias, espera en cola, ida y vuelta por worker).
+            Files.write(outputDir.resolve(runName).resolve("master-metrics.prom"),
+                    publisher.getMetrics().getBytes(StandardCharsets.UTF_8));
+        }
+
+        Path report = outputDir.resolve(runName + ".json");
+        try (Writer writer = Files.newBufferedWriter(report, StandardCharsets.UTF_8)) {
+            writer.write(String.format(Locale.ROOT,
+                    "{\n  \"scenario\": \"%s\",\n  \"workers\": %d,\n  \"warmupMs\": %d,\n  \"durationMs\": %d,\n  \"steps\": [\n%s\n  ]\n}\n",
+                    scenario.name, scenario.workers, scenario.warmupMs, scenario.durationMs, steps));
+        }
+        System.out.println("[LoadTest] Reporte guardado en " + report.toAbsolutePath());
+    }
+
+    private static void printStep(int clients, Map<String, LatencyStats.Summary> summaries) {
+        System.out.println(String.format("[LoadTest] Paso con %d clientes:", clients));
+        for (Map.Entry<String, LatencyStats.Summary> e : summaries.entrySet()) {
+            LatencyStats.Summary s = e.getValue();
+            System.out.println(String.format(Locale.ROOT,
+                    "[LoadTest]   %-36s %7d ok %5d errores %s | %8.2f op/s | p50 %9.1f ms  p99 %9.1f ms  p999 %9.1f ms  máx %9.1f ms",
+                    e.getKey(), s.completed, s.failed, s.errors.isEmpty() ? "" : s.errors, s.throughputPerSecond,
+                    s.p50Ms, s.p99Ms, s.p999Ms, s.maxMs));
+        }
+    }
+
+    /**
+     * Agrega un paso al JSON del reporte (se escribe a mano para no sumar dependencias).
+     */
+    private static void appendStep(StringBuilder json, int clients, Map<String, LatencyStats.Summary> summaries) {
+        json.append(String.format(Locale.ROOT, "    {\n      \"clients\": %d,\n      \"operations\": {\n", clients));
+        boolean first = true;
+        for (Map.Entry<String, LatencyStats.Summary> e : summaries.entrySet()) {
+            LatencyStats.Summary s = e.getValue();
+            if (!first) {
+                json.append(",\n");
+            }
+            first = false;
+            StringBuilder errors = new StringBuilder();
+            for (Map.Entry<String, Integer> error : s.errors.entrySet()) {
+                if (errors.length() > 0) {
+                    errors.append(", ");
+                }
+                errors.append('"').append(error.getKey()).append("\": ").append(error.getValue());
+            }
+            json.append(String.format(Locale.ROOT,
+                    "        \"%s\": {\"completed\": %d, \"failed\": %d, \"throughputPerSecond\": %.3f, \"meanMs\": %.3f, "
+                            + "\"p50Ms\": %.3f, \"p99Ms\": %.3f, \"p999Ms\": %.3f, \"maxMs\": %.3f, \"errors\": {%s}}",
+                    e.getKey(), s.completed, s.failed, s.throughputPerSecond, s.meanMs, s.p50Ms, s.p99Ms, s.p999Ms, s.maxMs, errors));
+        }
+        json.append("\n      }\n    }");
+    }
+}
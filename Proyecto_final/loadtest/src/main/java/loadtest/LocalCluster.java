@@ -0,0 +1,187 @@
+package loadtest;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import Demo.PublisherPrx;
+import com.zeroc.Ice.Communicator;
+
+/**
+ * Maestro y workers lanzados como procesos locales para una prueba de carga.
+ * Cada proceso arranca con la clase principal de su módulo (Server o ClientWorker) y un archivo
+ * --Ice.Config generado en el directorio de la prueba, que se superpone a su properties.cfg con los
+ * puertos del escenario y sus propiedades "master." / "worker.". La salida de cada proceso queda en
+ * un .log del mismo directorio, que también es su directorio de trabajo (allí queda el diario del Maestro).
+ */
+final class LocalCluster implements AutoCloseable {
+
+    // Tiempo máximo para que el Maestro acepte conexiones y para que se registren todos los workers
+    // (cada worker verifica y calibra sus kernels antes de registrarse).
+    private static final long MASTER_START_TIMEOUT_MS = 30_000L;
+    private static final long WORKERS_START_TIMEOUT_MS = 120_000L;
+
+    // Tiempo que se espera a que cada proceso termine sus shutdown hooks antes de forzar su cierre.
+    private static final long STOP_TIMEOUT_MS = 15_000L;
+
+    private final Scenario scenario;
+    private final Path workDir;
+    private final String masterClasspath;
+    private final String workerClasspath;
+    private final List<Process> processes = new ArrayList<>();
+
+    /**
+     * @param scenario Escenario con la cantidad de workers, los puertos y las propiedades de los procesos.
+     * @param workDir Directorio de la prueba (configuraciones, logs y diario).
+     */
+    LocalCluster(Scenario scenario, Path workDir) {
+        this.scenario = scenario;
+        this.workDir = workDir;
+        this.masterClasspath = requiredProperty("loadtest.masterClasspath");
+        this.workerClasspath = requiredProperty("loadtest.workerClasspath");
+    }
+
+    /**
+     * Proxy del Maestro en el puerto del escenario.
+     */
+    String publisherProxy() {
+        return "publisher:default -h 127.0.0.1 -p " + scenario.masterPort;
+    }
+
+    /**
+     * Lanza el Maestro, espera a que acepte conexiones, lanza los workers y espera a que todos se registren.
+     * @param communicator Comunicador del generador de carga, usado para consultar al Maestro.
+     * @return Proxy del Maestro listo para recibir solicitudes.
+     * @throws IOException Si no se pueden escribir las configuraciones o lanzar los procesos.
+     * @throws IllegalStateException Si algún proceso termina o no queda listo a tiempo.
+     */
+    PublisherPrx start(Communicator communicator) throws IOException, InterruptedException {
+        Files.createDirectories(workDir);
+
+        Map<String, String> masterConfig = new TreeMap<>(scenario.masterProperties);
+        masterConfig.put("services.Endpoints", "default -h 127.0.0.1 -p " + scenario.masterPort);
+        // Las métricas del Maestro se leen con getMetrics; el endpoint HTTP solo si el escenario lo pide.
+        masterConfig.putIfAbsent("Master.MetricsPort", "0");
+        Process master = launch("master", "Server", masterClasspath, scenario.masterJvmArgs, masterConfig);
+
+        PublisherPrx publisher = null;
+        long deadline = System.currentTimeMillis() + MASTER_START_TIMEOUT_MS;
+        while (publisher == null) {
+            checkAlive(master, "master");
+            try {
+                publisher = PublisherPrx.checkedCast(communicator.stringToProxy(publisherProxy()));
+            } catch (com.zeroc.Ice.LocalException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IllegalStateException("El Maestro no aceptó conexiones en " + MASTER_START_TIMEOUT_MS + " ms (ver master.log).", e);
+                }
+                Thread.sleep(200);
+            }
+        }
+
+        List<Process> workers = new ArrayList<>();
+        for (int i = 0; i < scenario.workers; i++) {
+            Map<String, String> workerConfig = new TreeMap<>(scenario.workerProperties);
+            workerConfig.put("Subscriber.Endpoints", "default -h 127.0.0.1 -p " + (scenario.workerPort + i));
+            workerConfig.put("publisher.proxy", publisherProxy());
+            workerConfig.putIfAbsent("Worker.MetricsPort", "0"); // Todos los workers compartirían el puerto.
+            workers.add(launch("worker-" + i, "ClientWorker", workerClasspath, scenario.workerJvmArgs, workerConfig));
+        }
+
+        deadline = System.currentTimeMillis() + WORKERS_START_TIMEOUT_MS;
+        int registered;
+        while ((registered = publisher.getSubscribersNum()) < scenario.workers) {
+            checkAlive(master, "master");
+            for (int i = 0; i < workers.size(); i++) {
+                checkAlive(workers.get(i), "worker-" + i);
+            }
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException(String.format("Solo %d de %d workers se registraron en %d ms (ver worker-*.log).",
+                        registered, scenario.workers, WORKERS_START_TIMEOUT_MS));
+            }
+            Thread.sleep(250);
+        }
+        System.out.println(String.format("[LoadTest] Maestro en 127.0.0.1:%d con %d workers registrados. Logs en %s",
+                scenario.masterPort, registered, workDir));
+        return publisher;
+    }
+
+    /**
+     * Detiene los workers y después el Maestro. Se envía la señal de terminación para que corran sus
+     * shutdown hooks (los workers se desregistran) y se fuerza el cierre de los que no terminan a tiempo.
+     */
+    @Override
+    public void close() {
+        for (int i = processes.size() - 1; i >= 0; i--) {
+            Process process = processes.get(i);
+            process.destroy();
+            try {
+                if (!process.waitFor(STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+        processes.clear();
+    }
+
+    /**
+     * Escribe la configuración de un proceso y lo lanza.
+     * @param name Nombre del proceso (prefijo de su .cfg y su .log).
+     * @param mainClass Clase principal.
+     * @param classpath Classpath del módulo.
+     * @param jvmArgs Opciones de la JVM.
+     * @param config Propiedades que se superponen a su properties.cfg.
+     * @return Proceso lanzado.
+     */
+    private Process launch(String name, String mainClass, String classpath, List<String> jvmArgs,
+                           Map<String, String> config) throws IOException {
+        Path configFile = workDir.resolve(name + ".cfg");
+        try (Writer writer = Files.newBufferedWriter(configFile, StandardCharsets.UTF_8)) {
+            writer.write("# Generado por la prueba de carga; se superpone a properties.cfg." + System.lineSeparator());
+            for (Map.Entry<String, String> e : config.entrySet()) {
+                writer.write(e.getKey() + "=" + e.getValue() + System.lineSeparator());
+            }
+        }
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-Dfile.encoding=UTF-8");
+        command.add("-cp");
+        command.add(classpath);
+        command.add(mainClass);
+        command.add("--Ice.Config=" + configFile.toAbsolutePath());
+        Process process = new ProcessBuilder(command)
+                .directory(workDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(workDir.resolve(name + ".log").toFile())
+                .start();
+        processes.add(process);
+        return process;
+    }
+
+    private void checkAlive(Process process, String name) {
+        if (!process.isAlive()) {
+            throw new IllegalStateException(String.format("El proceso %s terminó con código %d (ver %s).",
+                    name, process.exitValue(), workDir.resolve(name + ".log")));
+        }
+    }
+
+    private static String requiredProperty(String key) {
+        String value = System.getProperty(key);
+        if (value == null || value.isBlank()) {
+            throw new IllegalStateException("Falta la propiedad de sistema " + key
+                    + " con el classpath del módulo; ejecute la prueba con ./gradlew :loadtest:run.");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,167 @@
+package loadtest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Escenario de carga leído de un archivo .cfg (mismo formato clave = valor que properties.cfg).
+ * Las claves LoadTest.* configuran la prueba; las que empiezan con "master." o "worker." se pasan,
+ * sin ese prefijo, a la configuración de los procesos del Maestro o de los workers.
+ */
+final class Scenario {
+
+    /**
+     * Operaciones del Maestro que se pueden cargar.
+     */
+    enum Operation {
+        // IntSeq startJob(numWorkers, min, max): espera la respuesta en la misma llamada.
+        startJob,
+        // long requestPerfectNumbers(min, max, callback): el resultado llega por perfectNumbersFound.
+        requestPerfectNumbers
+    }
+
+    /**
+     * Entrada de la mezcla de solicitudes: operación, cantidad de números del rango y peso relativo.
+     */
+    static final class MixEntry {
+        final Operation operation;
+        final int rangeSize;
+        final int weight;
+
+        MixEntry(Operation operation, int rangeSize, int weight) {
+            this.operation = operation;
+            this.rangeSize = rangeSize;
+            this.weight = weight;
+        }
+
+        /**
+         * Nombre para los reportes, ej. "requestPerfectNumbers[100000]".
+         */
+        String label() {
+            return operation + "[" + rangeSize + "]";
+        }
+    }
+
+    final String name;
+    final int workers;
+    final List<Integer> clients;
+    final long warmupMs;
+    final long durationMs;
+    final long requestTimeoutMs;
+    final List<MixEntry> mix;
+    final int rangeSpread;
+    final int masterPort;
+    final int workerPort;
+    // Propiedades adicionales de cada proceso (sin el prefijo "master." / "worker.").
+    final TreeMap<String, String> masterProperties = new TreeMap<>();
+    final TreeMap<String, String> workerProperties = new TreeMap<>();
+    // Opciones de la JVM de cada proceso, ej. --add-modules jdk.incubator.vector para el kernel simd.
+    final List<String> masterJvmArgs;
+    final List<String> workerJvmArgs;
+
+    private Scenario(String name, Properties p) {
+        this.name = name;
+        this.workers = Integer.parseInt(p.getProperty("LoadTest.Workers", "2").trim());
+        this.clients = parseInts(p.getProperty("LoadTest.Clients", "1"));
+        this.warmupMs = Long.parseLong(p.getProperty("LoadTest.WarmupMs", "3000").trim());
+        this.durationMs = Long.parseLong(p.getProperty("LoadTest.DurationMs", "15000").trim());
+        this.requestTimeoutMs = Long.parseLong(p.getProperty("LoadTest.RequestTimeoutMs", "60000").trim());
+        this.mix = parseMix(p.getProperty("LoadTest.Mix", "startJob:10000:1"));
+        this.rangeSpread = Integer.parseInt(p.getProperty("LoadTest.RangeSpread", "100000000").trim());
+        this.masterPort = Integer.parseInt(p.getProperty("LoadTest.MasterPort", "15000").trim());
+        this.workerPort = Integer.parseInt(p.getProperty("LoadTest.WorkerPort", "16000").trim());
+        this.masterJvmArgs = splitArgs(p.getProperty("LoadTest.MasterJvmArgs", ""));
+        this.workerJvmArgs = splitArgs(p.getProperty("LoadTest.WorkerJvmArgs", ""));
+        for (String key : p.stringPropertyNames()) {
+            if (key.startsWith("master.")) {
+                masterProperties.put(key.substring("master.".length()), p.getProperty(key).trim());
+            } else if (key.startsWith("worker.")) {
+                workerProperties.put(key.substring("worker.".length()), p.getProperty(key).trim());
+            }
+        }
+        if (workers < 1 || clients.isEmpty() || durationMs <= 0 || mix.isEmpty()) {
+            throw new IllegalArgumentException("Escenario " + name + ": se necesitan Workers ≥ 1, Clients, DurationMs > 0 y Mix.");
+        }
+        for (MixEntry entry : mix) {
+            if ((long) rangeSpread + entry.rangeSize > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Escenario " + name + ": RangeSpread + " + entry.rangeSize
+                        + " no cabe en un int (startJob y requestPerfectNumbers son de 32 bits).");
+            }
+        }
+    }
+
+    /**
+     * Lee un escenario.
+     * @param file Archivo .cfg.
+     * @return Escenario, con el nombre del archivo sin extensión.
+     * @throws IOException Si no se puede leer el archivo.
+     * @throws IllegalArgumentException Si algún valor no es válido.
+     */
+    static Scenario load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        String fileName = file.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        return new Scenario(dot > 0 ? fileName.substring(0, dot) : fileName, properties);
+    }
+
+    /**
+     * Interpreta "op:tamaño:peso, op:tamaño:peso, ...".
+     */
+    private static List<MixEntry> parseMix(String value) {
+        List<MixEntry> entries = new ArrayList<>();
+        for (String item : value.split(",")) {
+            if (item.isBlank()) {
+                continue;
+            }
+            String[] parts = item.trim().split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Entrada de LoadTest.Mix inválida: '" + item.trim() + "' (se espera operación:tamaño:peso).");
+            }
+            Operation operation;
+            try {
+                operation = Operation.valueOf(parts[0].trim());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Operación desconocida en LoadTest.Mix: '" + parts[0].trim()
+                        + "'. Valores válidos: startJob, requestPerfectNumbers.");
+            }
+            int size = Integer.parseInt(parts[1].trim());
+            int weight = Integer.parseInt(parts[2].trim());
+            if (size < 1 || weight < 1) {
+                throw new IllegalArgumentException("Entrada de LoadTest.Mix inválida: '" + item.trim() + "' (tamaño y peso deben ser positivos).");
+            }
+            entries.add(new MixEntry(operation, size, weight));
+        }
+        return Collections.unmodifiableList(entries);
+    }
+
+    private static List<Integer> parseInts(String value) {
+        List<Integer> values = new ArrayList<>();
+        for (String item : value.split(",")) {
+            if (!item.isBlank()) {
+                values.add(Math.max(1, Integer.parseInt(item.trim())));
+            }
+        }
+        return Collections.unmodifiableList(values);
+    }
+
+    private static List<String> splitArgs(String value) {
+        List<String> args = new ArrayList<>();
+        for (String arg : value.trim().split("\\s+")) {
+            if (!arg.isEmpty()) {
+                args.add(arg);
+            }
+        }
+        return Collections.unmodifiableList(args);
+    }
+}
@@ -0,0 +1,94 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Estado de cancelación de una búsqueda del Maestro.
+ * Cada parte de la búsqueda que tiene trabajo en curso (la cola de trozos, las llamadas del modo push,
+ * la espera de workers) registra con onCancel cómo detenerlo; cancel ejecuta esas acciones una sola vez.
+ * Las esperas bloqueantes pueden combinarse con future() para despertar en cuanto se cancela.
+ */
+public class CancellationToken {
+
+    // ID de la búsqueda; los workers lo reciben para saber qué cálculos detener.
+    private final long jobId;
+
+    private volatile boolean cancelled;
+
+    // Acciones a ejecutar al cancelar (se vacía al cancelar).
+    private final List<Runnable> actions = new ArrayList<>();
+
+    // Se completa al cancelar.
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    /**
+     * @param jobId ID de la búsqueda (0 si la búsqueda no se puede cancelar desde fuera del Maestro).
+     */
+    public CancellationToken(long jobId) {
+        this.jobId = jobId;
+    }
+
+    public long jobId() {
+        return jobId;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return Contexto de ICE de las llamadas a los workers de esta búsqueda, para que puedan detenerlas con cancelJob.
+     */
+    public Map<String, String> iceContext() {
+        return Collections.singletonMap(PublisherI.JOB_ID_CONTEXT, Long.toString(jobId));
+    }
+
+    /**
+     * @return Future que se completa al cancelar la búsqueda.
+     */
+    public CompletableFuture<Void> future() {
+        return future;
+    }
+
+    /**
+     * Registra cómo detener una parte de la búsqueda. Si ya estaba cancelada, la acción se ejecuta de inmediato.
+     * @param action Acción a ejecutar al cancelar; no debe bloquear.
+     */
+    public void onCancel(Runnable action) {
+        synchronized (actions) {
+            if (!cancelled) {
+                actions.add(action);
+                return;
+            }
+        }
+        action.run();
+    }
+
+    /**
+     * Cancela la búsqueda y ejecuta las acciones registradas, en el orden en que se registraron.
+     * @return true si esta llamada la canceló; false si ya estaba cancelada.
+     */
+    public boolean cancel() {
+        List<Runnable> pending;
+        synchronized (actions) {
+            if (cancelled) {
+                return false;
+            }
+            cancelled = true;
+            pending = new ArrayList<>(actions);
+            actions.clear();
+        }
+        for (Runnable action : pending) {
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                // Una acción que falla no impide detener el resto de la búsqueda.
+                System.err.println(String.format("[Maestro] Error cancelando la búsqueda #%d: %s", jobId, e.getMessage()));
+            }
+        }
+        future.complete(null);
+        return true;
+    }
+}
@@ -0,0 +1,536 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+import Demo.Chunk;
+import Demo.ChunkResult;
+
+/**
+ * Cola de trozos (chunks) de las búsquedas en curso, de la que los workers piden trabajo.
+ * En lugar de asignar un único subrango fijo por worker, cada búsqueda se divide en muchos trozos
+ * de costo estimado parecido; cada worker pide un lote de trozos, lo procesa y entrega los resultados
+ * al pedir el siguiente lote. Así un worker rápido procesa más trozos y uno lento o ocupado no
+ * retrasa al resto, sin que el Maestro necesite conocer de antemano la velocidad de cada worker.
+ *
+ * Cuando la cola se vacía, un worker libre puede recibir una copia especulativa de un trozo que
+ * otro worker tiene hace demasiado tiempo (ver SpeculationPolicy): gana el primer resultado que
+ * llega y al otro worker se le pide cancelar su copia.
+ *
+ * Todos los métodos se sincronizan sobre la instancia; las capacidades de los workers (RangePartitioner)
+ * se consultan fuera del bloqueo.
+ */
+public class ChunkScheduler {
+
+    // Trozos por worker en que se divide cada búsqueda. Más trozos reparten mejor la carga;
+    // menos trozos reducen las llamadas al Maestro.
+    public static final int CHUNKS_PER_WORKER = 16;
+
+    // Contador para asignar IDs únicos a las búsquedas. Las solicitudes de los clientes toman sus IDs
+    // del mismo contador (newJobId), así que un ID identifica a una sola búsqueda también en los workers.
+    private long nextJobId = 1;
+
+    // Búsquedas con trozos pendientes o en proceso, en orden de llegada.
+    private final LinkedHashMap<Long, PullJob> jobs = new LinkedHashMap<>();
+
+    // Capacidad efectiva de cada worker, para acotar su parte de los trozos pendientes.
+    private final RangePartitioner partitioner;
+
+    // Criterio para lanzar copias especulativas de los trozos atrasados.
+    private final SpeculationPolicy speculation;
+
+    // Workers que pidieron trozos y no recibieron ninguno: están libres para copias especulativas.
+    private final Set<Integer> idleWorkers = new HashSet<>();
+
+    // Recibe (worker, trozo) cuando la copia de ese worker perdió y debe cancelarse.
+    private BiConsumer<Integer, Chunk> cancelHandler = (workerId, chunk) -> { };
+
+    // Recibe (worker, ns) con el tiempo desde que se entregó un trozo hasta que llegó su resultado.
+    private BiConsumer<Integer, Long> roundTripHandler = (workerId, nanos) -> { };
+
+    /**
+     * @param partitioner Fuente de la capacidad efectiva de cada worker.
+     * @param speculation Criterio para las copias especulativas.
+     */
+    public ChunkScheduler(RangePartitioner partitioner, SpeculationPolicy speculation) {
+        this.partitioner = partitioner;
+        this.speculation = speculation;
+    }
+
+    /**
+     * @param cancelHandler Recibe (worker, trozo) cuando la copia de ese worker perdió y debe cancelarse.
+     */
+    public void setCancelHandler(BiConsumer<Integer, Chunk> cancelHandler) {
+        this.cancelHandler = cancelHandler;
+    }
+
+    /**
+     * @param roundTripHandler Recibe (worker, ns) por cada resultado: tiempo desde que se le entregó el
+     *                         trozo (o su copia especulativa) hasta que lo devolvió.
+     */
+    public void setRoundTripHandler(BiConsumer<Integer, Long> roundTripHandler) {
+        this.roundTripHandler = roundTripHandler;
+    }
+
+    /**
+     * Asignación de un trozo en proceso.
+     */
+    static class Lease {
+        // Worker que recibió el trozo.
+        int workerId;
+        // Momento en que se le entregó (System.nanoTime).
+        long leasedNanos;
+        // Momento a partir del cual el trozo se considera atrasado (System.nanoTime).
+        long deadlineNanos;
+        // Worker con la copia especulativa, o null si no tiene, y momento en que la recibió.
+        Integer backupWorkerId;
+        long backupLeasedNanos;
+
+        Lease(int workerId, long leasedNanos, long deadlineNanos) {
+            this.workerId = workerId;
+            this.leasedNanos = leasedNanos;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+
+    /**
+     * Estado de una búsqueda dividida en trozos.
+     */
+    static class PullJob {
+        final long id;
+        // Búsqueda del Maestro a la que pertenece (su jobId en los eventos de JFR), o 0 si no se indicó.
+        final long parentJobId;
+        // Límites {inicio, fin} de cada trozo, en orden ascendente; el índice es el ID del trozo.
+        final long[][] bounds;
+        // Workers entre los que se reparte la búsqueda.
+        final List<Integer> workerIds;
+        // Modelo de costo con que se dividió el rango.
+        final CostModel model;
+        // Trozos que todavía no se han entregado a ningún worker (o que se devolvieron a la cola).
+        final ArrayDeque<Integer> pending = new ArrayDeque<>();
+        // Asignación de cada trozo en proceso.
+        final Map<Integer, Lease> leases = new HashMap<>();
+        // Resultados de cada trozo (null mientras no haya terminado).
+        final long[][] results;
+        // Cantidad de trozos sin resultado.
+        int remaining;
+        // Se completa con todos los números perfectos encontrados, en orden ascendente.
+        final CompletableFuture<long[]> done = new CompletableFuture<>();
+        // Recibe el avance a medida que terminan los trozos (puede ser null).
+        final ProgressListener listener;
+
+        PullJob(long id, long parentJobId, List<long[]> bounds, List<Integer> workerIds, CostModel model,
+                ProgressListener listener) {
+            this.id = id;
+            this.parentJobId = parentJobId;
+            this.bounds = bounds.toArray(new long[0][]);
+            this.workerIds = workerIds;
+            this.model = model;
+            this.listener = listener;
+            this.results = new long[this.bounds.length][];
+            this.remaining = this.bounds.length;
+            for (int i = 0; i < this.bounds.length; i++) {
+                pending.add(i);
+            }
+        }
+
+        Chunk chunk(int chunkId) {
+            return new Chunk(id, chunkId, bounds[chunkId][0], bounds[chunkId][1]);
+        }
+
+        /**
+         * Une los resultados de los trozos terminados (todos, salvo en una búsqueda cancelada).
+         * Los trozos están en orden, así que el resultado también.
+         * @return Números perfectos encontrados en la búsqueda.
+         */
+        long[] mergeResults() {
+            int total = 0;
+            for (long[] r : results) {
+                total += (r != null) ? r.length : 0;
+            }
+            long[] merged = new long[total];
+            int pos = 0;
+            for (long[] r : results) {
+                if (r != null) {
+                    System.arraycopy(r, 0, merged, pos, r.length);
+                    pos += r.length;
+                }
+            }
+            return merged;
+        }
+
+        /**
+         * Partes {inicio, fin} de la búsqueda cuyos trozos no tienen resultado, uniendo los trozos contiguos.
+         * Solo tiene sentido después de cancelar la búsqueda, cuando ya no llegan resultados.
+         */
+        List<long[]> missingRanges() {
+            List<long[]> missing = new ArrayList<>();
+            for (int i = 0; i < bounds.length; i++) {
+                if (results[i] != null) {
+                    continue;
+                }
+                long[] last = missing.isEmpty() ? null : missing.get(missing.size() - 1);
+                if (last != null && last[1] + 1 == bounds[i][0]) {
+                    last[1] = bounds[i][1];
+                } else {
+                    missing.add(new long[]{bounds[i][0], bounds[i][1]});
+                }
+            }
+            return missing;
+        }
+    }
+
+    /**
+     * @return Un ID de búsqueda nuevo, que no usa ninguna otra búsqueda ni solicitud.
+     */
+    public synchronized long newJobId() {
+        return nextJobId++;
+    }
+
+    /**
+     * Divide [min, max] en trozos de costo estimado parecido y los pone en la cola.
+     * @param min Límite inferior (mayor o igual que 1).
+     * @param max Límite superior.
+     * @param workerIds IDs de los workers disponibles.
+     * @param model Modelo de costo del kernel que usan los workers.
+     * @param listener Recibe el avance a medida que terminan los trozos, o null.
+     * @return La búsqueda creada; su future se completa cuando todos los trozos tienen resultado.
+     */
+    public PullJob submit(long min, long max, List<Integer> workerIds, CostModel model, ProgressListener listener) {
+        return submit(0L, min, max, workerIds.size() * CHUNKS_PER_WORKER, workerIds, model, listener);
+    }
+
+    /**
+     * Igual que submit, con un máximo de trozos para el rango. Sirve cuando una búsqueda reparte muchos
+     * rangos chicos a la vez: cada uno recibe trozos del tamaño que le tocaría a la búsqueda completa,
+     * en lugar de CHUNKS_PER_WORKER trozos por worker cada uno.
+     * @param parentJobId Búsqueda del Maestro a la que pertenece el rango (para los eventos de JFR), o 0.
+     * @param maxPieces Máximo de trozos en que se divide [min, max] (al menos 1).
+     */
+    public synchronized PullJob submit(long parentJobId, long min, long max, int maxPieces, List<Integer> workerIds,
+                                       CostModel model, ProgressListener listener) {
+        int pieces = (int) Math.min(Math.max(1, maxPieces), max - min + 1);
+        PullJob job = new PullJob(newJobId(), parentJobId, RangePartitioner.splitByCost(min, max, pieces, model),
+                new ArrayList<>(workerIds), model, listener);
+        jobs.put(job.id, job);
+        System.out.println(String.format("[Maestro] Búsqueda #%d: rango [%d, %d] dividido en %d trozos.",
+                job.id, min, max, job.bounds.length));
+        return job;
+    }
+
+    /**
+     * Registra los resultados que entrega un worker y le asigna su siguiente lote de trozos.
+     * El lote se acota a la parte de los trozos pendientes que corresponde a la capacidad efectiva
+     * del worker, para que al final de la búsqueda un solo worker no se lleve todos los trozos restantes.
+     * Si no quedan trozos pendientes, el worker puede recibir la copia de un trozo atrasado.
+     * @param workerId ID del worker.
+     * @param completed Resultados de los trozos que el worker terminó.
+     * @param maxChunks Máximo de trozos que el worker quiere recibir.
+     * @return Trozos asignados; vacío si no queda trabajo pendiente.
+     */
+    public Chunk[] pull(int workerId, ChunkResult[] completed, int maxChunks) {
+        List<Runnable> notifications = new ArrayList<>();
+        List<Chunk> batch = new ArrayList<>();
+        List<PullJob> open = new ArrayList<>();
+        synchronized (this) {
+            acceptResults(workerId, completed, notifications);
+            for (PullJob job : jobs.values()) {
+                if (!job.pending.isEmpty()) {
+                    open.add(job);
+                }
+            }
+        }
+
+        // La parte y la tasa del worker en cada búsqueda se calculan fuera del bloqueo: shareOf recorre
+        // las tasas de todos los workers de la búsqueda y no debe frenar los pull ni los reportes de los demás.
+        Map<Long, double[]> shares = new HashMap<>();
+        for (PullJob job : open) {
+            shares.put(job.id, shareAndRate(workerId, job));
+        }
+
+        synchronized (this) {
+            int limit = Math.max(1, maxChunks);
+            long now = System.nanoTime();
+            double queuedMs = 0; // El worker procesa el lote en orden: cada trozo empieza cuando termina el anterior.
+            for (PullJob job : jobs.values()) {
+                if (job.pending.isEmpty()) {
+                    continue;
+                }
+                double[] shareAndRate = shares.get(job.id);
+                if (shareAndRate == null) {
+                    shareAndRate = shareAndRate(workerId, job); // Búsqueda llegada entre los dos bloqueos.
+                }
+                double rate = shareAndRate[1];
+                int share = Math.max(1, (int) Math.ceil(job.pending.size() * shareAndRate[0]));
+                int take = Math.min(limit - batch.size(), share);
+                for (int i = 0; i < take && !job.pending.isEmpty(); i++) {
+                    int chunkId = job.pending.poll();
+                    queuedMs += (rate > 0) ? job.model.cost(job.bounds[chunkId][0], job.bounds[chunkId][1]) / rate : 0;
+                    job.leases.put(chunkId, new Lease(workerId, now, speculation.deadlineNanos(now, queuedMs)));
+                    batch.add(job.chunk(chunkId));
+                    recordDispatch(job, chunkId, workerId, false);
+                }
+                if (batch.size() >= limit) {
+                    break;
+                }
+            }
+            if (batch.isEmpty()) {
+                Chunk backup = speculate(workerId, now);
+                if (backup != null) {
+                    batch.add(backup);
+                }
+            }
+            if (batch.isEmpty()) {
+                idleWorkers.add(workerId);
+            } else {
+                idleWorkers.remove(workerId);
+            }
+        }
+
+        notifications.forEach(Runnable::run);
+        return batch.toArray(new Chunk[0]);
+    }
+
+    /**
+     * Parte de los trozos pendientes de una búsqueda que corresponde a un worker según su capacidad efectiva,
+     * y su tasa en unidades de costo por milisegundo. No usa el estado del planificador.
+     * @return {parte entre 0 y 1, tasa}.
+     */
+    private double[] shareAndRate(int workerId, PullJob job) {
+        return new double[]{partitioner.shareOf(workerId, job.workerIds, job.model), partitioner.rateOf(workerId, job.model)};
+    }
+
+    /**
+     * Deja en la grabación de JFR (si hay una activa) la entrega de un trozo a un worker.
+     */
+    private static void recordDispatch(PullJob job, int chunkId, int workerId, boolean backup) {
+        MasterEvents.SliceDispatched event = new MasterEvents.SliceDispatched();
+        if (event.shouldCommit()) {
+            event.jobId = job.parentJobId;
+            event.searchId = job.id;
+            event.chunkId = chunkId;
+            event.workerId = workerId;
+            event.min = job.bounds[chunkId][0];
+            event.max = job.bounds[chunkId][1];
+            event.dispatch = PublisherI.DISPATCH_PULL;
+            event.backup = backup;
+            event.commit();
+        }
+    }
+
+    /**
+     * Elige el trozo más atrasado de otro worker que todavía no tenga copia y se la asigna a este worker.
+     * Debe llamarse con el bloqueo de la instancia tomado.
+     * @param workerId Worker libre que recibiría la copia.
+     * @param now Momento actual (System.nanoTime).
+     * @return Trozo copiado, o null si ninguno está atrasado.
+     */
+    private Chunk speculate(int workerId, long now) {
+        if (!speculation.isEnabled()) {
+            return null;
+        }
+        PullJob bestJob = null;
+        int bestChunk = -1;
+        long bestDeadline = now;
+        for (PullJob job : jobs.values()) {
+            for (Map.Entry<Integer, Lease> e : job.leases.entrySet()) {
+                Lease lease = e.getValue();
+                if (lease.workerId != workerId && lease.backupWorkerId == null && lease.deadlineNanos < bestDeadline) {
+                    bestJob = job;
+                    bestChunk = e.getKey();
+                    bestDeadline = lease.deadlineNanos;
+                }
+            }
+        }
+        if (bestJob == null) {
+            return null;
+        }
+        Lease lease = bestJob.leases.get(bestChunk);
+        lease.backupWorkerId = workerId;
+        lease.backupLeasedNanos = now;
+        speculation.recordLaunch();
+        recordDispatch(bestJob, bestChunk, workerId, true);
+        System.out.println(String.format("[Maestro] Búsqueda #%d: trozo %d atrasado %d ms en el worker %d; copia especulativa al worker %d.",
+                bestJob.id, bestChunk, (now - lease.deadlineNanos) / 1_000_000, lease.workerId, workerId));
+        return bestJob.chunk(bestChunk);
+    }
+
+    /**
+     * @return true si algún trozo en proceso está atrasado y todavía no tiene copia especulativa.
+     */
+    public synchronized boolean hasOverdueChunks() {
+        if (!speculation.isEnabled()) {
+            return false;
+        }
+        long now = System.nanoTime();
+        for (PullJob job : jobs.values()) {
+            for (Lease lease : job.leases.values()) {
+                if (lease.backupWorkerId == null && lease.deadlineNanos < now) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Workers que pidieron trozos y no recibieron ninguno.
+     */
+    public synchronized List<Integer> idleWorkers() {
+        return new ArrayList<>(idleWorkers);
+    }
+
+    /**
+     * Registra resultados que un worker envía apenas termina cada trozo, sin pedir trabajo nuevo.
+     * Los mismos resultados pueden llegar otra vez con pull; los repetidos se ignoran.
+     * @param workerId ID del worker.
+     * @param completed Resultados de los trozos terminados.
+     */
+    public void report(int workerId, ChunkResult[] completed) {
+        List<Runnable> notifications = new ArrayList<>();
+        synchronized (this) {
+            acceptResults(workerId, completed, notifications);
+        }
+        notifications.forEach(Runnable::run);
+    }
+
+    /**
+     * Guarda los resultados nuevos y prepara los avisos de avance y de fin de búsqueda.
+     * Los avisos se ejecutan fuera del bloqueo: quien espera el future o recibe el avance
+     * puede volver a usar el planificador.
+     * @param workerId Worker que entrega los resultados.
+     * @param completed Resultados recibidos.
+     * @param notifications Lista donde se agregan los avisos a ejecutar.
+     */
+    private void acceptResults(int workerId, ChunkResult[] completed, List<Runnable> notifications) {
+        for (ChunkResult result : completed) {
+            PullJob job = jobs.get(result.jobId);
+            if (job == null || result.chunkId < 0 || result.chunkId >= job.bounds.length
+                    || job.results[result.chunkId] != null) {
+                continue; // Búsqueda ya terminada o resultado repetido.
+            }
+            long[] perfectNums = (result.perfectNums != null) ? result.perfectNums : new long[0];
+            job.results[result.chunkId] = perfectNums;
+            Lease lease = job.leases.remove(result.chunkId);
+            if (lease != null) {
+                boolean fromBackup = lease.backupWorkerId != null && lease.backupWorkerId == workerId;
+                if (fromBackup || lease.workerId == workerId) {
+                    long roundTrip = System.nanoTime() - (fromBackup ? lease.backupLeasedNanos : lease.leasedNanos);
+                    notifications.add(() -> roundTripHandler.accept(workerId, roundTrip));
+                    MasterEvents.SliceCompleted event = new MasterEvents.SliceCompleted();
+                    if (event.shouldCommit()) {
+                        event.jobId = job.parentJobId;
+                        event.searchId = job.id;
+                        event.chunkId = result.chunkId;
+                        event.workerId = workerId;
+                        event.min = job.bounds[result.chunkId][0];
+                        event.max = job.bounds[result.chunkId][1];
+                        event.dispatch = PublisherI.DISPATCH_PULL;
+                        event.roundTrip = roundTrip;
+                        event.perfectCount = perfectNums.length;
+                        event.commit();
+                    }
+                }
+            }
+            if (lease != null && lease.backupWorkerId != null) {
+                // Trozo con copia especulativa: gana este resultado y se cancela la otra copia.
+                boolean backupWon = lease.backupWorkerId == workerId;
+                speculation.recordWinner(backupWon);
+                int loser = backupWon ? lease.workerId : lease.backupWorkerId;
+                Chunk chunk = job.chunk(result.chunkId);
+                notifications.add(() -> cancelHandler.accept(loser, chunk));
+            }
+            job.pending.remove(result.chunkId); // Por si se había devuelto a la cola.
+            job.remaining--;
+
+            if (job.listener != null) {
+                long[] bounds = job.bounds[result.chunkId];
+                double cost = job.model.cost(bounds[0], bounds[1]);
+                notifications.add(() -> job.listener.rangeCompleted(bounds[0], bounds[1], perfectNums, cost));
+            }
+            if (job.remaining == 0) {
+                jobs.remove(job.id);
+                notifications.add(() -> {
+                    System.out.println(String.format("[Maestro] Búsqueda #%d: los %d trozos tienen resultado.", job.id, job.bounds.length));
+                    job.done.complete(job.mergeResults());
+                });
+            }
+        }
+    }
+
+    /**
+     * Devuelve a la cola los trozos que tenía asignados un worker que se desconectó,
+     * para que los procesen los demás.
+     * @param workerId ID del worker.
+     * @return Cantidad de trozos devueltos a la cola.
+     */
+    public synchronized int releaseWorker(int workerId) {
+        idleWorkers.remove(workerId);
+        int released = 0;
+        for (PullJob job : jobs.values()) {
+            Iterator<Map.Entry<Integer, Lease>> it = job.leases.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Integer, Lease> entry = it.next();
+                Lease lease = entry.getValue();
+                if (lease.backupWorkerId != null && lease.backupWorkerId == workerId) {
+                    lease.backupWorkerId = null; // Se pierde la copia; el original sigue en proceso.
+                } else if (lease.workerId == workerId) {
+                    if (lease.backupWorkerId != null) {
+                        // La copia especulativa pasa a ser la única asignación del trozo.
+                        lease.workerId = lease.backupWorkerId;
+                        lease.leasedNanos = lease.backupLeasedNanos;
+                        lease.backupWorkerId = null;
+                        lease.deadlineNanos = Long.MAX_VALUE;
+                    } else {
+                        job.pending.addFirst(entry.getKey());
+                        it.remove();
+                        released++;
+                    }
+                }
+            }
+        }
+        return released;
+    }
+
+    /**
+     * Cancela una búsqueda: sus trozos dejan la cola, los resultados que lleguen después se ignoran
+     * y su future se completa con CancellationException. Los resultados ya recibidos quedan en la búsqueda.
+     * @param jobId ID de la búsqueda.
+     * @return true si la búsqueda seguía en curso.
+     */
+    public boolean cancel(long jobId) {
+        PullJob job;
+        synchronized (this) {
+            job = jobs.remove(jobId);
+            if (job == null) {
+                return false;
+            }
+            job.pending.clear();
+            job.leases.clear();
+        }
+        System.out.println(String.format("[Maestro] Búsqueda #%d cancelada con %d de %d trozos terminados.",
+                job.id, job.bounds.length - job.remaining, job.bounds.length));
+        job.done.completeExceptionally(new CancellationException("Búsqueda #" + jobId + " cancelada"));
+        return true;
+    }
+
+    /**
+     * @return true si alguna búsqueda tiene trozos sin asignar.
+     */
+    public synchronized boolean hasPendingWork() {
+        for (PullJob job : jobs.values()) {
+            if (!job.pending.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
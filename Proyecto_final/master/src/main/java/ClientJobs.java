@@ -0,0 +1,272 @@
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+import Demo.ClientCallbackPrx;
+import com.zeroc.Ice.Connection;
+import com.zeroc.Ice.Current;
+
+/**
+ * Búsquedas de clientes encoladas o en ejecución, desde que se entregan al planificador hasta que terminan.
+ * Cada búsqueda se puede cancelar por su ID (cancelJob), al vencer su plazo o al cerrarse la conexión del
+ * cliente; al cancelarla se pide a los workers que detengan su parte. También agrupa las respuestas que el
+ * Maestro envía por el callback de los clientes: avisos, cobertura y resultados.
+ */
+public class ClientJobs {
+
+    // Plazo para que responda el callback de un cliente cuya conexión se cerró, antes de cancelar sus búsquedas.
+    private static final int CLIENT_PING_TIMEOUT_MS = 2000;
+
+    // Planificador al que se entregan las búsquedas.
+    private final JobScheduler jobScheduler;
+
+    // Hilo en el que responden las búsquedas canceladas antes de empezar (el de los avisos a los clientes).
+    private final Executor responder;
+
+    // Planificador de los plazos de las búsquedas.
+    private final ScheduledExecutorService timer;
+
+    // Pide a los workers que detengan el trabajo de una búsqueda, por su ID.
+    private final LongConsumer cancelOnWorkers;
+
+    // Búsquedas encoladas o en ejecución, por ID.
+    private final ConcurrentHashMap<Long, ClientJob> jobs = new ConcurrentHashMap<>();
+
+    // Conexiones de clientes cuyo cierre ya se vigila.
+    private final Set<Connection> watchedConnections = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param jobScheduler Planificador al que se entregan las búsquedas.
+     * @param responder Hilo en el que responden las búsquedas canceladas mientras esperaban su turno.
+     * @param timer Planificador de los plazos.
+     * @param cancelOnWorkers Pide a los workers que detengan una búsqueda, sin esperar su respuesta.
+     */
+    public ClientJobs(JobScheduler jobScheduler, Executor responder, ScheduledExecutorService timer,
+                      LongConsumer cancelOnWorkers) {
+        this.jobScheduler = jobScheduler;
+        this.responder = responder;
+        this.timer = timer;
+        this.cancelOnWorkers = cancelOnWorkers;
+    }
+
+    /**
+     * Búsqueda de un cliente encolada o en ejecución.
+     */
+    private static final class ClientJob {
+        final CancellationToken token;
+        // Callback del cliente, o null en las búsquedas síncronas.
+        final ClientCallbackPrx callback;
+        // Conexión por la que llegó la solicitud (null en llamadas locales).
+        final Connection connection;
+        // Tarea entregada al planificador.
+        final Runnable task;
+
+        ClientJob(CancellationToken token, ClientCallbackPrx callback, Connection connection, Runnable task) {
+            this.token = token;
+            this.callback = callback;
+            this.connection = connection;
+            this.task = task;
+        }
+    }
+
+    /**
+     * Registra una búsqueda de un cliente y la entrega al planificador. Queda registrada hasta que termina
+     * o se rechaza, y mientras tanto se puede cancelar.
+     * @param token Token de la búsqueda, con su ID.
+     * @param callback Callback del cliente, o null en las búsquedas síncronas.
+     * @param current Contexto de la llamada ICE del cliente.
+     * @param clientKey Cliente al que se le cuentan los turnos en el planificador.
+     * @param priority Prioridad de la búsqueda.
+     * @param what Descripción de lo que se busca, para el registro de JFR.
+     * @param numbers Cantidad de números a buscar, para estimar esperas.
+     * @param deadlineMs Plazo en milisegundos para cancelar la búsqueda (0 o negativo: sin plazo).
+     * @param body Búsqueda a ejecutar. Si el token ya está cancelado al empezar, debe responder sin buscar.
+     * @return Respuesta del planificador; si no la aceptó, la búsqueda ya no está registrada.
+     */
+    public JobScheduler.Admission submit(CancellationToken token, ClientCallbackPrx callback, Current current,
+                                         String clientKey, JobScheduler.Priority priority, String what, long numbers,
+                                         long deadlineMs, Runnable body) {
+        long jobId = token.jobId();
+        Runnable task = () -> {
+            try {
+                body.run();
+            } finally {
+                jobs.remove(jobId);
+            }
+        };
+        Connection connection = (current != null) ? current.con : null;
+        jobs.put(jobId, new ClientJob(token, callback, connection, task));
+        // Las llamadas push y de la parte impar llevan el ID de la búsqueda en su contexto.
+        token.onCancel(() -> cancelOnWorkers.accept(jobId));
+        watchConnection(connection);
+        armDeadline(jobId, deadlineMs);
+        JobScheduler.Admission admission = jobScheduler.submit(clientKey, priority, numbers, task);
+        recordAdmission(jobId, what, numbers, priority, admission);
+        if (!admission.accepted) {
+            jobs.remove(jobId);
+        }
+        return admission;
+    }
+
+    /**
+     * Cancela una búsqueda de un cliente por su ID.
+     * @param jobId ID de la búsqueda.
+     * @param reason Motivo, para el log.
+     * @return true si la búsqueda estaba en curso y esta llamada la canceló.
+     */
+    public boolean cancel(long jobId, String reason) {
+        ClientJob job = jobs.get(jobId);
+        if (job == null) {
+            System.out.println(String.format("[Maestro] Cancelación de la búsqueda #%d ignorada: ya terminó o no existe.", jobId));
+            return false;
+        }
+        return cancel(job, reason);
+    }
+
+    /**
+     * Cancela una búsqueda de un cliente. Si seguía en la cola, se quita y su tarea se ejecuta igual para que
+     * responda al cliente como cancelada sin esperar su turno. Se ejecuta en el hilo de los avisos a los clientes:
+     * solo envía la respuesta, y el pool de búsquedas puede estar ocupado.
+     * @param job Búsqueda a cancelar.
+     * @param reason Motivo, para el log.
+     * @return true si esta llamada la canceló.
+     */
+    private boolean cancel(ClientJob job, String reason) {
+        if (!job.token.cancel()) {
+            return false;
+        }
+        boolean wasQueued = jobScheduler.cancel(job.task);
+        System.out.println(String.format("[Maestro] Búsqueda #%d cancelada (%s)%s.",
+                job.token.jobId(), reason, wasQueued ? " antes de empezar" : ""));
+        if (wasQueued) {
+            responder.execute(job.task);
+        }
+        return true;
+    }
+
+    /**
+     * Programa la cancelación de una búsqueda al vencer su plazo.
+     * Si la búsqueda ya terminó para entonces, no hace nada.
+     * @param jobId ID de la búsqueda, ya registrada.
+     * @param deadlineMs Plazo en milisegundos (0 o negativo: sin plazo).
+     */
+    private void armDeadline(long jobId, long deadlineMs) {
+        if (deadlineMs <= 0) {
+            return;
+        }
+        timer.schedule(() -> {
+            ClientJob job = jobs.get(jobId);
+            if (job != null) {
+                cancel(job, "venció su plazo de " + deadlineMs + " ms");
+            }
+        }, deadlineMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Vigila el cierre de una conexión de cliente, una sola vez por conexión.
+     * @param connection Conexión por la que llegó una solicitud, o null.
+     */
+    private void watchConnection(Connection connection) {
+        if (connection == null || !watchedConnections.add(connection)) {
+            return;
+        }
+        try {
+            // Si la conexión ya estaba cerrada, ICE llama al callback de inmediato.
+            connection.setCloseCallback(this::onConnectionClosed);
+        } catch (com.zeroc.Ice.Exception e) {
+            watchedConnections.remove(connection);
+            System.err.println("[Maestro] No se pudo vigilar la conexión del cliente: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Cancela las búsquedas de un cliente cuya conexión se cerró. Las síncronas se cancelan siempre: su respuesta
+     * viajaba por esa conexión. Las asíncronas solo si su callback tampoco responde, porque ICE también cierra
+     * las conexiones inactivas aunque el cliente siga esperando el resultado.
+     * @param connection Conexión cerrada.
+     */
+    private void onConnectionClosed(Connection connection) {
+        watchedConnections.remove(connection);
+        for (ClientJob job : jobs.values()) {
+            if (job.connection != connection || job.token.isCancelled()) {
+                continue;
+            }
+            if (job.callback == null) {
+                cancel(job, "el cliente cerró la conexión");
+                continue;
+            }
+            try {
+                job.callback.ice_invocationTimeout(CLIENT_PING_TIMEOUT_MS).ice_pingAsync().whenComplete((r, ex) -> {
+                    if (ex != null) {
+                        cancel(job, "el cliente se desconectó");
+                    }
+                });
+            } catch (com.zeroc.Ice.Exception e) {
+                cancel(job, "el cliente se desconectó");
+            }
+        }
+    }
+
+    /**
+     * Deja en la grabación de JFR (si hay una activa) la respuesta del planificador a una búsqueda.
+     */
+    private static void recordAdmission(long jobId, String what, long numbers, JobScheduler.Priority priority,
+                                        JobScheduler.Admission admission) {
+        MasterEvents.JobAdmitted event = new MasterEvents.JobAdmitted();
+        if (event.shouldCommit()) {
+            event.jobId = jobId;
+            event.what = what;
+            event.numbers = numbers;
+            event.priority = priority.name().toLowerCase();
+            event.accepted = admission.accepted;
+            event.queuePosition = admission.position;
+            event.commit();
+        }
+    }
+
+    /**
+     * Registra el error de un aviso al cliente sin esperar la respuesta. Un cliente anterior a estos
+     * avisos no implementa la operación; en ese caso solo recibe el resultado final, como antes.
+     * @param sent Envío asíncrono del aviso.
+     */
+    static void notifyClient(CompletableFuture<Void> sent) {
+        sent.exceptionally(ex -> {
+            System.err.println("[Maestro] No se pudo avisar al cliente: " + ex.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Informa al cliente si su búsqueda recorrió todo el rango, antes de enviarle el resultado.
+     * Un cliente anterior a este aviso no implementa la operación; en ese caso solo se registra el error.
+     * @param clientCallback Proxy de callback del cliente.
+     * @param missing Partes {inicio, fin} que quedaron sin recorrer.
+     */
+    static void sendCoverage(ClientCallbackPrx clientCallback, List<long[]> missing) {
+        try {
+            clientCallback.coverage(missing.isEmpty(), Ranges.flatten(Ranges.merge(missing)));
+        } catch (com.zeroc.Ice.Exception e) {
+            System.err.println("[Maestro] No se pudo informar la cobertura al cliente: " + e);
+        }
+    }
+
+    /**
+     * Envía los resultados al cliente por la operación de callback que corresponde a su solicitud.
+     * @param clientCallback Proxy de callback del cliente.
+     * @param perfectNums Números perfectos encontrados.
+     * @param durationMs Duración total de la búsqueda.
+     * @param longResults true para perfectNumbersFoundLong; false para perfectNumbersFound (32 bits).
+     */
+    static void sendResults(ClientCallbackPrx clientCallback, long[] perfectNums, long durationMs, boolean longResults) {
+        if (longResults) {
+            clientCallback.perfectNumbersFoundLong(perfectNums, durationMs);
+        } else {
+            clientCallback.perfectNumbersFound(PublisherI.toIntArray(perfectNums), durationMs);
+        }
+    }
+}
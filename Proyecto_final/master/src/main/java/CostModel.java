@@ -0,0 +1,73 @@
+/**
+ * Modelo de costo del Maestro para repartir rangos entre workers.
+ * Replica las estimaciones de costo de los kernels del worker (PerfectNumberKernel.cost): el costo
+ * por número crece con n, así que para que todos los workers terminen a la vez los subrangos
+ * altos deben ser más angostos que los bajos. Las unidades son iteraciones del bucle interno.
+ */
+public abstract class CostModel {
+
+    // Tamaños de segmento de la criba del worker (DivisorSumSieve).
+    private static final int SIEVE_SEGMENT_SIZE = 1 << 15;
+    private static final int SIEVE_MAX_SEGMENT_SIZE = 1 << 20;
+
+    /**
+     * Estima el costo de recorrer [lo, hi].
+     * @param lo Límite inferior del rango (mayor o igual que 1).
+     * @param hi Límite superior del rango.
+     * @return Costo estimado.
+     */
+    public abstract double cost(long lo, long hi);
+
+    /**
+     * Modelo correspondiente al kernel que usan los workers.
+     * @param kernelName Nombre del kernel reportado por el worker (getKernelName).
+     * @return Modelo de costo; para un nombre desconocido, el de la criba.
+     */
+    public static CostModel forKernel(String kernelName) {
+        switch (kernelName == null ? "" : kernelName) {
+            case "naive":
+                // Cada número n prueba n/2 divisores.
+                return perNumber(mid -> Math.max(1.0, mid / 2));
+            case "sqrt":
+            case "simd":
+                // Cada número n prueba hasta √n divisores (simd los prueba de a varios, con el mismo perfil).
+                return perNumber(mid -> Math.max(1.0, Math.sqrt(mid)));
+            default:
+                return SIEVE;
+        }
+    }
+
+    /**
+     * Modelo cuyo costo es la longitud del rango por el costo del número medio.
+     * @param costAt Costo de un número en función de su valor.
+     * @return Modelo de costo.
+     */
+    private static CostModel perNumber(java.util.function.DoubleUnaryOperator costAt) {
+        return new CostModel() {
+            @Override
+            public double cost(long lo, long hi) {
+                double length = (double) hi - lo + 1;
+                return length * costAt.applyAsDouble(((double) lo + hi) / 2);
+            }
+        };
+    }
+
+    // Todos los números cuestan lo mismo: el costo es el ancho del rango (reparto por ancho).
+    public static final CostModel UNIFORM = new CostModel() {
+        @Override
+        public double cost(long lo, long hi) {
+            return (double) hi - lo + 1;
+        }
+    };
+
+    // Criba: unas ln(√hi) sumas por número más un recorrido de √hi divisores por segmento.
+    private static final CostModel SIEVE = new CostModel() {
+        @Override
+        public double cost(long lo, long hi) {
+            double length = (double) hi - lo + 1;
+            double sqrtHi = Math.sqrt((double) hi);
+            double segmentLength = Math.min(SIEVE_MAX_SEGMENT_SIZE, Math.max(SIEVE_SEGMENT_SIZE, sqrtHi + 1));
+            return length * (1.0 + Math.log(Math.max(sqrtHi, 1.0))) + Math.ceil(length / segmentLength) * sqrtHi;
+        }
+    };
+}
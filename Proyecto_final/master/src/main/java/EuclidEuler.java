@@ -0,0 +1,49 @@
+import java.util.ArrayList;
+import java.util.List;
+
+import common.Primes;
+
+/**
+ * Utilidades del modo de búsqueda analítico del Maestro, basado en el teorema de Euclides–Euler:
+ * todo número perfecto par es de la forma 2^(p-1)·(2^p - 1) con 2^p - 1 primo (primo de Mersenne).
+ * El Maestro solo calcula qué exponentes p producen un perfecto dentro del rango; los workers
+ * deciden cuáles de ellos son primos de Mersenne mediante el test de Lucas–Lehmer.
+ */
+public final class EuclidEuler {
+
+    // Mayor exponente cuyo perfecto 2^(p-1)·(2^p - 1) cabe en un long (2^31·(2^32 - 1) < 2^63).
+    static final int MAX_EXPONENT = 32;
+
+    private EuclidEuler() {
+    }
+
+    /**
+     * Exponentes primos p cuyo perfecto candidato 2^(p-1)·(2^p - 1) cae en [min, max].
+     * Los exponentes compuestos se descartan aquí porque 2^p - 1 nunca es primo en ese caso.
+     * @param min Límite inferior del rango.
+     * @param max Límite superior del rango.
+     * @return Exponentes candidatos en orden creciente.
+     */
+    public static int[] candidateExponents(long min, long max) {
+        List<Integer> exponents = new ArrayList<>();
+        for (int p = 2; p <= MAX_EXPONENT; p++) {
+            long candidate = perfectFromExponent(p);
+            if (candidate > max) {
+                break; // Los candidatos crecen con p.
+            }
+            if (candidate >= min && Primes.isPrime(p)) {
+                exponents.add(p);
+            }
+        }
+        return exponents.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Calcula el número 2^(p-1)·(2^p - 1).
+     * @param p Exponente, entre 1 y MAX_EXPONENT.
+     * @return El perfecto asociado al exponente (si 2^p - 1 es primo).
+     */
+    public static long perfectFromExponent(int p) {
+        return (1L << (p - 1)) * ((1L << p) - 1);
+    }
+}
@@ -0,0 +1,268 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Registro de los rangos que los workers están buscando en este momento.
+ * Cuando llega una búsqueda que se solapa con otra en curso, la parte solapada se engancha al
+ * resultado de la búsqueda en curso en lugar de repartirse otra vez, y solo el resto se entrega
+ * a los workers. Guarda intervalos disjuntos ordenados por su inicio, cada uno con los tramos que
+ * ya terminaron (ver tracker): una parte enganchada recibe sus perfectos en cuanto los tramos la
+ * cubren, sin esperar al resto del intervalo. Así una consulta chica dentro de un recorrido grande
+ * no espera a que termine todo el recorrido. Todos los métodos se sincronizan sobre la instancia.
+ */
+public class InFlightRanges {
+
+    /**
+     * Parte de una búsqueda nueva que ya se está buscando en otra.
+     */
+    public static final class Attached {
+        // Parte solapada [lo, hi].
+        public final long lo;
+        public final long hi;
+        // Se completa con los perfectos de [lo, hi], en orden ascendente, en cuanto la búsqueda dueña
+        // termina esa parte; o con error si la búsqueda dueña abandona el intervalo sin terminarla.
+        public final CompletableFuture<long[]> future = new CompletableFuture<>();
+
+        Attached(long lo, long hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+    }
+
+    /**
+     * Resultado de reclamar los rangos de una búsqueda.
+     */
+    public static final class Claim {
+        // Partes que ya se buscan en otra búsqueda.
+        public final List<Attached> attached;
+        // Partes {inicio, fin} que quedan a cargo de quien reclamó; debe llamar a complete o abandon por cada una.
+        public final List<long[]> owned;
+
+        Claim(List<Attached> attached, List<long[]> owned) {
+            this.attached = attached;
+            this.owned = owned;
+        }
+    }
+
+    /**
+     * Intervalo en curso [start, end].
+     */
+    private static final class Flight {
+        final long start;
+        final long end;
+        // Tramos terminados, por inicio: {fin, perfectos...}.
+        final TreeMap<Long, long[]> pieces = new TreeMap<>();
+        // Partes enganchadas que todavía no recibieron sus perfectos.
+        final List<Attached> waiters = new ArrayList<>();
+
+        Flight(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * @return Perfectos de [lo, hi] si los tramos terminados lo cubren por completo; si no, null.
+         */
+        long[] covered(long lo, long hi) {
+            List<long[]> parts = new ArrayList<>();
+            long cursor = lo;
+            while (true) {
+                Map.Entry<Long, long[]> piece = pieces.floorEntry(cursor);
+                if (piece == null || piece.getValue()[0] < cursor) {
+                    return null;
+                }
+                long[] entry = piece.getValue();
+                parts.add(SortedLongs.slice(Arrays.copyOfRange(entry, 1, entry.length), cursor, hi));
+                if (entry[0] >= hi) {
+                    return SortedLongs.merge(parts);
+                }
+                cursor = entry[0] + 1;
+            }
+        }
+    }
+
+    // Intervalos en curso indexados por su inicio.
+    private final TreeMap<Long, Flight> flights = new TreeMap<>();
+
+    // Contadores para los logs.
+    private long attachedParts;     // Partes enganchadas a búsquedas en curso.
+    private long numbersCoalesced;  // Números que no se repartieron dos veces.
+
+    /**
+     * Reclama los rangos de una búsqueda: las partes que ya están en curso se enganchan a ellas
+     * y el resto queda registrado como en curso a cargo de quien llama.
+     * @param ranges Rangos {inicio, fin} disjuntos y en orden ascendente.
+     * @return Partes enganchadas y partes propias.
+     */
+    public Claim claim(List<long[]> ranges) {
+        List<Attached> attached = new ArrayList<>();
+        List<long[]> owned = new ArrayList<>();
+        List<Runnable> ready = new ArrayList<>();
+        synchronized (this) {
+            for (long[] range : ranges) {
+                long cursor = range[0]; // Primer número del rango todavía sin asignar.
+                boolean reachedEnd = false;
+                Long from = flights.floorKey(range[0]);
+                for (Flight f : flights.tailMap(from != null ? from : range[0], true).values()) {
+                    if (f.start > range[1]) {
+                        break;
+                    }
+                    if (f.end < cursor) {
+                        continue;
+                    }
+                    if (f.start > cursor) {
+                        owned.add(new long[]{cursor, f.start - 1});
+                    }
+                    long lo = Math.max(cursor, f.start);
+                    long hi = Math.min(range[1], f.end);
+                    Attached part = new Attached(lo, hi);
+                    attached.add(part);
+                    long[] done = f.covered(lo, hi);
+                    if (done != null) {
+                        ready.add(() -> part.future.complete(done)); // Esa parte ya terminó.
+                    } else {
+                        f.waiters.add(part);
+                    }
+                    attachedParts++;
+                    long covered = hi - lo + 1;
+                    // Se satura en vez de desbordarse, igual que en RangeCache.
+                    numbersCoalesced = (numbersCoalesced > Long.MAX_VALUE - covered) ? Long.MAX_VALUE : numbersCoalesced + covered;
+                    if (hi == range[1]) {
+                        reachedEnd = true;
+                        break;
+                    }
+                    cursor = hi + 1;
+                }
+                if (!reachedEnd) {
+                    owned.add(new long[]{cursor, range[1]});
+                }
+            }
+            for (long[] part : owned) {
+                flights.put(part[0], new Flight(part[0], part[1]));
+            }
+        }
+        ready.forEach(Runnable::run);
+        return new Claim(attached, owned);
+    }
+
+    /**
+     * Registra un tramo terminado de una parte propia y entrega sus perfectos a las partes enganchadas
+     * que quedan cubiertas. Los tramos que no caen dentro de un intervalo en curso se ignoran.
+     * @param lo Primer número del tramo.
+     * @param hi Último número del tramo.
+     * @param perfectNums Perfectos del tramo.
+     */
+    public void progress(long lo, long hi, long[] perfectNums) {
+        List<Runnable> ready = new ArrayList<>();
+        synchronized (this) {
+            Map.Entry<Long, Flight> entry = flights.floorEntry(lo);
+            if (entry == null || entry.getValue().end < hi) {
+                return;
+            }
+            Flight f = entry.getValue();
+            long[] piece = new long[perfectNums.length + 1];
+            piece[0] = hi;
+            System.arraycopy(perfectNums, 0, piece, 1, perfectNums.length);
+            f.pieces.put(lo, piece);
+            for (Iterator<Attached> it = f.waiters.iterator(); it.hasNext(); ) {
+                Attached part = it.next();
+                long[] done = f.covered(part.lo, part.hi);
+                if (done != null) {
+                    it.remove();
+                    ready.add(() -> part.future.complete(done));
+                }
+            }
+        }
+        ready.forEach(Runnable::run); // Fuera del bloqueo: despierta a las búsquedas enganchadas.
+    }
+
+    /**
+     * Envuelve el receptor de avance de una búsqueda dueña para que cada tramo terminado llegue
+     * también a las partes enganchadas (ver progress).
+     * @param delegate Receptor de la búsqueda, o null.
+     * @return Receptor que registra los tramos y reenvía todo a delegate.
+     */
+    public ProgressListener tracker(ProgressListener delegate) {
+        return new ProgressListener() {
+            @Override
+            public void searchStarted(long totalNumbers, double totalCost) {
+                if (delegate != null) {
+                    delegate.searchStarted(totalNumbers, totalCost);
+                }
+            }
+
+            @Override
+            public void rangeCompleted(long lo, long hi, long[] perfectNums, double cost) {
+                progress(lo, hi, perfectNums);
+                if (delegate != null) {
+                    delegate.rangeCompleted(lo, hi, perfectNums, cost);
+                }
+            }
+
+            @Override
+            public void knownResults(long[] perfectNums) {
+                if (delegate != null) {
+                    delegate.knownResults(perfectNums);
+                }
+            }
+        };
+    }
+
+    /**
+     * Termina una parte propia: las búsquedas enganchadas reciben sus perfectos.
+     * @param start Inicio de la parte reclamada.
+     * @param perfectNums Perfectos de toda la parte.
+     */
+    public void complete(long start, long[] perfectNums) {
+        Flight f;
+        synchronized (this) {
+            f = flights.remove(start);
+        }
+        if (f == null) {
+            return;
+        }
+        // Fuera del bloqueo: despierta a las búsquedas enganchadas. Ya nadie agrega ni quita esperas del intervalo.
+        for (Attached part : f.waiters) {
+            part.future.complete(SortedLongs.slice(perfectNums, part.lo, part.hi));
+        }
+    }
+
+    /**
+     * Libera una parte propia que no se terminó (fallo de un worker, interrupción):
+     * las búsquedas enganchadas tendrán que buscarla por su cuenta.
+     * @param start Inicio de la parte reclamada.
+     */
+    public void abandon(long start) {
+        Flight f;
+        synchronized (this) {
+            f = flights.remove(start);
+        }
+        if (f == null) {
+            return;
+        }
+        // Las partes ya cubiertas por tramos terminados recibieron sus perfectos; el resto falla.
+        IllegalStateException failure = new IllegalStateException(
+                String.format("La búsqueda de [%d, %d] no terminó", f.start, f.end));
+        for (Attached part : f.waiters) {
+            part.future.completeExceptionally(failure);
+        }
+    }
+
+    /**
+     * Describe el estado del registro para los logs.
+     * @return Intervalos en curso y partes enganchadas.
+     */
+    public synchronized String describe() {
+        long inFlight = 0;
+        for (Map.Entry<Long, Flight> e : flights.entrySet()) {
+            inFlight += e.getValue().end - e.getValue().start + 1;
+        }
+        return String.format("intervalos en curso %d (%,d números), partes enganchadas %d, números no repetidos %,d",
+                flights.size(), inFlight, attachedParts, numbersCoalesced);
+    }
+}
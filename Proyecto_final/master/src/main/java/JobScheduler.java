@@ -0,0 +1,321 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import common.Metrics;
+
+/**
+ * Planificador de las búsquedas del Maestro, con control de admisión.
+ * Como mucho maxRunning búsquedas se ejecutan a la vez; el resto espera en una cola acotada
+ * (maxQueued) y, si está llena, la búsqueda se rechaza. Hay dos clases de prioridad: las búsquedas
+ * interactivas (rangos chicos) salen siempre antes que las de lote, y las de lote nunca ocupan todos
+ * los lugares de ejecución, así que una consulta chica no espera a que termine un barrido grande.
+ * Dentro de cada clase se atiende a los clientes por turnos (una búsqueda de cada cliente por vez),
+ * así que un cliente con muchas búsquedas encoladas no deja sin turno a los demás.
+ * Por clase de prioridad registra en Metrics las admitidas y rechazadas, la espera en cola y la
+ * duración total de cada búsqueda (desde que se admite hasta que termina).
+ * Todos los métodos se sincronizan sobre la instancia.
+ */
+public class JobScheduler {
+
+    /**
+     * Clase de prioridad de una búsqueda.
+     */
+    public enum Priority {
+        INTERACTIVE, BATCH
+    }
+
+    /**
+     * Respuesta a una solicitud de admisión.
+     */
+    public static final class Admission {
+        // false si la cola estaba llena y la búsqueda se rechazó.
+        public final boolean accepted;
+        // 0 si empezó de inmediato; si no, posición estimada en la cola (1 es la próxima).
+        public final int position;
+        // Espera estimada en ms hasta que empiece; negativo si todavía no se puede estimar.
+        public final long etaMs;
+
+        Admission(boolean accepted, int position, long etaMs) {
+            this.accepted = accepted;
+            this.position = position;
+            this.etaMs = etaMs;
+        }
+    }
+
+    /**
+     * Búsqueda encolada o en ejecución.
+     */
+    private static final class Job {
+        final String clientKey;
+        final Priority priority;
+        final long numbers;
+        final Runnable task;
+        boolean started;
+        // Momentos (System.nanoTime) en que se admitió y en que empezó a ejecutarse.
+        final long submitNanos = System.nanoTime();
+        long startNanos;
+
+        Job(String clientKey, Priority priority, long numbers, Runnable task) {
+            this.clientKey = clientKey;
+            this.priority = priority;
+            this.numbers = numbers;
+            this.task = task;
+        }
+    }
+
+    // Peso de la última búsqueda en la tasa estimada (media móvil exponencial).
+    private static final double RATE_ALPHA = 0.3;
+
+    private final ExecutorService executor;
+    private final int maxRunning;
+    private final int maxQueued;
+
+    // Búsquedas encoladas por clase y, dentro de cada clase, por cliente en orden de turno.
+    private final Map<Priority, LinkedHashMap<String, ArrayDeque<Job>>> queues = new EnumMap<>(Priority.class);
+    private int queued;
+
+    // Búsquedas en ejecución por clase.
+    private final Map<Priority, List<Job>> running = new EnumMap<>(Priority.class);
+
+    // Números por ms que recorre una búsqueda, medido en las búsquedas terminadas (0 si aún no hay datos).
+    private double numbersPerMs;
+
+    // Contadores para los logs.
+    private long admitted;
+    private long rejected;
+
+    // Series de métricas por clase de prioridad.
+    private final Map<Priority, Metrics.Counter> admittedMetric = new EnumMap<>(Priority.class);
+    private final Map<Priority, Metrics.Counter> rejectedMetric = new EnumMap<>(Priority.class);
+    private final Map<Priority, Metrics.Histogram> queueWaitMetric = new EnumMap<>(Priority.class);
+    private final Map<Priority, Metrics.Histogram> durationMetric = new EnumMap<>(Priority.class);
+
+    /**
+     * @param executor Pool donde se ejecutan las búsquedas.
+     * @param maxRunning Búsquedas que se ejecutan a la vez (al menos 1).
+     * @param maxQueued Búsquedas que pueden esperar en la cola (0 rechaza toda búsqueda que no pueda empezar).
+     * @param metrics Métricas del Maestro.
+     */
+    public JobScheduler(ExecutorService executor, int maxRunning, int maxQueued, Metrics metrics) {
+        this.executor = executor;
+        this.maxRunning = Math.max(1, maxRunning);
+        this.maxQueued = Math.max(0, maxQueued);
+        for (Priority p : Priority.values()) {
+            queues.put(p, new LinkedHashMap<>());
+            running.put(p, new ArrayList<>());
+            String priority = p.name().toLowerCase();
+            admittedMetric.put(p, metrics.counter("perfect_master_jobs_admitted_total",
+                    "Búsquedas admitidas por el planificador.", "priority", priority));
+            rejectedMetric.put(p, metrics.counter("perfect_master_jobs_rejected_total",
+                    "Búsquedas rechazadas por cola llena.", "priority", priority));
+            queueWaitMetric.put(p, metrics.histogram("perfect_master_queue_wait_seconds",
+                    "Espera en la cola del planificador hasta empezar a ejecutarse.", Metrics.LATENCY_BUCKETS, "priority", priority));
+            durationMetric.put(p, metrics.histogram("perfect_master_job_duration_seconds",
+                    "Duración de una búsqueda desde que se admite hasta que termina, con la espera en cola.",
+                    Metrics.LATENCY_BUCKETS, "priority", priority));
+        }
+        metrics.gauge("perfect_master_jobs_running", "Búsquedas en ejecución.", () -> runningCount());
+        metrics.gauge("perfect_master_jobs_queued", "Búsquedas esperando en la cola.", () -> queuedCount());
+    }
+
+    /**
+     * Clasifica una búsqueda según su tamaño.
+     * @param numbers Cantidad de números del rango.
+     * @param interactiveMaxNumbers Tamaño máximo de una búsqueda interactiva.
+     * @return INTERACTIVE para rangos de hasta interactiveMaxNumbers números; BATCH para el resto.
+     */
+    public static Priority classify(long numbers, long interactiveMaxNumbers) {
+        return (numbers <= interactiveMaxNumbers) ? Priority.INTERACTIVE : Priority.BATCH;
+    }
+
+    /**
+     * Pide ejecutar una búsqueda. Empieza de inmediato si hay lugar; si no, espera en la cola.
+     * @param clientKey Identifica al cliente, para repartir los turnos.
+     * @param priority Clase de prioridad.
+     * @param numbers Cantidad de números del rango (para estimar esperas).
+     * @param task Búsqueda a ejecutar.
+     * @return Si se admitió y, si quedó encolada, su posición y espera estimadas.
+     */
+    public synchronized Admission submit(String clientKey, Priority priority, long numbers, Runnable task) {
+        if (queued >= maxQueued && !canStart(priority)) {
+            rejected++;
+            rejectedMetric.get(priority).inc();
+            return new Admission(false, -1, -1L);
+        }
+        admitted++;
+        admittedMetric.get(priority).inc();
+        Job job = new Job(clientKey, priority, numbers, task);
+        queues.get(priority).computeIfAbsent(clientKey, k -> new ArrayDeque<>()).addLast(job);
+        queued++;
+        startReady();
+        if (job.started) {
+            return new Admission(true, 0, 0L);
+        }
+        return new Admission(true, positionOf(job), etaOf(job));
+    }
+
+    /**
+     * Quita de la cola una búsqueda que todavía no empezó.
+     * @param task Búsqueda entregada a submit.
+     * @return true si estaba encolada y no se va a ejecutar; false si ya empezó o no se conoce.
+     */
+    public synchronized boolean cancel(Runnable task) {
+        for (LinkedHashMap<String, ArrayDeque<Job>> byClient : queues.values()) {
+            Iterator<Map.Entry<String, ArrayDeque<Job>>> it = byClient.entrySet().iterator();
+            while (it.hasNext()) {
+                ArrayDeque<Job> clientJobs = it.next().getValue();
+                if (clientJobs.removeIf(j -> j.task == task)) {
+                    if (clientJobs.isEmpty()) {
+                        it.remove();
+                    }
+                    queued--;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Describe el estado del planificador para los logs.
+     * @return Búsquedas en ejecución, encoladas, admitidas y rechazadas.
+     */
+    public synchronized String describe() {
+        return String.format("en ejecución %d interactivas + %d de lote (máx. %d), encoladas %d / %d, admitidas %d, rechazadas %d",
+                running.get(Priority.INTERACTIVE).size(), running.get(Priority.BATCH).size(), maxRunning,
+                queued, maxQueued, admitted, rejected);
+    }
+
+    private synchronized int runningCount() {
+        return running.get(Priority.INTERACTIVE).size() + running.get(Priority.BATCH).size();
+    }
+
+    private synchronized int queuedCount() {
+        return queued;
+    }
+
+    /**
+     * Indica si una búsqueda de esta clase podría empezar ahora. Las de lote dejan un lugar libre
+     * para las interactivas cuando hay más de un lugar de ejecución.
+     */
+    private boolean canStart(Priority priority) {
+        int total = running.get(Priority.INTERACTIVE).size() + running.get(Priority.BATCH).size();
+        if (total >= maxRunning) {
+            return false;
+        }
+        int batchLimit = (maxRunning > 1) ? maxRunning - 1 : maxRunning;
+        return priority == Priority.INTERACTIVE || running.get(Priority.BATCH).size() < batchLimit;
+    }
+
+    /**
+     * Arranca búsquedas encoladas mientras haya lugar: primero las interactivas, luego las de lote,
+     * un cliente por turno dentro de cada clase.
+     */
+    private void startReady() {
+        for (Priority priority : Priority.values()) {
+            LinkedHashMap<String, ArrayDeque<Job>> byClient = queues.get(priority);
+            while (!byClient.isEmpty() && canStart(priority)) {
+                // El primer cliente de la lista es el que tiene el turno; después pasa al final.
+                Iterator<Map.Entry<String, ArrayDeque<Job>>> it = byClient.entrySet().iterator();
+                Map.Entry<String, ArrayDeque<Job>> turn = it.next();
+                String clientKey = turn.getKey();
+                ArrayDeque<Job> clientJobs = turn.getValue();
+                Job job = clientJobs.pollFirst();
+                it.remove();
+                if (!clientJobs.isEmpty()) {
+                    byClient.put(clientKey, clientJobs);
+                }
+                queued--;
+                start(job);
+            }
+        }
+    }
+
+    /**
+     * Entrega una búsqueda al pool y, al terminar, libera su lugar.
+     */
+    private void start(Job job) {
+        job.started = true;
+        job.startNanos = System.nanoTime();
+        queueWaitMetric.get(job.priority).observeNanos(job.startNanos - job.submitNanos);
+        running.get(job.priority).add(job);
+        executor.submit(() -> {
+            try {
+                job.task.run();
+            } finally {
+                finished(job);
+            }
+        });
+    }
+
+    private synchronized void finished(Job job) {
+        running.get(job.priority).remove(job);
+        long now = System.nanoTime();
+        durationMetric.get(job.priority).observeNanos(now - job.submitNanos);
+        double elapsedMs = Math.max(1.0, (now - job.startNanos) / 1e6);
+        double rate = job.numbers / elapsedMs;
+        numbersPerMs = (numbersPerMs == 0) ? rate : RATE_ALPHA * rate + (1 - RATE_ALPHA) * numbersPerMs;
+        startReady();
+    }
+
+    /**
+     * Posición estimada de una búsqueda encolada: las de su cliente que están antes, un turno de cada
+     * otro cliente de su clase por cada una de ellas y, si es de lote, todas las interactivas encoladas.
+     */
+    private int positionOf(Job job) {
+        int ownIndex = 0;
+        for (Job j : queues.get(job.priority).get(job.clientKey)) {
+            if (j == job) {
+                break;
+            }
+            ownIndex++;
+        }
+        int ahead = ownIndex;
+        for (Map.Entry<String, ArrayDeque<Job>> e : queues.get(job.priority).entrySet()) {
+            if (!e.getKey().equals(job.clientKey)) {
+                ahead += Math.min(e.getValue().size(), ownIndex + 1);
+            }
+        }
+        if (job.priority == Priority.BATCH) {
+            for (ArrayDeque<Job> q : queues.get(Priority.INTERACTIVE).values()) {
+                ahead += q.size();
+            }
+        }
+        return ahead + 1;
+    }
+
+    /**
+     * Espera estimada hasta que empiece una búsqueda encolada: lo que les falta a las búsquedas en
+     * ejecución más las que están antes en la cola, a la tasa medida, repartido entre los lugares de ejecución.
+     */
+    private long etaOf(Job job) {
+        if (numbersPerMs <= 0) {
+            return -1L;
+        }
+        double pendingNumbers = 0;
+        long now = System.nanoTime();
+        for (List<Job> jobs : running.values()) {
+            for (Job j : jobs) {
+                double done = numbersPerMs * (now - j.startNanos) / 1e6;
+                pendingNumbers += Math.max(0, j.numbers - done);
+            }
+        }
+        // Aproximación: las búsquedas encoladas delante tienen el tamaño medio de la cola.
+        double queuedNumbers = 0;
+        for (LinkedHashMap<String, ArrayDeque<Job>> byClient : queues.values()) {
+            for (ArrayDeque<Job> q : byClient.values()) {
+                for (Job j : q) {
+                    queuedNumbers += j.numbers;
+                }
+            }
+        }
+        pendingNumbers += (positionOf(job) - 1) * (queuedNumbers / Math.max(1, queued));
+        return (long) (pendingNumbers / numbersPerMs / maxRunning);
+    }
+}
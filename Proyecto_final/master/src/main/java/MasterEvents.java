@@ -0,0 +1,130 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Eventos de JDK Flight Recorder del Maestro: ciclo de vida de cada búsqueda (admisión, espera de workers,
+ * entrega y resultado de cada subrango o trozo, unión del resultado). Junto con los eventos del worker
+ * (WorkerEvents) y los del propio JDK (GC, sockets, hilos), una grabación muestra en qué se fue el tiempo
+ * de una búsqueda lenta. Todos llevan el jobId de la búsqueda; las entregas llevan además el ID con que
+ * el worker la ve (searchId) y el trozo, que son los mismos campos de sus eventos.
+ *
+ * Se usan con el patrón habitual de JFR: crear el evento, comprobar shouldCommit y solo entonces llenar
+ * sus campos. Con la grabación apagada esa comprobación es una constante para el JIT y el evento ni
+ * siquiera se reserva. Ejemplo: java -XX:StartFlightRecording=filename=master.jfr,settings=profile -jar master.jar
+ */
+final class MasterEvents {
+
+    private MasterEvents() {
+    }
+
+    @Name("perfect.master.JobAdmitted")
+    @Label("Búsqueda admitida")
+    @Category({"Números perfectos", "Maestro"})
+    @Description("Respuesta del planificador a una búsqueda nueva: empieza, queda encolada o se rechaza.")
+    @StackTrace(false)
+    static final class JobAdmitted extends Event {
+        @Label("Búsqueda")
+        long jobId;
+        @Label("Descripción")
+        String what;
+        @Label("Números")
+        long numbers;
+        @Label("Prioridad")
+        String priority;
+        @Label("Admitida")
+        boolean accepted;
+        @Label("Posición en la cola")
+        @Description("0 si empezó de inmediato.")
+        int queuePosition;
+    }
+
+    @Name("perfect.master.WorkersWait")
+    @Label("Espera de workers")
+    @Category({"Números perfectos", "Maestro"})
+    @Description("Tiempo que una búsqueda esperó a que hubiera suficientes workers registrados antes de repartir.")
+    @StackTrace(false)
+    static final class WorkersWait extends Event {
+        @Label("Búsqueda")
+        long jobId;
+        @Label("Workers pedidos")
+        int requested;
+        @Label("Workers disponibles")
+        int available;
+    }
+
+    @Name("perfect.master.SliceDispatched")
+    @Label("Subrango entregado")
+    @Category({"Números perfectos", "Maestro"})
+    @Description("Entrega de un subrango (push) o de un trozo (pull) a un worker.")
+    @StackTrace(false)
+    static final class SliceDispatched extends Event {
+        @Label("Búsqueda")
+        long jobId;
+        @Label("Búsqueda en el worker")
+        @Description("ID con que el worker ve la búsqueda: el de la búsqueda de trozos en pull, el mismo jobId en push.")
+        long searchId;
+        @Label("Trozo")
+        @Description("-1 en los subrangos del modo push.")
+        int chunkId;
+        @Label("Worker")
+        int workerId;
+        @Label("Inicio")
+        long min;
+        @Label("Fin")
+        long max;
+        @Label("Entrega")
+        String dispatch;
+        @Label("Copia especulativa")
+        boolean backup;
+    }
+
+    @Name("perfect.master.SliceCompleted")
+    @Label("Subrango terminado")
+    @Category({"Números perfectos", "Maestro"})
+    @Description("Llegada del resultado de un subrango o trozo, con el tiempo de ida y vuelta desde su entrega.")
+    @StackTrace(false)
+    static final class SliceCompleted extends Event {
+        @Label("Búsqueda")
+        long jobId;
+        @Label("Búsqueda en el worker")
+        long searchId;
+        @Label("Trozo")
+        int chunkId;
+        @Label("Worker")
+        int workerId;
+        @Label("Inicio")
+        long min;
+        @Label("Fin")
+        long max;
+        @Label("Entrega")
+        String dispatch;
+        @Label("Ida y vuelta")
+        @Timespan(Timespan.NANOSECONDS)
+        long roundTrip;
+        @Label("Perfectos")
+        int perfectCount;
+    }
+
+    @Name("perfect.master.ResultMerged")
+    @Label("Resultado unido")
+    @Category({"Números perfectos", "Maestro"})
+    @Description("Unión de los perfectos de la caché, de otras solicitudes y de los workers en el resultado de la búsqueda.")
+    @StackTrace(false)
+    static final class ResultMerged extends Event {
+        @Label("Búsqueda")
+        long jobId;
+        @Label("Inicio")
+        long min;
+        @Label("Fin")
+        long max;
+        @Label("Partes")
+        int parts;
+        @Label("Perfectos")
+        int perfectCount;
+    }
+}
@@ -0,0 +1,154 @@
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import Demo.ClientCallbackPrx;
+import common.LongList;
+
+/**
+ * Reenvía al cliente los resultados parciales y el avance de su búsqueda mientras se ejecuta.
+ * Los trozos pueden terminar muy seguido, así que los envíos se agrupan: como mucho uno cada
+ * minIntervalMs; lo que llega entre medio se acumula y sale en el siguiente envío.
+ * Si el cliente no implementa las operaciones de avance (clientes anteriores), se deja de enviar
+ * y el cliente solo recibe el resultado final, como antes.
+ */
+public class ProgressForwarder implements ProgressListener {
+
+    private final ClientCallbackPrx callback;
+    private final ScheduledExecutorService scheduler;
+    private final long minIntervalMs;
+
+    // Estado de la búsqueda. Se accede sincronizado sobre la instancia.
+    private long totalNumbers;
+    private double totalCost;
+    private long doneNumbers;
+    private double doneCost;
+    private long startNanos = System.nanoTime();
+    // Perfectos encontrados desde el último envío.
+    private final LongList pendingNums = new LongList();
+    // true si hay avance sin enviar.
+    private boolean dirty;
+    private long lastFlushNanos;
+    private ScheduledFuture<?> scheduledFlush;
+    // false si el cliente no acepta las operaciones de avance.
+    private boolean enabled = true;
+
+    /**
+     * @param callback Proxy de callback del cliente.
+     * @param scheduler Planificador para los envíos diferidos.
+     * @param minIntervalMs Tiempo mínimo entre dos envíos al cliente.
+     */
+    public ProgressForwarder(ClientCallbackPrx callback, ScheduledExecutorService scheduler, long minIntervalMs) {
+        this.callback = callback;
+        this.scheduler = scheduler;
+        this.minIntervalMs = Math.max(0, minIntervalMs);
+    }
+
+    @Override
+    public synchronized void searchStarted(long totalNumbers, double totalCost) {
+        if (this.totalNumbers == 0) {
+            this.startNanos = System.nanoTime();
+            this.lastFlushNanos = startNanos;
+        }
+        this.totalNumbers += totalNumbers;
+        this.totalCost += totalCost;
+    }
+
+    @Override
+    public synchronized void rangeCompleted(long lo, long hi, long[] perfectNums, double cost) {
+        doneNumbers += hi - lo + 1;
+        doneCost += cost;
+        addResults(perfectNums);
+    }
+
+    @Override
+    public synchronized void knownResults(long[] perfectNums) {
+        addResults(perfectNums);
+    }
+
+    /**
+     * Acumula perfectos para el próximo envío y lo programa respetando el intervalo mínimo.
+     * Debe llamarse con el bloqueo de la instancia tomado.
+     * @param perfectNums Perfectos a enviar.
+     */
+    private void addResults(long[] perfectNums) {
+        if (!enabled) {
+            return;
+        }
+        for (long n : perfectNums) {
+            pendingNums.add(n);
+        }
+        dirty = true;
+
+        long sinceLastMs = (System.nanoTime() - lastFlushNanos) / 1_000_000;
+        if (sinceLastMs >= minIntervalMs) {
+            flush();
+        } else if (scheduledFlush == null) {
+            scheduledFlush = scheduler.schedule(this::scheduledFlush, minIntervalMs - sinceLastMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Envía lo pendiente antes del resultado final y cancela los envíos diferidos.
+     */
+    public synchronized void finish() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        if (enabled && dirty) {
+            flush();
+        }
+        enabled = false;
+    }
+
+    /**
+     * Envío diferido programado por rangeCompleted.
+     */
+    private synchronized void scheduledFlush() {
+        scheduledFlush = null;
+        if (enabled && dirty) {
+            flush();
+        }
+    }
+
+    /**
+     * Envía al cliente los perfectos acumulados y el avance actual, sin esperar su respuesta.
+     * Debe llamarse con el bloqueo de la instancia tomado.
+     */
+    private void flush() {
+        lastFlushNanos = System.nanoTime();
+        dirty = false;
+
+        double elapsedMs = Math.max(1.0, (lastFlushNanos - startNanos) / 1e6);
+        double coveredFraction = (totalNumbers > 0) ? Math.min(1.0, (double) doneNumbers / totalNumbers) : 0.0;
+        double numbersPerSecond = doneNumbers * 1000.0 / elapsedMs;
+        // El tiempo restante se estima por costo: los últimos números son los más caros.
+        double costFraction = (totalCost > 0) ? Math.min(1.0, doneCost / totalCost) : 0.0;
+        long etaMs = (costFraction > 0) ? (long) (elapsedMs * (1 - costFraction) / costFraction) : -1L;
+
+        try {
+            if (!pendingNums.isEmpty()) {
+                long[] nums = pendingNums.toArray();
+                pendingNums.clear();
+                callback.partialResultsAsync(nums).exceptionally(this::disable);
+            }
+            callback.progressAsync(coveredFraction, numbersPerSecond, etaMs).exceptionally(this::disable);
+        } catch (com.zeroc.Ice.Exception e) {
+            disable(e);
+        }
+    }
+
+    /**
+     * Deja de enviar avance a este cliente tras un error de comunicación.
+     * @param ex Error recibido.
+     * @return null, para usarse con CompletableFuture.exceptionally.
+     */
+    private synchronized Void disable(Throwable ex) {
+        if (enabled) {
+            enabled = false;
+            System.err.println("[Maestro] Se deja de enviar el avance al cliente: " + ex.getMessage());
+        }
+        return null;
+    }
+}
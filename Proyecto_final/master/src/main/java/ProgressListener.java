@@ -0,0 +1,31 @@
+/**
+ * Recibe el avance de una búsqueda exhaustiva a medida que terminan sus trozos o subrangos,
+ * tanto en modo pull como en modo push.
+ */
+public interface ProgressListener {
+
+    /**
+     * Se llama antes de entregar trabajo a los workers, una vez por cada rango que se va a buscar
+     * (varios si parte de la solicitud ya estaba en la caché). Los totales se acumulan.
+     * @param totalNumbers Cantidad de números del rango.
+     * @param totalCost Costo estimado del rango.
+     */
+    void searchStarted(long totalNumbers, double totalCost);
+
+    /**
+     * Se llama cada vez que un worker termina un trozo o subrango.
+     * Puede llamarse desde varios hilos a la vez.
+     * @param lo Primer número de la parte del rango que terminó.
+     * @param hi Último número de esa parte.
+     * @param perfectNums Números perfectos encontrados en esa parte del rango.
+     * @param cost Costo estimado que cubría.
+     */
+    void rangeCompleted(long lo, long hi, long[] perfectNums, double cost);
+
+    /**
+     * Se llama con los perfectos que ya se conocían (caché o diario) antes de buscar el resto.
+     * @param perfectNums Números perfectos ya conocidos.
+     */
+    default void knownResults(long[] perfectNums) {
+    }
+}
@@ -1,16 +1,27 @@
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
 
+import Demo.Chunk;
+import Demo.ChunkResult;
 import Demo.ClientCallbackPrx;
+import Demo.LoadReport;
+import Demo.QueueFullException;
+import Demo.Range;
+import Demo.RangeResult;
+import Demo.SearchResult;
+import Demo.WorkerInfo;
 import com.zeroc.Ice.Current;
 import Demo.SubscriberPrx;
+import common.Metrics;
 
 
 /**
@@ -20,79 +31,628 @@ import Demo.SubscriberPrx;
  */
 public class PublisherI implements Demo.Publisher {
 
-    // Mapa para mantener los proxies de los workers registrados, indexados por su ID asignado.
-    private final HashMap<Integer, SubscriberPrx> subscribers;
-
-    // Contador para asignar IDs únicos a los workers (Subscriber).
-    private int nextId = 0;
-
-    // Número de workers esperados para una tarea específica (para sincronización).
-    private int workersEsperados = 0;
+    // Workers registrados, indexados por su ID asignado. Se leen por fotos inmutables, sin bloquear al Maestro.
+    private final WorkerRegistry registry = new WorkerRegistry();
 
     // Pool de hilos para procesar solicitudes de clientes de forma asíncrona,
     // evitando bloquear los hilos de comunicación de ICE.
     private final ExecutorService clientRequestExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
 
+    // Métricas del Maestro (latencia y espera en cola de las búsquedas, ida y vuelta de cada entrega a los
+    // workers, workers registrados). Se consultan con getMetrics o en el endpoint de Master.MetricsPort.
+    private final Metrics metrics = new Metrics();
+
+    // Decide qué búsquedas se ejecutan y cuáles esperan: prioridad a los rangos chicos, turnos por cliente
+    // y cola acotada. Propiedades Master.MaxRunningJobs, Master.MaxQueuedJobs y Master.InteractiveMaxNumbers.
+    private final JobScheduler jobScheduler;
+
+    // Valores por defecto del planificador.
+    private static final int DEFAULT_MAX_RUNNING_JOBS = 2;
+    private static final int DEFAULT_MAX_QUEUED_JOBS = 32;
+    private static final long DEFAULT_INTERACTIVE_MAX_NUMBERS = 10_000_000L;
+
+    // Tamaño máximo (en números) de una búsqueda interactiva; las mayores son de lote.
+    private final long interactiveMaxNumbers;
+
+    // Ejecuta las búsquedas: caché de resultados, rangos en curso, diario y reparto entre los workers.
+    // La caché y el diario se configuran con las propiedades Master.CacheMaxBytes y Master.JournalFile.
+    private final SearchCoordinator search;
+
+    // Presupuesto de memoria por defecto de la caché de resultados.
+    private static final long DEFAULT_CACHE_BYTES = 4L * 1024 * 1024;
+
+    // Tamaño por defecto a partir del cual se compacta el diario.
+    private static final long DEFAULT_JOURNAL_MAX_BYTES = 64L * 1024 * 1024;
+
+    // Comunicador del Maestro, para reconstruir los callbacks de los clientes al reanudar búsquedas.
+    private com.zeroc.Ice.Communicator communicator;
+
+    // Planificador de los envíos de avance diferidos a los clientes.
+    private final ScheduledExecutorService progressScheduler = Executors.newSingleThreadScheduledExecutor();
+
+    // Tiempo mínimo por defecto entre dos envíos de avance a un mismo cliente (ms).
+    private static final long DEFAULT_PROGRESS_INTERVAL_MS = 500L;
+
+    // Modo de búsqueda usado por requestPerfectNumbers: exhaustivo (recorre todo el rango)
+    // o analítico (Euclides–Euler). Se configura con la propiedad Master.SearchMode.
+    private final String searchMode;
+
+    // Reparte el rango de cada búsqueda entre los workers (por costo estimado o por ancho)
+    // y aprende la tasa de cada worker. Se configura con la propiedad Master.Partitioning.
+    private final RangePartitioner partitioner;
+
+    // Forma de entregar el trabajo a los workers en la búsqueda exhaustiva: "pull" (cada worker pide
+    // trozos a la cola del Maestro) o "push" (un subrango fijo por worker). Propiedad Master.Dispatch.
+    private final String dispatchMode;
+
+    // Cola de trozos de las búsquedas en modo pull.
+    private final ChunkScheduler chunkScheduler;
+
+    // Criterio para lanzar copias especulativas de las partes atrasadas. Propiedades Master.SpeculationFactor
+    // (veces la duración esperada; 0 lo desactiva) y Master.SpeculationMinDelay (ms).
+    private final SpeculationPolicy speculation;
+
+    // Valores por defecto de la ejecución especulativa.
+    private static final double DEFAULT_SPECULATION_FACTOR = 2.0;
+    private static final long DEFAULT_SPECULATION_MIN_DELAY_MS = 1000L;
+
+    // Cada cuánto se buscan trozos atrasados para ofrecerlos a los workers libres (modo pull).
+    private static final long SPECULATION_CHECK_MS = 500L;
+
+    // Planificador de las tareas periódicas del Maestro: partes atrasadas y latidos de los workers.
+    private final ScheduledExecutorService maintenanceTimer = Executors.newSingleThreadScheduledExecutor();
+
+    // Último momento (System.nanoTime) en que se supo de cada worker registrado: registro, latidos,
+    // reportes de carga, pedidos de trozos o puntos de control.
+    private final ConcurrentHashMap<Integer, Long> lastSeen = new ConcurrentHashMap<>();
+
+    // Workers callados a los que se les está haciendo un ping antes de darlos por caídos.
+    private final Set<Integer> probing = ConcurrentHashMap.newKeySet();
+
+    // Silencio máximo de un worker antes de hacerle un ping y, si no responde, darlo por caído.
+    // Propiedad Master.HeartbeatTimeout (ms; 0 desactiva la detección).
+    private long heartbeatTimeoutMs = DEFAULT_HEARTBEAT_TIMEOUT_MS;
+
+    // Valor por defecto del plazo de los latidos.
+    private static final long DEFAULT_HEARTBEAT_TIMEOUT_MS = 5000L;
+
+    // Entrega en modo push: subrangos fijos por worker, copias especulativas y reasignación de tramos.
+    private final PushDispatcher pushDispatcher;
+
+    // Búsquedas de clientes encoladas o en ejecución: cancelación por ID, plazo o cierre de la conexión.
+    private final ClientJobs clientJobs;
+
+    // Clave del contexto de ICE con que las llamadas a los workers indican la búsqueda a la que pertenecen.
+    public static final String JOB_ID_CONTEXT = "jobId";
+
+    // Valores aceptados por la propiedad Master.SearchMode.
+    public static final String MODE_EXHAUSTIVE = "exhaustive";
+    public static final String MODE_ANALYTIC = "analytic";
+
+    // Valores aceptados por la propiedad Master.Dispatch.
+    public static final String DISPATCH_PULL = "pull";
+    public static final String DISPATCH_PUSH = "push";
+
     /**
-     * Constructor de PublisherI. Inicializa el mapa de workers.
+     * Constructor de PublisherI con la configuración por defecto (búsqueda exhaustiva).
      */
     public PublisherI() {
-        subscribers = new HashMap<>();
+        this(MODE_EXHAUSTIVE, RangePartitioner.Strategy.COST, DISPATCH_PULL,
+                new SpeculationPolicy(DEFAULT_SPECULATION_FACTOR, DEFAULT_SPECULATION_MIN_DELAY_MS),
+                DEFAULT_MAX_RUNNING_JOBS, DEFAULT_MAX_QUEUED_JOBS, DEFAULT_INTERACTIVE_MAX_NUMBERS,
+                new RangeCache(DEFAULT_CACHE_BYTES), null, DEFAULT_PROGRESS_INTERVAL_MS);
     }
 
+    /**
+     * Constructor de PublisherI a partir de las propiedades del Maestro (master/properties.cfg).
+     * @param properties Propiedades del comunicador de ICE.
+     */
+    public PublisherI(com.zeroc.Ice.Properties properties) {
+        this(properties.getPropertyWithDefault("Master.SearchMode", MODE_EXHAUSTIVE).trim(),
+                RangePartitioner.parseStrategy(properties.getPropertyWithDefault("Master.Partitioning", "cost")),
+                properties.getPropertyWithDefault("Master.Dispatch", DISPATCH_PULL).trim(),
+                new SpeculationPolicy(
+                        Double.parseDouble(properties.getPropertyWithDefault("Master.SpeculationFactor",
+                                Double.toString(DEFAULT_SPECULATION_FACTOR)).trim()),
+                        properties.getPropertyAsIntWithDefault("Master.SpeculationMinDelay", (int) DEFAULT_SPECULATION_MIN_DELAY_MS)),
+                properties.getPropertyAsIntWithDefault("Master.MaxRunningJobs", DEFAULT_MAX_RUNNING_JOBS),
+                properties.getPropertyAsIntWithDefault("Master.MaxQueuedJobs", DEFAULT_MAX_QUEUED_JOBS),
+                Long.parseLong(properties.getPropertyWithDefault(
+                        "Master.InteractiveMaxNumbers", Long.toString(DEFAULT_INTERACTIVE_MAX_NUMBERS)).trim()),
+                new RangeCache(Long.parseLong(properties.getPropertyWithDefault(
+                        "Master.CacheMaxBytes", Long.toString(DEFAULT_CACHE_BYTES)).trim())),
+                openJournal(properties),
+                properties.getPropertyAsIntWithDefault("Master.ProgressInterval", (int) DEFAULT_PROGRESS_INTERVAL_MS));
+        this.heartbeatTimeoutMs = properties.getPropertyAsIntWithDefault("Master.HeartbeatTimeout", (int) DEFAULT_HEARTBEAT_TIMEOUT_MS);
+        if (heartbeatTimeoutMs > 0) {
+            long checkMs = Math.max(100L, heartbeatTimeoutMs / 4);
+            maintenanceTimer.scheduleWithFixedDelay(this::checkLiveness, checkMs, checkMs, TimeUnit.MILLISECONDS);
+            System.out.println(String.format("[Maestro] Detección de workers caídos: sin noticias en %d ms.", heartbeatTimeoutMs));
+        } else {
+            System.out.println("[Maestro] Detección de workers caídos: desactivada.");
+        }
+    }
+
+    /**
+     * Constructor de PublisherI a partir del comunicador del Maestro. Además de leer sus propiedades,
+     * guarda el comunicador para poder responder a los clientes de las búsquedas reanudadas.
+     * @param communicator Comunicador de ICE del Maestro.
+     */
+    public PublisherI(com.zeroc.Ice.Communicator communicator) {
+        this(communicator.getProperties());
+        this.communicator = communicator;
+    }
 
     /**
-     * Registra un nuevo worker (Subscriber) con el Maestro.
+     * Abre el diario de búsquedas indicado en Master.JournalFile.
+     * @param properties Propiedades del Maestro.
+     * @return Diario abierto, con lo releído pendiente de volcar a la caché; null si no hay diario configurado.
+     */
+    private static RangeJournal openJournal(com.zeroc.Ice.Properties properties) {
+        String journalFile = properties.getPropertyWithDefault("Master.JournalFile", "").trim();
+        if (journalFile.isEmpty()) {
+            return null;
+        }
+        long journalMaxBytes = Long.parseLong(properties.getPropertyWithDefault(
+                "Master.JournalMaxBytes", Long.toString(DEFAULT_JOURNAL_MAX_BYTES)).trim());
+        try {
+            return new RangeJournal(java.nio.file.Paths.get(journalFile), journalMaxBytes);
+        } catch (java.io.IOException e) {
+            throw new IllegalStateException("No se pudo abrir el diario del Maestro en " + journalFile + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Constructor de PublisherI. Inicializa el mapa de workers.
+     * @param searchMode Modo de búsqueda para las solicitudes de la GUI: "exhaustive" o "analytic".
+     * @param partitioning Estrategia de reparto del rango entre workers.
+     * @param dispatchMode Forma de entregar el trabajo a los workers: "pull" o "push".
+     * @param speculation Criterio para lanzar copias especulativas de las partes atrasadas.
+     * @param maxRunningJobs Búsquedas de clientes que se ejecutan a la vez.
+     * @param maxQueuedJobs Búsquedas de clientes que pueden esperar en la cola.
+     * @param interactiveMaxNumbers Tamaño máximo (en números) de una búsqueda interactiva.
+     * @param resultCache Caché de resultados de las búsquedas.
+     * @param journal Diario de búsquedas recién abierto, o null si no hay.
+     * @param progressIntervalMs Tiempo mínimo entre dos envíos de avance a un mismo cliente (ms).
+     */
+    private PublisherI(String searchMode, RangePartitioner.Strategy partitioning, String dispatchMode,
+                       SpeculationPolicy speculation, int maxRunningJobs, int maxQueuedJobs, long interactiveMaxNumbers,
+                       RangeCache resultCache, RangeJournal journal, long progressIntervalMs) {
+        if (!MODE_EXHAUSTIVE.equals(searchMode) && !MODE_ANALYTIC.equals(searchMode)) {
+            throw new IllegalArgumentException("Modo de búsqueda desconocido en Master.SearchMode: '" + searchMode
+                    + "'. Valores válidos: " + MODE_EXHAUSTIVE + ", " + MODE_ANALYTIC + ".");
+        }
+        if (!DISPATCH_PULL.equals(dispatchMode) && !DISPATCH_PUSH.equals(dispatchMode)) {
+            throw new IllegalArgumentException("Modo de entrega desconocido en Master.Dispatch: '" + dispatchMode
+                    + "'. Valores válidos: " + DISPATCH_PULL + ", " + DISPATCH_PUSH + ".");
+        }
+        this.dispatchMode = dispatchMode;
+        this.searchMode = searchMode;
+        this.partitioner = new RangePartitioner(partitioning);
+        this.speculation = speculation;
+        this.chunkScheduler = new ChunkScheduler(partitioner, speculation);
+        this.chunkScheduler.setRoundTripHandler((workerId, nanos) -> dispatchRoundTrip(workerId, DISPATCH_PULL).observeNanos(nanos));
+        this.pushDispatcher = new PushDispatcher(partitioner, speculation, registry, metrics, maintenanceTimer);
+        this.pushDispatcher.setRoundTripHandler((workerId, nanos) -> dispatchRoundTrip(workerId, DISPATCH_PUSH).observeNanos(nanos));
+        System.out.println("[Maestro] Caché de resultados: " + (resultCache.isEnabled() ? resultCache.describe() : "desactivada"));
+        if (journal != null) {
+            // Lo ya buscado antes del reinicio vuelve a la caché.
+            journal.drainReplayedRanges((range, perfectNums) -> {
+                long[] sorted = perfectNums.clone();
+                Arrays.sort(sorted);
+                resultCache.put(range[0], range[1], sorted);
+            });
+        }
+        this.search = new SearchCoordinator(registry, partitioner, chunkScheduler, pushDispatcher, searchMode, dispatchMode,
+                resultCache, journal, progressScheduler, progressIntervalMs);
+        metrics.gauge("perfect_master_workers", "Workers registrados.", registry::size);
+        this.jobScheduler = new JobScheduler(clientRequestExecutor, maxRunningJobs, maxQueuedJobs, metrics);
+        this.interactiveMaxNumbers = interactiveMaxNumbers;
+        this.clientJobs = new ClientJobs(jobScheduler, progressScheduler, maintenanceTimer, search::broadcastCancel);
+        if (speculation.isEnabled() && DISPATCH_PULL.equals(dispatchMode)) {
+            // Los workers sin trozos no vuelven a pedir hasta recibir un aviso: se los avisa si hay trozos atrasados.
+            maintenanceTimer.scheduleWithFixedDelay(search::offerOverdueChunks,
+                    SPECULATION_CHECK_MS, SPECULATION_CHECK_MS, TimeUnit.MILLISECONDS);
+        }
+        System.out.println("[Maestro] Modo de búsqueda para solicitudes de clientes: " + searchMode);
+        System.out.println("[Maestro] Reparto de rangos entre workers: " + partitioning.name().toLowerCase()
+                + " (entrega " + dispatchMode + ")");
+        System.out.println("[Maestro] Ejecución especulativa: " + speculation.describe());
+        System.out.println("[Maestro] Planificador: " + jobScheduler.describe());
+    }
+
+
+    /**
+     * Registra un nuevo worker (Subscriber) con el Maestro, sin información de su capacidad.
+     * Se conserva por compatibilidad con workers anteriores a registerWorker.
      * @param subscriber Proxy del worker que se está registrando.
      * @param current Contexto de la llamada ICE.
      * @return El ID asignado al worker.
      */
     @Override
-    public synchronized int addSubscriber(SubscriberPrx subscriber, Current current) {
-        int assignedId = nextId++;
-        subscribers.put(assignedId, subscriber);
-        // Asignación de ID a workers
+    public int addSubscriber(SubscriberPrx subscriber, Current current) {
+        return registerWorker(subscriber, null, current);
+    }
+
+    /**
+     * Registra un nuevo worker junto con la capacidad que declara (núcleos y tasa calibrada),
+     * que el Maestro usa para repartir el trabajo en proporción a la capacidad de cada worker.
+     * @param subscriber Proxy del worker que se está registrando.
+     * @param info Capacidad del worker, o null si no la informa.
+     * @param current Contexto de la llamada ICE.
+     * @return El ID asignado al worker.
+     */
+    @Override
+    public int registerWorker(SubscriberPrx subscriber, WorkerInfo info, Current current) {
+        // El worker se prepara antes de publicarlo en el registro, para que ninguna búsqueda
+        // le entregue trabajo sin conocer su capacidad o antes de que él conozca su ID.
+        int assignedId = registry.reserveId();
+        if (info != null) {
+            partitioner.registerCapacity(assignedId, info.cores, info.throughput);
+        }
+        // Asignación de ID a workers. Es una llamada remota: se hace sin retener ningún bloqueo.
         try {
             subscriber.setId(assignedId); // Llama al método setId en la implementación del worker
         } catch (com.zeroc.Ice.Exception e) {
             System.err.println(String.format("[Maestro] Error al asignar ID al worker %d: %s", assignedId, e.getMessage()));
         }
+        lastSeen.put(assignedId, System.nanoTime());
+        // Publicarlo despierta a las búsquedas que esperaban workers.
+        WorkerRegistry.Snapshot snapshot = registry.add(assignedId, subscriber);
 
         System.out.println("Nuevo subscriber conectado. ID asignado: " + assignedId +
-                " (" + subscribers.size() + " / " + workersEsperados + ")");
-        notifyAll(); // Para desbloquear startJob si estaba esperando
+                " (" + snapshot.size() + " / " + search.expectedWorkers() + ")");
+        System.out.println(String.format("[Maestro] Worker %d: %s%s.", assignedId, partitioner.describeCapacity(assignedId),
+                (info != null) ? ", kernel '" + info.kernel + "'" : ""));
+        // Un worker que llega durante una búsqueda en modo pull se suma a ella pidiendo trozos.
+        search.workerJoined(assignedId, subscriber);
         return assignedId;
     }
 
+    /**
+     * Recibe el reporte de carga periódico de un worker (hilos ocupados y trabajo en cola).
+     * Mientras el reporte es reciente, el worker recibe una parte menor de los trabajos nuevos.
+     * @param workerId ID del worker.
+     * @param load Carga actual del worker.
+     * @param current Contexto de la llamada ICE.
+     */
+    @Override
+    public void reportLoad(int workerId, LoadReport load, Current current) {
+        touch(workerId); // El reporte de carga también cuenta como latido.
+        partitioner.reportLoad(workerId, load.busyThreads, load.queueDepth);
+    }
+
+    /**
+     * Recibe el latido periódico de un worker, que indica que sigue vivo aunque esté ocupado.
+     * @param workerId ID del worker.
+     * @param current Contexto de la llamada ICE.
+     * @return false si el Maestro no conoce el ID (se dio por caído o el Maestro se reinició);
+     *         el worker debe volver a registrarse.
+     */
+    @Override
+    public boolean heartbeat(int workerId, Current current) {
+        return touch(workerId);
+    }
+
+    /**
+     * Recibe un punto de control de un worker en modo push: terminó el tramo [doneMin, doneMax] de un subrango.
+     * Si el worker falla, solo se reasigna lo que quede sin cubrir.
+     * @param workerId ID del worker.
+     * @param sliceMin Inicio del tramo que se le entregó.
+     * @param sliceMax Fin del tramo que se le entregó.
+     * @param doneMin Inicio del tramo terminado.
+     * @param doneMax Fin del tramo terminado.
+     * @param perfectNums Perfectos encontrados en el tramo terminado.
+     * @param current Contexto de la llamada ICE.
+     */
+    @Override
+    public void reportSliceProgress(int workerId, long sliceMin, long sliceMax, long doneMin, long doneMax,
+                                    long[] perfectNums, Current current) {
+        touch(workerId);
+        pushDispatcher.checkpoint(workerId, sliceMin, sliceMax, doneMin, doneMax, perfectNums);
+    }
+
+    /**
+     * Registra que se supo de un worker.
+     * @param workerId ID del worker.
+     * @return false si el worker no está registrado.
+     */
+    private boolean touch(int workerId) {
+        return lastSeen.computeIfPresent(workerId, (id, seen) -> System.nanoTime()) != null;
+    }
+
+    /**
+     * Revisa los workers que llevan más de heartbeatTimeoutMs sin dar noticias: les hace un ping con ese
+     * mismo plazo y, si no responden, los da por caídos. Un worker sin latidos que sí responde
+     * (por ejemplo, uno anterior a los latidos) se mantiene.
+     */
+    private void checkLiveness() {
+        try {
+            long now = System.nanoTime();
+            for (Map.Entry<Integer, Long> entry : lastSeen.entrySet()) {
+                int workerId = entry.getKey();
+                long silentMs = (now - entry.getValue()) / 1_000_000;
+                if (silentMs < heartbeatTimeoutMs || !probing.add(workerId)) {
+                    continue;
+                }
+                SubscriberPrx worker = registry.snapshot().get(workerId);
+                if (worker == null) {
+                    probing.remove(workerId);
+                    continue;
+                }
+                worker.ice_invocationTimeout((int) heartbeatTimeoutMs).ice_pingAsync().whenComplete((ok, ex) -> {
+                    probing.remove(workerId);
+                    if (ex == null) {
+                        touch(workerId);
+                    } else {
+                        evictWorker(workerId, String.format("sin noticias hace %d ms y no responde al ping (%s)", silentMs, ex));
+                    }
+                });
+            }
+        } catch (RuntimeException e) {
+            // Un error no debe cancelar las revisiones siguientes.
+            System.err.println("[Maestro] Error revisando los latidos de los workers: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Da por caído a un worker: lo desregistra, devuelve sus trozos a la cola y reasigna los tramos
+     * sin terminar de sus llamadas push en curso.
+     * @param workerId ID del worker.
+     * @param reason Motivo, para el log.
+     */
+    private void evictWorker(int workerId, String reason) {
+        if (!registry.remove(workerId)) {
+            return; // Ya se había ido.
+        }
+        System.err.println(String.format("[Maestro] Worker %d dado por caído: %s.", workerId, reason));
+        forgetWorker(workerId);
+        pushDispatcher.workerLost(workerId);
+    }
+
     /**
      * Desregistra un worker del Maestro.
      * @param id ID del worker a remover.
      * @param current Contexto de la llamada ICE.
      */
     @Override
-    public synchronized void removeSubscriber(int id, Current current) {
-        if (!subscribers.containsKey(id)) {
+    public void removeSubscriber(int id, Current current) {
+        if (!registry.remove(id)) {
             throw new IllegalArgumentException("No existe subscriber con ID: " + id);
         }
-        subscribers.remove(id);
-        System.out.println(String.format("[Maestro] Worker %d desconectado. Total: %d workers.", id, subscribers.size()));
+        forgetWorker(id);
+    }
+
+    /**
+     * Olvida el estado de un worker ya quitado del registro y reparte sus trozos entre los demás.
+     * Solo la llamada que lo quitó del registro debe llamarlo.
+     * @param id ID del worker.
+     */
+    private void forgetWorker(int id) {
+        lastSeen.remove(id);
+        partitioner.forget(id);
+        // Los trozos que tenía asignados vuelven a la cola y se avisa a los demás workers.
+        search.workerLeft(id);
+        System.out.println(String.format("[Maestro] Worker %d desconectado. Total: %d workers.", id, registry.size()));
     }
 
 
     /**
      * Método síncrono para iniciar la búsqueda de números perfectos.
      * Utilizado principalmente por clientes de consola o para pruebas.
+     * El cliente espera el resultado en la misma llamada, pero la operación es AMD: el hilo de despacho
+     * de ICE queda libre y la respuesta se envía cuando la búsqueda termina.
+     * @param numWorkers Número de workers a usar.
+     * @param min Límite inferior del rango de búsqueda.
+     * @param max Límite superior del rango de búsqueda.
+     * @param current Contexto de la llamada ICE.
+     * @return Futuro con el array de números perfectos encontrados; falla con QueueFullException si la cola está llena.
+     */
+    @Override
+    public CompletableFuture<int[]> startJobAsync(int numWorkers, int min, int max, Current current) {
+        return runScheduled(current, min, max, 0L, token -> executePerfectNumberSearchLong(numWorkers, min, max, null, token))
+                .thenApply(PublisherI::toIntArray);
+    }
+
+    /**
+     * Versión de 64 bits de startJob, para rangos que superan 2^31.
      * @param numWorkers Número de workers a usar.
      * @param min Límite inferior del rango de búsqueda.
      * @param max Límite superior del rango de búsqueda.
      * @param current Contexto de la llamada ICE.
-     * @return Array de números perfectos encontrados.
+     * @return Futuro con el array de números perfectos encontrados; falla con QueueFullException si la cola está llena.
+     */
+    @Override
+    public CompletableFuture<long[]> startJobLongAsync(int numWorkers, long min, long max, Current current) {
+        return runScheduled(current, min, max, 0L, token -> executePerfectNumberSearchLong(numWorkers, min, max, null, token));
+    }
+
+    /**
+     * Búsqueda síncrona con plazo ("anytime"): al vencer el plazo se deja de repartir trabajo, se cancela
+     * lo que está en curso y se devuelve lo encontrado hasta ese momento, junto con las partes del rango
+     * que quedaron cubiertas y las que no. El plazo cuenta desde que llega la solicitud, incluida la espera en cola.
+     * @param numWorkers Número de workers a usar.
+     * @param min Límite inferior del rango de búsqueda.
+     * @param max Límite superior del rango de búsqueda.
+     * @param deadlineMs Plazo en milisegundos (0 o negativo: sin plazo).
+     * @param current Contexto de la llamada ICE.
+     * @return Futuro con los perfectos encontrados y la cobertura: partes {inicio, fin} recorridas y sin recorrer,
+     *         como pares consecutivos. Falla con QueueFullException si la cola está llena.
+     */
+    @Override
+    public CompletableFuture<SearchResult> startJobWithDeadlineAsync(int numWorkers, long min, long max, long deadlineMs, Current current) {
+        long lo = Math.max(1L, Math.min(min, max));
+        long hi = Math.max(min, max);
+        return runScheduled(current, min, max, deadlineMs, token -> {
+            List<long[]> missing = new ArrayList<>();
+            long[] perfectNums = search.exhaustive(numWorkers, min, max, null, missing, token);
+            SearchCoordinator.logCoverage(lo, hi, missing);
+            List<long[]> gaps = Ranges.merge(missing);
+            return new SearchResult(perfectNums, gaps.isEmpty(), Ranges.flatten(Ranges.complement(lo, hi, gaps)), Ranges.flatten(gaps));
+        });
+    }
+
+    /**
+     * Busca muchos rangos en una sola llamada. Los rangos que se solapan o son contiguos se unen y todo
+     * el lote se planifica como una sola búsqueda: una consulta a la caché y un solo reparto entre los workers,
+     * en lugar de una ida y vuelta y un reparto por rango.
+     * @param ranges Rangos a buscar, en cualquier orden; pueden solaparse, repetirse o venir invertidos.
+     * @param current Contexto de la llamada ICE.
+     * @return Futuro con el resultado de cada rango, en el mismo orden que ranges, con sus perfectos y si se
+     *         recorrió entero. Falla con QueueFullException si la cola está llena.
+     */
+    @Override
+    public CompletableFuture<RangeResult[]> submitBatchAsync(Range[] ranges, Current current) {
+        return runScheduled(current, "un lote de " + ranges.length + " rangos", SearchCoordinator.batchSize(ranges), 0L, token -> {
+            RangeResult[] results = search.batch(ranges, null, new ArrayList<>(), token);
+            SearchCoordinator.logBatch(token.jobId(), results);
+            return results;
+        });
+    }
+
+    /**
+     * Ejecuta una búsqueda síncrona a través del planificador, sin bloquear el hilo de despacho de ICE.
+     * Si la conexión del cliente se cierra antes de terminar, la búsqueda se cancela: nadie recibiría la respuesta.
+     * @param current Contexto de la llamada ICE del cliente.
+     * @param min Límite inferior del rango de búsqueda.
+     * @param max Límite superior del rango de búsqueda.
+     * @param deadlineMs Plazo en milisegundos para cancelar la búsqueda (0 o negativo: sin plazo).
+     * @param search Búsqueda a ejecutar con el token de cancelación que recibe. Si se cancela, debe devolver
+     *               lo encontrado hasta ese momento.
+     * @return Futuro con el resultado de la búsqueda; falla con QueueFullException si la cola del planificador está llena.
+     */
+    private <T> CompletableFuture<T> runScheduled(Current current, long min, long max, long deadlineMs,
+                               java.util.function.Function<CancellationToken, T> search) {
+        return runScheduled(current, "[" + min + ", " + max + "]", Ranges.size(min, max), deadlineMs, search);
+    }
+
+    /**
+     * Igual que runScheduled sobre un rango, para búsquedas descritas de otra forma (por ejemplo, un lote de rangos).
+     * @param current Contexto de la llamada ICE del cliente.
+     * @param what Descripción de lo que se busca, para el log.
+     * @param numbers Cantidad de números a buscar, para decidir su prioridad.
+     * @param deadlineMs Plazo en milisegundos para cancelar la búsqueda (0 o negativo: sin plazo).
+     * @param search Búsqueda a ejecutar con el token de cancelación que recibe.
+     * @return Futuro con el resultado de la búsqueda; falla con QueueFullException si la cola del planificador está llena.
+     */
+    private <T> CompletableFuture<T> runScheduled(Current current, String what, long numbers, long deadlineMs,
+                               java.util.function.Function<CancellationToken, T> search) {
+        return runScheduled(current, what, numbers, JobScheduler.classify(numbers, interactiveMaxNumbers), deadlineMs, search);
+    }
+
+    /**
+     * Igual que runScheduled, con la prioridad ya decidida (por ejemplo, las búsquedas analíticas sin parte impar).
+     * @param current Contexto de la llamada ICE del cliente.
+     * @param what Descripción de lo que se busca, para el log.
+     * @param numbers Cantidad de números a buscar, para estimar esperas.
+     * @param priority Prioridad de la búsqueda en el planificador.
+     * @param deadlineMs Plazo en milisegundos para cancelar la búsqueda (0 o negativo: sin plazo).
+     * @param search Búsqueda a ejecutar con el token de cancelación que recibe.
+     * @return Futuro con el resultado de la búsqueda; falla con QueueFullException si la cola del planificador está llena.
+     */
+    private <T> CompletableFuture<T> runScheduled(Current current, String what, long numbers, JobScheduler.Priority priority, long deadlineMs,
+                               java.util.function.Function<CancellationToken, T> search) {
+        CancellationToken token = new CancellationToken(chunkScheduler.newJobId());
+        CompletableFuture<T> result = new CompletableFuture<>();
+        // Aunque se cancele antes de empezar, la búsqueda se ejecuta: con el token cancelado no reparte
+        // trabajo y responde enseguida con lo que ya se conocía.
+        JobScheduler.Admission admission = clientJobs.submit(token, null, current, connectionKey(current), priority, what,
+                numbers, deadlineMs, () -> {
+                    try {
+                        result.complete(search.apply(token));
+                    } catch (RuntimeException e) {
+                        result.completeExceptionally(e);
+                    }
+                });
+        if (!admission.accepted) {
+            System.err.println(String.format("[Maestro] Búsqueda síncrona en %s rechazada: cola llena. %s", what, jobScheduler.describe()));
+            return CompletableFuture.failedFuture(new QueueFullException("El Maestro tiene la cola de búsquedas llena; reintente más tarde."));
+        }
+        if (admission.position > 0) {
+            System.out.println(String.format("[Maestro] Búsqueda síncrona #%d en %s encolada en la posición %d.",
+                    token.jobId(), what, admission.position));
+        }
+        return result;
+    }
+
+    /**
+     * Identifica al cliente de una llamada síncrona por su conexión.
+     */
+    private static String connectionKey(Current current) {
+        return (current != null && current.con != null) ? current.con.toString() : "local";
+    }
+
+
+
+    /**
+     * Búsqueda en modo analítico (Euclides–Euler), de forma síncrona para el cliente (AMD, como startJob).
+     * @param min Límite inferior del rango de búsqueda.
+     * @param max Límite superior del rango de búsqueda.
+     * @param includeOdd Si es true, además se recorre la parte impar del rango en los workers.
+     * @param current Contexto de la llamada ICE.
+     * @return Futuro con el array de números perfectos encontrados; falla con QueueFullException si la cola está llena.
+     */
+    @Override
+    public CompletableFuture<int[]> startAnalyticJobAsync(int min, int max, boolean includeOdd, Current current) {
+        return startAnalyticJobLongAsync(min, max, includeOdd, current).thenApply(PublisherI::toIntArray);
+    }
+
+    /**
+     * Versión de 64 bits de startAnalyticJob.
+     * @param min Límite inferior del rango de búsqueda.
+     * @param max Límite superior del rango de búsqueda.
+     * @param includeOdd Si es true, además se recorre la parte impar del rango en los workers.
+     * @param current Contexto de la llamada ICE.
+     * @return Futuro con el array de números perfectos encontrados; falla con QueueFullException si la cola está llena.
      */
     @Override
-    public int[] startJob(int numWorkers, int min, int max, Current current) {
-        return executePerfectNumberSearch(numWorkers, min, max);
+    public CompletableFuture<long[]> startAnalyticJobLongAsync(long min, long max, boolean includeOdd, Current current) {
+        long lo = Math.max(1L, Math.min(min, max));
+        long hi = Math.max(min, max);
+        long numbers = Ranges.size(min, max);
+        // Sin la parte impar solo se comprueban unos pocos exponentes: siempre interactiva.
+        JobScheduler.Priority priority = includeOdd
+                ? JobScheduler.classify(numbers, interactiveMaxNumbers) : JobScheduler.Priority.INTERACTIVE;
+        return runScheduled(current, "[" + min + ", " + max + "] (analítica)", numbers, priority, 0L, token -> {
+            List<long[]> missing = new ArrayList<>();
+            long[] perfectNums = search.analytic(min, max, includeOdd, missing, token);
+            if (!missing.isEmpty()) {
+                SearchCoordinator.logCoverage(lo, hi, missing);
+            }
+            return perfectNums;
+        });
     }
 
+    /**
+     * Lógica del modo analítico. En lugar de recorrer el rango, calcula los exponentes p cuyo
+     * perfecto 2^(p-1)·(2^p - 1) cae en el rango y reparte entre los workers el test de Lucas–Lehmer
+     * de esos exponentes. Solo si includeOdd es true se recorre, además, la parte impar del rango.
+     * Sin la parte impar el resultado coincide con el de executePerfectNumberSearch: no existen
+     * perfectos impares por debajo de 10^1500, muy por encima del rango representable.
+     * @param min Límite inferior del rango de búsqueda.
+     * @param max Límite superior del rango de búsqueda.
+     * @param includeOdd Si es true, se recorre también la parte impar del rango.
+     * @return Array ordenado de números perfectos encontrados.
+     */
+    public int[] executeAnalyticSearch(int min, int max, boolean includeOdd) {
+        return toIntArray(executeAnalyticSearchLong(min, max, includeOdd));
+    }
+
+    /**
+     * Versión de 64 bits de executeAnalyticSearch.
+     * @param min Límite inferior del rango de búsqueda.
+     * @param max Límite superior del rango de búsqueda.
+     * @param includeOdd Si es true, se recorre también la parte impar del rango.
+     * @return Array ordenado de números perfectos encontrados.
+     */
+    public long[] executeAnalyticSearchLong(long min, long max, boolean includeOdd) {
+        List<long[]> missing = new ArrayList<>();
+        long[] perfectNums = search.analytic(min, max, includeOdd, missing, new CancellationToken(0));
+        if (!missing.isEmpty()) {
+            SearchCoordinator.logCoverage(min, max, missing);
+        }
+        return perfectNums;
+    }
 
 
     /**
@@ -104,101 +664,94 @@ public class PublisherI implements Demo.Publisher {
      * @return Array de números perfectos encontrados en el rango total.
      */
     public int[] executePerfectNumberSearch(int numWorkers, int min, int max) {
-        // Asegura que el rango mínimo sea menor o igual al máximo.
-        min = Math.min(min, max);
-        max = Math.max(min, max);
-
-        // Actualiza el número de workers esperados para esta tarea.
-        this.workersEsperados = numWorkers;
-
-        synchronized (this) {
-            // Espera si no hay suficientes workers conectados para la tarea actual.
-            // Se espera con un timeout para evitar bloqueos indefinidos si un worker nunca llega.
-            while (subscribers.size() < numWorkers) {
-                try {
-                    System.out.println("Workers conectados: " + subscribers.size() + " / " + numWorkers);
-                    wait();
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt(); // Restaura el estado de interrupción.
-                    System.err.println("startJob interrumpido: " + e.getMessage());
-                    return new int[0]; // Retorna vacío si se interrumpe la espera.
-                }
-            }
-        }
+        return toIntArray(executePerfectNumberSearchLong(numWorkers, min, max));
+    }
 
-        // Si no hay workers disponibles después de la espera, no se puede realizar la tarea.
-        if (subscribers.isEmpty()) {
-            System.err.println("[Maestro] No hay workers disponibles para realizar la búsqueda.");
-            return new int[0];
-        }
+    /**
+     * Versión de 64 bits de executePerfectNumberSearch; todas las búsquedas exhaustivas pasan por aquí.
+     * @param numWorkers Número de workers que el Maestro intentará usar para esta tarea.
+     * @param minNum Límite inferior del rango de búsqueda.
+     * @param maxNum Límite superior del rango de búsqueda.
+     * @return Array de números perfectos encontrados en el rango total.
+     */
+    public long[] executePerfectNumberSearchLong(int numWorkers, long minNum, long maxNum) {
+        return executePerfectNumberSearchLong(numWorkers, minNum, maxNum, null);
+    }
 
-        System.out.println(String.format("[Maestro] Iniciando distribucion del rango [%d, %d] con %d workers.", min, max, subscribers.size()));
-
-        // Divide el rango total en subrangos para cada worker activo.
-        int delta = (max - min) / subscribers.size();
-        int currentMin = min;
-
-        List<CompletableFuture<int[]>> futures = new ArrayList<>();
-        // Crea una lista de los workers activos para esta distribución.
-        List<SubscriberPrx> list = new ArrayList<>(subscribers.values());
-
-        // Contador atómico para rastrear el progreso de las tareas completadas por los workers.
-        AtomicInteger completedTasks = new AtomicInteger(0);
-
-        // Asigna un subrango a cada worker y recolecta sus CompletableFuture.
-        for (int i = 0; i < list.size(); i++) {
-            SubscriberPrx proxy = list.get(i);
-            int currentMax = (i == list.size() - 1) ? max : currentMin + delta;
-
-            // Asegura que el último worker cubra el final del rango.
-            int finalMin = currentMin;
-            int finalMax = currentMax;
-
-            System.out.println(String.format("[Maestro] Asignando rango [%d, %d] a worker #%d.", finalMin, finalMax, i + 1));
-            try {
-                // Realiza la llamada asíncrona al worker para calcular el subrango.
-                CompletableFuture<int[]> future = proxy.calculatePerfectNumAsync(finalMin, finalMax);
-                futures.add(future);
-
-                // Añade un callback a cada future para registrar cuando la tarea se completa,
-                // sin bloquear el hilo principal.
-                int workerIndex = i; // Necesario para la lambda
-                future.thenRun(() -> {
-                    int finishedCount = completedTasks.incrementAndGet();
-                    System.out.println(String.format("[Maestro] Tarea del worker #%d (rango [%d, %d]) completada. Progreso: %d/%d.",
-                            workerIndex + 1, finalMin, finalMax, finishedCount, list.size()));
-                }).exceptionally(ex -> {
-                    // Maneja excepciones si una tarea de worker falla.
-                    System.err.println(String.format("[Maestro] Error en worker #%d (rango [%d, %d]): %s",
-                            workerIndex + 1, finalMin, finalMax, ex.getMessage()));
-                    return null;
-                });
-            } catch (com.zeroc.Ice.Exception e) {
-                System.err.println(String.format("[Maestro] Error al asignar tarea a worker #%d (Proxy: %s): %s", i + 1, e.getMessage()));
-                // Si la asignación falla, ese worker no podrá contribuir a esta tarea.
-            }
-            currentMin = finalMax + 1;
-        }
+    /**
+     * Igual que executePerfectNumberSearchLong, informando el avance a medida que terminan las partes del rango.
+     * @param numWorkers Número de workers que el Maestro intentará usar para esta tarea.
+     * @param minNum Límite inferior del rango de búsqueda.
+     * @param maxNum Límite superior del rango de búsqueda.
+     * @param listener Recibe los resultados parciales y el avance, o null.
+     * @return Array de números perfectos encontrados en el rango total.
+     */
+    public long[] executePerfectNumberSearchLong(int numWorkers, long minNum, long maxNum, ProgressListener listener) {
+        return executePerfectNumberSearchLong(numWorkers, minNum, maxNum, listener, new CancellationToken(0));
+    }
 
-        // Bloqueamos y recolectamos todos los resultados
-        List<Integer> allResults = new ArrayList<>();
-        for (CompletableFuture<int[]> f : futures) {
-            try {
-                int[] result = f.join(); // Espera a que el future se complete y obtiene el resultado.
-                if (result != null) { // Asegura que el resultado no sea null (si hubo una excepción handled).
-                    for (int n : result) {
-                        allResults.add(n);
-                    }
-                }
-            } catch (java.lang.Exception e) {
-                System.err.println("[Maestro] Error recolectando resultado de un worker (durante join()): " + e.getMessage());
-            }
-        }
-        System.out.println(String.format("[Maestro] Recoleccion de resultados para rango [%d, %d] completada. Total perfectos: %d", min, max, allResults.size()));
-        return allResults.stream().mapToInt(i -> i).toArray(); // Convierte la lista a un array int[].
+    /**
+     * Igual que executePerfectNumberSearchLong, con un token para cancelar la búsqueda.
+     * @param numWorkers Número de workers que el Maestro intentará usar para esta tarea.
+     * @param minNum Límite inferior del rango de búsqueda.
+     * @param maxNum Límite superior del rango de búsqueda.
+     * @param listener Recibe los resultados parciales y el avance, o null.
+     * @param token Cancelación de la búsqueda.
+     * @return Array de números perfectos encontrados en las partes recorridas.
+     */
+    private long[] executePerfectNumberSearchLong(int numWorkers, long minNum, long maxNum, ProgressListener listener,
+                                                  CancellationToken token) {
+        List<long[]> missing = new ArrayList<>();
+        long[] perfectNums = search.exhaustive(numWorkers, minNum, maxNum, listener, missing, token);
+        SearchCoordinator.logCoverage(minNum, maxNum, missing);
+        return perfectNums;
+    }
+
+    /**
+     * Histograma del tiempo de ida y vuelta de las entregas a un worker: desde que se le envía un subrango
+     * (push) o un trozo (pull) hasta que llega su resultado.
+     * @param workerId ID del worker.
+     * @param dispatch Forma de entrega (DISPATCH_PUSH o DISPATCH_PULL).
+     */
+    private Metrics.Histogram dispatchRoundTrip(int workerId, String dispatch) {
+        return metrics.histogram("perfect_master_dispatch_rtt_seconds",
+                "Tiempo desde que se entrega trabajo a un worker hasta que llega su resultado.",
+                Metrics.LATENCY_BUCKETS, "dispatch", dispatch, "worker", Integer.toString(workerId));
     }
 
 
+    /**
+     * Llamado por los workers en modo pull: entrega los resultados de los trozos terminados
+     * y recibe el siguiente lote de trozos.
+     * @param workerId ID del worker.
+     * @param completed Resultados de los trozos que el worker terminó desde su última llamada.
+     * @param maxChunks Máximo de trozos que el worker quiere recibir.
+     * @param current Contexto de la llamada ICE.
+     * @return Trozos asignados; vacío si no queda trabajo pendiente.
+     */
+    @Override
+    public Chunk[] pullChunks(int workerId, ChunkResult[] completed, int maxChunks, Current current) {
+        if (!touch(workerId)) {
+            // Worker dado por caído: se aceptan sus resultados, pero sus trozos ya volvieron a la cola
+            // y no recibe más hasta que se vuelva a registrar.
+            chunkScheduler.report(workerId, completed);
+            return new Chunk[0];
+        }
+        return chunkScheduler.pull(workerId, completed, maxChunks);
+    }
+
+    /**
+     * Llamado por los workers en modo pull apenas terminan cada trozo, para que los resultados
+     * parciales y el avance lleguen al cliente sin esperar al siguiente pullChunks.
+     * @param workerId ID del worker.
+     * @param results Resultados de los trozos recién terminados.
+     * @param current Contexto de la llamada ICE.
+     */
+    @Override
+    public void reportChunkResults(int workerId, ChunkResult[] results, Current current) {
+        touch(workerId);
+        chunkScheduler.report(workerId, results);
+    }
 
     /**
      * Método principal para iniciar la búsqueda de números perfectos de forma asíncrona.
@@ -207,42 +760,176 @@ public class PublisherI implements Demo.Publisher {
      * @param max Límite superior del rango de búsqueda.
      * @param clientCallback Proxy de callback del cliente para devolver los resultados.
      * @param current Contexto de la llamada ICE.
+     * @return ID de la búsqueda, para cancelarla con cancelJob; 0 si se rechazó.
      */
     @Override
-    public void requestPerfectNumbers(int min, int max, ClientCallbackPrx clientCallback, Current current) {
-        System.out.println("Maestro: Recibida solicitud asíncrona de cliente para rango [" + min + ", " + max + "]");
+    public long requestPerfectNumbers(int min, int max, ClientCallbackPrx clientCallback, Current current) {
+        return submitClientRequest(min, max, 0L, clientCallback, false, current);
+    }
 
-        // Ejecuta la lógica de búsqueda en un hilo del pool para no bloquear el hilo de ICE que recibió la solicitud.
-        clientRequestExecutor.submit(() -> {
-            long startTime = System.currentTimeMillis(); // Mide el tiempo de inicio de la solicitud completa.
-
-            int numActiveWorkers = subscribers.size();
-            // Si no hay workers conectados, se notifica al cliente y se aborta.
-            if (numActiveWorkers == 0) {
-                System.err.println(String.format("[Maestro] Error: No hay workers conectados para procesar el rango [%d, %d].", min, max));
-                clientCallback.perfectNumbersFound(new int[0], 0L, (Map<String, String>) current); // current puede ser null aquí si no es una llamada directa
-                return;
-            }
+    /**
+     * Versión de 64 bits de requestPerfectNumbers. Los resultados se devuelven por perfectNumbersFoundLong.
+     * @param min Límite inferior del rango de búsqueda.
+     * @param max Límite superior del rango de búsqueda.
+     * @param clientCallback Proxy de callback del cliente para devolver los resultados.
+     * @param current Contexto de la llamada ICE.
+     * @return ID de la búsqueda, para cancelarla con cancelJob; 0 si se rechazó.
+     */
+    @Override
+    public long requestPerfectNumbersLong(long min, long max, ClientCallbackPrx clientCallback, Current current) {
+        return submitClientRequest(min, max, 0L, clientCallback, true, current);
+    }
 
-            System.out.println(String.format("[Maestro] Iniciando procesamiento para rango [%d, %d] con %d workers disponibles.", min, max, numActiveWorkers));
+    /**
+     * Versión de requestPerfectNumbersLong con plazo ("anytime"). Al vencer el plazo la búsqueda se cancela
+     * y el cliente recibe lo encontrado hasta ese momento; el aviso coverage le indica las partes sin recorrer
+     * (el resto del rango pedido es lo cubierto), para mostrar hasta dónde llegó o volver a pedir solo los huecos.
+     * @param min Límite inferior del rango de búsqueda.
+     * @param max Límite superior del rango de búsqueda.
+     * @param deadlineMs Plazo en milisegundos desde que llega la solicitud (0 o negativo: sin plazo).
+     * @param clientCallback Proxy de callback del cliente para devolver los resultados.
+     * @param current Contexto de la llamada ICE.
+     * @return ID de la búsqueda, para cancelarla antes con cancelJob; 0 si se rechazó.
+     */
+    @Override
+    public long requestPerfectNumbersWithDeadline(long min, long max, long deadlineMs, ClientCallbackPrx clientCallback,
+                                                  Current current) {
+        return submitClientRequest(min, max, deadlineMs, clientCallback, true, current);
+    }
+
+    /**
+     * Versión asíncrona de submitBatch. Mientras se ejecuta, el cliente recibe los perfectos y el avance
+     * del lote completo; al terminar, el resultado de cada rango llega en un solo aviso batchResults.
+     * @param ranges Rangos a buscar, en cualquier orden; pueden solaparse, repetirse o venir invertidos.
+     * @param clientCallback Proxy de callback del cliente para devolver los resultados.
+     * @param current Contexto de la llamada ICE.
+     * @return ID del lote, para cancelarlo con cancelJob; 0 si se rechazó.
+     */
+    @Override
+    public long requestBatch(Range[] ranges, ClientCallbackPrx clientCallback, Current current) {
+        return submitClientJob("un lote de " + ranges.length + " rangos", SearchCoordinator.batchSize(ranges), 0L, clientCallback, current,
+                token -> search.runBatchRequest(ranges, clientCallback, token));
+    }
 
-            try {
-                // Ejecuta la búsqueda real distribuyendo el trabajo a los workers.
-                int[] perfectNums = executePerfectNumberSearch(subscribers.size(), min, max);
-                long duration = System.currentTimeMillis() - startTime;
+    /**
+     * Cancela una búsqueda de un cliente. Si todavía estaba en la cola, no llega a ejecutarse; si ya se estaba
+     * ejecutando, los workers detienen su parte y el cliente recibe por su callback lo encontrado hasta ese
+     * momento, con la cobertura marcada como incompleta.
+     * @param jobId ID devuelto por requestPerfectNumbers o requestPerfectNumbersLong.
+     * @param current Contexto de la llamada ICE.
+     * @return true si la búsqueda estaba en curso y se canceló; false si ya había terminado o no existe.
+     */
+    @Override
+    public boolean cancelJob(long jobId, Current current) {
+        return clientJobs.cancel(jobId, "pedida por el cliente");
+    }
+
+    /**
+     * Encola la solicitud asíncrona de un cliente y le devuelve los resultados por su callback.
+     * @param min Límite inferior del rango de búsqueda.
+     * @param max Límite superior del rango de búsqueda.
+     * @param deadlineMs Plazo en milisegundos para cancelar la búsqueda (0 o negativo: sin plazo).
+     * @param clientCallback Proxy de callback del cliente.
+     * @param longResults true si el cliente usó la operación de 64 bits (responde con perfectNumbersFoundLong).
+     * @param current Contexto de la llamada ICE del cliente.
+     * @return ID de la búsqueda; 0 si se rechazó.
+     */
+    private long submitClientRequest(long min, long max, long deadlineMs, ClientCallbackPrx clientCallback, boolean longResults,
+                                     Current current) {
+        return submitClientJob("rango [" + min + ", " + max + "]", Ranges.size(min, max), deadlineMs, clientCallback, current,
+                token -> search.runClientRequest(min, max, clientCallback, longResults, token));
+    }
 
-                System.out.println(String.format("[Maestro] Tarea para rango [%d, %d] completada en %d ms. Enviando resultados al cliente.", min, max, duration));
+    /**
+     * Registra una búsqueda asíncrona de un cliente y la entrega al planificador.
+     * @param what Descripción de lo que se busca, para el log.
+     * @param numbers Cantidad de números a buscar, para decidir su prioridad.
+     * @param deadlineMs Plazo en milisegundos para cancelar la búsqueda (0 o negativo: sin plazo).
+     * @param clientCallback Proxy de callback del cliente.
+     * @param current Contexto de la llamada ICE del cliente.
+     * @param body Búsqueda a ejecutar; debe responder al cliente por su callback, también si se cancela.
+     * @return ID de la búsqueda; 0 si se rechazó.
+     */
+    private long submitClientJob(String what, long numbers, long deadlineMs, ClientCallbackPrx clientCallback, Current current,
+                                 java.util.function.Consumer<CancellationToken> body) {
+        CancellationToken token = new CancellationToken(chunkScheduler.newJobId());
+        System.out.println("Maestro: Recibida solicitud asíncrona #" + token.jobId() + " de cliente para " + what
+                + (deadlineMs > 0 ? " con plazo de " + deadlineMs + " ms" : ""));
+
+        // Las búsquedas analíticas son baratas: siempre interactivas.
+        JobScheduler.Priority priority = MODE_ANALYTIC.equals(searchMode)
+                ? JobScheduler.Priority.INTERACTIVE : JobScheduler.classify(numbers, interactiveMaxNumbers);
+        // Ejecuta la lógica de búsqueda en un hilo del pool para no bloquear el hilo de ICE que recibió la solicitud.
+        // El planificador decide cuándo: de inmediato si hay lugar, o cuando le toque en la cola.
+        JobScheduler.Admission admission = clientJobs.submit(token, clientCallback, current,
+                com.zeroc.Ice.Util.identityToString(clientCallback.ice_getIdentity()), priority, what, numbers, deadlineMs,
+                () -> body.accept(token));
+        if (!admission.accepted) {
+            System.err.println(String.format("[Maestro] Solicitud para %s rechazada: cola llena. %s", what, jobScheduler.describe()));
+            ClientJobs.notifyClient(clientCallback.rejectedAsync("El Maestro tiene la cola de búsquedas llena; reintente más tarde."));
+            return 0L;
+        }
+        if (admission.position > 0) {
+            System.out.println(String.format("[Maestro] Solicitud #%d para %s encolada en la posición %d (%s). %s",
+                    token.jobId(), what, admission.position, priority.name().toLowerCase(), jobScheduler.describe()));
+            ClientJobs.notifyClient(clientCallback.queuedAsync(admission.position, admission.etaMs));
+        }
+        return token.jobId();
+    }
 
-                // Envía los resultados de vuelta al cliente a través del callback.
-                clientCallback.perfectNumbersFound(perfectNums, duration);
-            } catch (java.lang.Exception e) {
-                // Captura cualquier excepción durante el procesamiento y la reporta.
-                System.err.println(String.format("[Maestro] Error procesando solicitud para rango [%d, %d]: %s", min, max, e.getMessage()));
-                e.printStackTrace();
-                // Notifica al cliente que hubo un error (se envía array vacío y duración 0).
-                clientCallback.perfectNumbersFound(new int[0], 0L, (Map<String, String>) current); // current puede ser null aquí
+    /**
+     * Reanuda las búsquedas exhaustivas que quedaron sin terminar en el diario cuando el Maestro se detuvo.
+     * Cada una se busca solo en los subrangos que nunca terminaron, en cuanto haya al menos un worker,
+     * y el resultado completo se envía al cliente que la pidió (si era una solicitud asíncrona).
+     * Se llama después de activar el adaptador, para que los workers puedan registrarse.
+     */
+    public void resumeJournaledJobs() {
+        for (RangeJournal.OpenJob job : search.openJournaledJobs()) {
+            List<long[]> gaps = job.gaps();
+            long pending = 0;
+            for (long[] gap : gaps) {
+                pending += gap[1] - gap[0] + 1;
             }
-        });
+            System.out.println(String.format("[Maestro] Reanudando búsqueda %d del diario en [%d, %d]: faltan %,d números en %d huecos.",
+                    job.id, job.min, job.max, pending, gaps.size()));
+            String clientKey = job.callback.isEmpty() ? "diario" : job.callback;
+            JobScheduler.Admission admission = jobScheduler.submit(clientKey, JobScheduler.Priority.BATCH, pending,
+                    () -> search.resume(job, gaps, journaledCallback(job)));
+            if (!admission.accepted) {
+                System.err.println(String.format("[Maestro] Cola llena: la búsqueda %d del diario queda para el próximo reinicio.", job.id));
+            }
+        }
+    }
+
+    /**
+     * Reconstruye el callback del cliente de una búsqueda del diario.
+     * @param job Búsqueda abierta en el diario.
+     * @return Proxy del callback, o null si la búsqueda era síncrona o el callback no es válido.
+     */
+    private ClientCallbackPrx journaledCallback(RangeJournal.OpenJob job) {
+        if (job.callback.isEmpty() || communicator == null) {
+            return null;
+        }
+        try {
+            return ClientCallbackPrx.uncheckedCast(communicator.stringToProxy(job.callback));
+        } catch (com.zeroc.Ice.Exception e) {
+            System.err.println(String.format("[Maestro] Callback inválido en la búsqueda %d del diario: %s", job.id, e.getMessage()));
+            return null;
+        }
+    }
+
+    /**
+     * Convierte resultados de 64 bits al array de int de las operaciones de 32 bits.
+     * Los rangos de esas operaciones son de tipo int, así que ningún resultado se trunca.
+     * @param perfectNums Números perfectos de un rango de 32 bits.
+     * @return Array de int con los mismos valores.
+     */
+    static int[] toIntArray(long[] perfectNums) {
+        int[] result = new int[perfectNums.length];
+        for (int i = 0; i < perfectNums.length; i++) {
+            result[i] = Math.toIntExact(perfectNums[i]);
+        }
+        return result;
     }
 
     /**
@@ -250,6 +937,9 @@ public class PublisherI implements Demo.Publisher {
      * Se llama al cerrar la aplicación del Maestro.
      */
     public void shutdown() {
+        search.beginShutdown();
+        maintenanceTimer.shutdownNow();
+        progressScheduler.shutdownNow(); // Descarta los envíos de avance pendientes.
         clientRequestExecutor.shutdown(); // Inicia el apagado del pool.
         try {
             // Espera hasta 60 segundos para que las tareas en curso terminen.
@@ -265,6 +955,7 @@ public class PublisherI implements Demo.Publisher {
             Thread.currentThread().interrupt(); // Restaura el estado de interrupción.
         }
         System.out.println("[Maestro] ExecutorService apagado.");
+        search.close(); // Las búsquedas sin terminar se reanudan al reiniciar el Maestro.
     }
 
 
@@ -275,6 +966,24 @@ public class PublisherI implements Demo.Publisher {
      * @return Cantidad de workers conectados.
      */
     public int getSubscribersNum(Current current) {
-        return subscribers.size();
+        return registry.size();
+    }
+
+    /**
+     * Métricas del Maestro en el formato de texto de Prometheus: duración y espera en cola de las
+     * búsquedas, ida y vuelta de las entregas a cada worker y workers registrados.
+     * @param current Contexto de la llamada ICE.
+     * @return Texto en el formato de exposición de Prometheus (versión 0.0.4).
+     */
+    @Override
+    public String getMetrics(Current current) {
+        return metrics.render();
+    }
+
+    /**
+     * @return Métricas del Maestro, para publicarlas en el endpoint HTTP local.
+     */
+    public Metrics metrics() {
+        return metrics;
     }
 }
\ No newline at end of file
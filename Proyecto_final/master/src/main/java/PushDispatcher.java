@@ -0,0 +1,682 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import Demo.SubscriberPrx;
+import common.LongList;
+import common.Metrics;
+
+/**
+ * Entrega en modo push de la búsqueda exhaustiva: un subrango fijo por worker, repartido según el costo estimado.
+ *
+ * Si un subrango tarda bastante más de lo esperado (ver SpeculationPolicy), se lanza una copia especulativa en
+ * un worker que ya terminó el suyo; gana el primer resultado y la otra llamada se cancela. Los workers informan
+ * puntos de control de cada subrango (checkpoint): si uno falla o se da por caído (workerLost), solo el tramo
+ * que no llegó a cubrir pasa a otro worker de la misma búsqueda.
+ *
+ * El estado de cada búsqueda se sincroniza sobre su PushSearch; las llamadas a los workers se hacen fuera del bloqueo.
+ */
+public class PushDispatcher {
+
+    // Reparte cada rango entre los workers y aprende la tasa de cada uno con los subrangos terminados.
+    private final RangePartitioner partitioner;
+
+    // Criterio para lanzar copias especulativas de los subrangos atrasados.
+    private final SpeculationPolicy speculation;
+
+    // Registro de workers del Maestro: un worker que ya no está no recibe tramos reasignados ni copias.
+    private final WorkerRegistry registry;
+
+    // Métricas del Maestro (entregas fallidas).
+    private final Metrics metrics;
+
+    // Planificador en el que se revisan los subrangos cuando vence su plazo.
+    private final ScheduledExecutorService timer;
+
+    // Recibe (worker, ns) por cada subrango terminado: tiempo desde que se lo entregó hasta que llegó el resultado.
+    private BiConsumer<Integer, Long> roundTripHandler = (workerId, nanos) -> { };
+
+    // Llamadas de las búsquedas en curso, por {worker, inicio, fin} del tramo, para asociarles los puntos de control.
+    private final ConcurrentHashMap<String, PushCopy> checkpointTargets = new ConcurrentHashMap<>();
+
+    // Búsquedas en curso, para reasignar sus tramos si un worker se da por caído.
+    private final Set<PushSearch> activeSearches = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param partitioner Reparto de los rangos entre los workers.
+     * @param speculation Criterio para lanzar copias especulativas.
+     * @param registry Registro de workers del Maestro.
+     * @param metrics Métricas del Maestro.
+     * @param timer Planificador para revisar los subrangos atrasados.
+     */
+    public PushDispatcher(RangePartitioner partitioner, SpeculationPolicy speculation, WorkerRegistry registry,
+                          Metrics metrics, ScheduledExecutorService timer) {
+        this.partitioner = partitioner;
+        this.speculation = speculation;
+        this.registry = registry;
+        this.metrics = metrics;
+        this.timer = timer;
+    }
+
+    /**
+     * @param roundTripHandler Recibe (worker, ns) por cada subrango terminado: tiempo desde que se le entregó
+     *                         el tramo hasta que devolvió el resultado.
+     */
+    public void setRoundTripHandler(BiConsumer<Integer, Long> roundTripHandler) {
+        this.roundTripHandler = roundTripHandler;
+    }
+
+    /**
+     * Recibe un punto de control de un worker: terminó el tramo [doneMin, doneMax] del tramo [sliceMin, sliceMax]
+     * que se le entregó.
+     * @param workerId ID del worker.
+     * @param sliceMin Inicio del tramo que se le entregó.
+     * @param sliceMax Fin del tramo que se le entregó.
+     * @param doneMin Inicio del tramo terminado.
+     * @param doneMax Fin del tramo terminado.
+     * @param perfectNums Perfectos encontrados en el tramo terminado.
+     */
+    public void checkpoint(int workerId, long sliceMin, long sliceMax, long doneMin, long doneMax, long[] perfectNums) {
+        PushCopy copy = checkpointTargets.get(checkpointKey(workerId, sliceMin, sliceMax));
+        if (copy == null) {
+            return; // El tramo ya terminó o no pertenece a una búsqueda en curso.
+        }
+        synchronized (copy.search) {
+            copy.checkpoint(doneMin, doneMax, perfectNums);
+        }
+    }
+
+    /**
+     * Busca un rango dándole un subrango a cada worker y espera a que terminen todos.
+     * Al cancelar, cada subrango conserva lo que cubren sus puntos de control.
+     * @param min Límite inferior del rango (mayor o igual que 1).
+     * @param max Límite superior del rango.
+     * @param workerIds IDs de los workers activos.
+     * @param list Proxies de los workers activos, en el mismo orden.
+     * @param costModel Modelo de costo del kernel que usarán los workers para subrangos de este tamaño.
+     * @param listener Recibe los resultados parciales y el avance, o null.
+     * @param token Cancelación de la búsqueda.
+     * @return Perfectos encontrados y partes del rango que quedaron sin recorrer.
+     */
+    public RangeOutcome search(long min, long max, List<Integer> workerIds, List<SubscriberPrx> list, CostModel costModel,
+                               ProgressListener listener, CancellationToken token) {
+        // Divide el rango total en subrangos para cada worker activo.
+        List<long[]> slices = partitioner.partition(min, max, workerIds, costModel);
+        double totalCost = costModel.cost(min, max);
+        if (listener != null) {
+            listener.searchStarted(max - min + 1, totalCost);
+        }
+
+        PushSearch search = new PushSearch(workerIds, list, costModel, listener, token);
+        activeSearches.add(search);
+        token.onCancel(() -> cancel(search));
+        try {
+            // Asigna un subrango a cada worker.
+            for (int i = 0; i < list.size(); i++) {
+                long[] slice = slices.get(i);
+                if (slice == null) {
+                    continue; // El rango es demasiado pequeño para darle números a este worker.
+                }
+                PushSlice pushSlice = new PushSlice(slice[0], slice[1], costModel.cost(slice[0], slice[1]));
+                PushCopy copy = new PushCopy(search, pushSlice, i, false, pushSlice.min, new long[0]);
+                synchronized (search) {
+                    search.slices.add(pushSlice);
+                    pushSlice.copies.add(copy);
+                }
+                if (token.isCancelled()) {
+                    pushSlice.winner.completeExceptionally(new CancellationException("Búsqueda #" + token.jobId() + " cancelada"));
+                    continue;
+                }
+                System.out.println(String.format("[Maestro] Asignando rango [%d, %d] a worker #%d (%.1f%% del costo estimado).",
+                        pushSlice.min, pushSlice.max, i + 1, 100.0 * pushSlice.cost / totalCost));
+                try {
+                    // Realiza la llamada asíncrona al worker para calcular el subrango.
+                    launchCopy(copy);
+                } catch (com.zeroc.Ice.Exception e) {
+                    System.err.println(String.format("[Maestro] Error al asignar tarea a worker #%d: %s", i + 1, e.getMessage()));
+                    // El subrango pasa a otro worker de la búsqueda.
+                    onCopyFailed(copy, e);
+                }
+            }
+
+            // Bloqueamos y recolectamos todos los resultados
+            // Los subrangos están en orden y cada uno llega ordenado, así que la mezcla solo los encadena.
+            List<long[]> parts = new ArrayList<>();
+            List<long[]> missing = new ArrayList<>();
+            for (PushSlice pushSlice : search.slices) {
+                try {
+                    parts.add(pushSlice.winner.join()); // Espera a la primera copia que termine.
+                } catch (java.lang.Exception e) {
+                    // Se conserva lo que los workers llegaron a cubrir antes de fallar.
+                    synchronized (search) {
+                        parts.add(pushSlice.coveredNums);
+                        missing.add(new long[]{pushSlice.coveredUpTo + 1, pushSlice.max});
+                    }
+                    System.err.println(String.format("[Maestro] Rango [%d, %d] sin terminar: %s [%d, %d].",
+                            pushSlice.min, pushSlice.max, token.isCancelled() ? "búsqueda cancelada en" : "no quedan workers para",
+                            pushSlice.coveredUpTo + 1, pushSlice.max));
+                }
+            }
+            if (speculation.isEnabled()) {
+                System.out.println("[Maestro] Ejecución especulativa: " + speculation.describe());
+            }
+            long[] allResults = SortedLongs.merge(parts);
+            System.out.println(String.format("[Maestro] Recoleccion de resultados para rango [%d, %d] completada. Total perfectos: %d", min, max, allResults.length));
+            return new RangeOutcome(min, max, allResults, missing);
+        } finally {
+            activeSearches.remove(search);
+        }
+    }
+
+    /**
+     * Estado compartido de una búsqueda en modo push.
+     */
+    private static final class PushSearch {
+        final List<Integer> workerIds;
+        final List<SubscriberPrx> workers;
+        final CostModel costModel;
+        final ProgressListener listener;
+        final CancellationToken token;
+        final List<PushSlice> slices = new ArrayList<>();
+        // Índices de los workers que ya terminaron su subrango y pueden recibir una copia.
+        final ArrayDeque<Integer> idle = new ArrayDeque<>();
+        // Índices de los workers que fallaron en esta búsqueda: no reciben más partes de ella.
+        final Set<Integer> failedWorkers = new HashSet<>();
+        // Contador atómico para rastrear el progreso de las tareas completadas por los workers.
+        final AtomicInteger completedTasks = new AtomicInteger(0);
+
+        PushSearch(List<Integer> workerIds, List<SubscriberPrx> workers, CostModel costModel, ProgressListener listener,
+                   CancellationToken token) {
+            this.workerIds = workerIds;
+            this.workers = workers;
+            this.costModel = costModel;
+            this.listener = listener;
+            this.token = token;
+        }
+    }
+
+    /**
+     * Subrango de una búsqueda en modo push, con las llamadas que lo calculan.
+     * Los campos mutables se acceden sincronizados sobre la PushSearch.
+     */
+    private static final class PushSlice {
+        final long min;
+        final long max;
+        final double cost;
+        // Se completa con el resultado de la primera copia que termina.
+        final CompletableFuture<long[]> winner = new CompletableFuture<>();
+        // Llamadas lanzadas para este subrango, en orden: la original, la copia especulativa y los tramos reasignados.
+        final List<PushCopy> copies = new ArrayList<>();
+        // true si ya se lanzó la copia especulativa.
+        boolean speculated;
+        // Momento a partir del cual se considera atrasado (System.nanoTime).
+        long deadlineNanos = Long.MAX_VALUE;
+        // Si queda sin resultado: último número cubierto y perfectos de [min, coveredUpTo].
+        long coveredUpTo;
+        long[] coveredNums = new long[0];
+
+        PushSlice(long min, long max, double cost) {
+            this.min = min;
+            this.max = max;
+            this.cost = cost;
+            this.coveredUpTo = min - 1;
+        }
+    }
+
+    /**
+     * Llamada a un worker con el tramo [from, max] de un subrango: el subrango completo, su copia especulativa
+     * o el tramo que dejó sin terminar un worker que falló. Los campos mutables se acceden sincronizados
+     * sobre la PushSearch.
+     */
+    private static final class PushCopy {
+        final PushSearch search;
+        final PushSlice slice;
+        final int workerIndex;
+        final boolean backup;
+        // Inicio del tramo entregado; los perfectos de [slice.min, from - 1] ya se conocen.
+        final long from;
+        final long[] prefixNums;
+        CompletableFuture<long[]> future;
+        // Último número cubierto según los puntos de control del worker, y perfectos de [from, doneUpTo].
+        long doneUpTo;
+        final LongList doneNums = new LongList();
+        // Tramos informados que todavía no empalman con doneUpTo (los reportes pueden llegar desordenados),
+        // por inicio: {fin, perfectos...}.
+        final TreeMap<Long, long[]> pendingCheckpoints = new TreeMap<>();
+        boolean failed;
+
+        PushCopy(PushSearch search, PushSlice slice, int workerIndex, boolean backup, long from, long[] prefixNums) {
+            this.search = search;
+            this.slice = slice;
+            this.workerIndex = workerIndex;
+            this.backup = backup;
+            this.from = from;
+            this.prefixNums = prefixNums;
+            this.doneUpTo = from - 1;
+        }
+
+        /**
+         * Registra un tramo terminado y avanza lo cubierto mientras los tramos sean contiguos.
+         */
+        void checkpoint(long lo, long hi, long[] perfectNums) {
+            if (lo <= doneUpTo || hi < lo || hi > slice.max) {
+                return; // Repetido o fuera del tramo.
+            }
+            long[] entry = new long[perfectNums.length + 1];
+            entry[0] = hi;
+            System.arraycopy(perfectNums, 0, entry, 1, perfectNums.length);
+            pendingCheckpoints.put(lo, entry);
+            long[] next;
+            while (doneUpTo < slice.max && (next = pendingCheckpoints.remove(doneUpTo + 1)) != null) {
+                doneUpTo = next[0];
+                for (int k = 1; k < next.length; k++) {
+                    doneNums.add(next[k]);
+                }
+            }
+        }
+
+        /**
+         * Perfectos de [slice.min, doneUpTo].
+         */
+        long[] coveredNums() {
+            return concat(prefixNums, doneNums.toArray());
+        }
+    }
+
+    /**
+     * Entrega una llamada (original, copia especulativa o tramo reasignado) a su worker.
+     * La llamada ya debe estar en la lista de copias del subrango.
+     * @param copy Llamada a lanzar.
+     * @throws com.zeroc.Ice.Exception Si la llamada no se pudo enviar.
+     */
+    private void launchCopy(PushCopy copy) {
+        PushSearch search = copy.search;
+        PushSlice slice = copy.slice;
+        int workerId = search.workerIds.get(copy.workerIndex);
+        // Los puntos de control del worker se reconocen por {worker, inicio, fin} del tramo.
+        String key = checkpointKey(workerId, copy.from, slice.max);
+        checkpointTargets.put(key, copy);
+        double cost = search.costModel.cost(copy.from, slice.max);
+        long dispatchNanos = System.nanoTime();
+        CompletableFuture<long[]> future;
+        try {
+            future = search.workers.get(copy.workerIndex).calculatePerfectNumLongAsync(copy.from, slice.max, search.token.iceContext());
+        } catch (com.zeroc.Ice.Exception e) {
+            checkpointTargets.remove(key, copy);
+            throw e;
+        }
+        MasterEvents.SliceDispatched dispatched = new MasterEvents.SliceDispatched();
+        if (dispatched.shouldCommit()) {
+            dispatched.jobId = search.token.jobId();
+            dispatched.searchId = search.token.jobId();
+            dispatched.chunkId = -1;
+            dispatched.workerId = workerId;
+            dispatched.min = copy.from;
+            dispatched.max = slice.max;
+            dispatched.dispatch = PublisherI.DISPATCH_PUSH;
+            dispatched.backup = copy.backup;
+            dispatched.commit();
+        }
+        long deadlineNanos = Long.MAX_VALUE;
+        synchronized (search) {
+            copy.future = future;
+            if (!copy.backup) {
+                deadlineNanos = speculation.deadlineNanos(dispatchNanos, cost / partitioner.rateOf(workerId, search.costModel));
+                slice.deadlineNanos = deadlineNanos;
+            }
+        }
+        // Revisa el subrango cuando vence su plazo, por si hay workers libres para una copia.
+        if (deadlineNanos != Long.MAX_VALUE) {
+            long delayMs = Math.max(0, (deadlineNanos - System.nanoTime()) / 1_000_000);
+            timer.schedule(() -> speculate(search), delayMs, TimeUnit.MILLISECONDS);
+        }
+        // Añade un callback para registrar cuando la tarea se completa, sin bloquear el hilo principal.
+        future.whenComplete((result, ex) -> {
+            checkpointTargets.remove(key, copy);
+            long elapsedNanos = System.nanoTime() - dispatchNanos;
+            long elapsed = elapsedNanos / 1_000_000;
+            if (ex == null) {
+                roundTripHandler.accept(workerId, elapsedNanos);
+                MasterEvents.SliceCompleted completed = new MasterEvents.SliceCompleted();
+                if (completed.shouldCommit()) {
+                    completed.jobId = search.token.jobId();
+                    completed.searchId = search.token.jobId();
+                    completed.chunkId = -1;
+                    completed.workerId = workerId;
+                    completed.min = copy.from;
+                    completed.max = slice.max;
+                    completed.dispatch = PublisherI.DISPATCH_PUSH;
+                    completed.roundTrip = elapsedNanos;
+                    completed.perfectCount = result.length;
+                    completed.commit();
+                }
+                onCopyFinished(copy, result, elapsed, cost);
+            } else {
+                onCopyFailed(copy, ex);
+            }
+        });
+    }
+
+    /**
+     * Primera llamada de un subrango que termina: entrega el resultado y cancela las demás.
+     * El worker queda libre para copias de los subrangos atrasados.
+     */
+    private void onCopyFinished(PushCopy copy, long[] result, long elapsed, double cost) {
+        PushSearch search = copy.search;
+        PushSlice slice = copy.slice;
+        int workerId = search.workerIds.get(copy.workerIndex);
+        // La tasa observada refina el reparto de los próximos trabajos.
+        partitioner.recordCompletion(workerId, cost, elapsed);
+        long[] perfectNums = concat(copy.prefixNums, result);
+        if (slice.winner.complete(perfectNums)) {
+            List<PushCopy> losers = new ArrayList<>();
+            synchronized (search) {
+                for (PushCopy other : slice.copies) {
+                    if (other != copy && !other.failed && other.future != null) {
+                        losers.add(other);
+                    }
+                }
+            }
+            if (!losers.isEmpty()) {
+                speculation.recordWinner(copy.backup);
+                for (PushCopy loser : losers) {
+                    loser.future.cancel(true); // Se descarta la respuesta de la otra copia.
+                }
+            }
+            if (search.listener != null) {
+                search.listener.rangeCompleted(slice.min, slice.max, perfectNums, slice.cost);
+            }
+            int finishedCount = search.completedTasks.incrementAndGet();
+            System.out.println(String.format("[Maestro] Tarea del worker #%d (rango [%d, %d]%s) completada en %d ms. Progreso: %d/%d.",
+                    copy.workerIndex + 1, slice.min, slice.max,
+                    copy.backup ? ", copia especulativa" : (copy.from != slice.min ? ", tramo reasignado desde " + copy.from : ""),
+                    elapsed, finishedCount, search.slices.size()));
+        }
+        synchronized (search) {
+            if (!search.failedWorkers.contains(copy.workerIndex) && !search.idle.contains(copy.workerIndex)) {
+                search.idle.add(copy.workerIndex);
+            }
+        }
+        speculate(search);
+    }
+
+    /**
+     * Llamada de un subrango que falló (o cuyo worker se dio por caído). Si no queda otra llamada en curso,
+     * el tramo que no llegó a cubrir pasa a otro worker de la búsqueda; si no queda ninguno, el subrango
+     * queda sin resultado. Se puede llamar más de una vez por la misma llamada: solo cuenta la primera.
+     */
+    private void onCopyFailed(PushCopy copy, Throwable ex) {
+        PushSearch search = copy.search;
+        PushSlice slice = copy.slice;
+        synchronized (search) {
+            if (copy.failed) {
+                return;
+            }
+            copy.failed = true;
+            if (ex instanceof java.util.concurrent.CancellationException || slice.winner.isDone()) {
+                return; // Copia perdedora cancelada.
+            }
+            search.failedWorkers.add(copy.workerIndex);
+            search.idle.remove(copy.workerIndex);
+        }
+        metrics.counter("perfect_master_dispatch_failures_total", "Entregas a workers que fallaron o cuyo worker se dio por caído.",
+                "worker", Integer.toString(search.workerIds.get(copy.workerIndex))).inc();
+        // Maneja excepciones si una tarea de worker falla.
+        System.err.println(String.format("[Maestro] Error en worker #%d (rango [%d, %d]): %s",
+                copy.workerIndex + 1, copy.from, slice.max, ex.getMessage() != null ? ex.getMessage() : ex));
+        reassignTail(slice, ex);
+    }
+
+    /**
+     * Entrega a otro worker lo que falta de un subrango cuyas llamadas fallaron todas, a partir del
+     * punto de control más avanzado. Si no quedan workers, el subrango queda sin resultado.
+     * @param slice Subrango.
+     * @param cause Error de la última llamada que falló.
+     */
+    private void reassignTail(PushSlice slice, Throwable cause) {
+        PushSearch search = slice.copies.get(0).search;
+        PushCopy tail;
+        PushCopy best = null;
+        long[] coveredNums;
+        synchronized (search) {
+            if (slice.winner.isDone()) {
+                return;
+            }
+            for (PushCopy c : slice.copies) {
+                if (!c.failed) {
+                    return; // Otra llamada sigue en curso: ella termina el subrango.
+                }
+                if (best == null || c.doneUpTo > best.doneUpTo) {
+                    best = c;
+                }
+            }
+            coveredNums = best.coveredNums();
+            int target = (best.doneUpTo < slice.max) ? pickSurvivor(search) : -1;
+            if (target < 0) {
+                slice.coveredUpTo = best.doneUpTo;
+                slice.coveredNums = coveredNums;
+                tail = null;
+            } else {
+                tail = new PushCopy(search, slice, target, false, best.doneUpTo + 1, coveredNums);
+                slice.copies.add(tail);
+            }
+        }
+        if (tail == null) {
+            if (best.doneUpTo >= slice.max) {
+                // Los puntos de control cubren todo el subrango: no falta nada.
+                if (slice.winner.complete(coveredNums) && search.listener != null) {
+                    search.listener.rangeCompleted(slice.min, slice.max, coveredNums, slice.cost);
+                }
+            } else {
+                slice.winner.completeExceptionally(cause);
+            }
+            return;
+        }
+        System.out.println(String.format("[Maestro] Rango [%d, %d] cubierto hasta %d; el tramo [%d, %d] pasa al worker #%d.",
+                slice.min, slice.max, best.doneUpTo, tail.from, slice.max, tail.workerIndex + 1));
+        try {
+            launchCopy(tail);
+        } catch (com.zeroc.Ice.Exception e) {
+            System.err.println(String.format("[Maestro] No se pudo reasignar el tramo al worker #%d: %s", tail.workerIndex + 1, e.getMessage()));
+            onCopyFailed(tail, e);
+        }
+    }
+
+    /**
+     * Elige el worker de una búsqueda que recibe un tramo reasignado: uno libre si lo hay; si no, el que
+     * tenga menos llamadas en curso. Se llama sincronizado sobre la búsqueda.
+     * @return Índice del worker, o -1 si no queda ninguno vivo.
+     */
+    private int pickSurvivor(PushSearch search) {
+        Integer idle = pollIdle(search);
+        if (idle != null) {
+            return idle;
+        }
+        int[] running = new int[search.workerIds.size()];
+        for (PushSlice s : search.slices) {
+            for (PushCopy c : s.copies) {
+                if (!c.failed && !s.winner.isDone()) {
+                    running[c.workerIndex]++;
+                }
+            }
+        }
+        int best = -1;
+        for (int i = 0; i < running.length; i++) {
+            if (isUsable(search, i) && (best < 0 || running[i] < running[best])) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Saca de la lista de libres el primer worker que sigue vivo. Se llama sincronizado sobre la búsqueda.
+     * @return Índice del worker, o null si no hay ninguno libre.
+     */
+    private Integer pollIdle(PushSearch search) {
+        while (!search.idle.isEmpty()) {
+            int i = search.idle.poll();
+            if (isUsable(search, i)) {
+                return i;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Indica si un worker de la búsqueda puede recibir trabajo: no falló en ella y sigue registrado.
+     */
+    private boolean isUsable(PushSearch search, int workerIndex) {
+        return !search.failedWorkers.contains(workerIndex) && registry.snapshot().contains(search.workerIds.get(workerIndex));
+    }
+
+    /**
+     * Lanza copias especulativas de los subrangos atrasados en los workers libres, empezando por el más atrasado.
+     * La copia recorre el mismo tramo que la llamada en curso.
+     * @param search Búsqueda en curso.
+     */
+    private void speculate(PushSearch search) {
+        if (!speculation.isEnabled()) {
+            return;
+        }
+        while (true) {
+            PushSlice late = null;
+            PushCopy running = null;
+            PushCopy copy;
+            synchronized (search) {
+                long now = System.nanoTime();
+                for (PushSlice slice : search.slices) {
+                    PushCopy current = runningCopy(slice);
+                    if (!slice.winner.isDone() && !slice.speculated && current != null && slice.deadlineNanos < now
+                            && (late == null || slice.deadlineNanos < late.deadlineNanos)) {
+                        late = slice;
+                        running = current;
+                    }
+                }
+                if (late == null) {
+                    return;
+                }
+                Integer workerIndex = pollIdle(search);
+                if (workerIndex == null) {
+                    return;
+                }
+                late.speculated = true;
+                copy = new PushCopy(search, late, workerIndex, true, running.from, running.prefixNums);
+                late.copies.add(copy);
+            }
+            System.out.println(String.format("[Maestro] Rango [%d, %d] atrasado; copia especulativa de [%d, %d] al worker #%d.",
+                    late.min, late.max, copy.from, late.max, copy.workerIndex + 1));
+            try {
+                speculation.recordLaunch();
+                launchCopy(copy);
+            } catch (com.zeroc.Ice.Exception e) {
+                System.err.println(String.format("[Maestro] No se pudo lanzar la copia en el worker #%d: %s", copy.workerIndex + 1, e.getMessage()));
+                onCopyFailed(copy, e);
+            }
+        }
+    }
+
+    /**
+     * Llamada en curso más reciente de un subrango, o null si no hay ninguna. Se llama sincronizado sobre la búsqueda.
+     */
+    private static PushCopy runningCopy(PushSlice slice) {
+        for (int i = slice.copies.size() - 1; i >= 0; i--) {
+            PushCopy c = slice.copies.get(i);
+            if (!c.failed && c.future != null) {
+                return c;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Da por fallidas las llamadas en curso de un worker que se dio por caído, para que sus tramos
+     * sin terminar pasen a otros workers sin esperar a que la conexión expire.
+     * @param workerId ID del worker.
+     */
+    public void workerLost(int workerId) {
+        List<PushCopy> lost = new ArrayList<>();
+        for (PushSearch search : activeSearches) {
+            synchronized (search) {
+                for (PushSlice slice : search.slices) {
+                    for (PushCopy c : slice.copies) {
+                        if (!c.failed && c.future != null && !c.future.isDone() && search.workerIds.get(c.workerIndex) == workerId) {
+                            lost.add(c);
+                        }
+                    }
+                }
+            }
+        }
+        for (PushCopy c : lost) {
+            onCopyFailed(c, new IllegalStateException("worker " + workerId + " dado por caído"));
+            c.future.cancel(true);
+        }
+    }
+
+    /**
+     * Cancela una búsqueda push: cada subrango sin resultado se cierra con lo que cubren sus puntos de control
+     * y se dejan de esperar las llamadas en curso (los workers las detienen al recibir cancelJob).
+     * @param search Búsqueda a cancelar.
+     */
+    private void cancel(PushSearch search) {
+        List<PushSlice> open = new ArrayList<>();
+        List<PushCopy> running = new ArrayList<>();
+        synchronized (search) {
+            for (PushSlice slice : search.slices) {
+                if (slice.winner.isDone()) {
+                    continue;
+                }
+                PushCopy best = null;
+                for (PushCopy c : slice.copies) {
+                    if (best == null || c.doneUpTo > best.doneUpTo) {
+                        best = c;
+                    }
+                    if (!c.failed && c.future != null) {
+                        running.add(c);
+                    }
+                }
+                if (best != null) {
+                    slice.coveredUpTo = best.doneUpTo;
+                    slice.coveredNums = best.coveredNums();
+                }
+                open.add(slice);
+            }
+        }
+        for (PushSlice slice : open) {
+            slice.winner.completeExceptionally(new CancellationException("Búsqueda #" + search.token.jobId() + " cancelada"));
+        }
+        for (PushCopy c : running) {
+            c.future.cancel(true);
+        }
+    }
+
+    /**
+     * Clave con la que se reconocen los puntos de control de una llamada: {worker, inicio, fin} del tramo.
+     */
+    private static String checkpointKey(int workerId, long from, long to) {
+        return workerId + ":" + from + ":" + to;
+    }
+
+    /**
+     * Une dos arrays de perfectos.
+     */
+    private static long[] concat(long[] first, long[] second) {
+        if (first.length == 0) {
+            return second;
+        }
+        long[] all = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, all, first.length, second.length);
+        return all;
+    }
+}
@@ -0,0 +1,235 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Caché de rangos ya buscados, con sus números perfectos.
+ * Guarda intervalos disjuntos ordenados por su inicio (índice de intervalos sobre un TreeMap);
+ * los intervalos que se solapan o se tocan se fusionan al insertar. Una consulta devuelve los
+ * perfectos ya conocidos dentro del rango y los huecos que todavía hay que buscar, así que una
+ * solicitud que se solapa parcialmente con búsquedas anteriores solo envía los huecos a los workers.
+ *
+ * La memoria se acota con un presupuesto de bytes estimados; al superarlo se descartan los
+ * intervalos usados hace más tiempo. Todos los métodos se sincronizan sobre la instancia.
+ */
+public class RangeCache {
+
+    // Bytes estimados de un intervalo sin perfectos (nodo del TreeMap, objeto Entry y su array).
+    private static final long ENTRY_OVERHEAD_BYTES = 96;
+
+    // Bytes de cada número perfecto guardado.
+    private static final long BYTES_PER_NUMBER = Long.BYTES;
+
+    /**
+     * Intervalo buscado [start, end] con sus perfectos en orden ascendente.
+     */
+    private static final class Entry {
+        final long start;
+        final long end;
+        final long[] perfectNums;
+        long lastAccess;
+
+        Entry(long start, long end, long[] perfectNums, long lastAccess) {
+            this.start = start;
+            this.end = end;
+            this.perfectNums = perfectNums;
+            this.lastAccess = lastAccess;
+        }
+
+        long bytes() {
+            return ENTRY_OVERHEAD_BYTES + BYTES_PER_NUMBER * perfectNums.length;
+        }
+    }
+
+    /**
+     * Resultado de una consulta.
+     */
+    public static final class Lookup {
+        // Perfectos ya conocidos dentro del rango consultado, en orden ascendente.
+        public final long[] perfectNums;
+        // Subrangos {inicio, fin} sin buscar, en orden ascendente.
+        public final List<long[]> gaps;
+
+        Lookup(long[] perfectNums, List<long[]> gaps) {
+            this.perfectNums = perfectNums;
+            this.gaps = gaps;
+        }
+    }
+
+    // Intervalos indexados por su inicio.
+    private final TreeMap<Long, Entry> entries = new TreeMap<>();
+
+    // Presupuesto de memoria (bytes estimados). 0 desactiva la caché.
+    private final long maxBytes;
+
+    // Bytes estimados en uso.
+    private long residentBytes;
+
+    // Reloj lógico para el orden de uso (LRU).
+    private long clock;
+
+    // Contadores para dimensionar la caché.
+    private long hits;          // Consultas resueltas por completo con la caché.
+    private long partialHits;   // Consultas resueltas en parte.
+    private long misses;        // Consultas sin nada en caché.
+    private long numbersSaved;  // Números que no hubo que volver a recorrer.
+    private long bytesSaved;    // Bytes de resultados servidos desde la caché en lugar de los workers.
+    private long evictions;     // Intervalos descartados por falta de espacio.
+
+    /**
+     * @param maxBytes Presupuesto de memoria en bytes estimados (0 o menos desactiva la caché).
+     */
+    public RangeCache(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+    }
+
+    /**
+     * @return true si la caché está activa.
+     */
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    /**
+     * Busca el rango [min, max] en la caché.
+     * @param min Límite inferior (mayor o igual que 1).
+     * @param max Límite superior.
+     * @return Perfectos conocidos dentro del rango y huecos que falta buscar.
+     */
+    public synchronized Lookup lookup(long min, long max) {
+        List<long[]> gaps = new ArrayList<>();
+        List<long[]> found = new ArrayList<>();
+        long covered = 0;
+        long cursor = min; // Primer número del rango todavía no cubierto.
+        boolean reachedEnd = false;
+
+        // Empieza por el intervalo que podría contener a min.
+        Long from = entries.floorKey(min);
+        for (Entry e : entries.tailMap(from != null ? from : min, true).values()) {
+            if (e.start > max) {
+                break;
+            }
+            if (e.end < cursor) {
+                continue;
+            }
+            if (e.start > cursor) {
+                gaps.add(new long[]{cursor, e.start - 1});
+            }
+            long lo = Math.max(cursor, e.start);
+            long hi = Math.min(max, e.end);
+            covered += hi - lo + 1;
+            found.add(SortedLongs.slice(e.perfectNums, lo, hi));
+            e.lastAccess = ++clock;
+            if (hi == max) {
+                reachedEnd = true;
+                break;
+            }
+            cursor = hi + 1;
+        }
+        if (!reachedEnd) {
+            gaps.add(new long[]{cursor, max});
+        }
+
+        long[] perfectNums = SortedLongs.merge(found);
+        if (covered == 0) {
+            misses++;
+        } else {
+            if (gaps.isEmpty()) {
+                hits++;
+            } else {
+                partialHits++;
+            }
+            // Se satura en vez de desbordarse: un rango de 64 bits puede cubrir casi 2^63 números.
+            numbersSaved = (numbersSaved > Long.MAX_VALUE - covered) ? Long.MAX_VALUE : numbersSaved + covered;
+            bytesSaved += BYTES_PER_NUMBER * perfectNums.length;
+        }
+        return new Lookup(perfectNums, gaps);
+    }
+
+    /**
+     * Guarda el resultado completo de la búsqueda de [min, max]. Se fusiona con los intervalos
+     * que se solapan o se tocan con él, y luego se descartan los menos usados si se supera el presupuesto.
+     * @param min Límite inferior.
+     * @param max Límite superior.
+     * @param perfectNums Todos los perfectos de [min, max], en orden ascendente.
+     */
+    public synchronized void put(long min, long max, long[] perfectNums) {
+        if (!isEnabled() || max < min) {
+            return;
+        }
+        long start = min;
+        long end = max;
+        List<long[]> parts = new ArrayList<>();
+        parts.add(perfectNums);
+
+        // Absorbe los intervalos que se solapan o son contiguos (start - 1 y end + 1, sin desbordar).
+        Long from = entries.floorKey(min);
+        Iterator<Entry> it = entries.tailMap(from != null ? from : min, true).values().iterator();
+        while (it.hasNext()) {
+            Entry e = it.next();
+            if (e.start - 1 > max) {
+                break;
+            }
+            if (e.end < min - 1) {
+                continue;
+            }
+            start = Math.min(start, e.start);
+            end = Math.max(end, e.end);
+            parts.add(e.perfectNums);
+            residentBytes -= e.bytes();
+            it.remove();
+        }
+
+        Entry merged = new Entry(start, end, mergeUnique(parts), ++clock);
+        entries.put(start, merged);
+        residentBytes += merged.bytes();
+
+        // Descarta los intervalos menos usados hasta volver al presupuesto (nunca el recién insertado).
+        while (residentBytes > maxBytes && entries.size() > 1) {
+            Entry oldest = null;
+            for (Entry e : entries.values()) {
+                if (e != merged && (oldest == null || e.lastAccess < oldest.lastAccess)) {
+                    oldest = e;
+                }
+            }
+            entries.remove(oldest.start);
+            residentBytes -= oldest.bytes();
+            evictions++;
+        }
+    }
+
+    /**
+     * Describe el estado de la caché para los logs.
+     * @return Contadores de aciertos, ahorro y memoria.
+     */
+    public synchronized String describe() {
+        return String.format("aciertos %d, parciales %d, fallos %d, números ahorrados %,d, bytes ahorrados %,d, "
+                        + "intervalos %d, memoria %,d / %,d bytes, descartes %d",
+                hits, partialHits, misses, numbersSaved, bytesSaved, entries.size(), residentBytes, maxBytes, evictions);
+    }
+
+    /**
+     * Une varios arrays ordenados en uno ordenado y sin repetidos.
+     */
+    private static long[] mergeUnique(List<long[]> parts) {
+        long[] all = SortedLongs.merge(parts);
+        int n = 0;
+        for (int i = 0; i < all.length; i++) {
+            if (n == 0 || all[i] != all[n - 1]) {
+                n++;
+            }
+        }
+        if (n == all.length) {
+            return all;
+        }
+        long[] unique = new long[n];
+        n = 0;
+        for (int i = 0; i < all.length; i++) {
+            if (n == 0 || all[i] != unique[n - 1]) {
+                unique[n++] = all[i];
+            }
+        }
+        return unique;
+    }
+}
@@ -0,0 +1,541 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Diario de cobertura de las búsquedas exhaustivas, en disco y de solo agregado.
+ * Registra el inicio de cada búsqueda, cada subrango terminado con sus perfectos a medida que llega,
+ * y el fin de la búsqueda. Se escribe sobre un archivo mapeado en memoria: cada registro queda en
+ * la caché de páginas del sistema operativo en cuanto se copia, así que sobrevive a la caída de la
+ * JVM del Maestro sin pagar una escritura sincrónica por registro.
+ *
+ * Al reiniciar el Maestro se relee el diario: las búsquedas sin registro de fin se reanudan
+ * buscando solo los subrangos que nunca terminaron. La compactación escribe las búsquedas abiertas
+ * (su cobertura ya fusionada) en el otro de dos archivos, {@code <diario>.0} y {@code <diario>.1},
+ * y pasa a él subiendo la generación de su cabecera. Así ningún archivo mapeado se reemplaza ni se
+ * borra, algo que Windows no permite mientras el mapeo siga vivo (y cerrar el canal no lo libera).
+ *
+ * Formato: cabecera {MAGIC, VERSION, generación} y registros {largo, CRC32, tipo, datos}. Manda el
+ * archivo de mayor generación. Un largo 0 o un CRC que no coincide marca el final del diario (lo que
+ * sigue son ceros, restos de una generación anterior o un registro a medio escribir).
+ * Todos los métodos se sincronizan sobre la instancia.
+ */
+public class RangeJournal {
+
+    private static final int MAGIC = 0x504E4A31; // "PNJ1"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 16; // MAGIC + VERSION + generación
+    private static final int RECORD_HEADER_BYTES = 8; // largo + CRC32
+
+    private static final byte TYPE_START = 1;
+    private static final byte TYPE_RANGE = 2;
+    private static final byte TYPE_END = 3;
+
+    // Tamaño inicial del mapeo; se duplica cuando un registro no cabe.
+    private static final int INITIAL_MAP_BYTES = 1 << 20;
+
+    /**
+     * Búsqueda abierta (con inicio y sin fin) reconstruida del diario.
+     */
+    public static final class OpenJob {
+        public final long id;
+        public final long min;
+        public final long max;
+        // Proxy de callback del cliente en forma de texto, vacío si la búsqueda era síncrona.
+        public final String callback;
+        // true si el cliente espera la respuesta de 64 bits (perfectNumbersFoundLong).
+        public final boolean longResults;
+        // Subrangos terminados {inicio -> fin}, fusionados y sin solapamientos.
+        private final TreeMap<Long, Long> done = new TreeMap<>();
+        // Perfectos encontrados en los subrangos terminados.
+        private final List<long[]> results = new ArrayList<>();
+
+        OpenJob(long id, long min, long max, String callback, boolean longResults) {
+            this.id = id;
+            this.min = min;
+            this.max = max;
+            this.callback = callback;
+            this.longResults = longResults;
+        }
+
+        void addRange(long lo, long hi, long[] perfectNums) {
+            // Fusiona con los intervalos que se solapan o se tocan.
+            Map.Entry<Long, Long> before = done.floorEntry(lo);
+            if (before != null && before.getValue() >= lo - 1) {
+                lo = before.getKey();
+                hi = Math.max(hi, before.getValue());
+                done.remove(before.getKey());
+            }
+            Map.Entry<Long, Long> next = done.ceilingEntry(lo);
+            while (next != null && next.getKey() - 1 <= hi) {
+                hi = Math.max(hi, next.getValue());
+                done.remove(next.getKey());
+                next = done.ceilingEntry(lo);
+            }
+            done.put(lo, hi);
+            if (perfectNums.length > 0) {
+                results.add(perfectNums);
+            }
+        }
+
+        /**
+         * @return Perfectos de los subrangos terminados, ordenados y sin repetidos.
+         */
+        public long[] knownResults() {
+            return results.stream().flatMapToLong(Arrays::stream).sorted().distinct().toArray();
+        }
+
+        /**
+         * @return Subrangos {inicio, fin} de [min, max] que nunca terminaron, en orden.
+         */
+        public List<long[]> gaps() {
+            List<long[]> gaps = new ArrayList<>();
+            long cursor = min;
+            for (Map.Entry<Long, Long> e : done.entrySet()) {
+                if (e.getKey() > cursor) {
+                    gaps.add(new long[]{cursor, Math.min(max, e.getKey() - 1)});
+                }
+                if (e.getValue() >= max) {
+                    return gaps;
+                }
+                cursor = Math.max(cursor, e.getValue() + 1);
+            }
+            gaps.add(new long[]{cursor, max});
+            return gaps;
+        }
+    }
+
+    /**
+     * Recibe las partes terminadas de una búsqueda, las escribe en el diario y las reenvía a otro listener.
+     */
+    private final class Recorder implements ProgressListener {
+        private final long jobId;
+        private final ProgressListener delegate;
+
+        Recorder(long jobId, ProgressListener delegate) {
+            this.jobId = jobId;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void searchStarted(long totalNumbers, double totalCost) {
+            if (delegate != null) {
+                delegate.searchStarted(totalNumbers, totalCost);
+            }
+        }
+
+        @Override
+        public void rangeCompleted(long lo, long hi, long[] perfectNums, double cost) {
+            recordRange(jobId, lo, hi, perfectNums);
+            if (delegate != null) {
+                delegate.rangeCompleted(lo, hi, perfectNums, cost);
+            }
+        }
+
+        @Override
+        public void knownResults(long[] perfectNums) {
+            if (delegate != null) {
+                delegate.knownResults(perfectNums);
+            }
+        }
+    }
+
+    private final Path path;
+    // Los dos archivos que se alternan al compactar.
+    private final Path[] files;
+    // Tamaño a partir del cual se compacta el diario.
+    private final long compactThreshold;
+
+    // Archivo en uso (índice en files) y su generación.
+    private int slot;
+    private long generation;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    // Posición donde se escribe el próximo registro.
+    private int position;
+    // true tras close(): los registros posteriores se descartan.
+    private boolean closed;
+
+    private long nextJobId = 1;
+    // Búsquedas abiertas, en orden de inicio.
+    private final Map<Long, OpenJob> openJobs = new LinkedHashMap<>();
+    // Subrangos terminados leídos al abrir el diario (de búsquedas abiertas y terminadas), para la caché.
+    private final List<long[]> replayedRanges = new ArrayList<>();
+    private final List<long[]> replayedResults = new ArrayList<>();
+
+    /**
+     * Abre (o crea) el diario y lo relee.
+     * @param path Archivo del diario; se usan {@code path.0} y {@code path.1}.
+     * @param compactThreshold Tamaño en bytes a partir del cual se compacta.
+     * @throws IOException Si el archivo no se puede abrir o mapear.
+     */
+    public RangeJournal(Path path, long compactThreshold) throws IOException {
+        this.path = path;
+        this.files = new Path[]{
+                path.resolveSibling(path.getFileName() + ".0"), path.resolveSibling(path.getFileName() + ".1")};
+        this.compactThreshold = Math.max(INITIAL_MAP_BYTES, compactThreshold);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        open();
+        replay();
+        // Al arrancar se compacta: las búsquedas terminadas ya no hacen falta en el diario.
+        compact();
+    }
+
+    /**
+     * Registra el inicio de una búsqueda.
+     * @param min Límite inferior.
+     * @param max Límite superior.
+     * @param callback Proxy de callback del cliente en forma de texto ("" si es síncrona).
+     * @param longResults true si el cliente espera la respuesta de 64 bits.
+     * @return ID de la búsqueda en el diario.
+     */
+    public synchronized long startJob(long min, long max, String callback, boolean longResults) {
+        OpenJob job = new OpenJob(nextJobId++, min, max, callback, longResults);
+        openJobs.put(job.id, job);
+        append(startRecord(job));
+        return job.id;
+    }
+
+    /**
+     * Registra un subrango terminado de una búsqueda con sus perfectos.
+     * @param jobId ID de la búsqueda.
+     * @param lo Primer número del subrango.
+     * @param hi Último número del subrango.
+     * @param perfectNums Perfectos del subrango.
+     */
+    public synchronized void recordRange(long jobId, long lo, long hi, long[] perfectNums) {
+        OpenJob job = openJobs.get(jobId);
+        if (job == null) {
+            return; // Búsqueda ya terminada.
+        }
+        job.addRange(lo, hi, perfectNums);
+        append(rangeRecord(jobId, lo, hi, perfectNums));
+    }
+
+    /**
+     * Registra el fin de una búsqueda. Compacta el diario si superó el umbral.
+     * @param jobId ID de la búsqueda.
+     */
+    public synchronized void endJob(long jobId) {
+        if (closed || openJobs.remove(jobId) == null) {
+            return;
+        }
+        byte[] payload = new byte[1 + Long.BYTES];
+        ByteBuffer.wrap(payload).put(TYPE_END).putLong(jobId);
+        append(payload);
+        if (position > compactThreshold) {
+            compact();
+        }
+    }
+
+    /**
+     * Listener que escribe en el diario cada parte terminada de una búsqueda y la reenvía a otro.
+     * @param jobId ID de la búsqueda.
+     * @param delegate Listener al que se reenvía el avance, o null.
+     * @return Listener para la búsqueda.
+     */
+    public ProgressListener recorder(long jobId, ProgressListener delegate) {
+        return new Recorder(jobId, delegate);
+    }
+
+    /**
+     * @return Búsquedas que quedaron abiertas en el diario, en orden de inicio.
+     */
+    public synchronized List<OpenJob> openJobs() {
+        return new ArrayList<>(openJobs.values());
+    }
+
+    /**
+     * Subrangos terminados leídos al abrir el diario, para precargar la caché de resultados.
+     * Solo está disponible una vez: después se liberan.
+     * @param consumer Recibe cada subrango {inicio, fin} con sus perfectos.
+     */
+    public synchronized void drainReplayedRanges(BiConsumer<long[], long[]> consumer) {
+        for (int i = 0; i < replayedRanges.size(); i++) {
+            consumer.accept(replayedRanges.get(i), replayedResults.get(i));
+        }
+        replayedRanges.clear();
+        replayedResults.clear();
+    }
+
+    /**
+     * Vuelca el diario a disco y lo cierra.
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("[Maestro] Error al cerrar el diario: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return Archivo en uso, el de mayor generación.
+     */
+    synchronized Path activeFile() {
+        return files[slot];
+    }
+
+    /**
+     * Abre y mapea el archivo de mayor generación; si no hay ninguno válido, empieza uno vacío.
+     */
+    private void open() throws IOException {
+        long first = readGeneration(files[0]);
+        long second = readGeneration(files[1]);
+        slot = (second > first) ? 1 : 0;
+        generation = Math.max(first, second);
+        if (generation == 0) {
+            generation = 1;
+            writeGeneration(files[slot], generation, new ArrayList<>());
+        }
+        channel = FileChannel.open(files[slot], StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = Math.max(INITIAL_MAP_BYTES, channel.size());
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    /**
+     * @return Generación de un archivo del diario; 0 si no existe o su cabecera no es válida.
+     */
+    private static long readGeneration(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (header.hasRemaining() && in.read(header, header.position()) > 0) {
+                // Lee hasta completar la cabecera o llegar al final.
+            }
+        }
+        if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+            return 0;
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IOException("Versión de diario no soportada en " + file + ": " + header.getInt(4));
+        }
+        return header.getLong(8);
+    }
+
+    /**
+     * Escribe una generación del diario con FileChannel.write, sin mapear ni truncar el archivo: en Windows
+     * no se puede achicar un archivo que sigue mapeado. El largo 0 tras el último registro deja fuera lo
+     * que hubiera de antes. La cabecera va al final, así que si el Maestro cae a mitad sigue mandando
+     * el otro archivo.
+     * @param file Archivo a escribir (el que no está en uso).
+     * @param generation Generación nueva, mayor que la del archivo en uso.
+     * @param records Datos de los registros (tipo incluido).
+     */
+    private static void writeGeneration(Path file, long generation, List<byte[]> records) throws IOException {
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long offset = HEADER_BYTES;
+            CRC32 crc = new CRC32();
+            for (byte[] payload : records) {
+                crc.reset();
+                crc.update(payload);
+                ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + payload.length);
+                record.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+                offset += writeFully(out, record, offset);
+            }
+            writeFully(out, ByteBuffer.allocate(Integer.BYTES), offset);
+            out.force(true);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putLong(generation).flip();
+            writeFully(out, header, 0);
+            out.force(true);
+        }
+    }
+
+    private static int writeFully(FileChannel out, ByteBuffer data, long offset) throws IOException {
+        int written = 0;
+        while (data.hasRemaining()) {
+            written += out.write(data, offset + written);
+        }
+        return written;
+    }
+
+    /**
+     * Relee los registros válidos y reconstruye las búsquedas abiertas.
+     */
+    private void replay() {
+        int records = scan(true);
+        System.out.println(String.format("[Maestro] Diario %s: %d registros leídos, %d búsquedas sin terminar.",
+                path, records, openJobs.size()));
+    }
+
+    /**
+     * Recorre los registros válidos desde la cabecera y deja la posición de escritura tras el último.
+     * @param apply true para aplicar cada registro al estado en memoria.
+     * @return Cantidad de registros válidos.
+     */
+    private int scan(boolean apply) {
+        CRC32 crc = new CRC32();
+        int records = 0;
+        position = HEADER_BYTES;
+        while (position + RECORD_HEADER_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + RECORD_HEADER_BYTES + length > buffer.capacity()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(position + RECORD_HEADER_BYTES, payload);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                break; // Registro a medio escribir cuando cayó el Maestro.
+            }
+            if (apply) {
+                applyRecord(ByteBuffer.wrap(payload));
+            }
+            position += RECORD_HEADER_BYTES + length;
+            records++;
+        }
+        return records;
+    }
+
+    /**
+     * Aplica un registro leído del diario al estado en memoria.
+     */
+    private void applyRecord(ByteBuffer in) {
+        byte type = in.get();
+        long jobId = in.getLong();
+        nextJobId = Math.max(nextJobId, jobId + 1);
+        switch (type) {
+            case TYPE_START: {
+                long min = in.getLong();
+                long max = in.getLong();
+                boolean longResults = in.get() != 0;
+                byte[] callback = new byte[in.getShort() & 0xFFFF];
+                in.get(callback);
+                openJobs.put(jobId, new OpenJob(jobId, min, max, new String(callback, StandardCharsets.UTF_8), longResults));
+                break;
+            }
+            case TYPE_RANGE: {
+                long lo = in.getLong();
+                long hi = in.getLong();
+                long[] perfectNums = new long[in.getInt()];
+                for (int i = 0; i < perfectNums.length; i++) {
+                    perfectNums[i] = in.getLong();
+                }
+                replayedRanges.add(new long[]{lo, hi});
+                replayedResults.add(perfectNums);
+                OpenJob job = openJobs.get(jobId);
+                if (job != null) {
+                    job.addRange(lo, hi, perfectNums);
+                }
+                break;
+            }
+            case TYPE_END:
+                openJobs.remove(jobId);
+                break;
+            default:
+                System.err.println("[Maestro] Tipo de registro desconocido en el diario: " + type);
+        }
+    }
+
+    /**
+     * Agrega un registro al final del diario, agrandando el mapeo si no cabe.
+     * @param payload Datos del registro (tipo incluido).
+     */
+    private void append(byte[] payload) {
+        if (closed) {
+            return;
+        }
+        int needed = RECORD_HEADER_BYTES + payload.length;
+        try {
+            // Se deja siempre espacio para el largo 0 que marca el final.
+            while (position + needed + Integer.BYTES > buffer.capacity()) {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) buffer.capacity() * 2);
+            }
+        } catch (IOException e) {
+            System.err.println("[Maestro] No se pudo agrandar el diario; el registro se pierde: " + e.getMessage());
+            return;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        // Primero los datos y el CRC; el largo al final, para que un registro a medias no parezca válido.
+        buffer.put(position + RECORD_HEADER_BYTES, payload);
+        buffer.putInt(position + 4, (int) crc.getValue());
+        buffer.putInt(position + RECORD_HEADER_BYTES + payload.length, 0);
+        buffer.putInt(position, payload.length);
+        position += needed;
+    }
+
+    /**
+     * Reescribe el diario con solo las búsquedas abiertas y su cobertura fusionada, en el archivo que no
+     * está en uso y con la generación siguiente, y pasa a escribir en él. Si algo falla se sigue
+     * escribiendo en el archivo anterior. Visible para los tests.
+     */
+    synchronized void compact() {
+        int before = position;
+        // Registros de las búsquedas abiertas: inicio y un registro por intervalo fusionado.
+        List<byte[]> records = new ArrayList<>();
+        for (OpenJob job : openJobs.values()) {
+            records.add(startRecord(job));
+            long[] known = job.knownResults();
+            for (Map.Entry<Long, Long> e : job.done.entrySet()) {
+                long lo = e.getKey();
+                long hi = e.getValue();
+                long[] inRange = Arrays.stream(known).filter(n -> n >= lo && n <= hi).toArray();
+                records.add(rangeRecord(job.id, lo, hi, inRange));
+            }
+        }
+        try {
+            buffer.force();
+            writeGeneration(files[1 - slot], generation + 1, records);
+        } catch (IOException e) {
+            System.err.println("[Maestro] No se pudo compactar el diario " + path + "; se sigue con el anterior: " + e.getMessage());
+            return;
+        }
+        // El mapeo anterior queda hasta que lo libere el GC; ese archivo solo se vuelve a escribir con FileChannel.write.
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("[Maestro] Error al cerrar el diario anterior: " + e.getMessage());
+        }
+        try {
+            open();
+            scan(false);
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo reabrir el diario " + path + ": " + e.getMessage(), e);
+        }
+        System.out.println(String.format("[Maestro] Diario compactado: %,d -> %,d bytes (generación %d).",
+                before, position, generation));
+    }
+
+    private static byte[] startRecord(OpenJob job) {
+        byte[] callback = job.callback.getBytes(StandardCharsets.UTF_8);
+        byte[] payload = new byte[1 + 3 * Long.BYTES + 1 + Short.BYTES + callback.length];
+        ByteBuffer.wrap(payload).put(TYPE_START).putLong(job.id).putLong(job.min).putLong(job.max)
+                .put((byte) (job.longResults ? 1 : 0)).putShort((short) callback.length).put(callback);
+        return payload;
+    }
+
+    private static byte[] rangeRecord(long jobId, long lo, long hi, long[] perfectNums) {
+        byte[] payload = new byte[1 + 3 * Long.BYTES + Integer.BYTES + Long.BYTES * perfectNums.length];
+        ByteBuffer out = ByteBuffer.wrap(payload).put(TYPE_RANGE).putLong(jobId).putLong(lo).putLong(hi)
+                .putInt(perfectNums.length);
+        for (long n : perfectNums) {
+            out.putLong(n);
+        }
+        return payload;
+    }
+}
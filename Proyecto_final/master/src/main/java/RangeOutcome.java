@@ -0,0 +1,22 @@
+import java.util.List;
+
+/**
+ * Resultado de la búsqueda de un subrango, en modo push o pull.
+ */
+public final class RangeOutcome {
+    final long min;
+    final long max;
+    final long[] perfectNums;
+    // Partes {inicio, fin} del subrango que quedaron sin recorrer porque fallaron los workers.
+    final List<long[]> missing;
+    // false si faltan partes del subrango.
+    final boolean complete;
+
+    RangeOutcome(long min, long max, long[] perfectNums, List<long[]> missing) {
+        this.min = min;
+        this.max = max;
+        this.perfectNums = perfectNums;
+        this.missing = missing;
+        this.complete = missing.isEmpty();
+    }
+}
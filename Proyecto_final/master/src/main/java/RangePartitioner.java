@@ -0,0 +1,297 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reparte el rango de una búsqueda entre los workers.
+ * Con la estrategia COST cada worker recibe un subrango cuyo costo estimado (según el CostModel del
+ * kernel activo) es proporcional a su capacidad efectiva, de modo que todos terminen aproximadamente
+ * a la vez. La capacidad parte de la que el worker declara al registrarse (núcleos y tasa calibrada),
+ * se reemplaza por la tasa observada en cuanto termina trabajos, y se reduce según la carga que
+ * el worker reporta periódicamente. Con WIDTH se conserva el reparto original en partes de igual
+ * ancho, para poder comparar ambas estrategias (propiedad Master.Partitioning).
+ */
+public class RangePartitioner {
+
+    /**
+     * Estrategias de reparto disponibles.
+     */
+    public enum Strategy {
+        // Subrangos de igual costo estimado, ponderados por la tasa observada de cada worker.
+        COST,
+        // Subrangos de igual ancho (reparto original).
+        WIDTH
+    }
+
+    // Peso de la última observación en la media móvil exponencial de la tasa de cada worker.
+    private static final double RATE_SMOOTHING = 0.3;
+
+    private final Strategy strategy;
+
+    // Magnitud de los números con que los workers calibran su tasa (KernelSelector del worker).
+    static final long CALIBRATION_BASE = 1_000_000L;
+
+    // Tiempo tras el cual un reporte de carga se considera viejo y deja de aplicarse.
+    private static final long LOAD_REPORT_TTL_MS = 10_000L;
+
+    // Tasa observada de cada worker (unidades de costo por milisegundo), indexada por su ID.
+    private final Map<Integer, Double> ratesByWorker = new ConcurrentHashMap<>();
+
+    // Capacidad declarada por cada worker al registrarse: números/s en CALIBRATION_BASE, con todos sus núcleos.
+    private final Map<Integer, Double> declaredThroughput = new ConcurrentHashMap<>();
+
+    // Núcleos de cada worker, para interpretar sus reportes de carga.
+    private final Map<Integer, Integer> coresByWorker = new ConcurrentHashMap<>();
+
+    // Último reporte de carga de cada worker: {hilos ocupados, tareas en cola, instante en ms}.
+    private final Map<Integer, long[]> loadByWorker = new ConcurrentHashMap<>();
+
+    /**
+     * @param strategy Estrategia de reparto.
+     */
+    public RangePartitioner(Strategy strategy) {
+        this.strategy = strategy;
+    }
+
+    /**
+     * Interpreta el valor de la propiedad Master.Partitioning.
+     * @param value "cost" o "width" (sin distinguir mayúsculas).
+     * @return La estrategia correspondiente.
+     * @throws IllegalArgumentException Si el valor no es válido.
+     */
+    public static Strategy parseStrategy(String value) {
+        try {
+            return Strategy.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Estrategia desconocida en Master.Partitioning: '" + value + "'. Valores válidos: cost, width.");
+        }
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Divide [min, max] en un subrango por worker, en el orden de workerIds.
+     * Un worker puede recibir null si el rango es demasiado pequeño para darle números.
+     * @param min Límite inferior (mayor o igual que 1).
+     * @param max Límite superior.
+     * @param workerIds IDs de los workers que participan.
+     * @param model Modelo de costo del kernel activo (solo se usa con la estrategia COST).
+     * @return Lista de pares {inicio, fin} (o null), uno por worker.
+     */
+    public List<long[]> partition(long min, long max, List<Integer> workerIds, CostModel model) {
+        int n = workerIds.size();
+        List<long[]> slices = new ArrayList<>(n);
+
+        if (strategy == Strategy.WIDTH) {
+            // Reparto original: partes de igual ancho; la última llega hasta max.
+            long delta = (max - min) / n;
+            long currentMin = min;
+            for (int i = 0; i < n; i++) {
+                long currentMax = (i == n - 1) ? max : currentMin + delta;
+                slices.add(currentMin <= currentMax ? new long[]{currentMin, currentMax} : null);
+                currentMin = currentMax + 1;
+            }
+            return slices;
+        }
+
+        double[] weights = new double[n];
+        double totalWeight = 0;
+        for (int i = 0; i < n; i++) {
+            weights[i] = rateOf(workerIds.get(i), model);
+            totalWeight += weights[i];
+        }
+
+        double totalCost = model.cost(min, max);
+        double cumulativeWeight = 0;
+        long currentMin = min;
+        for (int i = 0; i < n; i++) {
+            cumulativeWeight += weights[i];
+            long currentMax = (i == n - 1) ? max
+                    : boundaryFor(min, max, totalCost * cumulativeWeight / totalWeight, model);
+            if (currentMin <= currentMax) {
+                slices.add(new long[]{currentMin, currentMax});
+                currentMin = currentMax + 1;
+            } else {
+                slices.add(null); // El rango no alcanza para este worker.
+            }
+        }
+        return slices;
+    }
+
+    /**
+     * Divide [min, max] en la cantidad de partes indicada, todas de costo estimado parecido.
+     * @param min Límite inferior (mayor o igual que 1).
+     * @param max Límite superior.
+     * @param pieces Cantidad de partes (como máximo max - min + 1).
+     * @param model Modelo de costo del kernel activo.
+     * @return Lista de pares {inicio, fin} consecutivos y no vacíos, en orden ascendente.
+     */
+    public static List<long[]> splitByCost(long min, long max, int pieces, CostModel model) {
+        List<long[]> parts = new ArrayList<>(pieces);
+        double totalCost = model.cost(min, max);
+        long currentMin = min;
+        for (int i = 1; i <= pieces && currentMin <= max; i++) {
+            long currentMax = (i == pieces) ? max : boundaryFor(min, max, totalCost * i / pieces, model);
+            if (currentMax >= currentMin) {
+                parts.add(new long[]{currentMin, currentMax});
+                currentMin = currentMax + 1;
+            }
+        }
+        return parts;
+    }
+
+    /**
+     * Registra el resultado de un subrango terminado para refinar la tasa del worker.
+     * @param workerId ID del worker.
+     * @param estimatedCost Costo estimado del subrango que procesó.
+     * @param elapsedMs Tiempo que tardó, medido por el Maestro.
+     */
+    public void recordCompletion(int workerId, double estimatedCost, long elapsedMs) {
+        double rate = estimatedCost / Math.max(1L, elapsedMs);
+        ratesByWorker.merge(workerId, rate, (old, latest) -> old + RATE_SMOOTHING * (latest - old));
+    }
+
+    /**
+     * Registra la capacidad que declara un worker al registrarse.
+     * @param workerId ID del worker.
+     * @param cores Núcleos del worker.
+     * @param throughput Números por segundo calibrados en CALIBRATION_BASE, con todos sus núcleos.
+     */
+    public void registerCapacity(int workerId, int cores, double throughput) {
+        coresByWorker.put(workerId, Math.max(1, cores));
+        if (throughput > 0) {
+            declaredThroughput.put(workerId, throughput);
+        }
+    }
+
+    /**
+     * Registra el último reporte de carga de un worker.
+     * @param workerId ID del worker.
+     * @param busyThreads Hilos de cálculo ocupados.
+     * @param queueDepth Tareas o trozos en espera en el worker.
+     */
+    public void reportLoad(int workerId, int busyThreads, int queueDepth) {
+        loadByWorker.put(workerId, new long[]{Math.max(0, busyThreads), Math.max(0, queueDepth), System.currentTimeMillis()});
+    }
+
+    /**
+     * Olvida la tasa, la capacidad y la carga de un worker que se desconectó.
+     * @param workerId ID del worker.
+     */
+    public void forget(int workerId) {
+        ratesByWorker.remove(workerId);
+        declaredThroughput.remove(workerId);
+        coresByWorker.remove(workerId);
+        loadByWorker.remove(workerId);
+    }
+
+    /**
+     * Capacidad efectiva de un worker: su tasa (observada o, si no hay historial, la declarada)
+     * multiplicada por la fracción libre según su último reporte de carga. Un worker sin tasa
+     * observada ni declarada recibe la media de los demás (o 1 si no hay ninguno).
+     * @param workerId ID del worker.
+     * @param model Modelo de costo con el que se convierte la tasa declarada.
+     * @return Tasa en unidades de costo por milisegundo (o relativa, si no se conoce ninguna).
+     */
+    public double rateOf(int workerId, CostModel model) {
+        double rate = baseRateOf(workerId, model);
+        if (Double.isNaN(rate)) {
+            rate = coresByWorker.keySet().stream()
+                    .mapToDouble(id -> baseRateOf(id, model))
+                    .filter(r -> !Double.isNaN(r))
+                    .average()
+                    .orElse(ratesByWorker.values().stream().mapToDouble(Double::doubleValue).average().orElse(1.0));
+        }
+        return rate * freeFractionOf(workerId);
+    }
+
+    /**
+     * Parte de la capacidad total de los workers indicados que corresponde a uno de ellos.
+     * @param workerId ID del worker (puede no estar en workerIds, si se sumó después).
+     * @param workerIds Workers entre los que se reparte.
+     * @param model Modelo de costo activo.
+     * @return Fracción entre 0 y 1.
+     */
+    public double shareOf(int workerId, List<Integer> workerIds, CostModel model) {
+        double own = rateOf(workerId, model);
+        double total = workerIds.contains(workerId) ? 0 : own;
+        for (int id : workerIds) {
+            total += rateOf(id, model);
+        }
+        return (total > 0) ? own / total : 1.0;
+    }
+
+    /**
+     * Describe la capacidad conocida de un worker para los logs.
+     * @param workerId ID del worker.
+     * @return Núcleos y tasa declarada, o "desconocida".
+     */
+    public String describeCapacity(int workerId) {
+        Integer cores = coresByWorker.get(workerId);
+        Double throughput = declaredThroughput.get(workerId);
+        if (cores == null || throughput == null) {
+            return "capacidad desconocida";
+        }
+        return String.format("%d núcleos, %,.0f números/s", cores, throughput);
+    }
+
+    /**
+     * Tasa propia de un worker, sin aplicar su carga.
+     * @param workerId ID del worker.
+     * @param model Modelo de costo con el que se convierte la tasa declarada.
+     * @return Tasa observada, o la declarada convertida a costo por milisegundo, o NaN si no hay ninguna.
+     */
+    private double baseRateOf(int workerId, CostModel model) {
+        Double observed = ratesByWorker.get(workerId);
+        if (observed != null) {
+            return observed;
+        }
+        Double declared = declaredThroughput.get(workerId);
+        if (declared != null) {
+            // Números/s a costo/ms, con el costo por número del modelo en la magnitud de calibración.
+            double costPerNumber = model.cost(CALIBRATION_BASE, CALIBRATION_BASE + 9_999) / 10_000;
+            return declared / 1000.0 * costPerNumber;
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Fracción de la capacidad de un worker que está libre según su último reporte de carga:
+     * con c núcleos, b hilos ocupados y q tareas en cola, un trabajo nuevo recibe c / (c + b + q).
+     * @param workerId ID del worker.
+     * @return Fracción entre 0 y 1 (1 si no hay reporte reciente).
+     */
+    private double freeFractionOf(int workerId) {
+        long[] load = loadByWorker.get(workerId);
+        if (load == null || System.currentTimeMillis() - load[2] > LOAD_REPORT_TTL_MS) {
+            return 1.0;
+        }
+        int cores = coresByWorker.getOrDefault(workerId, 1);
+        return cores / (double) (cores + load[0] + load[1]);
+    }
+
+    /**
+     * Busca (por bisección) el menor m en [min, max] tal que cost(min, m) alcance el costo objetivo.
+     * @param min Límite inferior del rango.
+     * @param max Límite superior del rango.
+     * @param targetCost Costo acumulado objetivo.
+     * @param model Modelo de costo.
+     * @return Límite superior del subrango.
+     */
+    private static long boundaryFor(long min, long max, double targetCost, CostModel model) {
+        long left = min;
+        long right = max;
+        while (left < right) {
+            long m = left + (right - left) / 2;
+            if (model.cost(min, m) < targetCost) {
+                left = m + 1;
+            } else {
+                right = m;
+            }
+        }
+        return left;
+    }
+}
@@ -0,0 +1,99 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Operaciones sobre listas de partes {inicio, fin} de un rango: las partes sin recorrer de una búsqueda,
+ * los rangos de un lote y la cobertura que se informa a los clientes.
+ */
+final class Ranges {
+
+    private Ranges() {
+    }
+
+    /**
+     * Ordena partes {inicio, fin} de un rango y une las que se solapan o son contiguas.
+     * Las partes sin recorrer se anotan en el orden en que se detectan, no en el del rango.
+     * @param ranges Partes a unir (no se modifican).
+     * @return Partes disjuntas, en orden ascendente.
+     */
+    static List<long[]> merge(List<long[]> ranges) {
+        List<long[]> sorted = new ArrayList<>(ranges);
+        sorted.sort((a, b) -> Long.compare(a[0], b[0]));
+        List<long[]> merged = new ArrayList<>();
+        for (long[] range : sorted) {
+            long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && range[0] <= last[1] + 1) {
+                last[1] = Math.max(last[1], range[1]);
+            } else {
+                merged.add(new long[]{range[0], range[1]});
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Partes de [lo, hi] que no están en gaps.
+     * @param lo Límite inferior del rango.
+     * @param hi Límite superior del rango.
+     * @param gaps Partes disjuntas y ordenadas de [lo, hi] (ver merge).
+     * @return Partes {inicio, fin} de [lo, hi] fuera de gaps, en orden.
+     */
+    static List<long[]> complement(long lo, long hi, List<long[]> gaps) {
+        List<long[]> covered = new ArrayList<>();
+        long cursor = lo;
+        for (long[] gap : gaps) {
+            if (gap[0] > cursor) {
+                covered.add(new long[]{cursor, gap[0] - 1});
+            }
+            if (gap[1] >= hi) {
+                return covered;
+            }
+            cursor = Math.max(cursor, gap[1] + 1);
+        }
+        if (cursor <= hi) {
+            covered.add(new long[]{cursor, hi});
+        }
+        return covered;
+    }
+
+    /**
+     * Aplana partes {inicio, fin} en pares consecutivos, como las envía ICE.
+     */
+    static long[] flatten(List<long[]> ranges) {
+        long[] flat = new long[ranges.size() * 2];
+        for (int i = 0; i < ranges.size(); i++) {
+            flat[2 * i] = ranges.get(i)[0];
+            flat[2 * i + 1] = ranges.get(i)[1];
+        }
+        return flat;
+    }
+
+    /**
+     * @param gaps Partes disjuntas y ordenadas (ver merge).
+     * @return true si alguna parte se cruza con [lo, hi].
+     */
+    static boolean intersects(List<long[]> gaps, long lo, long hi) {
+        for (long[] gap : gaps) {
+            if (gap[0] > hi) {
+                return false;
+            }
+            if (gap[1] >= lo) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cantidad de números de un rango, contando solo la parte mayor o igual que 1 (sin desbordar).
+     */
+    static long size(long min, long max) {
+        long lo = Math.max(1L, Math.min(min, max));
+        long hi = Math.max(min, max);
+        if (hi < lo) {
+            return 0L;
+        }
+        long size = hi - lo + 1;
+        return (size <= 0) ? Long.MAX_VALUE : size;
+    }
+}
@@ -0,0 +1,943 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+
+import Demo.Chunk;
+import Demo.ClientCallbackPrx;
+import Demo.Range;
+import Demo.RangeResult;
+import Demo.SubscriberPrx;
+
+/**
+ * Ejecuta las búsquedas del Maestro sobre los workers registrados. Una búsqueda exhaustiva consulta primero
+ * la caché de resultados, se engancha a las partes que otra solicitud ya está buscando y reparte solo el resto:
+ * en modo pull, como trozos en la cola de ChunkScheduler; en modo push, con PushDispatcher. Lo terminado queda
+ * en el diario para reanudar la búsqueda si el Maestro se reinicia. También ejecuta las búsquedas analíticas
+ * y los lotes de rangos, y responde a los clientes de las solicitudes asíncronas por su callback.
+ */
+public class SearchCoordinator {
+
+    // Workers registrados en el Maestro.
+    private final WorkerRegistry registry;
+
+    // Reparte los rangos entre los workers según su costo estimado o su ancho.
+    private final RangePartitioner partitioner;
+
+    // Cola de trozos de las búsquedas en modo pull.
+    private final ChunkScheduler chunkScheduler;
+
+    // Entrega en modo push.
+    private final PushDispatcher pushDispatcher;
+
+    // Modo de búsqueda de las solicitudes de clientes (PublisherI.MODE_EXHAUSTIVE o MODE_ANALYTIC).
+    private final String searchMode;
+
+    // Forma de entregar el trabajo a los workers (PublisherI.DISPATCH_PULL o DISPATCH_PUSH).
+    private final String dispatchMode;
+
+    // Rangos ya buscados con sus perfectos.
+    private final RangeCache resultCache;
+
+    // Diario de las búsquedas en curso; null si está desactivado.
+    private final RangeJournal journal;
+
+    // Rangos que los workers están buscando ahora; las solicitudes que se solapan se enganchan a ellos.
+    private final InFlightRanges inFlight = new InFlightRanges();
+
+    // Planificador de los envíos de avance diferidos a los clientes.
+    private final ScheduledExecutorService progressScheduler;
+
+    // Tiempo mínimo entre dos envíos de avance a un mismo cliente (ms).
+    private final long progressIntervalMs;
+
+    // Número de workers esperados por la última búsqueda (solo para el log).
+    private volatile int expectedWorkers = 0;
+
+    // true mientras el Maestro se apaga: las búsquedas interrumpidas quedan abiertas en el diario para reanudarse.
+    private volatile boolean shuttingDown = false;
+
+    /**
+     * @param registry Workers registrados en el Maestro.
+     * @param partitioner Reparto de los rangos entre los workers.
+     * @param chunkScheduler Cola de trozos del modo pull.
+     * @param pushDispatcher Entrega del modo push.
+     * @param searchMode Modo de búsqueda de las solicitudes de clientes.
+     * @param dispatchMode Forma de entregar el trabajo a los workers.
+     * @param resultCache Caché de resultados.
+     * @param journal Diario de las búsquedas, o null si está desactivado.
+     * @param progressScheduler Planificador de los envíos de avance a los clientes.
+     * @param progressIntervalMs Tiempo mínimo entre dos envíos de avance a un mismo cliente (ms).
+     */
+    public SearchCoordinator(WorkerRegistry registry, RangePartitioner partitioner, ChunkScheduler chunkScheduler,
+                             PushDispatcher pushDispatcher, String searchMode, String dispatchMode, RangeCache resultCache,
+                             RangeJournal journal, ScheduledExecutorService progressScheduler, long progressIntervalMs) {
+        this.registry = registry;
+        this.partitioner = partitioner;
+        this.chunkScheduler = chunkScheduler;
+        this.pushDispatcher = pushDispatcher;
+        this.searchMode = searchMode;
+        this.dispatchMode = dispatchMode;
+        this.resultCache = resultCache;
+        this.journal = journal;
+        this.progressScheduler = progressScheduler;
+        this.progressIntervalMs = progressIntervalMs;
+        // A la copia que pierde se le pide que no procese el trozo si todavía no lo empezó.
+        chunkScheduler.setCancelHandler(this::cancelChunk);
+    }
+
+    /**
+     * @return Número de workers esperados por la última búsqueda.
+     */
+    public int expectedWorkers() {
+        return expectedWorkers;
+    }
+
+    /**
+     * @return Búsquedas que quedaron sin terminar en el diario; vacío si el diario está desactivado.
+     */
+    public List<RangeJournal.OpenJob> openJournaledJobs() {
+        return (journal != null) ? journal.openJobs() : Collections.emptyList();
+    }
+
+    /**
+     * Un worker recién registrado se suma a las búsquedas en modo pull en curso pidiendo trozos.
+     * @param workerId ID del worker.
+     * @param worker Proxy del worker.
+     */
+    public void workerJoined(int workerId, SubscriberPrx worker) {
+        if (chunkScheduler.hasPendingWork()) {
+            notifyJobAvailable(workerId, worker, 0);
+        }
+    }
+
+    /**
+     * Devuelve a la cola los trozos de un worker que se fue y avisa a los demás workers.
+     * @param workerId ID del worker, ya quitado del registro.
+     */
+    public void workerLeft(int workerId) {
+        int released = chunkScheduler.releaseWorker(workerId);
+        if (released > 0) {
+            System.out.println(String.format("[Maestro] %d trozos del worker %d vuelven a la cola.", released, workerId));
+            for (Map.Entry<Integer, SubscriberPrx> entry : registry.snapshot().workers().entrySet()) {
+                notifyJobAvailable(entry.getKey(), entry.getValue(), 0);
+            }
+        }
+    }
+
+    /**
+     * Indica que el Maestro se apaga: las búsquedas que se interrumpan desde ahora quedan abiertas en el diario.
+     */
+    public void beginShutdown() {
+        shuttingDown = true;
+    }
+
+    /**
+     * Cierra el diario. Las búsquedas sin terminar se reanudan al reiniciar el Maestro.
+     */
+    public void close() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Búsqueda exhaustiva de [minNum, maxNum], anotando las partes del rango que quedaron sin recorrer.
+     * @param numWorkers Número de workers que el Maestro intentará usar para esta tarea.
+     * @param minNum Límite inferior del rango de búsqueda.
+     * @param maxNum Límite superior del rango de búsqueda.
+     * @param listener Recibe los resultados parciales y el avance, o null.
+     * @param missing Recibe las partes {inicio, fin} sin recorrer; queda vacía si la cobertura es completa.
+     * @param token Cancelación de la búsqueda: lo que no se llegó a recorrer queda en missing.
+     * @return Array de números perfectos encontrados en las partes recorridas.
+     */
+    public long[] exhaustive(int numWorkers, long minNum, long maxNum, ProgressListener listener,
+                             List<long[]> missing, CancellationToken token) {
+        // Asegura que el rango mínimo sea menor o igual al máximo. Los perfectos son enteros positivos,
+        // así que se descarta la parte del rango menor que 1 (esto también evita desbordar max - min).
+        long min = Math.max(1L, Math.min(minNum, maxNum));
+        long max = Math.max(minNum, maxNum);
+        if (max < min) {
+            return new long[0];
+        }
+        if (journal == null) {
+            return searchRanges(numWorkers, min, max, Collections.singletonList(new long[]{min, max}), new long[0], 0L, listener, missing, token);
+        }
+        // Búsqueda síncrona: el resultado vuelve en la respuesta, así que no hay callback que guardar.
+        long jobId = journal.startJob(min, max, "", true);
+        try {
+            return searchRanges(numWorkers, min, max, Collections.singletonList(new long[]{min, max}), new long[0], jobId, listener, missing, token);
+        } finally {
+            endJournaledJob(jobId);
+        }
+    }
+
+    /**
+     * Busca los rangos indicados de una búsqueda sobre [min, max]. Primero consulta la caché y solo
+     * reparte entre los workers los huecos que no se hayan buscado antes.
+     * @param numWorkers Número de workers que el Maestro intentará usar para esta tarea.
+     * @param min Límite inferior de la búsqueda completa (mayor o igual que 1).
+     * @param max Límite superior de la búsqueda completa.
+     * @param ranges Partes {inicio, fin} de [min, max] que falta buscar, en orden.
+     * @param knownNums Perfectos ya conocidos del resto de [min, max].
+     * @param jobId ID de la búsqueda en el diario, o 0 si no se registra.
+     * @param listener Recibe los resultados parciales y el avance, o null.
+     * @param missing Recibe las partes {inicio, fin} que quedaron sin recorrer porque no hubo workers, fallaron
+     *                o se canceló la búsqueda.
+     * @param token Cancelación de la búsqueda.
+     * @return Array ordenado de números perfectos de las partes recorridas de [min, max].
+     */
+    private long[] searchRanges(int numWorkers, long min, long max, List<long[]> ranges, long[] knownNums, long jobId,
+                                ProgressListener listener, List<long[]> missing, CancellationToken token) {
+        // Consulta la caché: solo se busca en los huecos que no se hayan buscado antes.
+        List<long[]> parts = new ArrayList<>();
+        parts.add(knownNums);
+        List<long[]> gaps = ranges;
+        if (resultCache.isEnabled()) {
+            gaps = new ArrayList<>();
+            for (long[] range : ranges) {
+                RangeCache.Lookup cached = resultCache.lookup(range[0], range[1]);
+                parts.add(cached.perfectNums);
+                gaps.addAll(cached.gaps);
+                if (jobId != 0) {
+                    journalCachedParts(jobId, range, cached);
+                }
+            }
+        }
+        long[] known = SortedLongs.merge(parts);
+        if (listener != null && known.length > 0) {
+            listener.knownResults(known); // Los perfectos ya conocidos se envían de inmediato.
+        }
+        if (gaps.isEmpty()) {
+            System.out.println(String.format("[Maestro] Rango [%d, %d] resuelto sin workers. Caché: %s", min, max, resultCache.describe()));
+            return known;
+        }
+
+        // Las partes que otra búsqueda ya está repartiendo se esperan en lugar de repartirse otra vez.
+        InFlightRanges.Claim claim = inFlight.claim(gaps);
+        List<long[]> owned = claim.owned;
+        if (!claim.attached.isEmpty()) {
+            System.out.println(String.format("[Maestro] Rango [%d, %d]: %d partes ya se están buscando en otra solicitud. En curso: %s",
+                    min, max, claim.attached.size(), inFlight.describe()));
+        }
+        if (owned.size() > 1 || (!owned.isEmpty() && (owned.get(0)[0] != min || owned.get(0)[1] != max))) {
+            System.out.println(String.format("[Maestro] Rango [%d, %d]: %d huecos sin buscar; el resto ya se conocía o está en curso.",
+                    min, max, owned.size()));
+        }
+
+        parts = new ArrayList<>();
+        parts.add(known);
+        if (!owned.isEmpty()) {
+            List<RangeOutcome> outcomes;
+            try {
+                // Cada tramo terminado llega también a las búsquedas enganchadas, sin esperar al hueco completo.
+                ProgressListener ownedListener = inFlight.tracker((jobId != 0) ? journal.recorder(jobId, listener) : listener);
+                outcomes = dispatchRanges(numWorkers, owned, ownedListener, token);
+                // Guarda en la caché los huecos buscados por completo y se los entrega a las búsquedas enganchadas.
+                for (RangeOutcome outcome : (outcomes != null) ? outcomes : Collections.<RangeOutcome>emptyList()) {
+                    if (outcome.complete) {
+                        resultCache.put(outcome.min, outcome.max, outcome.perfectNums);
+                        inFlight.complete(outcome.min, outcome.perfectNums);
+                    } else {
+                        missing.addAll(outcome.missing);
+                    }
+                }
+            } finally {
+                // Lo que no terminó (o todo, si no hubo workers) deja de estar en curso.
+                for (long[] part : owned) {
+                    inFlight.abandon(part[0]);
+                }
+            }
+            if (outcomes == null) {
+                missing.addAll(owned); // Sin workers o cancelada antes de repartir: los huecos quedan sin recorrer.
+            } else {
+                for (RangeOutcome outcome : outcomes) {
+                    parts.add(outcome.perfectNums);
+                }
+            }
+        }
+
+        // Espera las partes enganchadas; si la búsqueda dueña no las terminó, se buscan aquí.
+        List<long[]> retry = new ArrayList<>();
+        for (InFlightRanges.Attached part : claim.attached) {
+            try {
+                // Se deja de esperar si esta búsqueda se cancela; la búsqueda dueña sigue su curso.
+                CompletableFuture.anyOf(part.future, token.future()).join();
+            } catch (CompletionException | CancellationException e) {
+                // El fallo de la parte se trata abajo.
+            }
+            if (!part.future.isDone()) {
+                missing.add(new long[]{part.lo, part.hi});
+                continue;
+            }
+            long[] nums;
+            try {
+                nums = part.future.join();
+            } catch (CompletionException | CancellationException e) {
+                retry.add(new long[]{part.lo, part.hi});
+                continue;
+            }
+            if (jobId != 0) {
+                journal.recordRange(jobId, part.lo, part.hi, nums);
+            }
+            if (listener != null && nums.length > 0) {
+                listener.knownResults(nums);
+            }
+            parts.add(nums);
+        }
+        if (!retry.isEmpty() && token.isCancelled()) {
+            missing.addAll(retry);
+        } else if (!retry.isEmpty()) {
+            System.out.println(String.format("[Maestro] Rango [%d, %d]: %d partes enganchadas no terminaron; se buscan de nuevo.",
+                    min, max, retry.size()));
+            parts.add(searchRanges(numWorkers, min, max, retry, new long[0], jobId, listener, missing, token));
+        }
+
+        MasterEvents.ResultMerged mergeEvent = new MasterEvents.ResultMerged();
+        mergeEvent.begin();
+        long[] allResults = SortedLongs.merge(parts);
+        mergeEvent.end();
+        if (mergeEvent.shouldCommit()) {
+            mergeEvent.jobId = token.jobId();
+            mergeEvent.min = min;
+            mergeEvent.max = max;
+            mergeEvent.parts = parts.size();
+            mergeEvent.perfectCount = allResults.length;
+            mergeEvent.commit();
+        }
+        if (resultCache.isEnabled()) {
+            System.out.println("[Maestro] Caché: " + resultCache.describe());
+        }
+        return allResults;
+    }
+
+    /**
+     * Reparte rangos entre los workers conectados, esperando antes a que haya suficientes.
+     * @param numWorkers Número de workers que el Maestro intentará usar para esta tarea.
+     * @param gaps Rangos {inicio, fin} a buscar, en orden.
+     * @param listener Recibe los resultados parciales y el avance, o null.
+     * @param token Cancelación de la búsqueda.
+     * @return Resultado de cada rango, en el mismo orden; null si no hay workers, se interrumpió la espera
+     *         o la búsqueda se canceló antes de repartir.
+     */
+    private List<RangeOutcome> dispatchRanges(int numWorkers, List<long[]> gaps, ProgressListener listener,
+                                              CancellationToken token) {
+        // Actualiza el número de workers esperados para esta tarea.
+        this.expectedWorkers = numWorkers;
+
+        // Espera si no hay suficientes workers conectados para la tarea actual, sin bloquear a las demás
+        // búsquedas ni los registros: el futuro se completa con la primera foto del registro que los tenga.
+        CompletableFuture<WorkerRegistry.Snapshot> ready = registry.awaitWorkers(numWorkers);
+        if (!ready.isDone()) {
+            System.out.println("Workers conectados: " + registry.size() + " / " + numWorkers);
+        }
+        // Si se cancela mientras espera workers, se la despierta.
+        token.onCancel(() -> ready.cancel(false));
+        MasterEvents.WorkersWait waitEvent = new MasterEvents.WorkersWait();
+        waitEvent.begin();
+        WorkerRegistry.Snapshot snapshot;
+        try {
+            snapshot = ready.get();
+            waitEvent.end();
+            if (waitEvent.shouldCommit()) {
+                waitEvent.jobId = token.jobId();
+                waitEvent.requested = numWorkers;
+                waitEvent.available = snapshot.size();
+                waitEvent.commit();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Restaura el estado de interrupción.
+            System.err.println("startJob interrumpido: " + e.getMessage());
+            return null; // Sin resultado si se interrumpe la espera.
+        } catch (CancellationException | ExecutionException e) {
+            return null;
+        }
+
+        if (token.isCancelled()) {
+            return null;
+        }
+        // Si no hay workers disponibles después de la espera, no se puede realizar la tarea.
+        if (snapshot.isEmpty()) {
+            System.err.println("[Maestro] No hay workers disponibles para realizar la búsqueda.");
+            return null;
+        }
+
+        System.out.println(String.format("[Maestro] Iniciando distribucion de %d rangos ([%d, %d]...) con %d workers (registro v%d).",
+                gaps.size(), gaps.get(0)[0], gaps.get(0)[1], snapshot.size(), snapshot.version));
+
+        // Los workers activos para esta distribución: todos los de la misma foto, aunque luego cambie el registro.
+        List<Integer> workerIds = snapshot.ids();
+        List<SubscriberPrx> list = snapshot.proxies();
+
+        // Busca los huecos: en modo pull, todos a la vez en la cola de trozos; en modo push, uno tras otro.
+        // Con más huecos que workers (un lote de rangos, o una caché muy fragmentada), el modo push haría
+        // una ronda de llamadas por hueco: esos también van todos a la vez a la cola de trozos.
+        List<RangeOutcome> outcomes = new ArrayList<>();
+        if (PublisherI.DISPATCH_PULL.equals(dispatchMode) || gaps.size() > list.size()) {
+            outcomes.addAll(pullSearch(gaps, workerIds, list, listener, token));
+        } else {
+            for (long[] gap : gaps) {
+                // Modelo de costo del kernel que usarán los workers para subrangos de este tamaño.
+                CostModel costModel = costModelFor(list.get(0), (gap[1] - gap[0]) / list.size() + 1);
+                outcomes.add(pushDispatcher.search(gap[0], gap[1], workerIds, list, costModel, listener, token));
+            }
+        }
+        return outcomes;
+    }
+
+    /**
+     * Registra en el diario las partes de un rango que se resolvieron con la caché,
+     * para que al reanudar la búsqueda no se vuelvan a buscar aunque la caché ya no las tenga.
+     * @param jobId ID de la búsqueda en el diario.
+     * @param range Rango consultado {inicio, fin}.
+     * @param cached Resultado de la consulta a la caché.
+     */
+    private void journalCachedParts(long jobId, long[] range, RangeCache.Lookup cached) {
+        long cursor = range[0];
+        for (long[] gap : cached.gaps) {
+            if (gap[0] > cursor) {
+                journalCoveredPart(jobId, cursor, gap[0] - 1, cached.perfectNums);
+            }
+            if (gap[1] == range[1]) {
+                return;
+            }
+            cursor = gap[1] + 1;
+        }
+        journalCoveredPart(jobId, cursor, range[1], cached.perfectNums);
+    }
+
+    private void journalCoveredPart(long jobId, long lo, long hi, long[] perfectNums) {
+        journal.recordRange(jobId, lo, hi, SortedLongs.slice(perfectNums, lo, hi));
+    }
+
+    /**
+     * Búsqueda exhaustiva en modo pull: divide cada rango en trozos, avisa a los workers y espera a que
+     * entre todos los procesen. Cada worker pide lotes de trozos con pullChunks hasta vaciar la cola,
+     * así que los workers rápidos procesan más trozos que los lentos.
+     * @param ranges Rangos {inicio, fin} a buscar (inicio mayor o igual que 1).
+     * @param workerIds IDs de los workers activos.
+     * @param workers Proxies de los workers activos, en el mismo orden.
+     * @param listener Recibe los resultados parciales y el avance, o null.
+     * @param token Cancelación de la búsqueda: los trozos sin resultado quedan como partes sin recorrer.
+     * @return Resultado de cada rango, en el mismo orden.
+     */
+    private List<RangeOutcome> pullSearch(List<long[]> ranges, List<Integer> workerIds, List<SubscriberPrx> workers,
+                                          ProgressListener listener, CancellationToken token) {
+        long totalNumbers = 0;
+        for (long[] range : ranges) {
+            totalNumbers += range[1] - range[0] + 1;
+        }
+        long chunkSize = totalNumbers / ((long) workers.size() * ChunkScheduler.CHUNKS_PER_WORKER) + 1;
+        CostModel costModel = costModelFor(workers.get(0), chunkSize);
+
+        List<ChunkScheduler.PullJob> jobs = new ArrayList<>();
+        for (long[] range : ranges) {
+            if (listener != null) {
+                listener.searchStarted(range[1] - range[0] + 1, costModel.cost(range[0], range[1]));
+            }
+            // Los trozos tienen el tamaño que corresponde a la búsqueda completa: un rango chico de un lote
+            // es un solo trozo, no CHUNKS_PER_WORKER por worker.
+            long pieces = Math.min((long) workers.size() * ChunkScheduler.CHUNKS_PER_WORKER,
+                    (range[1] - range[0]) / chunkSize + 1);
+            jobs.add(chunkScheduler.submit(token.jobId(), range[0], range[1], (int) pieces, workerIds, costModel, listener));
+        }
+        for (ChunkScheduler.PullJob job : jobs) {
+            // Al cancelar, los trozos dejan la cola y los workers detienen los que están procesando.
+            token.onCancel(() -> {
+                if (chunkScheduler.cancel(job.id)) {
+                    broadcastCancel(job.id);
+                }
+            });
+        }
+
+        // Un solo aviso por worker basta: cada uno pide trozos hasta vaciar la cola de todas las búsquedas.
+        for (int i = 0; i < workers.size(); i++) {
+            notifyJobAvailable(workerIds.get(i), workers.get(i), jobs.get(0).id);
+        }
+
+        List<RangeOutcome> outcomes = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            long[] range = ranges.get(i);
+            ChunkScheduler.PullJob job = jobs.get(i);
+            long[] results;
+            try {
+                results = job.done.join(); // Espera a que todos los trozos tengan resultado.
+            } catch (CancellationException e) {
+                // Búsqueda cancelada: cuenta lo que terminaron los trozos que llegaron a tener resultado.
+                outcomes.add(new RangeOutcome(range[0], range[1], job.mergeResults(), job.missingRanges()));
+                continue;
+            }
+            System.out.println(String.format("[Maestro] Recoleccion de resultados para rango [%d, %d] completada. Total perfectos: %d",
+                    range[0], range[1], results.length));
+            outcomes.add(new RangeOutcome(range[0], range[1], results, Collections.emptyList()));
+        }
+        return outcomes;
+    }
+
+    /**
+     * Si hay trozos atrasados, avisa a los workers libres para que pidan una copia especulativa.
+     */
+    public void offerOverdueChunks() {
+        try {
+            if (!chunkScheduler.hasOverdueChunks()) {
+                return;
+            }
+            for (int workerId : chunkScheduler.idleWorkers()) {
+                SubscriberPrx worker = registry.snapshot().get(workerId);
+                if (worker != null) {
+                    notifyJobAvailable(workerId, worker, 0);
+                }
+            }
+        } catch (RuntimeException e) {
+            // Un error no debe cancelar las revisiones siguientes.
+            System.err.println("[Maestro] Error buscando trozos atrasados: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Pide a un worker que no procese un trozo cuya otra copia ya terminó, sin esperar su respuesta.
+     * @param workerId ID del worker con la copia que perdió.
+     * @param chunk Trozo a cancelar.
+     */
+    private void cancelChunk(int workerId, Chunk chunk) {
+        SubscriberPrx worker = registry.snapshot().get(workerId);
+        if (worker == null) {
+            return;
+        }
+        try {
+            worker.cancelChunkAsync(chunk.jobId, chunk.chunkId).exceptionally(ex -> {
+                System.err.println(String.format("[Maestro] No se pudo cancelar el trozo %d en el worker %d: %s",
+                        chunk.chunkId, workerId, ex.getMessage()));
+                return null;
+            });
+        } catch (com.zeroc.Ice.Exception e) {
+            System.err.println(String.format("[Maestro] No se pudo cancelar el trozo %d en el worker %d: %s",
+                    chunk.chunkId, workerId, e.getMessage()));
+        }
+    }
+
+    /**
+     * Avisa a un worker de que hay trozos en la cola, sin esperar su respuesta.
+     * @param workerId ID del worker.
+     * @param worker Proxy del worker.
+     * @param jobId ID de la búsqueda (0 si el aviso no corresponde a una búsqueda nueva).
+     */
+    private void notifyJobAvailable(int workerId, SubscriberPrx worker, long jobId) {
+        try {
+            worker.jobAvailableAsync(jobId).exceptionally(ex -> {
+                System.err.println(String.format("[Maestro] No se pudo avisar al worker %d: %s", workerId, ex.getMessage()));
+                return null;
+            });
+        } catch (com.zeroc.Ice.Exception e) {
+            System.err.println(String.format("[Maestro] No se pudo avisar al worker %d: %s", workerId, e.getMessage()));
+        }
+    }
+
+    /**
+     * Obtiene el modelo de costo del kernel que un worker usaría para subrangos del tamaño indicado.
+     * Con la estrategia de reparto por ancho no hace falta consultar al worker.
+     * @param worker Worker a consultar.
+     * @param sliceSize Tamaño aproximado de cada subrango.
+     * @return Modelo de costo; si la consulta falla, el de la criba.
+     */
+    private CostModel costModelFor(SubscriberPrx worker, long sliceSize) {
+        if (partitioner.getStrategy() == RangePartitioner.Strategy.WIDTH) {
+            return CostModel.UNIFORM;
+        }
+        try {
+            return CostModel.forKernel(worker.getKernelName(sliceSize));
+        } catch (com.zeroc.Ice.Exception e) {
+            System.err.println("[Maestro] No se pudo consultar el kernel del worker: " + e.getMessage());
+            return CostModel.forKernel(null);
+        }
+    }
+
+    /**
+     * Pide a todos los workers que detengan el trabajo de una búsqueda, sin esperar su respuesta.
+     * @param jobId ID de la búsqueda (de un cliente o de la cola de trozos).
+     */
+    public void broadcastCancel(long jobId) {
+        for (Map.Entry<Integer, SubscriberPrx> entry : registry.snapshot().workers().entrySet()) {
+            int workerId = entry.getKey();
+            try {
+                entry.getValue().cancelJobAsync(jobId).exceptionally(ex -> {
+                    System.err.println(String.format("[Maestro] No se pudo cancelar la búsqueda #%d en el worker %d: %s",
+                            jobId, workerId, ex.getMessage()));
+                    return null;
+                });
+            } catch (com.zeroc.Ice.Exception e) {
+                System.err.println(String.format("[Maestro] No se pudo cancelar la búsqueda #%d en el worker %d: %s",
+                        jobId, workerId, e.getMessage()));
+            }
+        }
+    }
+
+    /**
+     * Búsqueda analítica (Euclides–Euler): reparte entre los workers el test de Lucas–Lehmer de los exponentes
+     * cuyo perfecto cae en el rango y, si includeOdd es true, recorre también la parte impar. Anota lo que quedó
+     * sin comprobar: el perfecto de cada exponente cuyo worker falló y los subrangos impares sin recorrer.
+     * @param min Límite inferior del rango de búsqueda.
+     * @param max Límite superior del rango de búsqueda.
+     * @param includeOdd Si es true, se recorre también la parte impar del rango.
+     * @param missing Recibe las partes {inicio, fin} sin comprobar.
+     * @param token Cancelación de la búsqueda: lo que no terminó queda en missing.
+     * @return Array ordenado de números perfectos encontrados.
+     */
+    public long[] analytic(long min, long max, boolean includeOdd, List<long[]> missing, CancellationToken token) {
+        // Los perfectos son enteros positivos: se descarta la parte del rango menor que 1.
+        long lo = Math.max(1L, Math.min(min, max));
+        long hi = Math.max(min, max);
+        if (hi < lo) {
+            return new long[0];
+        }
+
+        List<SubscriberPrx> list = registry.snapshot().proxies();
+        if (list.isEmpty()) {
+            System.err.println("[Maestro] No hay workers disponibles para realizar la búsqueda analítica.");
+            missing.add(new long[]{lo, hi});
+            return new long[0];
+        }
+
+        int[] exponents = EuclidEuler.candidateExponents(lo, hi);
+        System.out.println(String.format("[Maestro] Búsqueda analítica en [%d, %d]: %d exponentes candidatos %s entre %d workers%s.",
+                lo, hi, exponents.length, Arrays.toString(exponents), list.size(), includeOdd ? ", incluyendo la parte impar" : ""));
+
+        // Reparte los exponentes en forma circular para equilibrar el costo del test (crece con p).
+        List<CompletableFuture<int[]>> mersenneFutures = new ArrayList<>();
+        List<int[]> shares = new ArrayList<>();
+        for (int i = 0; i < list.size() && i < exponents.length; i++) {
+            int[] share = new int[(exponents.length - i + list.size() - 1) / list.size()];
+            for (int k = 0; k < share.length; k++) {
+                share[k] = exponents[i + k * list.size()];
+            }
+            shares.add(share);
+            try {
+                mersenneFutures.add(list.get(i).testMersenneExponentsAsync(share));
+            } catch (com.zeroc.Ice.Exception e) {
+                System.err.println(String.format("[Maestro] Error al asignar exponentes a worker #%d: %s", i + 1, e.getMessage()));
+                mersenneFutures.add(CompletableFuture.failedFuture(e));
+            }
+        }
+
+        // Parte impar: reparto equitativo del rango, igual que en la búsqueda exhaustiva.
+        List<CompletableFuture<long[]>> oddFutures = new ArrayList<>();
+        List<long[]> oddSlices = new ArrayList<>();
+        if (includeOdd) {
+            long delta = (hi - lo) / list.size();
+            long currentMin = lo;
+            for (int i = 0; i < list.size(); i++) {
+                long currentMax = (i == list.size() - 1) ? hi : currentMin + delta;
+                oddSlices.add(new long[]{currentMin, currentMax});
+                try {
+                    oddFutures.add(list.get(i).calculateOddPerfectNumLongAsync(currentMin, currentMax, token.iceContext()));
+                } catch (com.zeroc.Ice.Exception e) {
+                    System.err.println(String.format("[Maestro] Error al asignar parte impar a worker #%d: %s", i + 1, e.getMessage()));
+                    oddFutures.add(CompletableFuture.failedFuture(e));
+                }
+                currentMin = currentMax + 1;
+            }
+        }
+
+        // Al cancelar se dejan de esperar las respuestas; los workers detienen la parte impar al recibir cancelJob.
+        token.onCancel(() -> {
+            mersenneFutures.forEach(f -> f.cancel(true));
+            oddFutures.forEach(f -> f.cancel(true));
+        });
+
+        // Cada worker devuelve sus exponentes y su parte impar en orden; las partes se mezclan al final.
+        List<long[]> parts = new ArrayList<>();
+        for (int i = 0; i < mersenneFutures.size(); i++) {
+            try {
+                int[] found = mersenneFutures.get(i).join();
+                long[] perfects = new long[found.length];
+                for (int k = 0; k < found.length; k++) {
+                    perfects[k] = EuclidEuler.perfectFromExponent(found[k]);
+                }
+                parts.add(perfects);
+            } catch (java.lang.Exception e) {
+                if (!token.isCancelled()) {
+                    System.err.println("[Maestro] Error recolectando exponentes de un worker: " + e.getMessage());
+                }
+                // Sin el test, no se sabe si el perfecto de cada exponente de su parte existe.
+                for (int p : shares.get(i)) {
+                    long candidate = EuclidEuler.perfectFromExponent(p);
+                    missing.add(new long[]{candidate, candidate});
+                }
+            }
+        }
+        for (int i = 0; i < oddFutures.size(); i++) {
+            try {
+                parts.add(oddFutures.get(i).join());
+            } catch (java.lang.Exception e) {
+                if (!token.isCancelled()) {
+                    System.err.println("[Maestro] Error recolectando la parte impar de un worker: " + e.getMessage());
+                }
+                missing.add(oddSlices.get(i));
+            }
+        }
+        long[] allResults = SortedLongs.merge(parts);
+        System.out.println(String.format("[Maestro] Búsqueda analítica en [%d, %d] completada. Total perfectos: %d", lo, hi, allResults.length));
+        return allResults;
+    }
+
+    /**
+     * Ejecuta la solicitud asíncrona de un cliente y le envía la cobertura y los resultados por su callback.
+     * Si la búsqueda se cancela, el cliente recibe lo encontrado hasta ese momento con la cobertura incompleta.
+     * @param min Límite inferior del rango de búsqueda.
+     * @param max Límite superior del rango de búsqueda.
+     * @param clientCallback Proxy de callback del cliente.
+     * @param longResults true si el cliente usó la operación de 64 bits.
+     * @param token Cancelación de la búsqueda.
+     */
+    public void runClientRequest(long min, long max, ClientCallbackPrx clientCallback, boolean longResults, CancellationToken token) {
+        long startTime = System.currentTimeMillis(); // Mide el tiempo de inicio de la solicitud completa.
+
+        int numActiveWorkers = registry.size();
+        long lo = Math.max(1L, Math.min(min, max));
+        long hi = Math.max(min, max);
+        // Partes del rango que quedan sin recorrer; se informan al cliente junto con el resultado.
+        List<long[]> missing = new ArrayList<>();
+        // Si no hay workers conectados o se canceló mientras esperaba su turno, se notifica al cliente y se aborta.
+        if (numActiveWorkers == 0 || token.isCancelled()) {
+            if (!token.isCancelled()) {
+                System.err.println(String.format("[Maestro] Error: No hay workers conectados para procesar el rango [%d, %d].", min, max));
+            }
+            if (hi >= lo) {
+                missing.add(new long[]{lo, hi});
+            }
+            ClientJobs.sendCoverage(clientCallback, missing);
+            ClientJobs.sendResults(clientCallback, new long[0], 0L, longResults);
+            return;
+        }
+
+        System.out.println(String.format("[Maestro] Iniciando procesamiento para rango [%d, %d] con %d workers disponibles.", min, max, numActiveWorkers));
+
+        // Reenvía al cliente los resultados parciales y el avance mientras la búsqueda se ejecuta.
+        ProgressForwarder progress = new ProgressForwarder(clientCallback, progressScheduler, progressIntervalMs);
+        // ID de la búsqueda en el diario (0 si no se registra). Se cierra después de responder al cliente,
+        // así que si el Maestro cae antes, al reiniciar se reanuda y el cliente recibe la respuesta igual.
+        long jobId = 0L;
+        try {
+            // Ejecuta la búsqueda real distribuyendo el trabajo a los workers, según el modo configurado.
+            long[] perfectNums;
+            if (PublisherI.MODE_ANALYTIC.equals(searchMode)) {
+                perfectNums = analytic(min, max, false, missing, token);
+            } else if (journal == null || hi < lo) {
+                perfectNums = exhaustive(numActiveWorkers, min, max, progress, missing, token);
+            } else {
+                jobId = journal.startJob(lo, hi, clientCallback.toString(), longResults);
+                perfectNums = searchRanges(numActiveWorkers, lo, hi, Collections.singletonList(new long[]{lo, hi}),
+                        new long[0], jobId, progress, missing, token);
+            }
+            long duration = System.currentTimeMillis() - startTime;
+            progress.finish(); // Lo pendiente sale antes del resultado final.
+            logCoverage(lo, hi, missing);
+
+            System.out.println(String.format("[Maestro] Tarea #%d para rango [%d, %d] %s en %d ms. Enviando resultados al cliente.",
+                    token.jobId(), min, max, token.isCancelled() ? "cancelada" : "completada", duration));
+
+            // Envía los resultados de vuelta al cliente a través del callback, precedidos de su cobertura.
+            ClientJobs.sendCoverage(clientCallback, missing);
+            ClientJobs.sendResults(clientCallback, perfectNums, duration, longResults);
+        } catch (java.lang.Exception e) {
+            // Captura cualquier excepción durante el procesamiento y la reporta.
+            System.err.println(String.format("[Maestro] Error procesando solicitud para rango [%d, %d]: %s", min, max, e.getMessage()));
+            e.printStackTrace();
+            // Notifica al cliente que hubo un error (se envía array vacío y duración 0).
+            progress.finish();
+            ClientJobs.sendCoverage(clientCallback, (hi >= lo) ? Collections.singletonList(new long[]{lo, hi}) : missing);
+            ClientJobs.sendResults(clientCallback, new long[0], 0L, longResults);
+        } finally {
+            if (jobId != 0) {
+                endJournaledJob(jobId);
+            }
+        }
+    }
+
+    /**
+     * Ejecuta un lote asíncrono y envía al cliente la cobertura y el resultado de cada rango por batchResults.
+     * Mientras se ejecuta, el cliente recibe los perfectos y el avance del lote completo como en una búsqueda normal.
+     * @param ranges Rangos pedidos.
+     * @param clientCallback Proxy de callback del cliente.
+     * @param token Cancelación del lote.
+     */
+    public void runBatchRequest(Range[] ranges, ClientCallbackPrx clientCallback, CancellationToken token) {
+        long startTime = System.currentTimeMillis();
+        ProgressForwarder progress = new ProgressForwarder(clientCallback, progressScheduler, progressIntervalMs);
+        List<long[]> missing = new ArrayList<>();
+        RangeResult[] results;
+        try {
+            results = batch(ranges, progress, missing, token);
+        } catch (java.lang.Exception e) {
+            System.err.println(String.format("[Maestro] Error procesando el lote #%d: %s", token.jobId(), e.getMessage()));
+            e.printStackTrace();
+            // Se responde igual: ningún rango quedó recorrido.
+            missing = Ranges.merge(normalizeRanges(ranges));
+            results = new RangeResult[ranges.length];
+            for (int i = 0; i < ranges.length; i++) {
+                results[i] = new RangeResult(ranges[i].minNum, ranges[i].maxNum, new long[0], Ranges.size(ranges[i].minNum, ranges[i].maxNum) == 0);
+            }
+        }
+        long duration = System.currentTimeMillis() - startTime;
+        progress.finish(); // Lo pendiente sale antes del resultado final.
+        logBatch(token.jobId(), results);
+        try {
+            ClientJobs.sendCoverage(clientCallback, missing);
+            clientCallback.batchResults(results, duration);
+        } catch (com.zeroc.Ice.Exception e) {
+            System.err.println(String.format("[Maestro] No se pudo enviar el resultado del lote #%d al cliente: %s", token.jobId(), e.getMessage()));
+        }
+    }
+
+    /**
+     * Busca un lote de rangos como una sola búsqueda: une los que se solapan o son contiguos, busca las partes
+     * resultantes con una sola consulta a la caché y un solo reparto, y luego asigna los perfectos a cada rango pedido.
+     * @param ranges Rangos pedidos, en cualquier orden; pueden solaparse, repetirse o venir invertidos.
+     * @param listener Recibe los resultados parciales y el avance, o null.
+     * @param missing Recibe las partes {inicio, fin} sin recorrer, ordenadas y unidas.
+     * @param token Cancelación del lote.
+     * @return Resultado de cada rango pedido, en el mismo orden que ranges.
+     */
+    public RangeResult[] batch(Range[] ranges, ProgressListener listener, List<long[]> missing, CancellationToken token) {
+        List<long[]> merged = Ranges.merge(normalizeRanges(ranges));
+        long[] perfectNums = new long[0];
+        List<long[]> gaps = new ArrayList<>();
+        if (!merged.isEmpty()) {
+            long lo = merged.get(0)[0];
+            long hi = merged.get(merged.size() - 1)[1];
+            System.out.println(String.format("[Maestro] Lote #%d: %d rangos unidos en %d partes disjuntas de [%d, %d].",
+                    token.jobId(), ranges.length, merged.size(), lo, hi));
+            if (PublisherI.MODE_ANALYTIC.equals(searchMode)) {
+                // El costo de la búsqueda analítica depende de los exponentes candidatos, no del ancho:
+                // se busca una sola vez en la envolvente del lote.
+                perfectNums = analytic(lo, hi, false, gaps, token);
+            } else {
+                perfectNums = searchRanges(registry.size(), lo, hi, merged, new long[0], 0L, listener, gaps, token);
+            }
+        }
+        gaps = Ranges.merge(gaps);
+        missing.addAll(gaps);
+
+        RangeResult[] results = new RangeResult[ranges.length];
+        for (int i = 0; i < ranges.length; i++) {
+            long lo = Math.max(1L, Math.min(ranges[i].minNum, ranges[i].maxNum));
+            long hi = Math.max(ranges[i].minNum, ranges[i].maxNum);
+            long[] nums = SortedLongs.slice(perfectNums, lo, hi);
+            results[i] = new RangeResult(ranges[i].minNum, ranges[i].maxNum, nums, hi < lo || !Ranges.intersects(gaps, lo, hi));
+        }
+        return results;
+    }
+
+    /**
+     * Partes {inicio, fin} de los rangos de un lote que pueden tener perfectos (mayores o iguales que 1), sin unir.
+     */
+    static List<long[]> normalizeRanges(Range[] ranges) {
+        List<long[]> parts = new ArrayList<>();
+        for (Range range : ranges) {
+            long lo = Math.max(1L, Math.min(range.minNum, range.maxNum));
+            long hi = Math.max(range.minNum, range.maxNum);
+            if (hi >= lo) {
+                parts.add(new long[]{lo, hi});
+            }
+        }
+        return parts;
+    }
+
+    /**
+     * Cantidad de números distintos de un lote, para decidir su prioridad (sin desbordar).
+     */
+    static long batchSize(Range[] ranges) {
+        long total = 0;
+        for (long[] part : Ranges.merge(normalizeRanges(ranges))) {
+            long size = part[1] - part[0] + 1;
+            if (size <= 0 || total + size < 0) {
+                return Long.MAX_VALUE;
+            }
+            total += size;
+        }
+        return total;
+    }
+
+    /**
+     * Deja constancia en el log de cuántos rangos de un lote se recorrieron por completo.
+     */
+    static void logBatch(long jobId, RangeResult[] results) {
+        int complete = 0;
+        for (RangeResult result : results) {
+            if (result.complete) {
+                complete++;
+            }
+        }
+        System.out.println(String.format("[Maestro] Lote #%d terminado: %d de %d rangos recorridos por completo.",
+                jobId, complete, results.length));
+    }
+
+    /**
+     * Termina una búsqueda reanudada del diario y responde a su cliente.
+     * @param job Búsqueda abierta en el diario.
+     * @param gaps Subrangos que nunca terminaron.
+     * @param callback Callback del cliente que la pidió, o null si era síncrona o ya no se puede contactar.
+     */
+    public void resume(RangeJournal.OpenJob job, List<long[]> gaps, ClientCallbackPrx callback) {
+        long startTime = System.currentTimeMillis();
+        ProgressForwarder progress = (callback != null) ? new ProgressForwarder(callback, progressScheduler, progressIntervalMs) : null;
+        try {
+            // Espera a que se conecte al menos un worker.
+            List<long[]> missing = new ArrayList<>();
+            long[] perfectNums = searchRanges(1, job.min, job.max, gaps, job.knownResults(), job.id, progress, missing,
+                    new CancellationToken(0));
+            long duration = System.currentTimeMillis() - startTime;
+            System.out.println(String.format("[Maestro] Búsqueda %d del diario en [%d, %d] completada en %d ms. Total perfectos: %d",
+                    job.id, job.min, job.max, duration, perfectNums.length));
+            logCoverage(job.min, job.max, missing);
+            if (callback != null) {
+                progress.finish();
+                ClientJobs.sendCoverage(callback, missing);
+                ClientJobs.sendResults(callback, perfectNums, duration, job.longResults);
+            }
+        } catch (java.lang.Exception e) {
+            // El cliente pudo haberse desconectado mientras el Maestro estaba caído.
+            System.err.println(String.format("[Maestro] Error reanudando la búsqueda %d del diario: %s", job.id, e.getMessage()));
+        } finally {
+            endJournaledJob(job.id);
+        }
+    }
+
+    /**
+     * Cierra una búsqueda en el diario, salvo que el Maestro se esté apagando: en ese caso
+     * la búsqueda pudo quedar a medias y se deja abierta para reanudarla al reiniciar.
+     * @param jobId ID de la búsqueda en el diario.
+     */
+    public void endJournaledJob(long jobId) {
+        if (!shuttingDown) {
+            journal.endJob(jobId);
+        }
+    }
+
+    /**
+     * Deja constancia en el log de si una búsqueda recorrió todo su rango.
+     * @param min Límite inferior de la búsqueda.
+     * @param max Límite superior de la búsqueda.
+     * @param missing Partes {inicio, fin} que quedaron sin recorrer.
+     */
+    static void logCoverage(long min, long max, List<long[]> missing) {
+        if (missing.isEmpty()) {
+            System.out.println(String.format("[Maestro] Cobertura de [%d, %d]: completa.", min, max));
+            return;
+        }
+        long numbers = 0;
+        StringBuilder ranges = new StringBuilder();
+        for (long[] part : Ranges.merge(missing)) {
+            numbers += part[1] - part[0] + 1;
+            ranges.append(ranges.length() > 0 ? ", " : "").append(Arrays.toString(part));
+        }
+        System.err.println(String.format("[Maestro] Cobertura de [%d, %d]: INCOMPLETA, faltan %,d números en %s.",
+                min, max, numbers, ranges));
+    }
+}
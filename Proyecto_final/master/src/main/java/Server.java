@@ -1,4 +1,6 @@
 import com.zeroc.Ice.*;
+import common.Metrics;
+import common.MetricsEndpoint;
 
 
 /**
@@ -16,12 +18,21 @@ public class Server {
             ObjectAdapter adapter = communicator.createObjectAdapter("services");
 
             // Instancia la implementación de Publisher.
-            PublisherI publisher = new PublisherI();
+            // La configuración del Maestro (modo de búsqueda, etc.) se lee de master/properties.cfg.
+            // Si hay un diario de búsquedas, se relee aquí.
+            PublisherI publisher = new PublisherI(communicator);
             // Añade la instancia del Publisher al adaptador con la identidad "publisher".
             adapter.add(publisher, Util.stringToIdentity("publisher"));
             // Activa el adaptador, haciendo que el Maestro comience a escuchar peticiones.
             adapter.activate();
 
+            // Reanuda las búsquedas que quedaron sin terminar en el diario (esperan a que se conecten workers).
+            publisher.resumeJournaledJobs();
+
+            // Publica las métricas en http://127.0.0.1:<Master.MetricsPort>/metrics (0 lo desactiva).
+            MetricsEndpoint metricsEndpoint = startMetricsEndpoint(publisher.metrics(),
+                    communicator.getProperties().getPropertyAsIntWithDefault("Master.MetricsPort", 9464));
+
             System.out.println("Servidor activado. Esperando trabajadores");
             // Asegura que el ExecutorService del Maestro y el Communicator de ICE se apaguen limpiamente
             // cuando la JVM se cierra (ej. por Ctrl+C o salida de programa).
@@ -29,6 +40,9 @@ public class Server {
             final Communicator finalCommunicator = communicator;
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
                 System.out.println("[Maestro Shutdown Hook] Iniciando apagado de servicios del Maestro...");
+                if (metricsEndpoint != null) {
+                    metricsEndpoint.close(); // Libera el puerto de las métricas.
+                }
                 if (finalPublisher != null) {
                     finalPublisher.shutdown(); // Llama al shutdown() de PublisherI para cerrar su pool de hilos.
                 }
@@ -50,4 +64,26 @@ public class Server {
                 System.exit(1);
         }
     }
+
+    /**
+     * Abre el endpoint de métricas. Si el puerto no se puede abrir, el Maestro sigue sin él
+     * (las métricas siguen disponibles con getMetrics).
+     * @param metrics Métricas del Maestro.
+     * @param port Puerto local; 0 o negativo lo desactiva.
+     * @return Endpoint abierto, o null si está desactivado o no se pudo abrir.
+     */
+    private static MetricsEndpoint startMetricsEndpoint(Metrics metrics, int port) {
+        if (port <= 0) {
+            System.out.println("[Maestro] Endpoint de métricas: desactivado.");
+            return null;
+        }
+        try {
+            MetricsEndpoint endpoint = MetricsEndpoint.start(metrics, port);
+            System.out.println("[Maestro] Métricas en http://127.0.0.1:" + endpoint.port() + "/metrics");
+            return endpoint;
+        } catch (java.io.IOException e) {
+            System.err.println("[Maestro] No se pudo abrir el endpoint de métricas en el puerto " + port + ": " + e.getMessage());
+            return null;
+        }
+    }
 }
\ No newline at end of file
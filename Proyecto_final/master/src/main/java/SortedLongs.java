@@ -0,0 +1,151 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Operaciones sobre arrays ordenados de perfectos, sin boxing ni streams.
+ * Los workers devuelven los perfectos de cada rango en orden ascendente, así que el Maestro une los
+ * resultados de trozos, subrangos, caché y búsquedas enganchadas con una mezcla de k vías directamente
+ * en el array que se envía, en lugar de juntarlos en una lista y reordenarlos.
+ */
+final class SortedLongs {
+
+    static final long[] EMPTY = new long[0];
+
+    private SortedLongs() {
+    }
+
+    /**
+     * Une arrays ordenados en un solo array ordenado (conserva los repetidos).
+     * Si los arrays ya van uno detrás de otro (lo habitual: trozos consecutivos de un rango) solo se copian;
+     * si se intercalan, se mezclan con un montículo de k vías. Un array desordenado (por ejemplo, de un worker
+     * anterior) se ordena aparte antes de mezclarlo.
+     * @param parts Arrays a unir; se ignoran los null y los vacíos. No se modifican.
+     * @return Array ordenado con todos los valores. Si solo un array tiene valores, es ese mismo array.
+     */
+    static long[] merge(List<long[]> parts) {
+        long[][] runs = new long[parts.size()][];
+        int k = 0;
+        long total = 0;
+        boolean chained = true;
+        long last = Long.MIN_VALUE;
+        for (long[] part : parts) {
+            if (part == null || part.length == 0) {
+                continue;
+            }
+            long[] run = isSorted(part) ? part : sortedCopy(part);
+            if (run[0] < last) {
+                chained = false;
+            }
+            last = Math.max(last, run[run.length - 1]);
+            runs[k++] = run;
+            total += run.length;
+        }
+        if (k == 0) {
+            return EMPTY;
+        }
+        if (k == 1) {
+            return runs[0];
+        }
+        long[] merged = new long[Math.toIntExact(total)];
+        if (chained) {
+            int pos = 0;
+            for (int i = 0; i < k; i++) {
+                System.arraycopy(runs[i], 0, merged, pos, runs[i].length);
+                pos += runs[i].length;
+            }
+        } else {
+            heapMerge(runs, k, merged);
+        }
+        return merged;
+    }
+
+    /**
+     * Parte de un array ordenado con los valores en [lo, hi].
+     */
+    static long[] slice(long[] sorted, long lo, long hi) {
+        int from = lowerBound(sorted, lo);
+        int to = (hi == Long.MAX_VALUE) ? sorted.length : lowerBound(sorted, hi + 1);
+        if (to <= from) {
+            return EMPTY;
+        }
+        return (from == 0 && to == sorted.length) ? sorted : Arrays.copyOfRange(sorted, from, to);
+    }
+
+    /**
+     * Primer índice cuyo valor es mayor o igual que key.
+     */
+    static int lowerBound(long[] sorted, long key) {
+        int i = Arrays.binarySearch(sorted, key);
+        if (i < 0) {
+            return -i - 1;
+        }
+        while (i > 0 && sorted[i - 1] == key) {
+            i--;
+        }
+        return i;
+    }
+
+    /**
+     * Mezcla de k vías: el montículo guarda los índices de los arrays, ordenados por su próximo valor.
+     * @param runs Arrays ordenados y no vacíos, en las primeras k posiciones.
+     * @param k Cantidad de arrays.
+     * @param out Destino, del tamaño total.
+     */
+    private static void heapMerge(long[][] runs, int k, long[] out) {
+        int[] heap = new int[k];
+        int[] next = new int[k]; // Próxima posición de cada array.
+        for (int i = 0; i < k; i++) {
+            heap[i] = i;
+        }
+        for (int i = k / 2 - 1; i >= 0; i--) {
+            siftDown(heap, k, i, runs, next);
+        }
+        int size = k;
+        int pos = 0;
+        while (size > 0) {
+            int run = heap[0];
+            out[pos++] = runs[run][next[run]++];
+            if (next[run] == runs[run].length) {
+                heap[0] = heap[--size]; // Array agotado: sale del montículo.
+            }
+            if (size > 0) {
+                siftDown(heap, size, 0, runs, next);
+            }
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, int i, long[][] runs, int[] next) {
+        int item = heap[i];
+        long key = runs[item][next[item]];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && runs[heap[child + 1]][next[heap[child + 1]]] < runs[heap[child]][next[heap[child]]]) {
+                child++;
+            }
+            if (runs[heap[child]][next[heap[child]]] >= key) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = item;
+    }
+
+    private static boolean isSorted(long[] values) {
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] < values[i - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long[] sortedCopy(long[] values) {
+        long[] copy = values.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+}
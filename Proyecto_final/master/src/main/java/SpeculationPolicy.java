@@ -0,0 +1,79 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Criterio para lanzar copias especulativas de las partes de una búsqueda que se atrasan.
+ * Una parte se considera atrasada cuando lleva más de factor veces su duración esperada
+ * (costo estimado dividido por la tasa del worker) y al menos minDelayMs. Entonces el Maestro
+ * la entrega también a un worker libre, se queda con el primer resultado y cancela la otra copia.
+ * Los contadores de lanzamientos y de copias que ganaron sirven para ajustar el factor.
+ */
+public class SpeculationPolicy {
+
+    // Veces la duración esperada que puede tardar una parte antes de lanzar una copia (0 desactiva).
+    private final double factor;
+
+    // Espera mínima antes de lanzar una copia, para no duplicar partes cortas por ruido en la medición.
+    private final long minDelayMs;
+
+    // Contadores para ajustar el factor.
+    private final AtomicLong launches = new AtomicLong();      // Copias especulativas lanzadas.
+    private final AtomicLong backupWins = new AtomicLong();    // Copias que terminaron antes que el original.
+    private final AtomicLong originalWins = new AtomicLong();  // Originales que terminaron antes que su copia.
+
+    /**
+     * @param factor Veces la duración esperada antes de considerar atrasada una parte (0 o menos desactiva).
+     * @param minDelayMs Espera mínima en ms antes de lanzar una copia.
+     */
+    public SpeculationPolicy(double factor, long minDelayMs) {
+        this.factor = Math.max(0.0, factor);
+        this.minDelayMs = Math.max(0L, minDelayMs);
+    }
+
+    /**
+     * @return true si se lanzan copias especulativas.
+     */
+    public boolean isEnabled() {
+        return factor > 0;
+    }
+
+    /**
+     * Momento a partir del cual una parte se considera atrasada.
+     * @param startNanos Momento en que se entregó la parte (System.nanoTime).
+     * @param expectedMs Duración esperada en ms (0 o menos si no se puede estimar).
+     * @return Plazo en System.nanoTime; Long.MAX_VALUE si no se especula o no hay estimación.
+     */
+    public long deadlineNanos(long startNanos, double expectedMs) {
+        if (!isEnabled() || !(expectedMs > 0) || Double.isInfinite(expectedMs)) {
+            return Long.MAX_VALUE;
+        }
+        double delayMs = Math.max(minDelayMs, factor * expectedMs);
+        return startNanos + (long) Math.min(delayMs * 1e6, Long.MAX_VALUE / 2.0);
+    }
+
+    /**
+     * Registra el lanzamiento de una copia especulativa.
+     */
+    public void recordLaunch() {
+        launches.incrementAndGet();
+    }
+
+    /**
+     * Registra qué copia terminó primero en una parte que tenía copia especulativa.
+     * @param backupWon true si ganó la copia; false si ganó el original.
+     */
+    public void recordWinner(boolean backupWon) {
+        (backupWon ? backupWins : originalWins).incrementAndGet();
+    }
+
+    /**
+     * Describe el criterio y los contadores para los logs.
+     * @return Factor, espera mínima, lanzamientos y ganadores.
+     */
+    public String describe() {
+        if (!isEnabled()) {
+            return "desactivada";
+        }
+        return String.format("factor %.1f, espera mínima %d ms, copias lanzadas %d, ganó la copia %d, ganó el original %d",
+                factor, minDelayMs, launches.get(), backupWins.get(), originalWins.get());
+    }
+}
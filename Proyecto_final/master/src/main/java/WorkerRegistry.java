@@ -0,0 +1,195 @@
+import Demo.SubscriberPrx;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Registro de los workers conectados al Maestro, sin bloqueos.
+ * Cada alta o baja publica una foto inmutable y versionada de los workers; las búsquedas reparten
+ * sobre una misma foto aunque mientras tanto lleguen o se vayan workers. Quien necesita N workers
+ * espera con un futuro que se completa al publicarse una foto que los tenga, sin retener ningún monitor.
+ */
+public class WorkerRegistry {
+
+    /**
+     * Foto inmutable de los workers registrados en un momento dado.
+     */
+    public static final class Snapshot {
+        // Número de la foto: crece en uno con cada alta o baja.
+        public final long version;
+        // Proxies de los workers por ID, en orden de ID.
+        private final Map<Integer, SubscriberPrx> workers;
+
+        private Snapshot(long version, Map<Integer, SubscriberPrx> workers) {
+            this.version = version;
+            this.workers = Collections.unmodifiableMap(workers);
+        }
+
+        public int size() {
+            return workers.size();
+        }
+
+        public boolean isEmpty() {
+            return workers.isEmpty();
+        }
+
+        public boolean contains(int workerId) {
+            return workers.containsKey(workerId);
+        }
+
+        /**
+         * @return Proxy del worker, o null si no estaba registrado en esta foto.
+         */
+        public SubscriberPrx get(int workerId) {
+            return workers.get(workerId);
+        }
+
+        /**
+         * @return Workers por ID, en orden de ID (no modificable).
+         */
+        public Map<Integer, SubscriberPrx> workers() {
+            return workers;
+        }
+
+        /**
+         * @return IDs de los workers, en orden.
+         */
+        public List<Integer> ids() {
+            return new ArrayList<>(workers.keySet());
+        }
+
+        /**
+         * @return Proxies de los workers, en el mismo orden que ids().
+         */
+        public List<SubscriberPrx> proxies() {
+            return new ArrayList<>(workers.values());
+        }
+    }
+
+    /**
+     * Espera de una búsqueda por una cantidad mínima de workers.
+     */
+    private static final class Waiter {
+        final int minWorkers;
+        final CompletableFuture<Snapshot> future = new CompletableFuture<>();
+
+        Waiter(int minWorkers) {
+            this.minWorkers = minWorkers;
+        }
+    }
+
+    // Foto vigente; se reemplaza entera en cada cambio.
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(new Snapshot(0, new TreeMap<>()));
+
+    // Contador para asignar IDs únicos a los workers.
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    // Búsquedas esperando workers.
+    private final ConcurrentLinkedQueue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @return Foto vigente de los workers.
+     */
+    public Snapshot snapshot() {
+        return current.get();
+    }
+
+    /**
+     * @return Cantidad de workers registrados ahora.
+     */
+    public int size() {
+        return current.get().size();
+    }
+
+    /**
+     * Reserva un ID para un worker nuevo, sin registrarlo todavía: así se puede preparar
+     * (capacidad, ID en el worker) antes de que las búsquedas lo vean.
+     * @return ID asignado.
+     */
+    public int reserveId() {
+        return nextId.getAndIncrement();
+    }
+
+    /**
+     * Registra un worker y despierta a las búsquedas que ya tienen los workers que esperaban.
+     * @param workerId ID reservado con reserveId.
+     * @param worker Proxy del worker.
+     * @return Foto publicada con el worker.
+     */
+    public Snapshot add(int workerId, SubscriberPrx worker) {
+        Snapshot published = update(workerId, worker);
+        signalWaiters(published);
+        return published;
+    }
+
+    /**
+     * Quita un worker. Si dos hilos quitan el mismo worker a la vez, solo uno lo consigue.
+     * @param workerId ID del worker.
+     * @return true si estaba registrado y esta llamada lo quitó.
+     */
+    public boolean remove(int workerId) {
+        while (true) {
+            Snapshot old = current.get();
+            if (!old.contains(workerId)) {
+                return false;
+            }
+            Map<Integer, SubscriberPrx> workers = new TreeMap<>(old.workers);
+            workers.remove(workerId);
+            if (current.compareAndSet(old, new Snapshot(old.version + 1, workers))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Espera a que haya al menos minWorkers workers registrados.
+     * El futuro se puede cancelar para dejar de esperar.
+     * @param minWorkers Cantidad mínima de workers.
+     * @return Futuro que se completa con la primera foto que los tiene (ya completo si la vigente los tiene).
+     */
+    public CompletableFuture<Snapshot> awaitWorkers(int minWorkers) {
+        Snapshot now = current.get();
+        if (now.size() >= minWorkers) {
+            return CompletableFuture.completedFuture(now);
+        }
+        Waiter waiter = new Waiter(minWorkers);
+        waiters.add(waiter);
+        // Un alta publicada entre la lectura anterior y el add no vio a este waiter: se revisa de nuevo.
+        signalWaiters(current.get());
+        return waiter.future;
+    }
+
+    private Snapshot update(int workerId, SubscriberPrx worker) {
+        while (true) {
+            Snapshot old = current.get();
+            Map<Integer, SubscriberPrx> workers = new TreeMap<>(old.workers);
+            workers.put(workerId, worker);
+            Snapshot updated = new Snapshot(old.version + 1, workers);
+            if (current.compareAndSet(old, updated)) {
+                return updated;
+            }
+        }
+    }
+
+    /**
+     * Completa las esperas satisfechas por la foto y descarta las canceladas.
+     * Completar dos veces el mismo futuro no tiene efecto, así que puede llamarse desde varios hilos.
+     */
+    private void signalWaiters(Snapshot snapshot) {
+        for (Waiter waiter : waiters) {
+            if (waiter.future.isDone()) {
+                waiters.remove(waiter);
+            } else if (snapshot.size() >= waiter.minWorkers) {
+                waiters.remove(waiter);
+                waiter.future.complete(snapshot);
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import Demo.Chunk;
+import Demo.ChunkResult;
+
+class ChunkSchedulerTest {
+
+    private static ChunkScheduler scheduler(RangePartitioner partitioner) {
+        return new ChunkScheduler(partitioner, new SpeculationPolicy(0, 0));
+    }
+
+    @Test
+    void batchIsBoundedByCapacityShare() {
+        RangePartitioner partitioner = new RangePartitioner(RangePartitioner.Strategy.COST);
+        partitioner.registerCapacity(1, 1, 3e6);
+        partitioner.registerCapacity(2, 1, 1e6);
+        ChunkScheduler scheduler = scheduler(partitioner);
+        scheduler.submit(0L, 1, 3200, 32, List.of(1, 2), CostModel.UNIFORM, null);
+
+        // El worker 1 tiene 3/4 de la capacidad: se lleva 3/4 de los trozos pendientes aunque pida más,
+        // y el worker 2, 1/4 de los que quedan.
+        assertEquals(24, scheduler.pull(1, new ChunkResult[0], 100).length);
+        assertEquals(2, scheduler.pull(2, new ChunkResult[0], 100).length);
+        assertTrue(scheduler.hasPendingWork());
+    }
+
+    @Test
+    void resultsCompleteJobInOrderAndIgnoreRepeats() {
+        RangePartitioner partitioner = new RangePartitioner(RangePartitioner.Strategy.COST);
+        ChunkScheduler scheduler = scheduler(partitioner);
+        ChunkScheduler.PullJob job = scheduler.submit(0L, 1, 40, 4, List.of(1), CostModel.UNIFORM, null);
+
+        Chunk[] batch = scheduler.pull(1, new ChunkResult[0], 10);
+        assertEquals(4, batch.length);
+        ChunkResult[] results = new ChunkResult[batch.length];
+        for (int i = batch.length - 1; i >= 0; i--) {
+            long[] perfect = (batch[i].minNum <= 28 && 28 <= batch[i].maxNum) ? new long[]{28}
+                    : (batch[i].minNum <= 6 && 6 <= batch[i].maxNum) ? new long[]{6} : new long[0];
+            results[batch.length - 1 - i] = new ChunkResult(batch[i].jobId, batch[i].chunkId, perfect);
+        }
+        scheduler.report(1, new ChunkResult[]{results[0]});
+        assertFalse(job.done.isDone());
+        // Los resultados ya recibidos vuelven a llegar con el pull siguiente.
+        assertEquals(0, scheduler.pull(1, results, 10).length);
+        assertTrue(job.done.isDone());
+        assertArrayEquals(new long[]{6, 28}, job.done.join());
+    }
+
+    @Test
+    void releasedChunksGoBackToTheQueue() {
+        RangePartitioner partitioner = new RangePartitioner(RangePartitioner.Strategy.COST);
+        ChunkScheduler scheduler = scheduler(partitioner);
+        scheduler.submit(0L, 1, 100, 4, List.of(1, 2), CostModel.UNIFORM, null);
+
+        Chunk[] taken = scheduler.pull(1, new ChunkResult[0], 2);
+        assertEquals(2, taken.length);
+        assertEquals(2, scheduler.releaseWorker(1));
+        // Los trozos devueltos salen de la cola antes que los que nunca se entregaron.
+        Chunk[] retaken = scheduler.pull(2, new ChunkResult[0], 10);
+        assertEquals(2, retaken.length);
+        assertEquals(Set.of(taken[0].chunkId, taken[1].chunkId), Set.of(retaken[0].chunkId, retaken[1].chunkId));
+    }
+}
@@ -0,0 +1,84 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import common.Metrics;
+
+class ClientJobsTest {
+
+    private final ExecutorService pool = Executors.newSingleThreadExecutor();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+    // IDs que se pidió cancelar en los workers.
+    private final List<Long> cancelledOnWorkers = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    private ClientJobs clientJobs(int maxRunning) {
+        JobScheduler scheduler = new JobScheduler(pool, maxRunning, 10, new Metrics());
+        return new ClientJobs(scheduler, Runnable::run, timer, jobId -> {
+            synchronized (cancelledOnWorkers) {
+                cancelledOnWorkers.add(jobId);
+            }
+        });
+    }
+
+    private static JobScheduler.Admission submit(ClientJobs jobs, CancellationToken token, long deadlineMs, Runnable body) {
+        return jobs.submit(token, null, null, "local", JobScheduler.Priority.INTERACTIVE, "test", 100, deadlineMs, body);
+    }
+
+    @Test
+    void queuedJobCancelledByIdRespondsWithoutWaitingItsTurn() throws Exception {
+        ClientJobs jobs = clientJobs(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CancellationToken running = new CancellationToken(1);
+        assertTrue(submit(jobs, running, 0, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }).accepted);
+
+        CancellationToken queued = new CancellationToken(2);
+        List<Boolean> ranCancelled = new ArrayList<>();
+        assertEquals(1, submit(jobs, queued, 0, () -> ranCancelled.add(queued.isCancelled())).position);
+
+        // La búsqueda encolada responde enseguida, en el hilo de las respuestas, aunque la otra siga ocupando el pool.
+        assertTrue(jobs.cancel(2, "test"));
+        assertEquals(List.of(true), ranCancelled);
+        assertEquals(List.of(2L), cancelledOnWorkers);
+        // Terminada, ya no se puede cancelar.
+        assertFalse(jobs.cancel(2, "test"));
+        assertFalse(jobs.cancel(99, "test"));
+        release.countDown();
+    }
+
+    @Test
+    void deadlineCancelsRunningJob() throws Exception {
+        ClientJobs jobs = clientJobs(1);
+        CancellationToken token = new CancellationToken(7);
+        CountDownLatch finished = new CountDownLatch(1);
+        submit(jobs, token, 50, () -> {
+            token.future().join(); // Busca hasta que la cancelen.
+            finished.countDown();
+        });
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertTrue(token.isCancelled());
+        assertEquals(List.of(7L), cancelledOnWorkers);
+    }
+}
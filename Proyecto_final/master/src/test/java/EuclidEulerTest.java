@@ -0,0 +1,62 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import common.Primes;
+
+class EuclidEulerTest {
+
+    // Exponentes de Mersenne hasta 31: sus perfectos son los únicos pares que caben en un long.
+    private static final int[] MERSENNE_EXPONENTS = {2, 3, 5, 7, 13, 17, 19, 31};
+    private static final long[] PERFECTS = {6, 28, 496, 8128, 33_550_336, 8_589_869_056L, 137_438_691_328L,
+            2_305_843_008_139_952_128L};
+
+    @Test
+    void perfectFromExponentGivesTheKnownPerfects() {
+        for (int i = 0; i < MERSENNE_EXPONENTS.length; i++) {
+            assertEquals(PERFECTS[i], EuclidEuler.perfectFromExponent(MERSENNE_EXPONENTS[i]));
+        }
+    }
+
+    @Test
+    void boundsOnAndNextToEachPerfect() {
+        for (int p : MERSENNE_EXPONENTS) {
+            long perfect = EuclidEuler.perfectFromExponent(p);
+            String at = "p = " + p;
+            assertArrayEquals(new int[]{p}, EuclidEuler.candidateExponents(perfect, perfect), at);
+            assertArrayEquals(new int[]{p}, EuclidEuler.candidateExponents(perfect - 1, perfect), at);
+            assertArrayEquals(new int[]{p}, EuclidEuler.candidateExponents(perfect, perfect + 1), at);
+            assertArrayEquals(new int[0], EuclidEuler.candidateExponents(perfect - 1, perfect - 1), at);
+            assertArrayEquals(new int[0], EuclidEuler.candidateExponents(perfect + 1, perfect + 1), at);
+            // Hasta el candidato siguiente, excluido, no hay otro exponente.
+            long next = EuclidEuler.perfectFromExponent(p + 1);
+            assertArrayEquals(new int[0], EuclidEuler.candidateExponents(perfect + 1, next - 1), at);
+        }
+    }
+
+    @Test
+    void compositeExponentsAreNeverCandidates() {
+        for (int p = 4; p <= EuclidEuler.MAX_EXPONENT; p++) {
+            if (!Primes.isPrime(p)) {
+                long candidate = EuclidEuler.perfectFromExponent(p);
+                assertArrayEquals(new int[0], EuclidEuler.candidateExponents(candidate, candidate), "p = " + p);
+            }
+        }
+        // Los primos que no son de Mersenne (11, 23, 29) sí son candidatos: los descarta Lucas–Lehmer en el worker.
+        assertArrayEquals(new int[]{2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31},
+                EuclidEuler.candidateExponents(1, Long.MAX_VALUE));
+    }
+
+    @Test
+    void maxExponentIsTheLastThatFitsInALong() {
+        long last = EuclidEuler.perfectFromExponent(EuclidEuler.MAX_EXPONENT);
+        assertEquals((1L << 31) * ((1L << 32) - 1), last);
+        assertTrue(last > EuclidEuler.perfectFromExponent(EuclidEuler.MAX_EXPONENT - 1));
+        // 32 es compuesto y con p = 33 el candidato ya no cabe: por encima del perfecto de 31 no hay nada.
+        assertArrayEquals(new int[0], EuclidEuler.candidateExponents(PERFECTS[PERFECTS.length - 1] + 1, Long.MAX_VALUE));
+        assertArrayEquals(new int[0], EuclidEuler.candidateExponents(last, Long.MAX_VALUE));
+        assertArrayEquals(new int[0], EuclidEuler.candidateExponents(Long.MAX_VALUE, Long.MAX_VALUE));
+    }
+}
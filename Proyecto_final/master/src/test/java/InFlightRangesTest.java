@@ -0,0 +1,75 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class InFlightRangesTest {
+
+    @Test
+    void claimSplitsIntoAttachedAndOwnedParts() {
+        InFlightRanges inFlight = new InFlightRanges();
+        InFlightRanges.Claim first = inFlight.claim(List.of(new long[]{100, 199}, new long[]{300, 399}));
+        assertTrue(first.attached.isEmpty());
+        assertEquals(2, first.owned.size());
+
+        // [50, 450] se solapa con los dos intervalos en curso: se enganchan y el resto queda propio.
+        InFlightRanges.Claim second = inFlight.claim(List.of(new long[]{50, 450}));
+        assertEquals(2, second.attached.size());
+        assertEquals(100, second.attached.get(0).lo);
+        assertEquals(199, second.attached.get(0).hi);
+        assertEquals(300, second.attached.get(1).lo);
+        assertEquals(399, second.attached.get(1).hi);
+        assertEquals(3, second.owned.size());
+        assertArrayEquals(new long[]{50, 99}, second.owned.get(0));
+        assertArrayEquals(new long[]{200, 299}, second.owned.get(1));
+        assertArrayEquals(new long[]{400, 450}, second.owned.get(2));
+
+        // Un rango dentro de un intervalo en curso no deja nada propio.
+        InFlightRanges.Claim inner = inFlight.claim(List.of(new long[]{120, 130}));
+        assertEquals(1, inner.attached.size());
+        assertTrue(inner.owned.isEmpty());
+    }
+
+    @Test
+    void attachedPartCompletesWhenItsPiecesFinish() {
+        InFlightRanges inFlight = new InFlightRanges();
+        inFlight.claim(List.of(new long[]{1, 10_000}));
+        InFlightRanges.Attached part = inFlight.claim(List.of(new long[]{1, 500})).attached.get(0);
+
+        ProgressListener tracker = inFlight.tracker(null);
+        tracker.rangeCompleted(1, 100, new long[]{6, 28}, 100);
+        assertFalse(part.future.isDone());
+        // Tramos fuera de orden: la parte se completa en cuanto queda cubierta, sin esperar a [1, 10000].
+        tracker.rangeCompleted(401, 1000, new long[]{496}, 600);
+        tracker.rangeCompleted(101, 400, new long[0], 300);
+        assertTrue(part.future.isDone());
+        assertArrayEquals(new long[]{6, 28, 496}, part.future.join());
+
+        // Una parte ya cubierta al engancharse se completa de inmediato.
+        InFlightRanges.Attached late = inFlight.claim(List.of(new long[]{20, 30})).attached.get(0);
+        assertArrayEquals(new long[]{28}, late.future.join());
+    }
+
+    @Test
+    void completeAndAbandonResolvePendingParts() {
+        InFlightRanges inFlight = new InFlightRanges();
+        inFlight.claim(List.of(new long[]{1, 1000}));
+        InFlightRanges.Attached covered = inFlight.claim(List.of(new long[]{1, 10})).attached.get(0);
+        InFlightRanges.Attached pending = inFlight.claim(List.of(new long[]{400, 600})).attached.get(0);
+        inFlight.progress(1, 100, new long[]{6, 28});
+        assertArrayEquals(new long[]{6}, covered.future.join());
+
+        inFlight.abandon(1);
+        assertTrue(pending.future.isCompletedExceptionally());
+        // Abandonado el intervalo, el rango vuelve a quedar libre.
+        assertEquals(1, inFlight.claim(List.of(new long[]{1, 1000})).owned.size());
+
+        InFlightRanges.Attached whole = inFlight.claim(List.of(new long[]{400, 600})).attached.get(0);
+        inFlight.complete(1, new long[]{6, 28, 496});
+        assertArrayEquals(new long[]{496}, whole.future.join());
+    }
+}
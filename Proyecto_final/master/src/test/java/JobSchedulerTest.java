@@ -0,0 +1,145 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import common.Metrics;
+
+class JobSchedulerTest {
+
+    /**
+     * Pool que no ejecuta nada por su cuenta: las búsquedas corren, de a una, cuando el test llama a runNext.
+     */
+    private static final class ManualExecutor extends AbstractExecutorService {
+        final ArrayDeque<Runnable> pending = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            pending.addLast(command);
+        }
+
+        void runNext() {
+            pending.pollFirst().run();
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return new ArrayList<>(pending);
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+
+    private static JobScheduler.Admission submit(JobScheduler scheduler, String client, JobScheduler.Priority priority,
+                                                 String name, List<String> order) {
+        return scheduler.submit(client, priority, 1000, () -> order.add(name));
+    }
+
+    @Test
+    void clientsTakeTurnsWithinAPriority() {
+        ManualExecutor executor = new ManualExecutor();
+        JobScheduler scheduler = new JobScheduler(executor, 1, 10, new Metrics());
+        List<String> order = new ArrayList<>();
+        JobScheduler.Priority interactive = JobScheduler.Priority.INTERACTIVE;
+        assertEquals(0, submit(scheduler, "a", interactive, "a0", order).position);
+        submit(scheduler, "a", interactive, "a1", order);
+        submit(scheduler, "a", interactive, "a2", order);
+        submit(scheduler, "a", interactive, "a3", order);
+        // El cliente b llega después, pero no espera a que terminen todas las de a.
+        assertEquals(2, submit(scheduler, "b", interactive, "b1", order).position);
+        // Las interactivas salen antes que una de lote encolada antes que ellas.
+        submit(scheduler, "c", JobScheduler.Priority.BATCH, "c1", order);
+        submit(scheduler, "a", interactive, "a4", order);
+
+        while (!executor.pending.isEmpty()) {
+            executor.runNext();
+        }
+        assertEquals(List.of("a0", "a1", "b1", "a2", "a3", "a4", "c1"), order);
+    }
+
+    @Test
+    void batchJobsLeaveASlotForInteractiveOnes() {
+        ManualExecutor executor = new ManualExecutor();
+        JobScheduler scheduler = new JobScheduler(executor, 2, 10, new Metrics());
+        List<String> order = new ArrayList<>();
+        assertEquals(0, submit(scheduler, "a", JobScheduler.Priority.BATCH, "batch1", order).position);
+        // Con dos lugares, la segunda de lote espera aunque haya uno libre...
+        assertEquals(1, submit(scheduler, "b", JobScheduler.Priority.BATCH, "batch2", order).position);
+        // ...que queda para la interactiva.
+        assertEquals(0, submit(scheduler, "c", JobScheduler.Priority.INTERACTIVE, "quick", order).position);
+        assertEquals(2, executor.pending.size());
+
+        executor.runNext();
+        assertEquals(2, executor.pending.size()); // Terminó batch1 y empezó batch2.
+        executor.runNext();
+        executor.runNext();
+        assertEquals(List.of("batch1", "quick", "batch2"), order);
+    }
+
+    @Test
+    void fullQueueRejectsOnlyJobsThatCannotStart() {
+        ManualExecutor executor = new ManualExecutor();
+        JobScheduler scheduler = new JobScheduler(executor, 2, 1, new Metrics());
+        List<String> order = new ArrayList<>();
+        assertTrue(submit(scheduler, "a", JobScheduler.Priority.BATCH, "batch1", order).accepted);
+        assertTrue(submit(scheduler, "a", JobScheduler.Priority.BATCH, "batch2", order).accepted);
+        // La cola (de un lugar) está llena: otra de lote se rechaza, pero una interactiva tiene su lugar.
+        JobScheduler.Admission rejected = submit(scheduler, "b", JobScheduler.Priority.BATCH, "batch3", order);
+        assertFalse(rejected.accepted);
+        assertEquals(-1, rejected.position);
+        assertTrue(submit(scheduler, "b", JobScheduler.Priority.INTERACTIVE, "quick", order).accepted);
+        // Con los dos lugares ocupados, una interactiva más también se rechaza.
+        assertFalse(submit(scheduler, "c", JobScheduler.Priority.INTERACTIVE, "quick2", order).accepted);
+
+        assertTrue(scheduler.describe().contains("rechazadas 2"));
+
+        // Al terminar batch1 empieza batch2 y la cola vuelve a tener lugar; lo encolado se puede quitar.
+        executor.runNext();
+        Runnable task = () -> order.add("late");
+        assertTrue(scheduler.submit("c", JobScheduler.Priority.BATCH, 1000, task).accepted);
+        assertTrue(scheduler.cancel(task));
+        assertFalse(scheduler.cancel(task));
+    }
+
+    @Test
+    void gaugesReadTheLiveSchedulerThroughRender() {
+        ManualExecutor executor = new ManualExecutor();
+        Metrics metrics = new Metrics();
+        JobScheduler scheduler = new JobScheduler(executor, 1, 10, metrics);
+        List<String> order = new ArrayList<>();
+        submit(scheduler, "a", JobScheduler.Priority.INTERACTIVE, "a1", order);
+        submit(scheduler, "b", JobScheduler.Priority.INTERACTIVE, "b1", order);
+
+        String rendered = metrics.render();
+        assertTrue(rendered.contains("perfect_master_jobs_running 1\n"), rendered);
+        assertTrue(rendered.contains("perfect_master_jobs_queued 1\n"), rendered);
+
+        // Un segundo planificador sobre las mismas métricas dejaría los indicadores leyendo el primero.
+        assertThrows(IllegalStateException.class, () -> new JobScheduler(executor, 1, 10, metrics));
+    }
+}
@@ -0,0 +1,190 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import Demo.SubscriberPrx;
+import common.Metrics;
+
+class PushDispatcherTest {
+
+    /**
+     * Llamada de calculatePerfectNumLongAsync a un worker falso; el test la completa o la hace fallar.
+     */
+    private static final class Call {
+        final int workerId;
+        final long from;
+        final long to;
+        final CompletableFuture<long[]> future = new CompletableFuture<>();
+
+        Call(int workerId, long from, long to) {
+            this.workerId = workerId;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    private final BlockingQueue<Call> calls = new LinkedBlockingQueue<>();
+    private final WorkerRegistry registry = new WorkerRegistry();
+    private final List<Integer> workerIds = new ArrayList<>();
+    private final List<SubscriberPrx> workers = new ArrayList<>();
+    private ScheduledExecutorService timer;
+    private PushDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        timer = Executors.newSingleThreadScheduledExecutor();
+        // Partes de igual ancho y sin copias especulativas: solo cuentan los puntos de control y los fallos.
+        dispatcher = new PushDispatcher(new RangePartitioner(RangePartitioner.Strategy.WIDTH), new SpeculationPolicy(0, 0),
+                registry, new Metrics(), timer);
+    }
+
+    @AfterEach
+    void tearDown() {
+        timer.shutdownNow();
+    }
+
+    private int addWorker() {
+        int id = registry.reserveId();
+        SubscriberPrx proxy = (SubscriberPrx) Proxy.newProxyInstance(SubscriberPrx.class.getClassLoader(),
+                new Class<?>[]{SubscriberPrx.class}, (self, method, args) -> {
+                    if (!method.getName().equals("calculatePerfectNumLongAsync")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    Call call = new Call(id, (Long) args[0], (Long) args[1]);
+                    calls.add(call);
+                    return call.future;
+                });
+        registry.add(id, proxy);
+        workerIds.add(id);
+        workers.add(proxy);
+        return id;
+    }
+
+    private CompletableFuture<RangeOutcome> search(long min, long max) {
+        return CompletableFuture.supplyAsync(() -> dispatcher.search(min, max, workerIds, workers, CostModel.UNIFORM,
+                null, new CancellationToken(1)));
+    }
+
+    private Call nextCall() throws InterruptedException {
+        Call call = calls.poll(5, TimeUnit.SECONDS);
+        assertNotNull(call, "no llegó la llamada esperada");
+        return call;
+    }
+
+    private static void assertCall(int workerId, long from, long to, Call call) {
+        assertEquals(workerId, call.workerId);
+        assertEquals(from, call.from);
+        assertEquals(to, call.to);
+    }
+
+    @Test
+    void tailStartsAfterTheContiguousCheckpoints() throws Exception {
+        int first = addWorker();
+        int second = addWorker();
+        CompletableFuture<RangeOutcome> outcome = search(1, 1000);
+        Call a = nextCall();
+        Call b = nextCall();
+        assertCall(first, 1, 500, a);
+        assertCall(second, 501, 1000, b);
+        b.future.complete(new long[0]); // El segundo queda libre para el tramo reasignado.
+
+        // Desordenados, repetidos y con un hueco: lo cubierto llega hasta 200.
+        dispatcher.checkpoint(first, 1, 500, 101, 200, new long[0]);
+        dispatcher.checkpoint(first, 1, 500, 301, 400, new long[0]);
+        dispatcher.checkpoint(first, 1, 500, 1, 100, new long[]{6, 28});
+        dispatcher.checkpoint(first, 1, 500, 1, 100, new long[]{6, 28});
+        dispatcher.checkpoint(first, 1, 500, 51, 150, new long[]{100});
+        dispatcher.checkpoint(first, 1, 500, 450, 600, new long[0]); // Fuera del tramo.
+        a.future.completeExceptionally(new IllegalStateException("conexión perdida"));
+
+        Call tail = nextCall();
+        assertCall(second, 201, 500, tail);
+        tail.future.complete(new long[]{496});
+
+        RangeOutcome result = outcome.get(5, TimeUnit.SECONDS);
+        assertTrue(result.complete);
+        assertArrayEquals(new long[]{6, 28, 496}, result.perfectNums);
+        assertNull(calls.poll());
+    }
+
+    @Test
+    void missingStartsAfterTheCoverageWhenNoWorkerIsLeft() throws Exception {
+        int first = addWorker();
+        int second = addWorker();
+        CompletableFuture<RangeOutcome> outcome = search(1, 10_000);
+        Call a = nextCall();
+        Call b = nextCall();
+        b.future.complete(new long[]{8128});
+
+        dispatcher.checkpoint(first, 1, 5000, 1, 100, new long[]{6, 28});
+        a.future.completeExceptionally(new IllegalStateException("conexión perdida"));
+        Call tail = nextCall();
+        assertCall(second, 101, 5000, tail);
+
+        // El tramo reasignado informa con su propio inicio; lo cubierto se suma a lo del primer worker.
+        dispatcher.checkpoint(second, 101, 5000, 201, 300, new long[0]);
+        dispatcher.checkpoint(second, 101, 5000, 101, 200, new long[0]);
+        dispatcher.checkpoint(second, 101, 5000, 301, 600, new long[]{496});
+        dispatcher.checkpoint(second, 1, 5000, 601, 700, new long[0]); // Clave del tramo anterior: se ignora.
+        tail.future.completeExceptionally(new IllegalStateException("conexión perdida"));
+
+        RangeOutcome result = outcome.get(5, TimeUnit.SECONDS);
+        assertFalse(result.complete);
+        assertEquals(1, result.missing.size());
+        assertArrayEquals(new long[]{601, 5000}, result.missing.get(0));
+        assertArrayEquals(new long[]{6, 28, 496, 8128}, result.perfectNums);
+        assertNull(calls.poll());
+    }
+
+    @Test
+    void checkpointsCoveringTheWholeSliceCompleteItWithoutATail() throws Exception {
+        int only = addWorker();
+        CompletableFuture<RangeOutcome> outcome = search(1, 1000);
+        Call a = nextCall();
+        assertCall(only, 1, 1000, a);
+
+        dispatcher.checkpoint(only, 1, 1000, 501, 1000, new long[0]);
+        dispatcher.checkpoint(only, 1, 1000, 1, 500, new long[]{6, 28, 496});
+        a.future.completeExceptionally(new IllegalStateException("conexión perdida"));
+
+        RangeOutcome result = outcome.get(5, TimeUnit.SECONDS);
+        assertTrue(result.complete);
+        assertArrayEquals(new long[]{6, 28, 496}, result.perfectNums);
+    }
+
+    @Test
+    void workerLeftTheRegistryGetsNoTail() throws Exception {
+        int first = addWorker();
+        int second = addWorker();
+        CompletableFuture<RangeOutcome> outcome = search(1, 1000);
+        Call a = nextCall();
+        Call b = nextCall();
+        b.future.complete(new long[0]);
+        registry.remove(second); // Terminó su parte, pero ya no está registrado.
+
+        dispatcher.checkpoint(first, 1, 500, 1, 250, new long[]{6, 28});
+        a.future.completeExceptionally(new IllegalStateException("conexión perdida"));
+
+        RangeOutcome result = outcome.get(5, TimeUnit.SECONDS);
+        assertArrayEquals(new long[]{251, 500}, result.missing.get(0));
+        assertArrayEquals(new long[]{6, 28}, result.perfectNums);
+        assertNull(calls.poll());
+    }
+}
@@ -0,0 +1,65 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class RangeCacheTest {
+
+    @Test
+    void lookupReturnsKnownPerfectsAndGaps() {
+        RangeCache cache = new RangeCache(1 << 20);
+        cache.put(1, 100, new long[]{6, 28});
+        cache.put(400, 600, new long[]{496});
+
+        RangeCache.Lookup lookup = cache.lookup(20, 1000);
+        assertArrayEquals(new long[]{28, 496}, lookup.perfectNums);
+        assertEquals(2, lookup.gaps.size());
+        assertArrayEquals(new long[]{101, 399}, lookup.gaps.get(0));
+        assertArrayEquals(new long[]{601, 1000}, lookup.gaps.get(1));
+
+        RangeCache.Lookup miss = cache.lookup(2000, 3000);
+        assertEquals(0, miss.perfectNums.length);
+        assertEquals(1, miss.gaps.size());
+        assertArrayEquals(new long[]{2000, 3000}, miss.gaps.get(0));
+    }
+
+    @Test
+    void overlappingAndAdjacentRangesMerge() {
+        RangeCache cache = new RangeCache(1 << 20);
+        cache.put(1, 100, new long[]{6, 28});
+        cache.put(50, 300, new long[]{});
+        cache.put(301, 500, new long[]{496});
+        // Se repite un perfecto ya guardado: la fusión no lo duplica.
+        cache.put(20, 30, new long[]{28});
+
+        RangeCache.Lookup lookup = cache.lookup(1, 500);
+        assertTrue(lookup.gaps.isEmpty());
+        assertArrayEquals(new long[]{6, 28, 496}, lookup.perfectNums);
+        assertTrue(cache.describe().contains("intervalos 1"), cache.describe());
+    }
+
+    @Test
+    void leastRecentlyUsedRangeIsEvicted() {
+        // Cabe justo dos intervalos sin perfectos (96 bytes estimados cada uno).
+        RangeCache cache = new RangeCache(200);
+        cache.put(1, 10, new long[0]);
+        cache.put(21, 30, new long[0]);
+        cache.lookup(1, 10); // [1, 10] pasa a ser el más reciente.
+        cache.put(41, 50, new long[0]);
+
+        assertTrue(cache.lookup(1, 10).gaps.isEmpty());
+        assertTrue(cache.lookup(41, 50).gaps.isEmpty());
+        assertArrayEquals(new long[]{21, 30}, cache.lookup(21, 30).gaps.get(0));
+        assertTrue(cache.describe().contains("descartes 1"), cache.describe());
+    }
+
+    @Test
+    void zeroBudgetDisablesCache() {
+        RangeCache cache = new RangeCache(0);
+        assertFalse(cache.isEnabled());
+        cache.put(1, 100, new long[]{6, 28});
+        assertEquals(1, cache.lookup(1, 100).gaps.size());
+    }
+}
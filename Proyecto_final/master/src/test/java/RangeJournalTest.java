@@ -0,0 +1,161 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RangeJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private RangeJournal open() throws IOException {
+        return new RangeJournal(dir.resolve("master.journal"), 0);
+    }
+
+    private static List<long[]> drain(RangeJournal journal) {
+        List<long[]> ranges = new ArrayList<>();
+        journal.drainReplayedRanges((range, perfectNums) -> ranges.add(range));
+        return ranges;
+    }
+
+    @Test
+    void replayStopsAtATornRecord() throws IOException {
+        RangeJournal journal = open();
+        long id = journal.startJob(1, 1000, "cb -t:tcp -h localhost -p 10000", true);
+        journal.recordRange(id, 1, 100, new long[]{6, 28});
+        journal.recordRange(id, 401, 500, new long[]{496});
+        Path active = journal.activeFile();
+        journal.close();
+
+        // Corrompe un byte de los datos del último registro: su CRC deja de coincidir, como si la
+        // JVM hubiera caído mientras se copiaba.
+        // Cabecera del archivo (16 bytes) y registros {largo, CRC32, datos}: el tercero empieza tras los dos primeros.
+        int header = 16;
+        int startRecord = 8 + 1 + 3 * Long.BYTES + 1 + Short.BYTES + "cb -t:tcp -h localhost -p 10000".length();
+        int firstRange = 8 + 1 + 3 * Long.BYTES + Integer.BYTES + 2 * Long.BYTES;
+        long tornPayload = header + startRecord + firstRange + 8 + 10;
+        try (FileChannel file = FileChannel.open(active, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            file.read(b, tornPayload);
+            b.put(0, (byte) (b.get(0) ^ 0x5A));
+            file.write(b.flip(), tornPayload);
+        }
+
+        RangeJournal reopened = open();
+        assertEquals(1, reopened.openJobs().size());
+        RangeJournal.OpenJob job = reopened.openJobs().get(0);
+        assertEquals(id, job.id);
+        assertEquals("cb -t:tcp -h localhost -p 10000", job.callback);
+        assertTrue(job.longResults);
+        assertArrayEquals(new long[]{6, 28}, job.knownResults());
+        assertEquals(1, job.gaps().size());
+        assertArrayEquals(new long[]{101, 1000}, job.gaps().get(0));
+
+        // Los IDs nuevos siguen a los leídos y se puede seguir escribiendo tras el registro roto.
+        long next = reopened.startJob(5, 6, "", false);
+        assertTrue(next > id);
+        reopened.close();
+        assertEquals(2, open().openJobs().size());
+    }
+
+    @Test
+    void compactionKeepsOnlyOpenJobsWithMergedCoverage() throws IOException {
+        RangeJournal journal = open();
+        long finished = journal.startJob(1, 50, "", false);
+        journal.recordRange(finished, 1, 50, new long[]{6, 28});
+        journal.endJob(finished);
+        long open = journal.startJob(1, 1000, "", false);
+        journal.recordRange(open, 101, 200, new long[0]);
+        journal.recordRange(open, 1, 100, new long[]{6, 28});
+        journal.close();
+
+        // Al abrir se releen los registros tal como se escribieron y se compacta.
+        RangeJournal first = open();
+        assertEquals(3, drain(first).size());
+        first.close();
+
+        // Tras la compactación solo queda la búsqueda abierta, con un intervalo fusionado.
+        RangeJournal compacted = open();
+        List<long[]> ranges = drain(compacted);
+        assertEquals(1, ranges.size());
+        assertArrayEquals(new long[]{1, 200}, ranges.get(0));
+        assertEquals(1, compacted.openJobs().size());
+        RangeJournal.OpenJob job = compacted.openJobs().get(0);
+        assertEquals(open, job.id);
+        assertArrayEquals(new long[]{6, 28}, job.knownResults());
+        assertArrayEquals(new long[]{201, 1000}, job.gaps().get(0));
+        compacted.close();
+    }
+
+    @Test
+    void compactingTwiceInARowAlternatesFilesAndKeepsOpenJobs() throws IOException {
+        RangeJournal journal = open();
+        long finished = journal.startJob(1, 50, "", false);
+        journal.recordRange(finished, 1, 50, new long[]{6, 28});
+        journal.endJob(finished);
+        long open = journal.startJob(1, 1000, "", false);
+        journal.recordRange(open, 1, 100, new long[]{6, 28});
+
+        Path before = journal.activeFile();
+        journal.compact();
+        Path first = journal.activeFile();
+        assertNotEquals(before, first);
+        journal.recordRange(open, 101, 200, new long[0]);
+        journal.compact();
+        // Vuelve al primer archivo, que sigue mapeado por la primera generación: se reescribe sin reemplazarlo.
+        assertEquals(before, journal.activeFile());
+        journal.recordRange(open, 201, 300, new long[0]);
+        journal.close();
+
+        assertTrue(Files.exists(dir.resolve("master.journal.0")));
+        assertTrue(Files.exists(dir.resolve("master.journal.1")));
+        try (var listing = Files.list(dir)) {
+            assertEquals(2, listing.count());
+        }
+
+        // Manda la última generación: la búsqueda abierta con [1, 200] fusionado y el tramo escrito después.
+        RangeJournal reopened = open();
+        assertEquals(2, drain(reopened).size());
+        assertEquals(1, reopened.openJobs().size());
+        RangeJournal.OpenJob job = reopened.openJobs().get(0);
+        assertEquals(open, job.id);
+        assertArrayEquals(new long[]{6, 28}, job.knownResults());
+        assertEquals(1, job.gaps().size());
+        assertArrayEquals(new long[]{301, 1000}, job.gaps().get(0));
+        reopened.close();
+    }
+
+    @Test
+    void gapsMergeOverlappingAndAdjacentRanges() {
+        RangeJournal.OpenJob job = new RangeJournal.OpenJob(1, 10, 100, "", false);
+        assertEquals(1, job.gaps().size());
+        assertArrayEquals(new long[]{10, 100}, job.gaps().get(0));
+
+        job.addRange(40, 49, new long[0]);
+        job.addRange(20, 29, new long[]{28});
+        job.addRange(30, 39, new long[0]); // Contiguo a los dos: une [20, 49].
+        job.addRange(45, 60, new long[0]); // Solapado.
+        job.addRange(1, 12, new long[]{6});   // Empieza antes de min.
+        List<long[]> gaps = job.gaps();
+        assertEquals(2, gaps.size());
+        assertArrayEquals(new long[]{13, 19}, gaps.get(0));
+        assertArrayEquals(new long[]{61, 100}, gaps.get(1));
+
+        job.addRange(61, 200, new long[0]);
+        job.addRange(13, 19, new long[0]);
+        assertEquals(0, job.gaps().size());
+        assertArrayEquals(new long[]{6, 28}, job.knownResults());
+    }
+}
@@ -0,0 +1,41 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class RangesTest {
+
+    @Test
+    void mergeSortsAndJoinsOverlappingAndAdjacentParts() {
+        List<long[]> parts = List.of(new long[]{50, 60}, new long[]{1, 10}, new long[]{11, 20}, new long[]{55, 70});
+        List<long[]> merged = Ranges.merge(parts);
+        assertEquals(2, merged.size());
+        assertArrayEquals(new long[]{1, 20}, merged.get(0));
+        assertArrayEquals(new long[]{50, 70}, merged.get(1));
+        // La lista recibida no se modifica.
+        assertArrayEquals(new long[]{50, 60}, parts.get(0));
+    }
+
+    @Test
+    void complementAndFlattenDescribeTheCoveredParts() {
+        List<long[]> gaps = List.of(new long[]{1, 5}, new long[]{20, 30});
+        List<long[]> covered = Ranges.complement(1, 40, gaps);
+        assertArrayEquals(new long[]{6, 19, 31, 40}, Ranges.flatten(covered));
+        // Un hueco que llega hasta el final no deja nada después.
+        assertArrayEquals(new long[]{1, 9}, Ranges.flatten(Ranges.complement(1, 20, List.of(new long[]{10, 25}))));
+        assertTrue(Ranges.complement(1, 10, List.of(new long[]{1, 10})).isEmpty());
+    }
+
+    @Test
+    void intersectsStopsAtTheFirstGapPastTheRange() {
+        List<long[]> gaps = List.of(new long[]{10, 19}, new long[]{40, 49});
+        assertTrue(Ranges.intersects(gaps, 15, 30));
+        assertTrue(Ranges.intersects(gaps, 49, 60));
+        assertFalse(Ranges.intersects(gaps, 20, 39));
+        assertFalse(Ranges.intersects(gaps, 1, 9));
+    }
+}
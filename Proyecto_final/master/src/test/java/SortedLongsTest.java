@@ -0,0 +1,34 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class SortedLongsTest {
+
+    @Test
+    void mergeChainsConsecutiveRuns() {
+        long[] first = {6, 28};
+        assertArrayEquals(new long[]{6, 28, 496, 8128}, SortedLongs.merge(Arrays.asList(first, null, new long[0], new long[]{496, 8128})));
+        // Con un solo array con valores se devuelve ese mismo array, sin copiarlo.
+        assertSame(first, SortedLongs.merge(Arrays.asList(new long[0], first)));
+        assertSame(SortedLongs.EMPTY, SortedLongs.merge(List.of()));
+    }
+
+    @Test
+    void mergeInterleavesAndSortsUnsortedRuns() {
+        long[] merged = SortedLongs.merge(List.of(new long[]{1, 5, 9}, new long[]{2, 5, 10}, new long[]{8, 3, 0}));
+        assertArrayEquals(new long[]{0, 1, 2, 3, 5, 5, 8, 9, 10}, merged);
+    }
+
+    @Test
+    void sliceKeepsValuesInClosedRange() {
+        long[] sorted = {6, 28, 28, 496, 8128};
+        assertArrayEquals(new long[]{28, 28, 496}, SortedLongs.slice(sorted, 28, 496));
+        assertArrayEquals(new long[0], SortedLongs.slice(sorted, 29, 495));
+        assertSame(sorted, SortedLongs.slice(sorted, 1, Long.MAX_VALUE));
+        assertArrayEquals(new long[]{8128}, SortedLongs.slice(sorted, 497, Long.MAX_VALUE));
+    }
+}
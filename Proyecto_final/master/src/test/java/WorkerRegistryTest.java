@@ -0,0 +1,79 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class WorkerRegistryTest {
+
+    @Test
+    void awaitWorkersNeverMissesAConcurrentAdd() throws Exception {
+        // Cada vuelta compite un alta contra varias esperas: ninguna puede quedar colgada.
+        for (int round = 0; round < 500; round++) {
+            WorkerRegistry registry = new WorkerRegistry();
+            CountDownLatch go = new CountDownLatch(1);
+            Thread adder = new Thread(() -> {
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 3; i++) {
+                    registry.add(registry.reserveId(), null); // El proxy no importa al registro.
+                }
+            });
+            adder.start();
+            go.countDown();
+            List<CompletableFuture<WorkerRegistry.Snapshot>> waits = new ArrayList<>();
+            for (int n = 1; n <= 3; n++) {
+                waits.add(registry.awaitWorkers(n));
+            }
+            adder.join();
+            for (int n = 1; n <= 3; n++) {
+                WorkerRegistry.Snapshot snapshot = waits.get(n - 1).get(5, TimeUnit.SECONDS);
+                assertTrue(snapshot.size() >= n, "ronda " + round + ": foto con " + snapshot.size() + " workers para " + n);
+            }
+        }
+    }
+
+    @Test
+    void snapshotsAreImmutableAndVersioned() {
+        WorkerRegistry registry = new WorkerRegistry();
+        WorkerRegistry.Snapshot empty = registry.snapshot();
+        int first = registry.reserveId();
+        int second = registry.reserveId();
+        WorkerRegistry.Snapshot one = registry.add(first, null);
+        registry.add(second, null);
+
+        assertEquals(0, empty.size());
+        assertEquals(1, one.size());
+        assertEquals(List.of(first, second), registry.snapshot().ids());
+        assertTrue(registry.snapshot().version > one.version);
+
+        // Solo una de dos bajas del mismo worker lo quita.
+        assertTrue(registry.remove(first));
+        assertFalse(registry.remove(first));
+        assertEquals(List.of(second), registry.snapshot().ids());
+    }
+
+    @Test
+    void pendingWaitCompletesOnlyWhenEnoughWorkersArrive() {
+        WorkerRegistry registry = new WorkerRegistry();
+        CompletableFuture<WorkerRegistry.Snapshot> wait = registry.awaitWorkers(2);
+        CompletableFuture<WorkerRegistry.Snapshot> cancelled = registry.awaitWorkers(2);
+        cancelled.cancel(false);
+
+        registry.add(registry.reserveId(), null);
+        assertFalse(wait.isDone());
+        registry.add(registry.reserveId(), null);
+        assertEquals(2, wait.join().size());
+        assertTrue(cancelled.isCancelled());
+        assertTrue(registry.awaitWorkers(2).isDone());
+    }
+}
@@ -1,6 +1,8 @@
 import Demo.PublisherPrx;
 import Demo.SubscriberPrx;
 import com.zeroc.Ice.*;
+import common.Metrics;
+import common.MetricsEndpoint;
 
 /**
  * Clase principal para la aplicación del Worker.
@@ -14,7 +16,9 @@ public class ClientWorker {
         // Inicializa el comunicador de ICE, leyendo la configuración de worker/properties.cfg.
         try(Communicator communicator = Util.initialize(args,"properties.cfg")) {
 
-            subscriber = new SubscriberI(); // Instancia la implementación del Subscriber.
+            // Kernel de cálculo: "auto" calibra los kernels al iniciar; un nombre concreto lo fuerza.
+            String kernelMode = communicator.getProperties().getPropertyWithDefault("Worker.Kernel", KernelSelector.AUTO);
+            subscriber = new SubscriberI(kernelMode); // Instancia la implementación del Subscriber.
 
             // Crea un ObjectAdapter para publicar el servicio del Worker.
             // El nombre del adaptador ("Subscriber") y el endpoint se configuran en properties.cfg.
@@ -38,18 +42,42 @@ public class ClientWorker {
                 throw new RuntimeException("Error: No se pudo obtener el proxy del Maestro. Verifique 'publisher.proxy' en worker/properties.cfg y asegúrese de que el Maestro esté activo.");
             }
 
+            // En modo pull el worker pide trozos de trabajo al Maestro; Worker.ChunkBatch fija cuántos por llamada.
+            subscriber.setPublisher(publisher, communicator.getProperties().getPropertyAsIntWithDefault("Worker.ChunkBatch", 2));
+
             System.out.println("Worker " + workerId + ": Intentando registrarse con el Maestro en " + communicator.propertyToProxy("publisher.proxy") + "...");
-            int assignedIdByMaster = publisher.addSubscriber(subscriberPrx);
+            // Se registra declarando su capacidad, para que el Maestro le asigne trabajo en proporción a ella.
+            int assignedIdByMaster = publisher.registerWorker(subscriberPrx, subscriber.workerInfo());
             // Actualiza el ID del worker con el ID definitivo asignado por el Maestro
             System.out.println("Worker " + workerId + ": ¡Registrado exitosamente con el Maestro! ID asignado: " + assignedIdByMaster);
 
+            // Reporta periódicamente su carga al Maestro (Worker.LoadReportInterval, en ms; 0 lo desactiva).
+            subscriber.startLoadReports(communicator.getProperties().getPropertyAsIntWithDefault("Worker.LoadReportInterval", 2000));
+            // Envía latidos al Maestro (Worker.HeartbeatInterval, en ms; 0 los desactiva) para que no lo dé por caído.
+            subscriber.startHeartbeats(subscriberPrx, communicator.getProperties().getPropertyAsIntWithDefault("Worker.HeartbeatInterval", 1000));
+            // Informa el avance de los subrangos largos del modo push en tramos (Worker.CheckpointSegments).
+            subscriber.setCheckpointSegments(communicator.getProperties().getPropertyAsIntWithDefault("Worker.CheckpointSegments", 8));
+            // Publica las métricas en http://127.0.0.1:<Worker.MetricsPort>/metrics (0 lo desactiva).
+            MetricsEndpoint metricsEndpoint = startMetricsEndpoint(subscriber.metrics(), workerId,
+                    communicator.getProperties().getPropertyAsIntWithDefault("Worker.MetricsPort", 9465));
+
             // Asegura que el ExecutorService del Worker y el Communicator de ICE se apaguen limpiamente
             // cuando la JVM se cierra (ej. por Ctrl+C o salida de programa).
             final SubscriberI finalSubscriber = subscriber;
             final Communicator finalCommunicator = communicator;
             final String finalWorkerId = workerId; // Para usar en el mensaje del hook
+            final PublisherPrx finalPublisher = publisher;
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
                 System.out.println("[Worker Shutdown Hook] Iniciando apagado de servicios del Worker " + finalWorkerId + "...");
+                if (metricsEndpoint != null) {
+                    metricsEndpoint.close(); // Libera el puerto de las métricas.
+                }
+                // Se desregistra primero, para que el Maestro deje de asignarle trabajo y reparta sus trozos.
+                try {
+                    finalPublisher.removeSubscriber(finalSubscriber.getId());
+                } catch (java.lang.Exception e) {
+                    System.err.println("[Worker Shutdown Hook] No se pudo desregistrar del Maestro: " + e.getMessage());
+                }
                 if (finalSubscriber != null) {
                     finalSubscriber.shutdown(); // Llama al shutdown() de SubscriberI para cerrar su pool de hilos.
                 }
@@ -76,4 +104,26 @@ public class ClientWorker {
             System.exit(1);
         }
     }
+
+    /**
+     * Abre el endpoint de métricas. Si el puerto no se puede abrir (ej. otro worker en la misma máquina
+     * ya lo usa), el worker sigue sin él.
+     * @param metrics Métricas del worker.
+     * @param workerId ID local del worker, para el log.
+     * @param port Puerto local; 0 o negativo lo desactiva.
+     * @return Endpoint abierto, o null si está desactivado o no se pudo abrir.
+     */
+    private static MetricsEndpoint startMetricsEndpoint(Metrics metrics, String workerId, int port) {
+        if (port <= 0) {
+            return null;
+        }
+        try {
+            MetricsEndpoint endpoint = MetricsEndpoint.start(metrics, port);
+            System.out.println("Worker " + workerId + ": Métricas en http://127.0.0.1:" + endpoint.port() + "/metrics");
+            return endpoint;
+        } catch (java.io.IOException e) {
+            System.err.println("Worker " + workerId + ": No se pudo abrir el endpoint de métricas en el puerto " + port + ": " + e.getMessage());
+            return null;
+        }
+    }
 }
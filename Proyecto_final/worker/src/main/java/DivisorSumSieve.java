@@ -0,0 +1,196 @@
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+import common.LongList;
+
+/**
+ * Criba segmentada de suma de divisores.
+ * Calcula la suma de divisores propios s(n) = σ(n) - n para todos los números de un subrango
+ * recorriéndolo en segmentos de tamaño acotado (pensados para caber en la caché del procesador),
+ * en lugar de probar cada divisor de cada número por separado.
+ * Un número n es perfecto si y solo si s(n) == n.
+ *
+ * Una instancia reutiliza su buffer entre segmentos, por lo que no es segura entre hilos:
+ * cada hilo de cálculo debe usar su propia instancia.
+ */
+public class DivisorSumSieve {
+
+    // Tamaño de segmento por defecto (en números). 32768 sumas de tipo long ocupan 256 KB,
+    // lo que cabe en la caché L2 de la mayoría de procesadores actuales.
+    public static final int SEGMENT_SIZE = 1 << 15;
+
+    // Tamaño máximo de segmento. Acota la memoria por instancia aunque el rango sea muy alto.
+    public static final int MAX_SEGMENT_SIZE = 1 << 20;
+
+    // Hasta este valor la suma de divisores propios no puede desbordar un long:
+    // s(n) < 6n para todo n < 2^63 (cota de Robin), y 8 · SAFE_SUM_LIMIT ≤ Long.MAX_VALUE.
+    static final long SAFE_SUM_LIMIT = Long.MAX_VALUE / 8;
+
+    // Tamaño de segmento mínimo configurado para esta instancia.
+    private final int segmentSize;
+
+    // Buffer de sumas del segmento actual. Se reserva de forma perezosa y se reutiliza.
+    private long[] sums = new long[0];
+
+    /**
+     * Crea una criba con el tamaño de segmento por defecto.
+     */
+    public DivisorSumSieve() {
+        this(SEGMENT_SIZE);
+    }
+
+    /**
+     * Crea una criba con un tamaño de segmento específico.
+     * @param segmentSize Cantidad de números procesados por segmento (mayor que 0).
+     */
+    public DivisorSumSieve(int segmentSize) {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("El tamaño de segmento debe ser positivo: " + segmentSize);
+        }
+        this.segmentSize = Math.min(segmentSize, MAX_SEGMENT_SIZE);
+    }
+
+    /**
+     * Busca los números perfectos del rango [minNum, maxNum] recorriéndolo segmento a segmento.
+     * Los valores menores que 1 se ignoran (no son enteros positivos).
+     * @param minNum Límite inferior del rango.
+     * @param maxNum Límite superior del rango.
+     * @return Lista ordenada de números perfectos encontrados.
+     */
+    public LongList findPerfectNumbers(long minNum, long maxNum) {
+        return findPerfectNumbers(minNum, maxNum, PerfectNumberKernel.NOT_CANCELLED);
+    }
+
+    /**
+     * Igual que findPerfectNumbers(long, long), pero se detiene antes de cada segmento si cancelled devuelve true.
+     * @param minNum Límite inferior del rango.
+     * @param maxNum Límite superior del rango.
+     * @param cancelled Condición de cancelación.
+     * @return Lista ordenada de números perfectos encontrados hasta terminar o cancelar.
+     */
+    public LongList findPerfectNumbers(long minNum, long maxNum, BooleanSupplier cancelled) {
+        LongList perfectNums = new LongList();
+        long lo = Math.max(1L, Math.min(minNum, maxNum));
+        long hi = Math.max(minNum, maxNum);
+        if (hi < lo) {
+            return perfectNums;
+        }
+
+        // El recorrido de divisores cuesta O(√hi) por segmento; si el segmento es más pequeño que √hi
+        // ese costo fijo domina, así que se agranda el segmento hasta √hi (con el tope MAX_SEGMENT_SIZE).
+        int length = segmentLengthFor(hi);
+
+        long segStart = lo;
+        while (!cancelled.getAsBoolean()) {
+            int len = (int) Math.min(length, hi - segStart + 1);
+            fillSegment(segStart, len);
+            for (int k = 0; k < len; k++) {
+                if (sums[k] == segStart + k) {
+                    perfectNums.add(segStart + k);
+                }
+            }
+            if (hi - segStart < len) {
+                break; // Último segmento. Se evita sumar más allá de hi (puede ser Long.MAX_VALUE).
+            }
+            segStart += len;
+        }
+        return perfectNums;
+    }
+
+    /**
+     * Calcula s(n) para n en [lo, lo + len) y lo deja en las primeras len posiciones del buffer.
+     * Cada par de divisores (d, n/d) con d ≤ √n se suma en una sola pasada secuencial por múltiplo de d.
+     * Por debajo de SAFE_SUM_LIMIT las sumas no pueden desbordarse; por encima se saturan en
+     * Long.MAX_VALUE, valor que nunca coincide con un n del segmento, así que no hay falsos positivos.
+     * @param lo Primer número del segmento (mayor o igual que 1).
+     * @param len Cantidad de números del segmento.
+     */
+    void fillSegment(long lo, int len) {
+        if (sums.length < len) {
+            sums = new long[len];
+        }
+        long hi = lo + (len - 1);
+        boolean saturate = hi > SAFE_SUM_LIMIT;
+
+        // El divisor 1 divide a todos los números; n = 1 no tiene divisores propios.
+        Arrays.fill(sums, 0, len, 1L);
+        if (lo == 1) {
+            sums[0] = 0L;
+        }
+
+        for (long d = 2; d <= hi / d; d++) {
+            // Primer múltiplo de d dentro del segmento que tenga a d como el menor de su par (m ≥ d²).
+            long rem = lo % d;
+            long firstMultiple = (rem == 0) ? lo : lo + (d - rem);
+            if (firstMultiple < 0 || firstMultiple > hi) {
+                continue; // Ningún múltiplo de d en el segmento (negativo indica que se pasó de Long.MAX_VALUE).
+            }
+            long first = Math.max(d * d, firstMultiple);
+            if (first > hi) {
+                continue;
+            }
+            long q = first / d;  // Divisor complementario, avanza en 1 por cada múltiplo.
+            long idx = first - lo; // Índice long: d puede superar el rango de int cuando hi es muy grande.
+            if (q == d) {
+                // Cuadrado perfecto: d y n/d coinciden, se suma una sola vez.
+                sums[(int) idx] += d;
+                idx += d;
+                q++;
+            }
+            if (saturate) {
+                for (; idx < len; idx += d, q++) {
+                    long sum = sums[(int) idx] + (d + q);
+                    sums[(int) idx] = (sum < 0) ? Long.MAX_VALUE : sum;
+                }
+            } else {
+                for (; idx < len; idx += d, q++) {
+                    sums[(int) idx] += d + q;
+                }
+            }
+        }
+    }
+
+    /**
+     * Estima el costo de findPerfectNumbers(lo, hi) con el tamaño de segmento por defecto:
+     * cada número recibe unos ln(√hi) sumas (una por divisor d ≤ √n, con probabilidad 1/d)
+     * y cada segmento paga además un recorrido fijo de √hi divisores.
+     * @param lo Límite inferior del rango.
+     * @param hi Límite superior del rango.
+     * @return Costo estimado, en iteraciones del bucle interno.
+     */
+    static double estimateCost(long lo, long hi) {
+        double length = (double) hi - lo + 1;
+        double sqrtHi = Math.sqrt((double) hi);
+        double segments = Math.ceil(length / segmentLength(SEGMENT_SIZE, hi));
+        return length * (1.0 + Math.log(Math.max(sqrtHi, 1.0))) + segments * sqrtHi;
+    }
+
+    /**
+     * Devuelve s(n) calculado en el último segmento para la posición indicada.
+     * @param offset Posición dentro del segmento (n - lo).
+     * @return Suma de divisores propios del número.
+     */
+    long sumAt(int offset) {
+        return sums[offset];
+    }
+
+    /**
+     * Calcula el largo de segmento a usar para un rango cuyo valor máximo es hi.
+     * @param hi Límite superior del rango.
+     * @return Largo del segmento, entre el tamaño configurado y MAX_SEGMENT_SIZE.
+     */
+    private int segmentLengthFor(long hi) {
+        return segmentLength(segmentSize, hi);
+    }
+
+    /**
+     * Largo de segmento para un tamaño configurado y un límite superior dados.
+     * @param segmentSize Tamaño de segmento mínimo.
+     * @param hi Límite superior del rango.
+     * @return Largo del segmento, entre segmentSize y MAX_SEGMENT_SIZE.
+     */
+    private static int segmentLength(int segmentSize, long hi) {
+        long sqrtHi = (long) Math.sqrt((double) hi) + 1;
+        return (int) Math.min(MAX_SEGMENT_SIZE, Math.max(segmentSize, sqrtHi));
+    }
+}
@@ -0,0 +1,277 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Selecciona el kernel de cálculo del worker según el tamaño del rango.
+ * Al iniciar el worker se ejecuta una calibración corta que mide la tasa (números/s) de cada
+ * kernel candidato para varios tamaños de rango representativos, en varias magnitudes de los números,
+ * y se queda en cada tamaño con el que menos se aleja del más rápido de cada magnitud: el costo por
+ * número crece distinto en cada kernel, así que el más rápido cerca de 10^6 puede no serlo cerca de 10^12.
+ * La calibración tarda del orden de un segundo; si eso importa, la propiedad Worker.Kernel fuerza un
+ * kernel concreto y el worker solo mide su tasa.
+ */
+public class KernelSelector {
+
+    // Valor de la propiedad Worker.Kernel que activa la selección automática por calibración.
+    public static final String AUTO = "auto";
+
+    // Tamaños de rango representativos para los que se elige un kernel.
+    // Un rango usa el kernel del primer tamaño mayor o igual a su longitud.
+    static final int[] SIZE_BUCKETS = {1_000, 100_000, 10_000_000};
+
+    // Inicio de los rangos de calibración. La tasa que se informa al Maestro es la medida en esta
+    // magnitud (ver RangePartitioner.CALIBRATION_BASE del Maestro).
+    static final long CALIBRATION_BASE = 1_000_000L;
+
+    // Magnitudes de los números en que se mide cada kernel, empezando por CALIBRATION_BASE.
+    static final long[] CALIBRATION_MAGNITUDES = {CALIBRATION_BASE, 1_000_000_000L, 1_000_000_000_000L};
+
+    // Tiempo máximo de cada medición. Si el rango completo tarda más, se extrapola.
+    static final long MEASURE_BUDGET_NANOS = 40_000_000L;
+
+    // Tiempo de calentamiento de cada kernel antes de medirlo. El kernel vectorial necesita más:
+    // solo es rápido cuando C2 ya reemplazó las operaciones de la Vector API.
+    static final long WARMUP_NANOS = 50_000_000L;
+    static final long VECTOR_WARMUP_NANOS = 150_000_000L;
+
+    // Nombre del kernel vectorial, que solo está disponible con el módulo jdk.incubator.vector.
+    static final String VECTOR_KERNEL = "simd";
+
+    // Kernel elegido y tasa medida en CALIBRATION_BASE (números/s) para cada tamaño de SIZE_BUCKETS.
+    private final PerfectNumberKernel[] selected = new PerfectNumberKernel[SIZE_BUCKETS.length];
+    private final double[] rates = new double[SIZE_BUCKETS.length];
+    // Tasas de cada candidato, por tamaño y magnitud, para elegir y comparar en los logs.
+    private final List<PerfectNumberKernel> candidates;
+    private final double[][][] candidateRates;
+    // Aviso a mostrar si el kernel pedido no estaba disponible (o null).
+    private final String fallbackNote;
+    // Reloj de las mediciones, en nanosegundos (System::nanoTime salvo en las pruebas).
+    private final LongSupplier clock;
+
+    /**
+     * Crea un selector calibrado con los kernels candidatos indicados.
+     * @param candidates Kernels entre los que se elige (al menos uno).
+     * @param fallbackNote Aviso para los logs si se reemplazó el kernel pedido, o null.
+     * @param clock Reloj de las mediciones, en nanosegundos.
+     */
+    KernelSelector(List<PerfectNumberKernel> candidates, String fallbackNote, LongSupplier clock) {
+        this.candidates = candidates;
+        this.candidateRates = new double[SIZE_BUCKETS.length][CALIBRATION_MAGNITUDES.length][candidates.size()];
+        this.fallbackNote = fallbackNote;
+        this.clock = clock;
+        calibrate(candidates);
+    }
+
+    /**
+     * Kernels disponibles en el worker.
+     * @return Lista con el kernel ingenuo, el de división hasta √n, el de criba y, si la JVM tiene
+     *         la Vector API, el de división vectorizada.
+     */
+    public static List<PerfectNumberKernel> availableKernels() {
+        List<PerfectNumberKernel> kernels = new ArrayList<>(Arrays.asList(new NaiveKernel(), new SqrtTrialKernel(), new SieveKernel()));
+        PerfectNumberKernel vector = vectorKernel();
+        if (vector != null) {
+            kernels.add(vector);
+        }
+        return kernels;
+    }
+
+    /**
+     * Crea el kernel vectorial si se puede usar: la JVM debe haber arrancado con
+     * --add-modules jdk.incubator.vector y el hardware debe tener vectores de más de un carril.
+     * La clase se carga por reflexión para que el resto del worker no dependa del módulo.
+     * @return Kernel vectorial, o null si no está disponible.
+     */
+    static PerfectNumberKernel vectorKernel() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            Class<?> type = Class.forName("VectorTrialKernel");
+            if (!(Boolean) type.getDeclaredMethod("isAccelerated").invoke(null)) {
+                return null;
+            }
+            return (PerfectNumberKernel) type.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Construye el selector a partir del valor de la propiedad Worker.Kernel.
+     * @param mode "auto" para calibrar todos los kernels, o el nombre de un kernel para forzarlo.
+     * @return Selector calibrado.
+     * @throws IllegalArgumentException Si el nombre no corresponde a ningún kernel.
+     */
+    public static KernelSelector create(String mode) {
+        List<PerfectNumberKernel> kernels = availableKernels();
+        if (mode == null || mode.isBlank() || AUTO.equalsIgnoreCase(mode.trim())) {
+            return new KernelSelector(kernels, null, System::nanoTime);
+        }
+        for (PerfectNumberKernel kernel : kernels) {
+            if (kernel.name().equalsIgnoreCase(mode.trim())) {
+                return new KernelSelector(List.of(kernel), null, System::nanoTime);
+            }
+        }
+        if (VECTOR_KERNEL.equalsIgnoreCase(mode.trim())) {
+            // Pedido pero sin Vector API: se sigue con la versión escalar del mismo algoritmo.
+            return new KernelSelector(List.of(new SqrtTrialKernel()), "Kernel '" + VECTOR_KERNEL
+                    + "' no disponible (requiere --add-modules jdk.incubator.vector y hardware SIMD); se usa 'sqrt'.",
+                    System::nanoTime);
+        }
+        throw new IllegalArgumentException("Kernel desconocido en Worker.Kernel: '" + mode + "'. Valores válidos: auto, naive, sqrt, sieve, simd.");
+    }
+
+    /**
+     * Devuelve el kernel elegido para un rango de la longitud indicada.
+     * @param rangeSize Cantidad de números del rango.
+     * @return Kernel a usar.
+     */
+    public PerfectNumberKernel kernelFor(long rangeSize) {
+        return selected[bucketFor(rangeSize)];
+    }
+
+    /**
+     * Devuelve la tasa medida en la calibración para el kernel elegido en ese tamaño de rango,
+     * con números de la magnitud CALIBRATION_BASE.
+     * @param rangeSize Cantidad de números del rango.
+     * @return Números evaluados por segundo.
+     */
+    public double rateFor(long rangeSize) {
+        return rates[bucketFor(rangeSize)];
+    }
+
+    /**
+     * Describe la selección para los logs, un tamaño por línea.
+     * @return Texto con el kernel y la tasa de cada tamaño de rango.
+     */
+    public String describe() {
+        StringBuilder sb = new StringBuilder();
+        if (fallbackNote != null) {
+            sb.append(fallbackNote).append(System.lineSeparator());
+        }
+        for (int b = 0; b < SIZE_BUCKETS.length; b++) {
+            if (b > 0) {
+                sb.append(System.lineSeparator());
+            }
+            sb.append(String.format("Rangos de hasta %,d números: kernel '%s' (%,.0f números/s)",
+                    SIZE_BUCKETS[b], selected[b].name(), rates[b]));
+            if (candidates.size() > 1) {
+                // Tasas de cada candidato en cada magnitud de calibración.
+                sb.append(";");
+                for (int m = 0; m < CALIBRATION_MAGNITUDES.length; m++) {
+                    sb.append(String.format(" en %.0e:", (double) CALIBRATION_MAGNITUDES[m]));
+                    String sep = " ";
+                    for (int c = 0; c < candidates.size(); c++) {
+                        sb.append(String.format("%s'%s' %,.0f", sep, candidates.get(c).name(), candidateRates[b][m][c]));
+                        sep = ", ";
+                    }
+                    sb.append(m < CALIBRATION_MAGNITUDES.length - 1 ? ";" : "");
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Mide cada candidato en cada tamaño de rango y magnitud, y elige para cada tamaño el que en promedio
+     * queda más cerca del más rápido de cada magnitud (menor lentitud relativa media).
+     * @param candidates Kernels a medir.
+     */
+    private void calibrate(List<PerfectNumberKernel> candidates) {
+        // Calentamiento para que el JIT compile los bucles antes de medir. Se repite durante un tiempo fijo.
+        for (PerfectNumberKernel kernel : candidates) {
+            long warmupEnd = clock.getAsLong() + (VECTOR_KERNEL.equals(kernel.name()) ? VECTOR_WARMUP_NANOS : WARMUP_NANOS);
+            do {
+                kernel.findPerfectNumbers(CALIBRATION_BASE, CALIBRATION_BASE + 255);
+            } while (clock.getAsLong() < warmupEnd);
+        }
+        for (int b = 0; b < SIZE_BUCKETS.length; b++) {
+            double[][] bucketRates = candidateRates[b];
+            for (int c = 0; c < candidates.size(); c++) {
+                PerfectNumberKernel kernel = candidates.get(c);
+                bucketRates[0][c] = measureRate(kernel, CALIBRATION_BASE, SIZE_BUCKETS[b]);
+                for (int m = 1; m < CALIBRATION_MAGNITUDES.length; m++) {
+                    bucketRates[m][c] = rateAt(kernel, CALIBRATION_MAGNITUDES[m], SIZE_BUCKETS[b],
+                            CALIBRATION_MAGNITUDES[m - 1], bucketRates[m - 1][c]);
+                }
+            }
+            double bestScore = Double.MAX_VALUE;
+            for (int c = 0; c < candidates.size(); c++) {
+                double score = 0;
+                for (double[] magnitudeRates : bucketRates) {
+                    double best = 0;
+                    for (double rate : magnitudeRates) {
+                        best = Math.max(best, rate);
+                    }
+                    score += best / magnitudeRates[c];
+                }
+                if (score < bestScore) {
+                    bestScore = score;
+                    selected[b] = candidates.get(c);
+                    rates[b] = bucketRates[0][c];
+                }
+            }
+        }
+    }
+
+    /**
+     * Tasa de un kernel con números de la magnitud indicada. Si el primer tramo de la medición ya superaría
+     * el presupuesto según la tasa de la magnitud anterior (por ejemplo, el kernel ingenuo cerca de 10^12),
+     * no se mide: se extrapola con el modelo de costo del kernel.
+     * @param kernel Kernel a medir.
+     * @param magnitude Inicio del rango de medición.
+     * @param size Longitud del rango representativo.
+     * @param previousMagnitude Magnitud medida antes.
+     * @param previousRate Tasa en previousMagnitude (números/s).
+     * @return Números evaluados por segundo.
+     */
+    private double rateAt(PerfectNumberKernel kernel, long magnitude, int size, long previousMagnitude, double previousRate) {
+        int probe = Math.min(size, 16);
+        double previousCostPerNumber = kernel.cost(previousMagnitude, previousMagnitude + probe - 1) / probe;
+        double costPerNumber = kernel.cost(magnitude, magnitude + probe - 1) / probe;
+        double extrapolated = previousRate * previousCostPerNumber / costPerNumber;
+        if (probe / extrapolated * 1e9 > MEASURE_BUDGET_NANOS) {
+            return extrapolated;
+        }
+        return measureRate(kernel, magnitude, size);
+    }
+
+    /**
+     * Mide la tasa de un kernel en un rango de hasta size números que empieza en magnitude.
+     * La longitud medida crece hasta cubrir el rango o hasta que el tramo siguiente no quepa en el presupuesto.
+     * @param kernel Kernel a medir.
+     * @param magnitude Inicio del rango de medición.
+     * @param size Longitud del rango representativo.
+     * @return Números evaluados por segundo.
+     */
+    private double measureRate(PerfectNumberKernel kernel, long magnitude, int size) {
+        int length = Math.min(size, 16);
+        while (true) {
+            long start = clock.getAsLong();
+            kernel.findPerfectNumbers(magnitude, magnitude + length - 1);
+            long elapsed = Math.max(1L, clock.getAsLong() - start);
+            // El siguiente tramo es 4 veces más largo: se mide solo si cabe en el presupuesto.
+            if (4 * elapsed > MEASURE_BUDGET_NANOS || length >= size) {
+                return length * 1e9 / elapsed;
+            }
+            length = Math.min(size, length * 4);
+        }
+    }
+
+    /**
+     * Índice del tamaño representativo que corresponde a un rango.
+     * @param rangeSize Cantidad de números del rango.
+     * @return Índice en SIZE_BUCKETS.
+     */
+    private static int bucketFor(long rangeSize) {
+        for (int b = 0; b < SIZE_BUCKETS.length; b++) {
+            if (rangeSize <= SIZE_BUCKETS[b]) {
+                return b;
+            }
+        }
+        return SIZE_BUCKETS.length - 1;
+    }
+}
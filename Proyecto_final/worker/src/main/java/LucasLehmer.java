@@ -0,0 +1,51 @@
+import java.math.BigInteger;
+
+import common.Primes;
+
+/**
+ * Test de Lucas–Lehmer para primos de Mersenne.
+ * Para un primo impar p, M = 2^p - 1 es primo si y solo si s(p-2) ≡ 0 (mod M),
+ * con s(0) = 4 y s(k+1) = s(k)² - 2. Junto con el teorema de Euclides–Euler
+ * (todo perfecto par es 2^(p-1)·(2^p - 1) con 2^p - 1 primo) permite encontrar los
+ * perfectos pares sin recorrer el rango número a número.
+ */
+public final class LucasLehmer {
+
+    private LucasLehmer() {
+    }
+
+    /**
+     * Determina si 2^p - 1 es primo.
+     * @param p Exponente a evaluar.
+     * @return true si 2^p - 1 es un primo de Mersenne.
+     */
+    public static boolean isMersennePrime(int p) {
+        if (p == 2) {
+            return true; // 2^2 - 1 = 3. El test de Lucas–Lehmer solo aplica a primos impares.
+        }
+        if (!Primes.isPrime(p)) {
+            return false; // Si p es compuesto, 2^p - 1 también lo es.
+        }
+        BigInteger mersenne = BigInteger.ONE.shiftLeft(p).subtract(BigInteger.ONE);
+        BigInteger s = BigInteger.valueOf(4);
+        for (int i = 0; i < p - 2; i++) {
+            s = modMersenne(s.multiply(s).subtract(BigInteger.TWO), p, mersenne);
+        }
+        return s.signum() == 0;
+    }
+
+    /**
+     * Reduce x módulo 2^p - 1 usando solo desplazamientos y sumas:
+     * x = alto·2^p + bajo ≡ alto + bajo (mod 2^p - 1).
+     * @param x Valor no negativo a reducir.
+     * @param p Exponente del primo de Mersenne.
+     * @param mersenne El valor 2^p - 1.
+     * @return x mod (2^p - 1), en [0, 2^p - 2].
+     */
+    private static BigInteger modMersenne(BigInteger x, int p, BigInteger mersenne) {
+        while (x.bitLength() > p) {
+            x = x.and(mersenne).add(x.shiftRight(p));
+        }
+        return x.equals(mersenne) ? BigInteger.ZERO : x;
+    }
+}
@@ -0,0 +1,68 @@
+import java.util.function.BooleanSupplier;
+
+import common.LongList;
+
+/**
+ * Kernel original del worker: suma todos los divisores j ≤ n/2 de cada número.
+ * Costo O(n) por número; se conserva como referencia y para rangos diminutos.
+ */
+public class NaiveKernel implements PerfectNumberKernel {
+
+    @Override
+    public String name() {
+        return "naive";
+    }
+
+    @Override
+    public LongList findPerfectNumbers(long minNum, long maxNum) {
+        return findPerfectNumbers(minNum, maxNum, NOT_CANCELLED);
+    }
+
+    @Override
+    public LongList findPerfectNumbers(long minNum, long maxNum, BooleanSupplier cancelled) {
+        LongList perfectNums = new LongList();
+        long lo = Math.max(1L, Math.min(minNum, maxNum));
+        long hi = Math.max(minNum, maxNum);
+        for (long i = lo; i <= hi; i++) {
+            if (cancelled.getAsBoolean()) {
+                break; // Cada número cuesta O(n): se consulta en cada uno.
+            }
+            if (isPerfect(i)) {
+                perfectNums.add(i);
+            }
+            if (i == hi) {
+                break; // Evita desbordar i cuando hi es Long.MAX_VALUE.
+            }
+        }
+        return perfectNums;
+    }
+
+    /**
+     * Cada número n prueba n/2 divisores; se aproxima con el valor medio del rango.
+     */
+    @Override
+    public double cost(long lo, long hi) {
+        double length = (double) hi - lo + 1;
+        double mid = ((double) lo + hi) / 2;
+        return length * Math.max(1.0, mid / 2);
+    }
+
+    /**
+     * Suma los divisores j ≤ n/2 de n. La suma se compara con n antes de cada adición,
+     * de modo que nunca se desborda aunque n esté cerca de Long.MAX_VALUE.
+     * @param n Número a evaluar.
+     * @return true si la suma de sus divisores propios es igual a n.
+     */
+    static boolean isPerfect(long n) {
+        long accSum = 0;
+        for (long j = 1; j <= n / 2; j++) {
+            if (n % j == 0) {
+                if (j > n - accSum) {
+                    return false; // La suma ya supera a n.
+                }
+                accSum += j;
+            }
+        }
+        return n >= 1 && accSum == n;
+    }
+}
@@ -0,0 +1,75 @@
+import java.util.function.BooleanSupplier;
+
+import common.LongList;
+
+/**
+ * Kernel que solo examina los números impares del rango.
+ * Se usa en el modo analítico (Euclides–Euler): los perfectos pares se obtienen de los primos de
+ * Mersenne y solo queda por recorrer la parte impar cuando el cliente lo pide explícitamente.
+ * Un número impar solo tiene divisores impares, así que la división de prueba avanza de 2 en 2.
+ * No forma parte de KernelSelector.availableKernels() porque ignora los números pares.
+ */
+public class OddTrialKernel implements PerfectNumberKernel {
+
+    @Override
+    public String name() {
+        return "odd";
+    }
+
+    @Override
+    public LongList findPerfectNumbers(long minNum, long maxNum) {
+        return findPerfectNumbers(minNum, maxNum, NOT_CANCELLED);
+    }
+
+    @Override
+    public LongList findPerfectNumbers(long minNum, long maxNum, BooleanSupplier cancelled) {
+        LongList perfectNums = new LongList();
+        long lo = Math.max(1L, Math.min(minNum, maxNum));
+        long hi = Math.max(minNum, maxNum);
+        for (long n = lo | 1L; n <= hi; n += 2) {
+            if ((n & 31) == 1 && cancelled.getAsBoolean()) {
+                break;
+            }
+            if (isOddPerfect(n)) {
+                perfectNums.add(n);
+            }
+            if (n > hi - 2) {
+                break; // Evita desbordar n cuando hi está cerca de Long.MAX_VALUE.
+            }
+        }
+        return perfectNums;
+    }
+
+    /**
+     * Solo la mitad de los números, y cada uno prueba √n/2 divisores impares.
+     */
+    @Override
+    public double cost(long lo, long hi) {
+        double length = (double) hi - lo + 1;
+        double mid = ((double) lo + hi) / 2;
+        return length / 2 * Math.max(1.0, Math.sqrt(mid) / 2);
+    }
+
+    /**
+     * Determina si el número impar n es perfecto.
+     * @param n Número impar a evaluar.
+     * @return true si la suma de sus divisores propios es igual a n.
+     */
+    static boolean isOddPerfect(long n) {
+        if (n < 3) {
+            return false;
+        }
+        long sum = 1;
+        for (long d = 3; d <= n / d; d += 2) {
+            if (n % d == 0) {
+                long q = n / d;
+                long pair = (q == d) ? d : d + q;
+                if (pair > n - sum) {
+                    return false; // La suma supera a n; se compara sin sumar para no desbordar.
+                }
+                sum += pair;
+            }
+        }
+        return sum == n;
+    }
+}
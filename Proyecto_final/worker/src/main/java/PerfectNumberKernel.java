@@ -0,0 +1,53 @@
+import java.util.function.BooleanSupplier;
+
+import common.LongList;
+
+/**
+ * Contrato de los kernels de cálculo del worker.
+ * Un kernel encuentra los números perfectos de un subrango; el worker elige cuál usar
+ * según el tamaño del rango (ver KernelSelector).
+ * Las implementaciones deben ser seguras para ser invocadas desde varios hilos a la vez y trabajar
+ * con rangos de 64 bits sin desbordamientos (hasta Long.MAX_VALUE inclusive).
+ */
+public interface PerfectNumberKernel {
+
+    // Condición de cancelación que nunca se cumple.
+    BooleanSupplier NOT_CANCELLED = () -> false;
+
+    /**
+     * Nombre corto del kernel, usado en los logs y en la propiedad Worker.Kernel.
+     * @return Nombre del kernel.
+     */
+    String name();
+
+    /**
+     * Busca los números perfectos del rango [minNum, maxNum]. Los valores menores que 1 se ignoran.
+     * @param minNum Límite inferior del rango.
+     * @param maxNum Límite superior del rango.
+     * @return Lista ordenada de números perfectos encontrados.
+     */
+    LongList findPerfectNumbers(long minNum, long maxNum);
+
+    /**
+     * Igual que findPerfectNumbers(long, long), pero deja de recorrer el rango en cuanto cancelled
+     * devuelve true; en ese caso el resultado queda incompleto y quien llama debe descartarlo.
+     * Las implementaciones consultan la condición cada pocos milisegundos de trabajo; por defecto no se consulta.
+     * @param minNum Límite inferior del rango.
+     * @param maxNum Límite superior del rango.
+     * @param cancelled Condición de cancelación.
+     * @return Lista ordenada de números perfectos encontrados hasta terminar o cancelar.
+     */
+    default LongList findPerfectNumbers(long minNum, long maxNum, BooleanSupplier cancelled) {
+        return findPerfectNumbers(minNum, maxNum);
+    }
+
+    /**
+     * Estima el costo de recorrer [lo, hi] con este kernel, en iteraciones del bucle interno.
+     * Se usa para repartir el rango en trozos de costo parecido: el costo por número crece con n,
+     * así que trozos de igual ancho no tardan lo mismo.
+     * @param lo Límite inferior del rango (mayor o igual que 1).
+     * @param hi Límite superior del rango.
+     * @return Costo estimado (mayor que 0 si el rango no es vacío).
+     */
+    double cost(long lo, long hi);
+}
@@ -0,0 +1,173 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+import common.LongList;
+
+/**
+ * Tarea fork/join que busca números perfectos en un subrango del worker.
+ * El rango se divide recursivamente por su punto medio de costo (según el modelo de costo del kernel)
+ * hasta que cada trozo cuesta menos que la granularidad objetivo. Los trozos pendientes quedan en la
+ * cola del hilo que los creó y los hilos ociosos los roban, así que ningún núcleo se queda esperando
+ * mientras otro termina los números más caros del final del rango.
+ */
+class RangeTask extends RecursiveTask<LongList> {
+
+    // Costo mínimo de un trozo (en iteraciones del bucle interno, unas decenas de microsegundos).
+    // Por debajo de esto el costo de crear y robar tareas deja de ser despreciable.
+    static final double MIN_LEAF_COST = 50_000;
+
+    // Cantidad de trozos por hilo que se buscan como mínimo, para que el robo de trabajo pueda
+    // compensar las diferencias entre trozos.
+    static final int LEAVES_PER_THREAD = 8;
+
+    // Si dividir un trozo aumenta el costo total estimado más que este factor (por ejemplo, por el
+    // costo fijo por segmento de la criba), no se divide.
+    private static final double MAX_SPLIT_OVERHEAD = 1.25;
+
+    private final long lo;
+    private final long hi;
+    private final PerfectNumberKernel kernel;
+    private final double grainCost;
+    private final BusyTime busyTime;
+    // Condición de cancelación: los trozos que aún no empezaron se saltan y los kernels la consultan al recorrer.
+    private final BooleanSupplier cancelled;
+
+    /**
+     * @param lo Límite inferior del trozo (mayor o igual que 1).
+     * @param hi Límite superior del trozo.
+     * @param kernel Kernel usado para calcular y para estimar el costo.
+     * @param grainCost Costo por debajo del cual el trozo ya no se divide.
+     * @param busyTime Acumulador del tiempo ocupado por hilo.
+     * @param cancelled Condición de cancelación del cálculo.
+     */
+    RangeTask(long lo, long hi, PerfectNumberKernel kernel, double grainCost, BusyTime busyTime, BooleanSupplier cancelled) {
+        this.lo = lo;
+        this.hi = hi;
+        this.kernel = kernel;
+        this.grainCost = grainCost;
+        this.busyTime = busyTime;
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * Calcula la granularidad para un rango: su costo repartido en LEAVES_PER_THREAD trozos por hilo,
+     * sin bajar de MIN_LEAF_COST.
+     * @param totalCost Costo estimado del rango completo.
+     * @param parallelism Cantidad de hilos del pool.
+     * @return Costo objetivo de cada trozo.
+     */
+    static double grainFor(double totalCost, int parallelism) {
+        return Math.max(MIN_LEAF_COST, totalCost / ((double) parallelism * LEAVES_PER_THREAD));
+    }
+
+    /**
+     * Divide [lo, hi] en tramos consecutivos de costo parecido, buscando cada corte por bisección.
+     * @param kernel Kernel usado para estimar el costo.
+     * @param lo Límite inferior del rango (mayor o igual que 1).
+     * @param hi Límite superior del rango.
+     * @param parts Cantidad de tramos deseada.
+     * @return Fin de cada tramo, en orden; el último es hi. Puede tener menos de parts tramos si el rango es corto.
+     */
+    static long[] costCuts(PerfectNumberKernel kernel, long lo, long hi, int parts) {
+        double total = kernel.cost(lo, hi);
+        long[] cuts = new long[Math.max(1, parts)];
+        int count = 0;
+        long from = lo;
+        for (int k = 1; k < parts && from < hi; k++) {
+            double target = total * k / parts;
+            long left = from;
+            long right = hi - 1;
+            while (left < right) {
+                long m = left + (right - left) / 2;
+                if (kernel.cost(lo, m) < target) {
+                    left = m + 1;
+                } else {
+                    right = m;
+                }
+            }
+            cuts[count++] = left;
+            from = left + 1;
+        }
+        cuts[count++] = hi;
+        return java.util.Arrays.copyOf(cuts, count);
+    }
+
+    @Override
+    protected LongList compute() {
+        if (cancelled.getAsBoolean()) {
+            return new LongList(); // Quien lanzó el cálculo descarta el resultado.
+        }
+        double cost = kernel.cost(lo, hi);
+        if (cost > grainCost && hi > lo) {
+            long mid = costMidpoint(cost);
+            if (kernel.cost(lo, mid) + kernel.cost(mid + 1, hi) <= cost * MAX_SPLIT_OVERHEAD) {
+                RangeTask left = new RangeTask(lo, mid, kernel, grainCost, busyTime, cancelled);
+                RangeTask right = new RangeTask(mid + 1, hi, kernel, grainCost, busyTime, cancelled);
+                left.fork(); // Queda disponible para que otro hilo lo robe.
+                LongList perfectNums = right.compute();
+                LongList leftNums = left.join();
+                // Los resultados de la izquierda van primero para mantener el orden ascendente.
+                leftNums.addAll(perfectNums);
+                return leftNums;
+            }
+        }
+
+        long start = System.nanoTime();
+        LongList perfectNums = kernel.findPerfectNumbers(lo, hi, cancelled);
+        busyTime.add(Thread.currentThread().getName(), System.nanoTime() - start);
+        return perfectNums;
+    }
+
+    /**
+     * Busca (por bisección) el punto m tal que [lo, m] cuesta aproximadamente la mitad del trozo.
+     * @param cost Costo del trozo completo.
+     * @return Punto de corte, en [lo, hi - 1].
+     */
+    private long costMidpoint(double cost) {
+        long left = lo;
+        long right = hi - 1;
+        while (left < right) {
+            long m = left + (right - left) / 2;
+            if (kernel.cost(lo, m) < cost / 2) {
+                left = m + 1;
+            } else {
+                right = m;
+            }
+        }
+        return left;
+    }
+
+    /**
+     * Acumula el tiempo que cada hilo pasa dentro de los kernels durante un cálculo.
+     */
+    static class BusyTime {
+        private final Map<String, LongAdder> nanosByThread = new ConcurrentHashMap<>();
+
+        void add(String thread, long nanos) {
+            nanosByThread.computeIfAbsent(thread, t -> new LongAdder()).add(nanos);
+        }
+
+        /**
+         * Resume el tiempo ocupado de cada hilo respecto al tiempo total del cálculo.
+         * @param wallNanos Duración total del cálculo.
+         * @return Texto del tipo "hilo: 120 ms (98%)", un hilo por entrada, separadas por comas.
+         */
+        String describe(long wallNanos) {
+            StringBuilder sb = new StringBuilder();
+            nanosByThread.entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey())
+                    .forEach(e -> {
+                        long busy = e.getValue().sum();
+                        if (sb.length() > 0) {
+                            sb.append(", ");
+                        }
+                        sb.append(String.format("%s: %d ms (%.0f%%)", e.getKey(), busy / 1_000_000,
+                                100.0 * busy / Math.max(1L, wallNanos)));
+                    });
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+import java.util.function.BooleanSupplier;
+
+import common.LongList;
+
+/**
+ * Kernel basado en la criba segmentada de suma de divisores (DivisorSumSieve).
+ * Tiene un costo fijo de O(√max) por segmento, pero un costo por número casi constante,
+ * por lo que es el más rápido en rangos grandes.
+ */
+public class SieveKernel implements PerfectNumberKernel {
+
+    @Override
+    public String name() {
+        return "sieve";
+    }
+
+    // Una criba por hilo: el buffer de segmento no se comparte entre hilos y se reutiliza entre trozos,
+    // en lugar de reservarse de nuevo (256 KB o más) en cada hoja del cálculo. Cada hilo retiene el
+    // buffer más grande que usó, como mucho MAX_SEGMENT_SIZE sumas.
+    private static final ThreadLocal<DivisorSumSieve> SIEVES = ThreadLocal.withInitial(DivisorSumSieve::new);
+
+    @Override
+    public LongList findPerfectNumbers(long minNum, long maxNum) {
+        return findPerfectNumbers(minNum, maxNum, NOT_CANCELLED);
+    }
+
+    @Override
+    public LongList findPerfectNumbers(long minNum, long maxNum, BooleanSupplier cancelled) {
+        return SIEVES.get().findPerfectNumbers(minNum, maxNum, cancelled);
+    }
+
+    @Override
+    public double cost(long lo, long hi) {
+        return DivisorSumSieve.estimateCost(lo, hi);
+    }
+}
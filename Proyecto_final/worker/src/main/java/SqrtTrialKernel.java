@@ -0,0 +1,75 @@
+import java.util.function.BooleanSupplier;
+
+import common.LongList;
+
+/**
+ * Kernel de división de prueba hasta √n.
+ * Suma cada par de divisores (d, n/d) con d ≤ √n y abandona el número en cuanto la suma
+ * supera a n, por lo que los números abundantes se descartan temprano.
+ * Costo O(√n) por número, sin memoria adicional.
+ */
+public class SqrtTrialKernel implements PerfectNumberKernel {
+
+    @Override
+    public String name() {
+        return "sqrt";
+    }
+
+    @Override
+    public LongList findPerfectNumbers(long minNum, long maxNum) {
+        return findPerfectNumbers(minNum, maxNum, NOT_CANCELLED);
+    }
+
+    @Override
+    public LongList findPerfectNumbers(long minNum, long maxNum, BooleanSupplier cancelled) {
+        LongList perfectNums = new LongList();
+        long lo = Math.max(1L, Math.min(minNum, maxNum));
+        long hi = Math.max(minNum, maxNum);
+        for (long n = lo; n <= hi; n++) {
+            if ((n & 15) == 0 && cancelled.getAsBoolean()) {
+                break;
+            }
+            if (isPerfect(n)) {
+                perfectNums.add(n);
+            }
+            if (n == hi) {
+                break; // Evita desbordar n cuando hi es Long.MAX_VALUE.
+            }
+        }
+        return perfectNums;
+    }
+
+    /**
+     * Cada número n prueba hasta √n divisores; se aproxima con el valor medio del rango
+     * (restar integrales de n^1.5 perdería toda la precisión en rangos altos y estrechos).
+     */
+    @Override
+    public double cost(long lo, long hi) {
+        double length = (double) hi - lo + 1;
+        double mid = ((double) lo + hi) / 2;
+        return length * Math.max(1.0, Math.sqrt(mid));
+    }
+
+    /**
+     * Determina si n es perfecto sumando sus divisores por pares.
+     * @param n Número a evaluar.
+     * @return true si la suma de sus divisores propios es igual a n.
+     */
+    static boolean isPerfect(long n) {
+        if (n < 2) {
+            return false;
+        }
+        long sum = 1; // El divisor 1 siempre está presente.
+        for (long d = 2; d <= n / d; d++) {
+            if (n % d == 0) {
+                long q = n / d;
+                long pair = (q == d) ? d : d + q;
+                if (pair > n - sum) {
+                    return false; // Salida temprana: el número es abundante. Se compara sin sumar para no desbordar.
+                }
+                sum += pair;
+            }
+        }
+        return sum == n;
+    }
+}
@@ -1,7 +1,20 @@
+import Demo.Chunk;
+import Demo.ChunkResult;
+import Demo.LoadReport;
+import Demo.PublisherPrx;
+import Demo.SubscriberPrx;
+import Demo.WorkerInfo;
 import com.zeroc.Ice.Current;
 import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+import common.LongList;
+import common.Metrics;
 
 /**
  * Implementación de la interfaz Subscriber de ICE.
@@ -12,29 +25,267 @@ import java.util.ArrayList;
 public class SubscriberI implements Demo.Subscriber {
 
     // ID asignado a este worker por el Maestro. Se inicializa en -1 y se actualiza al ser registrado.
-    private int id = -1;
+    // Es volatile porque cambia si el worker se vuelve a registrar (ver heartbeat).
+    private volatile int id = -1;
 
     // Número de hilos que cada worker usará para la paralelización interna del cálculo.
-    // Se usa Runtime.getRuntime().availableProcessors() para adaptarse a los núcleos de la CPU.
-    private static final int NUM_THREADS_PER_WORKER = Runtime.getRuntime().availableProcessors();
+    // Por defecto es Runtime.getRuntime().availableProcessors() para adaptarse a los núcleos de la CPU.
+    private final int numThreads;
+
+    // Kernel que solo examina números impares, usado por el modo analítico.
+    private static final PerfectNumberKernel ODD_KERNEL = new OddTrialKernel();
+
+    // Selector del kernel de cálculo según el tamaño del rango (calibrado o forzado por configuración).
+    private final KernelSelector kernels;
+
+    // Pool fork/join para ejecutar las tareas de cálculo internas en paralelo, con robo de trabajo.
+    private final ForkJoinPool executor;
+
+    // Proxy del Maestro, para pedirle trozos de trabajo en modo pull. Lo asigna ClientWorker.
+    private volatile PublisherPrx publisher;
+
+    // Trozos que el worker pide al Maestro en cada llamada a pullChunks.
+    private volatile int chunkBatch = 1;
+
+    // Hilo que pide y procesa los trozos, para no ocupar los hilos de ICE mientras tanto.
+    private final ExecutorService pullExecutor = Executors.newSingleThreadExecutor();
+
+    // true mientras el hilo de pull está activo.
+    private final AtomicBoolean pulling = new AtomicBoolean(false);
+
+    // true si el Maestro avisó de trabajo nuevo que el hilo de pull todavía no ha buscado.
+    private final AtomicBoolean workAvailable = new AtomicBoolean(false);
+
+    // Trozos recibidos del Maestro que todavía no se han procesado (parte de la carga reportada).
+    private final AtomicInteger queuedChunks = new AtomicInteger(0);
+
+    // Trozos {búsqueda, trozo} que el Maestro pidió cancelar porque otra copia ya terminó.
+    private final java.util.Set<Long> cancelledChunks = ConcurrentHashMap.newKeySet();
+
+    // Búsquedas que el Maestro pidió cancelar (cancelJob). Los IDs crecen, así que al superar
+    // MAX_CANCELLED_JOBS se olvidan las más viejas, que ya no tienen cálculos en curso.
+    private final ConcurrentSkipListSet<Long> cancelledJobs = new ConcurrentSkipListSet<>();
+    private static final int MAX_CANCELLED_JOBS = 1024;
+
+    // Clave del contexto de ICE con que el Maestro indica la búsqueda de cada llamada (PublisherI.JOB_ID_CONTEXT).
+    private static final String JOB_ID_CONTEXT = "jobId";
+
+    // Hilo que envía los reportes de carga y los latidos periódicos al Maestro.
+    private final ScheduledExecutorService loadReporter = Executors.newSingleThreadScheduledExecutor();
+
+    // Proxy de este worker, para volver a registrarse si el Maestro lo dio por caído o se reinició.
+    private volatile SubscriberPrx self;
+
+    // false mientras el Maestro no responde a los latidos (para avisar en el log solo al cambiar).
+    private volatile boolean masterReachable = true;
 
-    // Umbral mínimo de tamaño de rango para decidir si se aplica paralelización interna.
-    // Rangos más pequeños se procesan secuencialmente para evitar el overhead de hilos.
-    private static final int PARALLELIZATION_THRESHOLD = 10000;
+    // Puntos de control en que se divide como máximo cada subrango del modo push (propiedad Worker.CheckpointSegments).
+    // Al terminar cada tramo se informa al Maestro, que si el worker cae solo reasigna lo que falta.
+    private volatile int checkpointSegments = 1;
 
-    // Pool de hilos para ejecutar las tareas de cálculo internas en paralelo.
-    private final ExecutorService executor;
+    // Tamaño mínimo (en números) de un tramo entre puntos de control: por debajo, el subrango se calcula entero.
+    private static final long CHECKPOINT_MIN_NUMBERS = 1_000_000L;
+
+    // Métricas del worker, publicadas en el endpoint de Worker.MetricsPort. Se registran una vez por
+    // cálculo (no por número), así que no agregan costo al recorrido de los kernels.
+    private final Metrics metrics = new Metrics();
+    private final Metrics.Counter numbersTested = metrics.counter("perfect_worker_numbers_tested_total",
+            "Números examinados en cálculos terminados.");
+    private final Metrics.Counter calculationsCancelled = metrics.counter("perfect_worker_calculations_cancelled_total",
+            "Cálculos que se cancelaron antes de terminar.");
+    private final Metrics.Histogram calculateTime = metrics.histogram("perfect_worker_calculate_seconds",
+            "Duración de cada cálculo de un subrango o trozo.", Metrics.LATENCY_BUCKETS);
+    private final Metrics.Gauge numbersPerSecond = metrics.gauge("perfect_worker_numbers_per_second",
+            "Números por segundo examinados en el último cálculo terminado.");
 
     /**
-     * Constructor de SubscriberI. Inicializa el pool de hilos.
+     * Constructor de SubscriberI con selección automática de kernel.
      */
     public SubscriberI(){
-        this.executor = Executors.newFixedThreadPool(NUM_THREADS_PER_WORKER);
+        this(KernelSelector.AUTO);
+    }
+
+    /**
+     * Constructor de SubscriberI. Inicializa el pool de hilos y elige el kernel de cálculo
+     * para cada tamaño de rango.
+     * @param kernelMode Valor de la propiedad Worker.Kernel: "auto" o el nombre de un kernel.
+     */
+    public SubscriberI(String kernelMode){
+        this(kernelMode, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Igual que SubscriberI(String), con una cantidad de hilos fija (los benchmarks la varían).
+     * @param kernelMode Valor de la propiedad Worker.Kernel: "auto" o el nombre de un kernel.
+     * @param numThreads Hilos del pool de cálculo (al menos 1).
+     */
+    SubscriberI(String kernelMode, int numThreads){
+        this.numThreads = Math.max(1, numThreads);
+        this.executor = new ForkJoinPool(this.numThreads);
+        metrics.gauge("perfect_worker_executor_queue_depth",
+                "Trabajo en espera: cálculos encolados en el pool y trozos recibidos sin procesar.", this::queueDepth);
+        metrics.gauge("perfect_worker_executor_active_threads", "Hilos del pool de cálculo ocupados.",
+                executor::getActiveThreadCount);
         // El ID no está asignado todavía, así que se usa id=-1 por ahora en el log.
-        System.out.println("[Worker " + id + "] SubscriberI inicializado con " + NUM_THREADS_PER_WORKER + " hilos para cálculo interno.");
+        System.out.println("[Worker " + id + "] SubscriberI inicializado con " + numThreads + " hilos para cálculo interno.");
+
+        // Calibra (o fuerza) el kernel de cálculo y deja constancia de la elección en el log.
+        this.kernels = KernelSelector.create(kernelMode);
+        for (String line : kernels.describe().split(System.lineSeparator())) {
+            System.out.println("[Worker " + id + "] " + line);
+        }
     }
 
 
+    /**
+     * Configura el acceso al Maestro para el modo pull.
+     * @param publisher Proxy del Maestro.
+     * @param chunkBatch Trozos a pedir en cada llamada (propiedad Worker.ChunkBatch).
+     */
+    public void setPublisher(PublisherPrx publisher, int chunkBatch) {
+        this.publisher = publisher;
+        this.chunkBatch = Math.max(1, chunkBatch);
+    }
+
+    /**
+     * Capacidad que el worker declara al registrarse: núcleos, tasa calibrada del kernel para rangos
+     * grandes multiplicada por los núcleos, y nombre de ese kernel.
+     * @return Información de capacidad para registerWorker.
+     */
+    public WorkerInfo workerInfo() {
+        long largeRange = KernelSelector.SIZE_BUCKETS[KernelSelector.SIZE_BUCKETS.length - 1];
+        return new WorkerInfo(numThreads,
+                numThreads * kernels.rateFor(largeRange),
+                kernels.kernelFor(largeRange).name());
+    }
+
+    /**
+     * Empieza a reportar la carga del worker al Maestro cada cierto tiempo.
+     * @param periodMs Intervalo entre reportes en milisegundos (0 o menos los desactiva).
+     */
+    public void startLoadReports(long periodMs) {
+        if (periodMs <= 0) {
+            return;
+        }
+        loadReporter.scheduleAtFixedRate(this::reportLoad, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Empieza a enviar latidos al Maestro cada cierto tiempo, para que sepa que el worker sigue vivo
+     * aunque esté ocupado con un cálculo largo. Si el Maestro responde que no conoce al worker
+     * (lo dio por caído o se reinició), el worker se vuelve a registrar.
+     * @param self Proxy de este worker.
+     * @param periodMs Intervalo entre latidos en milisegundos (0 o menos los desactiva).
+     */
+    public void startHeartbeats(SubscriberPrx self, long periodMs) {
+        this.self = self;
+        if (periodMs <= 0) {
+            return;
+        }
+        loadReporter.scheduleAtFixedRate(this::heartbeat, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Fija en cuántos tramos como máximo se divide un subrango del modo push para informar su avance.
+     * @param segments Cantidad de tramos (1 o menos desactiva los puntos de control).
+     */
+    public void setCheckpointSegments(int segments) {
+        this.checkpointSegments = Math.max(1, segments);
+    }
+
+    /**
+     * ID actual del worker en el Maestro.
+     * @return ID asignado, o -1 si todavía no está registrado.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Envía un latido al Maestro. Si el Maestro no conoce el ID, el worker se vuelve a registrar.
+     */
+    private void heartbeat() {
+        PublisherPrx master = publisher;
+        int workerId = id;
+        if (master == null || workerId < 0) {
+            return; // Todavía no está registrado.
+        }
+        try {
+            master.heartbeatAsync(workerId).whenComplete((known, ex) -> {
+                if (ex != null) {
+                    if (masterReachable) {
+                        masterReachable = false;
+                        System.err.println("[Worker " + workerId + "] El Maestro no responde a los latidos: " + ex.getMessage());
+                    }
+                    return;
+                }
+                if (!masterReachable) {
+                    masterReachable = true;
+                    System.out.println("[Worker " + workerId + "] El Maestro vuelve a responder.");
+                }
+                if (!known) {
+                    // El registro se hace en el hilo de los latidos: registerWorker llama de vuelta a setId.
+                    loadReporter.execute(() -> register(workerId));
+                }
+            });
+        } catch (com.zeroc.Ice.Exception e) {
+            System.err.println("[Worker " + workerId + "] No se pudo enviar el latido al Maestro: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Vuelve a registrar el worker en el Maestro, salvo que ya lo haya hecho otro latido.
+     * @param staleId ID que el Maestro no reconoció.
+     */
+    private void register(int staleId) {
+        PublisherPrx master = publisher;
+        if (master == null || self == null || id != staleId) {
+            return;
+        }
+        try {
+            System.out.println("[Worker " + staleId + "] El Maestro no reconoce este worker; registrándose de nuevo...");
+            int newId = master.registerWorker(self, workerInfo());
+            this.id = newId;
+            System.out.println("[Worker " + newId + "] Registrado de nuevo con el Maestro.");
+        } catch (com.zeroc.Ice.Exception e) {
+            System.err.println("[Worker " + staleId + "] No se pudo volver a registrar: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Envía al Maestro la carga actual: hilos de cálculo ocupados y trabajo en espera
+     * (cálculos encolados en el pool y trozos recibidos sin procesar).
+     */
+    private void reportLoad() {
+        PublisherPrx master = publisher;
+        if (master == null || id < 0) {
+            return; // Todavía no está registrado.
+        }
+        LoadReport load = new LoadReport(executor.getActiveThreadCount(), queueDepth());
+        try {
+            master.reportLoadAsync(id, load).exceptionally(ex -> {
+                System.err.println("[Worker " + id + "] No se pudo reportar la carga al Maestro: " + ex.getMessage());
+                return null;
+            });
+        } catch (com.zeroc.Ice.Exception e) {
+            System.err.println("[Worker " + id + "] No se pudo reportar la carga al Maestro: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Trabajo en espera: cálculos encolados en el pool y trozos recibidos sin procesar.
+     */
+    private int queueDepth() {
+        return executor.getQueuedSubmissionCount() + queuedChunks.get();
+    }
+
+    /**
+     * @return Métricas del worker, para publicarlas en el endpoint HTTP local.
+     */
+    Metrics metrics() {
+        return metrics;
+    }
+
     /**
      * Asigna un ID a este worker. Este método es llamado por el Maestro al registrar el worker.
      * @param id El ID único asignado por el Maestro.
@@ -48,6 +299,7 @@ public class SubscriberI implements Demo.Subscriber {
     /**
      * Calcula los números perfectos dentro de un rango dado.
      * Este método es llamado de forma asíncrona por el Maestro.
+     * Versión de 32 bits, conservada por compatibilidad: delega en calculatePerfectNumLong.
      * @param minNum Límite inferior del rango.
      * @param maxNum Límite superior del rango.
      * @param current Contexto de la llamada ICE.
@@ -55,14 +307,35 @@ public class SubscriberI implements Demo.Subscriber {
      */
     @Override
     public int[] calculatePerfectNum(int minNum, int maxNum, Current current) {
+        return toIntArray(calculatePerfectNumLong(minNum, maxNum, current));
+    }
+
+    /**
+     * Calcula los números perfectos dentro de un rango de 64 bits.
+     * Este método es llamado de forma asíncrona por el Maestro.
+     * @param minNum Límite inferior del rango.
+     * @param maxNum Límite superior del rango.
+     * @param current Contexto de la llamada ICE.
+     * @return Un array de long con los números perfectos encontrados.
+     */
+    @Override
+    public long[] calculatePerfectNumLong(long minNum, long maxNum, Current current) {
         long startTimeWorker = System.currentTimeMillis(); // Inicia la medición de tiempo del worker
 
         // Asegura que min sea siempre menor o igual a max para el cálculo.
-        int min = Math.min(minNum, maxNum);
-        int max = Math.max(minNum, maxNum);
+        long min = Math.min(minNum, maxNum);
+        long max = Math.max(minNum, maxNum);
 
-        // Llama al método 'calculate' que gestiona la paralelización interna.
-        ArrayList<Integer> perfectNums = calculate(min, max);
+        // Llama al método 'calculate' que gestiona la paralelización interna, por tramos si el
+        // subrango es grande, informando al Maestro al terminar cada uno.
+        LongList perfectNums;
+        try {
+            perfectNums = calculateWithCheckpoints(minNum, maxNum, min, max, cancellationOf(current), jobIdOf(current));
+        } catch (CancellationException e) {
+            System.out.println(String.format("[Worker %d] Rango [%d, %d] cancelado por el Maestro tras %d ms.",
+                    id, min, max, System.currentTimeMillis() - startTimeWorker));
+            throw e;
+        }
 
         long endTimeWorker = System.currentTimeMillis(); // Finaliza la medición de tiempo del worker
         long durationWorker = endTimeWorker - startTimeWorker;
@@ -76,86 +349,475 @@ public class SubscriberI implements Demo.Subscriber {
             System.out.println("[Worker " + id + "] Números perfectos en este rango: " + perfectNums);
         }
 
-        // Convierte la lista de resultados a un array de int para devolver.
-        int[] result = new int[perfectNums.size()];
-        for (int i = 0; i < perfectNums.size(); i++) {
-            result[i] = perfectNums.get(i);
+        return perfectNums.toArray();
+    }
+
+
+    /**
+     * Calcula un subrango del modo push en tramos consecutivos de costo parecido y, al terminar cada tramo
+     * salvo el último, informa al Maestro qué tramo terminó y qué perfectos encontró. Cada tramo usa todos
+     * los hilos del pool; el costo es una pausa corta entre tramos mientras terminan sus últimas hojas.
+     * @param sliceMin Límite inferior tal como lo envió el Maestro (identifica el subrango en los reportes).
+     * @param sliceMax Límite superior tal como lo envió el Maestro.
+     * @param min Límite inferior ordenado.
+     * @param max Límite superior ordenado.
+     * @param cancelled Condición de cancelación de la búsqueda.
+     * @param jobId ID de búsqueda del Maestro (0 si no se conoce).
+     * @return Una lista de números perfectos encontrados en el subrango.
+     * @throws CancellationException Si la búsqueda se canceló antes de terminar.
+     */
+    private LongList calculateWithCheckpoints(long sliceMin, long sliceMax, long min, long max, BooleanSupplier cancelled,
+                                              long jobId) {
+        long start = Math.max(1L, min);
+        PublisherPrx master = publisher;
+        long rangeSize = (max >= start) ? max - start + 1 : 0;
+        // Rangos de más de 2^63 números se calculan enteros (rangeSize se desborda a negativo).
+        int segments = (int) Math.min(checkpointSegments, Math.max(1L, rangeSize / CHECKPOINT_MIN_NUMBERS));
+        if (segments <= 1 || master == null || id < 0) {
+            return calculate(min, max, null, cancelled, jobId, -1);
         }
-        return result;
+        // Todos los tramos usan el kernel que se habría elegido para el subrango completo,
+        // que es el que supone el modelo de costo del Maestro.
+        PerfectNumberKernel kernel = kernelForRange(rangeSize);
+        LongList perfectNums = new LongList();
+        long from = start;
+        long[] cuts = RangeTask.costCuts(kernel, start, max, segments);
+        for (int i = 0; i < cuts.length; i++) {
+            LongList found = calculate(from, cuts[i], kernel, cancelled, jobId, -1);
+            perfectNums.addAll(found);
+            if (i < cuts.length - 1) {
+                reportSliceProgress(master, sliceMin, sliceMax, from, cuts[i], found);
+            }
+            from = cuts[i] + 1;
+        }
+        return perfectNums;
+    }
+
+    /**
+     * Informa al Maestro, sin esperar respuesta, que el tramo [doneMin, doneMax] de un subrango ya está calculado.
+     */
+    private void reportSliceProgress(PublisherPrx master, long sliceMin, long sliceMax, long doneMin, long doneMax, LongList found) {
+        int workerId = id;
+        try {
+            master.reportSliceProgressAsync(workerId, sliceMin, sliceMax, doneMin, doneMax, found.toArray()).exceptionally(ex -> {
+                System.err.println("[Worker " + workerId + "] No se pudo informar el avance al Maestro: " + ex.getMessage());
+                return null;
+            });
+        } catch (com.zeroc.Ice.Exception e) {
+            System.err.println("[Worker " + workerId + "] No se pudo informar el avance al Maestro: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Modo analítico (Euclides–Euler): filtra los exponentes p para los que 2^p - 1 es primo,
+     * usando el test de Lucas–Lehmer. El Maestro reparte los exponentes candidatos entre los workers.
+     * @param exponents Exponentes candidatos.
+     * @param current Contexto de la llamada ICE.
+     * @return Los exponentes de la entrada que generan un primo de Mersenne, en el mismo orden.
+     */
+    @Override
+    public int[] testMersenneExponents(int[] exponents, Current current) {
+        long startTimeWorker = System.currentTimeMillis();
+        int[] primes = new int[exponents.length];
+        int count = 0;
+        for (int p : exponents) {
+            if (LucasLehmer.isMersennePrime(p)) {
+                primes[count++] = p;
+            }
+        }
+        System.out.println(String.format("[Worker %d] Lucas–Lehmer sobre %d exponentes en %d ms. Primos de Mersenne: %d.",
+                id, exponents.length, System.currentTimeMillis() - startTimeWorker, count));
+        return Arrays.copyOf(primes, count);
+    }
+
+    /**
+     * Modo analítico: busca perfectos solo entre los números impares del rango.
+     * Versión de 32 bits, conservada por compatibilidad: delega en calculateOddPerfectNumLong.
+     * @param minNum Límite inferior del rango.
+     * @param maxNum Límite superior del rango.
+     * @param current Contexto de la llamada ICE.
+     * @return Un array con los números perfectos impares encontrados.
+     */
+    @Override
+    public int[] calculateOddPerfectNum(int minNum, int maxNum, Current current) {
+        return toIntArray(calculateOddPerfectNumLong(minNum, maxNum, current));
+    }
+
+    /**
+     * Modo analítico: busca perfectos solo entre los números impares de un rango de 64 bits.
+     * Los perfectos pares los obtiene el Maestro de los primos de Mersenne.
+     * @param minNum Límite inferior del rango.
+     * @param maxNum Límite superior del rango.
+     * @param current Contexto de la llamada ICE.
+     * @return Un array con los números perfectos impares encontrados.
+     */
+    @Override
+    public long[] calculateOddPerfectNumLong(long minNum, long maxNum, Current current) {
+        long startTimeWorker = System.currentTimeMillis();
+        long min = Math.min(minNum, maxNum);
+        long max = Math.max(minNum, maxNum);
+
+        LongList perfectNums;
+        try {
+            perfectNums = calculate(min, max, ODD_KERNEL, cancellationOf(current), jobIdOf(current), -1);
+        } catch (CancellationException e) {
+            System.out.println(String.format("[Worker %d] Parte impar del rango [%d, %d] cancelada por el Maestro.", id, min, max));
+            throw e;
+        }
+
+        System.out.println(String.format(
+                "[Worker %d] Parte impar del rango [%d, %d] procesada en %d ms. Encontrados %d números perfectos.",
+                id, min, max, System.currentTimeMillis() - startTimeWorker, perfectNums.size()
+        ));
+        return perfectNums.toArray();
     }
 
 
     /**
      * Gestiona la paralelización interna del cálculo de números perfectos para un subrango.
-     * Divide el rango en subtareas para ser procesadas por el pool de hilos.
+     * Divide el rango recursivamente en trozos de costo parecido que el pool fork/join reparte
+     * con robo de trabajo, de modo que todos los núcleos siguen ocupados hasta el final del rango.
      * @param minNum Límite inferior del subrango.
      * @param maxNum Límite superior del subrango.
      * @return Una lista de números perfectos encontrados en el subrango.
      */
-    public ArrayList<Integer> calculate(int minNum, int maxNum) {
-        ArrayList<Integer> perfectNums = new ArrayList<>();
+    public LongList calculate(long minNum, long maxNum) {
+        return calculate(minNum, maxNum, null, PerfectNumberKernel.NOT_CANCELLED, 0L, -1);
+    }
+
+    /**
+     * Igual que calculate(long, long), pero permite fijar el kernel de todos los trozos y detener el cálculo.
+     * Los kernels consultan la condición de cancelación mientras recorren, así que el pool queda libre
+     * a los pocos milisegundos de cancelar.
+     * @param minNum Límite inferior del subrango.
+     * @param maxNum Límite superior del subrango.
+     * @param fixedKernel Kernel a usar, o null para elegirlo según el tamaño de los trozos.
+     * @param cancelled Condición de cancelación.
+     * @param jobId ID de búsqueda del Maestro (0 si no se conoce), para el evento de JFR.
+     * @param chunkId Trozo del modo pull, o -1 si es un subrango del modo push.
+     * @return Una lista de números perfectos encontrados en el subrango.
+     * @throws CancellationException Si se canceló antes de terminar (el resultado parcial se descarta).
+     */
+    private LongList calculate(long minNum, long maxNum, PerfectNumberKernel fixedKernel, BooleanSupplier cancelled,
+                               long jobId, int chunkId) {
+        // Los perfectos son enteros positivos: se descarta la parte del rango menor que 1,
+        // lo que además garantiza que el tamaño del rango no se desborde.
+        long start = Math.max(1L, Math.min(minNum, maxNum));
+        long end = Math.max(minNum, maxNum);
+        if (end < start) {
+            return new LongList();
+        }
+        long rangeSize = end - start + 1;
+
+        PerfectNumberKernel kernel = (fixedKernel != null) ? fixedKernel : kernelForRange(rangeSize);
+
+        // Con la grabación de JFR apagada el evento no llega a reservarse (ver WorkerEvents).
+        WorkerEvents.ChunkExecution event = new WorkerEvents.ChunkExecution();
+        event.begin();
+        long startNanos = System.nanoTime();
+        LongList perfectNums;
+        RangeTask.BusyTime busyTime = null;
+        if (numThreads <= 1) {
+            // Un solo hilo: no hay nada que repartir.
+            perfectNums = sequentialCalculate(start, end, kernel, cancelled);
+        } else {
+            // La granularidad se adapta al costo estimado del rango, no a una cantidad fija de números.
+            double grainCost = RangeTask.grainFor(kernel.cost(start, end), numThreads);
+            busyTime = new RangeTask.BusyTime();
+            try {
+                perfectNums = executor.invoke(new RangeTask(start, end, kernel, grainCost, busyTime, cancelled));
+            } catch (RuntimeException e) {
+                System.err.println("[Worker " + id + "] Error durante la paralelización interna: " + e.getMessage());
+                throw e;
+            }
+        }
+        long wallNanos = System.nanoTime() - startNanos;
+        event.end();
+        boolean wasCancelled = cancelled.getAsBoolean();
+        recordCalculation(rangeSize, wallNanos, wasCancelled);
+        if (event.shouldCommit()) {
+            event.jobId = jobId;
+            event.chunkId = chunkId;
+            event.min = start;
+            event.max = end;
+            event.kernel = kernel.name();
+            event.threads = numThreads;
+            event.numbers = rangeSize;
+            event.perfectCount = perfectNums.size();
+            event.cancelled = wasCancelled;
+            event.commit();
+        }
+        throwIfCancelled(cancelled, start, end);
+        if (busyTime != null) {
+            System.out.println(String.format("[Worker %d] Rango [%d, %d] con kernel '%s'. Tiempo ocupado por hilo sobre %d ms: %s",
+                    id, start, end, kernel.name(), wallNanos / 1_000_000, busyTime.describe(wallNanos)));
+        }
+        return perfectNums;
+    }
+
+    /**
+     * Registra un cálculo en las métricas: números examinados, duración y tasa, o solo que se canceló.
+     */
+    private void recordCalculation(long numbers, long elapsedNanos, boolean cancelled) {
+        if (cancelled) {
+            calculationsCancelled.inc();
+            return;
+        }
+        numbersTested.add(numbers);
+        calculateTime.observeNanos(elapsedNanos);
+        numbersPerSecond.set(numbers * 1e9 / Math.max(1L, elapsedNanos));
+    }
+
+    /**
+     * Un cálculo cancelado puede haber dejado trozos sin recorrer: su resultado no debe confundirse con uno completo.
+     */
+    private static void throwIfCancelled(BooleanSupplier cancelled, long min, long max) {
+        if (cancelled.getAsBoolean()) {
+            throw new CancellationException("Cálculo de [" + min + ", " + max + "] cancelado");
+        }
+    }
 
-        int start = Math.min(minNum, maxNum);
-        int end = Math.max(minNum, maxNum);
-        int rangeSize = end - start + 1;
+    /**
+     * Condición de cancelación de una llamada del Maestro, según el ID de búsqueda de su contexto.
+     * Las llamadas sin ID (Maestros anteriores a cancelJob, o búsquedas internas) no se pueden cancelar.
+     * @param current Contexto de la llamada ICE (puede ser null en llamadas locales).
+     * @return Condición que se cumple cuando el Maestro cancela esa búsqueda.
+     */
+    private BooleanSupplier cancellationOf(Current current) {
+        long jobId = jobIdOf(current);
+        return (jobId == 0) ? PerfectNumberKernel.NOT_CANCELLED : () -> cancelledJobs.contains(jobId);
+    }
 
-        // Decide si paralelizar o calcular secuencialmente.
-        if (rangeSize < PARALLELIZATION_THRESHOLD || NUM_THREADS_PER_WORKER <= 1) {
-            // Rango pequeño o un solo hilo: ejecuta secuencialmente.
-            return sequentialCalculate(start, end);
+    /**
+     * ID de búsqueda del contexto de una llamada del Maestro.
+     * @param current Contexto de la llamada ICE (puede ser null en llamadas locales).
+     * @return ID de la búsqueda, o 0 si la llamada no lo indica.
+     */
+    private static long jobIdOf(Current current) {
+        String value = (current != null && current.ctx != null) ? current.ctx.get(JOB_ID_CONTEXT) : null;
+        if (value == null) {
+            return 0L;
         }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
 
-        System.out.println(String.format("[Worker %d] Dividiendo rango [%d, %d] en %d hilos internos.", id, start, end, NUM_THREADS_PER_WORKER));
+    /**
+     * Kernel que usará calculate para un rango de la longitud indicada.
+     * Se elige por el tamaño típico de un trozo, no por el del rango completo.
+     * @param rangeSize Cantidad de números del rango.
+     * @return Kernel elegido.
+     */
+    private PerfectNumberKernel kernelForRange(long rangeSize) {
+        long leafSize = Math.max(1L, rangeSize / ((long) numThreads * RangeTask.LEAVES_PER_THREAD));
+        return kernels.kernelFor(leafSize);
+    }
 
-        List<Callable<ArrayList<Integer>>> tasks = new ArrayList<>();
-        int chunkSize = rangeSize / NUM_THREADS_PER_WORKER;
-        int currentStart = start;
+    /**
+     * Informa al Maestro qué kernel usaría el worker para un rango de la longitud indicada,
+     * para que el Maestro reparta el rango con el modelo de costo correspondiente.
+     * @param rangeSize Cantidad de números del rango.
+     * @param current Contexto de la llamada ICE.
+     * @return Nombre del kernel ("naive", "sqrt", "sieve" o "simd").
+     */
+    @Override
+    public String getKernelName(long rangeSize, Current current) {
+        return kernelForRange(Math.max(1L, rangeSize)).name();
+    }
 
-        // Crea tareas (Callable) para cada trozo del rango.
-        for (int i = 0; i < NUM_THREADS_PER_WORKER; i++) {
-            int subRangeStart = currentStart;
-            int subRangeEnd = (i == NUM_THREADS_PER_WORKER - 1) ? end : currentStart + chunkSize - 1;
+    /**
+     * Aviso del Maestro de que hay trozos en su cola (modo pull). El worker los pide en su propio
+     * hilo con pullChunks hasta vaciar la cola; el aviso vuelve de inmediato.
+     * @param jobId ID de la búsqueda (0 si no corresponde a una búsqueda nueva).
+     * @param current Contexto de la llamada ICE.
+     */
+    @Override
+    public void jobAvailable(long jobId, Current current) {
+        if (publisher == null) {
+            System.err.println("[Worker " + id + "] Aviso de trabajo ignorado: no hay proxy del Maestro.");
+            return;
+        }
+        workAvailable.set(true);
+        if (pulling.compareAndSet(false, true)) {
+            pullExecutor.execute(this::pullLoop);
+        }
+    }
 
-            tasks.add(() -> sequentialCalculate(subRangeStart, subRangeEnd));
+    /**
+     * Aviso del Maestro de que otra copia de un trozo ya terminó (ejecución especulativa).
+     * Si el trozo todavía está en el lote sin procesar, se salta; si ya se está procesando, se detiene.
+     * @param jobId ID de la búsqueda.
+     * @param chunkId ID del trozo.
+     * @param current Contexto de la llamada ICE.
+     */
+    @Override
+    public void cancelChunk(long jobId, int chunkId, Current current) {
+        cancelledChunks.add(chunkKey(jobId, chunkId));
+    }
 
-            currentStart = subRangeEnd + 1;
+    /**
+     * Aviso del Maestro de que una búsqueda se canceló. Los cálculos en curso de esa búsqueda (llamadas push,
+     * parte impar y trozos del modo pull) se detienen en pocos milisegundos, y sus trozos aún sin procesar se saltan.
+     * @param jobId ID de la búsqueda.
+     * @param current Contexto de la llamada ICE.
+     */
+    @Override
+    public void cancelJob(long jobId, Current current) {
+        if (cancelledJobs.add(jobId)) {
+            System.out.println(String.format("[Worker %d] Búsqueda #%d cancelada por el Maestro.", id, jobId));
         }
+        while (cancelledJobs.size() > MAX_CANCELLED_JOBS) {
+            cancelledJobs.pollFirst();
+        }
+    }
+
+    private static long chunkKey(long jobId, int chunkId) {
+        return (jobId << 32) | (chunkId & 0xFFFFFFFFL);
+    }
 
+    /**
+     * Bucle del hilo de pull: vacía la cola del Maestro mientras sigan llegando avisos.
+     */
+    private void pullLoop() {
         try {
-            // Ejecuta todas las tareas en el pool de hilos y espera a que todas terminen.
-            List<Future<ArrayList<Integer>>> results = executor.invokeAll(tasks);
-            for (Future<ArrayList<Integer>> result : results) {
-                perfectNums.addAll(result.get()); // Consolida los resultados de cada hilo.
+            while (workAvailable.getAndSet(false)) {
+                drainChunks();
             }
-        } catch (InterruptedException | ExecutionException e) {
-            System.err.println("[Worker " + id + "] Error durante la paralelización interna: " + e.getMessage());
-            Thread.currentThread().interrupt();
+        } finally {
+            pulling.set(false);
+        }
+        // Un aviso que llegó justo cuando el bucle terminaba no se pierde.
+        if (workAvailable.get() && pulling.compareAndSet(false, true)) {
+            pullExecutor.execute(this::pullLoop);
         }
-        return perfectNums;
     }
 
     /**
-     * Algoritmo secuencial para encontrar números perfectos en un subrango.
-     * Este método es la unidad de trabajo básica para los hilos internos.
-     * @param minNum Límite inferior del subrango.
-     * @param maxNum Límite superior del subrango.
-     * @return Una lista de números perfectos encontrados.
-     */
-    private ArrayList<Integer> sequentialCalculate(int minNum, int maxNum) {
-        ArrayList<Integer> perfectNums = new ArrayList<>();
-        int accSum;
-        for (int i = minNum; i <= maxNum; i++) {
-            accSum = 0;
-            for (int j = 1; j <= i / 2; j++) {
-                if (i % j == 0) {
-                    accSum += j;
+     * Pide lotes de trozos al Maestro y los procesa hasta que no quede ninguno.
+     * Cada resultado se adelanta al Maestro apenas termina el trozo y se confirma en la llamada
+     * que pide el lote siguiente; si esa llamada falla, se confirma con reportChunkResults antes de salir.
+     */
+    private void drainChunks() {
+        // Resultados que el Maestro todavía no recibió con un pullChunks.
+        List<ChunkResult> results = new ArrayList<>();
+        int processed = 0;
+        try {
+            while (true) {
+                Chunk[] batch = publisher.pullChunks(id, results.toArray(new ChunkResult[0]), chunkBatch);
+                results.clear();
+                if (batch.length == 0) {
+                    break;
+                }
+                queuedChunks.set(batch.length);
+                for (Chunk chunk : batch) {
+                    long key = chunkKey(chunk.jobId, chunk.chunkId);
+                    if (cancelledJobs.contains(chunk.jobId) || cancelledChunks.remove(key)) {
+                        // La búsqueda se canceló, u otra copia de este trozo ya terminó en otro worker.
+                        System.out.println(String.format("[Worker %d] Trozo %d de la búsqueda #%d cancelado por el Maestro.",
+                                id, chunk.chunkId, chunk.jobId));
+                        queuedChunks.decrementAndGet();
+                        continue;
+                    }
+                    long startTimeWorker = System.currentTimeMillis();
+                    LongList perfectNums;
+                    try {
+                        perfectNums = calculate(chunk.minNum, chunk.maxNum, null,
+                                () -> cancelledJobs.contains(chunk.jobId) || cancelledChunks.contains(key), chunk.jobId, chunk.chunkId);
+                    } catch (CancellationException e) {
+                        // Se canceló mientras se procesaba: no hay resultado que entregar.
+                        cancelledChunks.remove(key);
+                        System.out.println(String.format("[Worker %d] Trozo %d de la búsqueda #%d detenido por el Maestro tras %d ms.",
+                                id, chunk.chunkId, chunk.jobId, System.currentTimeMillis() - startTimeWorker));
+                        queuedChunks.decrementAndGet();
+                        continue;
+                    }
+                    ChunkResult result = new ChunkResult(chunk.jobId, chunk.chunkId, perfectNums.toArray());
+                    results.add(result);
+                    processed++;
+                    streamResult(result);
+                    System.out.println(String.format(
+                            "[Worker %d] Trozo %d de la búsqueda #%d, rango [%d, %d], procesado en %d ms. Encontrados %d números perfectos.",
+                            id, chunk.chunkId, chunk.jobId, chunk.minNum, chunk.maxNum,
+                            System.currentTimeMillis() - startTimeWorker, perfectNums.size()));
+                    queuedChunks.decrementAndGet();
                 }
             }
-            if (accSum == i) {
-                perfectNums.add(i);
+        } catch (com.zeroc.Ice.Exception e) {
+            System.err.println("[Worker " + id + "] Error al pedir trozos al Maestro: " + e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("[Worker " + id + "] Error procesando trozos: " + e.getMessage());
+        }
+        if (!results.isEmpty()) {
+            confirmResults(results.toArray(new ChunkResult[0]));
+        }
+        queuedChunks.set(0);
+        cancelledChunks.clear(); // Las cancelaciones de trozos ya procesados no sirven.
+        System.out.println("[Worker " + id + "] Cola del Maestro vacía. Trozos procesados: " + processed + ".");
+    }
+
+    /**
+     * Entrega al Maestro los resultados que debían viajar con el siguiente pullChunks cuando esa llamada
+     * falló o se dejó de procesar el lote. Se intenta dos veces; si ambas fallan, el Maestro vuelve
+     * a repartir esos trozos cuando dé al worker por caído.
+     * @param results Resultados sin confirmar.
+     */
+    private void confirmResults(ChunkResult[] results) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                publisher.reportChunkResults(id, results);
+                return;
+            } catch (com.zeroc.Ice.Exception e) {
+                if (attempt == 2) {
+                    System.err.println(String.format("[Worker %d] No se pudieron entregar %d resultados de trozos: %s",
+                            id, results.length, e.getMessage()));
+                    return;
+                }
             }
         }
-        return perfectNums;
+    }
+
+    /**
+     * Envía al Maestro el resultado de un trozo apenas termina, para que el cliente vea el avance
+     * sin esperar al resto del lote. El mismo resultado vuelve a viajar con el siguiente pullChunks,
+     * así que si este envío falla no se pierde nada.
+     * @param result Resultado del trozo.
+     */
+    private void streamResult(ChunkResult result) {
+        try {
+            publisher.reportChunkResultsAsync(id, new ChunkResult[]{result});
+        } catch (com.zeroc.Ice.Exception e) {
+            System.err.println("[Worker " + id + "] No se pudo adelantar el resultado del trozo " + result.chunkId + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Algoritmo secuencial para encontrar números perfectos en un subrango.
+     * Recorre todo el subrango en el hilo actual con el kernel indicado.
+     * @param minNum Límite inferior del subrango (mayor o igual que 1).
+     * @param maxNum Límite superior del subrango.
+     * @param kernel Kernel a usar.
+     * @param cancelled Condición de cancelación; el kernel deja de recorrer en cuanto se cumple.
+     * @return Una lista de números perfectos encontrados (incompleta si se canceló).
+     */
+    LongList sequentialCalculate(long minNum, long maxNum, PerfectNumberKernel kernel, BooleanSupplier cancelled) {
+        return kernel.findPerfectNumbers(minNum, maxNum, cancelled);
+    }
+
+    /**
+     * Convierte resultados de 64 bits al array de int de las operaciones de 32 bits.
+     * Los rangos de esas operaciones son de tipo int, así que ningún resultado se trunca.
+     * @param perfectNums Números perfectos de un rango de 32 bits.
+     * @return Array de int con los mismos valores.
+     */
+    private static int[] toIntArray(long[] perfectNums) {
+        int[] result = new int[perfectNums.length];
+        for (int i = 0; i < perfectNums.length; i++) {
+            result[i] = Math.toIntExact(perfectNums[i]);
+        }
+        return result;
     }
 
     /**
@@ -173,6 +835,8 @@ public class SubscriberI implements Demo.Subscriber {
      * Se llama al cerrar la aplicación del Worker.
      */
     public void shutdown() {
+        pullExecutor.shutdownNow(); // Deja de pedir trozos al Maestro.
+        loadReporter.shutdownNow(); // Deja de reportar la carga y de enviar latidos.
         executor.shutdown(); // Inicia el apagado del pool.
         try {
             // Espera hasta 60 segundos para que las tareas en curso terminen.
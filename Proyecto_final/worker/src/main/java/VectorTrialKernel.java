@@ -0,0 +1,151 @@
+import java.util.function.BooleanSupplier;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import common.LongList;
+
+/**
+ * Kernel de división de prueba hasta √n vectorizado con la Vector API (jdk.incubator.vector).
+ * Cada carril del vector lleva un número candidato distinto (n, n+1, ...) y cada instrucción prueba
+ * el mismo divisor d en todos: los carriles que dividen suman su par (d, n/d) con una suma enmascarada.
+ * Las cuentas se hacen en double, que representa exactamente todos los enteros hasta 2^53; los números
+ * mayores o iguales que EXACT_LIMIT se evalúan con el kernel escalar.
+ * Solo se carga si la JVM arrancó con --add-modules jdk.incubator.vector (ver KernelSelector.vectorKernel).
+ */
+public class VectorTrialKernel implements PerfectNumberKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    static final int LANES = SPECIES.length();
+
+    // Mayor n evaluado con vectores. Con n < 2^50 el cociente redondeado y el producto cociente·divisor
+    // son exactos, y la suma de divisores (menor que 4n para estos n) tampoco pierde precisión.
+    static final long EXACT_LIMIT = 1L << 50;
+
+    // Sumando que redondea un double no negativo menor que 2^52 al entero más cercano (x + 2^52 - 2^52).
+    private static final double ROUND = 0x1p52;
+
+    // Cada cuántos divisores se revisa si todos los números del bloque ya son abundantes.
+    private static final int ABUNDANT_CHECK_STEPS = 8;
+
+    // Desplazamientos 0, 1, ..., LANES - 1 para armar el vector de divisores.
+    private static final DoubleVector IOTA;
+
+    static {
+        double[] iota = new double[LANES];
+        for (int i = 0; i < LANES; i++) {
+            iota[i] = i;
+        }
+        IOTA = DoubleVector.fromArray(SPECIES, iota, 0);
+    }
+
+    /**
+     * Indica si el hardware tiene vectores de más de un carril. Con uno solo la Vector API no acelera nada.
+     * @return true si vale la pena usar el kernel.
+     */
+    static boolean isAccelerated() {
+        return LANES > 1;
+    }
+
+    @Override
+    public String name() {
+        return "simd";
+    }
+
+    @Override
+    public LongList findPerfectNumbers(long minNum, long maxNum) {
+        return findPerfectNumbers(minNum, maxNum, NOT_CANCELLED);
+    }
+
+    @Override
+    public LongList findPerfectNumbers(long minNum, long maxNum, BooleanSupplier cancelled) {
+        LongList perfectNums = new LongList();
+        long lo = Math.max(1L, Math.min(minNum, maxNum));
+        long hi = Math.max(minNum, maxNum);
+        long n = lo;
+        // Bloques de LANES números consecutivos, uno por carril.
+        long vectorEnd = Math.min(hi, EXACT_LIMIT - 1);
+        while (n <= vectorEnd) {
+            if (cancelled.getAsBoolean()) {
+                return perfectNums;
+            }
+            int count = (int) Math.min(LANES, vectorEnd - n + 1);
+            int perfectLanes = perfectLanes(n, count);
+            for (int i = 0; i < count; i++) {
+                if ((perfectLanes & (1 << i)) != 0) {
+                    perfectNums.add(n + i);
+                }
+            }
+            n += count;
+        }
+        // Lo que queda por encima de EXACT_LIMIT, con el kernel escalar.
+        for (; n <= hi && n >= EXACT_LIMIT; n++) {
+            if ((n & 15) == 0 && cancelled.getAsBoolean()) {
+                break;
+            }
+            if (SqrtTrialKernel.isPerfect(n)) {
+                perfectNums.add(n);
+            }
+            if (n == hi) {
+                break; // Evita desbordar n cuando hi es Long.MAX_VALUE.
+            }
+        }
+        return perfectNums;
+    }
+
+    /**
+     * Mismo modelo que el kernel sqrt, repartido entre los carriles del vector.
+     */
+    @Override
+    public double cost(long lo, long hi) {
+        double length = (double) hi - lo + 1;
+        double mid = ((double) lo + hi) / 2;
+        return length * Math.max(1.0, Math.sqrt(mid) / LANES);
+    }
+
+    /**
+     * Evalúa los números n0, n0 + 1, ..., n0 + count - 1 a la vez, uno por carril.
+     * Para cada divisor candidato d se calcula n·(1/d) en todos los carriles y se redondea: si d divide
+     * a n el cociente exacto es menor que 2^50 y el error relativo del producto (unos 2^-52) no alcanza
+     * para cambiar el redondeo, y si no lo divide ningún entero q cumple q·d = n. Así la única división
+     * es la del recíproco, una por divisor y no por número.
+     * @param n0 Primer número del bloque (mayor o igual que 1).
+     * @param count Cantidad de números del bloque (hasta LANES); n0 + count - 1 debe ser menor que EXACT_LIMIT.
+     * @return Máscara de bits con los carriles cuyo número es perfecto.
+     */
+    static int perfectLanes(long n0, int count) {
+        long nMax = n0 + count - 1;
+        DoubleVector nv = IOTA.add((double) n0);
+        DoubleVector target = nv.sub(1.0); // Suma de los divisores distintos de 1 de un perfecto.
+        DoubleVector sum = DoubleVector.zero(SPECIES);
+        int step = 0;
+        for (long d = 2; d * d <= nMax; d++, step++) {
+            double dd = d;
+            DoubleVector q = nv.mul(1.0 / dd).add(ROUND).sub(ROUND);
+            // Divide si el cociente redondeado reconstruye n; q ≥ d deja fuera los carriles con d > √n.
+            VectorMask<Double> divides = q.mul(dd).eq(nv).and(q.compare(VectorOperators.GE, dd));
+            sum = sum.add(q.add(dd), divides);
+            if (step % ABUNDANT_CHECK_STEPS == 0 && sum.compare(VectorOperators.GT, target).allTrue()) {
+                return 0; // Salida temprana: todos los números del bloque son abundantes.
+            }
+        }
+        int perfect = 0;
+        for (int i = 0; i < count; i++) {
+            long n = n0 + i;
+            if (n < 2) {
+                continue;
+            }
+            double divisorSum = sum.lane(i);
+            long root = (long) Math.sqrt((double) n);
+            if (root * root == n) {
+                divisorSum -= root; // El par (√n, √n) se sumó dos veces.
+            }
+            if (divisorSum == n - 1) {
+                perfect |= 1 << i;
+            }
+        }
+        return perfect;
+    }
+}
@@ -0,0 +1,49 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Eventos de JDK Flight Recorder del worker. Cada cálculo de un trozo (pull), subrango o tramo de
+ * subrango (push) deja un evento con su duración, el kernel usado y los números examinados, con los
+ * mismos IDs de búsqueda y trozo que los eventos de entrega del Maestro (MasterEvents): comparando
+ * ambos se separa el tiempo de cálculo del de red y espera.
+ *
+ * Con la grabación apagada el evento no se reserva ni se llenan sus campos (patrón shouldCommit).
+ * Ejemplo: java -XX:StartFlightRecording=filename=worker.jfr,settings=profile -jar worker.jar
+ */
+final class WorkerEvents {
+
+    private WorkerEvents() {
+    }
+
+    @Name("perfect.worker.ChunkExecution")
+    @Label("Cálculo de un trozo")
+    @Category({"Números perfectos", "Worker"})
+    @Description("Cálculo de un trozo del modo pull o de un subrango (o tramo) del modo push, desde que empieza hasta que termina.")
+    @StackTrace(false)
+    static final class ChunkExecution extends Event {
+        @Label("Búsqueda")
+        @Description("ID de búsqueda que envió el Maestro (searchId en sus eventos); 0 si la llamada no lo indica.")
+        long jobId;
+        @Label("Trozo")
+        @Description("-1 en los subrangos del modo push.")
+        int chunkId;
+        @Label("Inicio")
+        long min;
+        @Label("Fin")
+        long max;
+        @Label("Kernel")
+        String kernel;
+        @Label("Hilos")
+        int threads;
+        @Label("Números examinados")
+        long numbers;
+        @Label("Perfectos")
+        int perfectCount;
+        @Label("Cancelado")
+        boolean cancelled;
+    }
+}
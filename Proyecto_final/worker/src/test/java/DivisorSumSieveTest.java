@@ -0,0 +1,67 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import common.LongList;
+
+/**
+ * Compara la criba con la división de prueba del algoritmo secuencial original en rangos pequeños:
+ * s(n) número a número con segmentos diminutos (para ejercitar los bordes entre segmentos) y la lista
+ * de perfectos con el tamaño de segmento normal.
+ */
+class DivisorSumSieveTest {
+
+    private static final int LIMIT = 10_000;
+
+    /**
+     * Suma de divisores propios por división de prueba, tal como la calculaba el worker original.
+     */
+    static long naiveAliquotSum(long n) {
+        long accSum = 0;
+        for (long j = 1; j <= n / 2; j++) {
+            if (n % j == 0) {
+                accSum += j;
+            }
+        }
+        return accSum;
+    }
+
+    @Test
+    void sumsMatchTrialDivisionAcrossSegmentBorders() {
+        long[] expected = new long[LIMIT + 1];
+        for (int i = 1; i <= LIMIT; i++) {
+            expected[i] = naiveAliquotSum(i);
+        }
+        for (int size : new int[]{1, 7, 64, DivisorSumSieve.SEGMENT_SIZE}) {
+            DivisorSumSieve sieve = new DivisorSumSieve(size);
+            // Ventanas desalineadas respecto al tamaño de segmento.
+            for (long lo = 1; lo <= LIMIT; lo += 97) {
+                int len = (int) Math.min(size, LIMIT - lo + 1);
+                sieve.fillSegment(lo, len);
+                for (int k = 0; k < len; k++) {
+                    int n = (int) (lo + k);
+                    assertEquals(expected[n], sieve.sumAt(k), "s(" + n + ") con segmento " + size);
+                }
+            }
+        }
+    }
+
+    @Test
+    void perfectNumbersMatchTrialDivision() {
+        LongList expected = new LongList();
+        for (int i = 1; i <= LIMIT; i++) {
+            if (naiveAliquotSum(i) == i) {
+                expected.add(i);
+            }
+        }
+        assertEquals(expected.toString(), new DivisorSumSieve().findPerfectNumbers(1, LIMIT).toString());
+        assertEquals(expected.toString(), new DivisorSumSieve(7).findPerfectNumbers(-5, LIMIT).toString());
+    }
+
+    @Test
+    void findsPerfectNumberAcrossSegmentBorder() {
+        // Con segmentos chicos, 8128 no cae en el primer segmento del rango.
+        assertEquals("[8128]", new DivisorSumSieve(64).findPerfectNumbers(8000, 8200).toString());
+        assertEquals("[33550336]", new DivisorSumSieve().findPerfectNumbers(33_550_000, 33_551_000).toString());
+    }
+}
@@ -0,0 +1,122 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import org.junit.jupiter.api.Test;
+
+import common.LongList;
+
+/**
+ * Prueba la elección de KernelSelector con kernels falsos que, en lugar de calcular, adelantan un reloj
+ * falso según un costo fijo por llamada y un costo por número que depende de la magnitud.
+ */
+class KernelSelectorTest {
+
+    /**
+     * Reloj falso en nanosegundos.
+     */
+    private static final class FakeClock implements LongSupplier {
+        long now;
+
+        @Override
+        public long getAsLong() {
+            return now;
+        }
+    }
+
+    /**
+     * Kernel que tarda callNanos por llamada más nanosPerUnit por cada unidad de su costo (magnitude^exponent por número).
+     */
+    private static final class FakeKernel implements PerfectNumberKernel {
+        final String name;
+        final FakeClock clock;
+        final double callNanos;
+        final double nanosPerUnit;
+        final double exponent;
+        long highestMeasured;
+
+        FakeKernel(String name, FakeClock clock, double callNanos, double nanosPerUnit, double exponent) {
+            this.name = name;
+            this.clock = clock;
+            this.callNanos = callNanos;
+            this.nanosPerUnit = nanosPerUnit;
+            this.exponent = exponent;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public LongList findPerfectNumbers(long minNum, long maxNum) {
+            highestMeasured = Math.max(highestMeasured, maxNum);
+            clock.now += (long) (callNanos + nanosPerUnit * cost(minNum, maxNum));
+            return new LongList();
+        }
+
+        @Override
+        public double cost(long lo, long hi) {
+            return ((double) hi - lo + 1) * Math.pow(((double) lo + hi) / 2, exponent);
+        }
+    }
+
+    @Test
+    void picksFastestKernelForEachRangeSize() {
+        FakeClock clock = new FakeClock();
+        // 'overhead' es más rápido por número, pero cada llamada le cuesta 1 ms.
+        FakeKernel cheap = new FakeKernel("cheap", clock, 0, 100, 0);
+        FakeKernel overhead = new FakeKernel("overhead", clock, 1_000_000, 10, 0);
+        KernelSelector selector = new KernelSelector(List.of(cheap, overhead), null, clock);
+
+        assertEquals("cheap", selector.kernelFor(1).name());
+        assertEquals("cheap", selector.kernelFor(KernelSelector.SIZE_BUCKETS[0]).name());
+        assertEquals("overhead", selector.kernelFor(KernelSelector.SIZE_BUCKETS[0] + 1).name());
+        assertEquals("overhead", selector.kernelFor(Long.MAX_VALUE).name());
+        // 1000 números a 100 ns cada uno.
+        assertEquals(1e7, selector.rateFor(1), 1.0);
+    }
+
+    @Test
+    void prefersKernelThatScalesWithMagnitude() {
+        FakeClock clock = new FakeClock();
+        // 'linear' gana cerca de 10^6 pero su costo por número crece con n; 'root' crece con √n.
+        FakeKernel linear = new FakeKernel("linear", clock, 0, 1e-4, 1.0);
+        FakeKernel root = new FakeKernel("root", clock, 0, 0.2, 0.5);
+        KernelSelector selector = new KernelSelector(List.of(linear, root), null, clock);
+
+        assertEquals("root", selector.kernelFor(KernelSelector.SIZE_BUCKETS[1]).name());
+        // La tasa informada al Maestro es la de la magnitud base: cerca de 1 / (0.2 ns · √10^6) por número.
+        assertEquals(5e6, selector.rateFor(KernelSelector.SIZE_BUCKETS[1]), 5e6 * 0.03);
+    }
+
+    @Test
+    void extrapolatesKernelsTooSlowToMeasure() {
+        FakeClock clock = new FakeClock();
+        FakeKernel slow = new FakeKernel("slow", clock, 0, 1.0, 1.0);
+        FakeKernel fast = new FakeKernel("fast", clock, 0, 1.0, 0.5);
+        KernelSelector selector = new KernelSelector(List.of(slow, fast), null, clock);
+
+        assertEquals("fast", selector.kernelFor(1).name());
+        // A 1 ns por unidad, 16 números cerca de 10^9 ya superan el presupuesto: no se miden.
+        long lastMagnitude = KernelSelector.CALIBRATION_MAGNITUDES[KernelSelector.CALIBRATION_MAGNITUDES.length - 1];
+        assertTrue(slow.highestMeasured < KernelSelector.CALIBRATION_MAGNITUDES[1], "midió hasta " + slow.highestMeasured);
+        assertTrue(fast.highestMeasured >= lastMagnitude, "midió hasta " + fast.highestMeasured);
+        assertTrue(selector.describe().contains("'slow'"));
+    }
+
+    @Test
+    void warmsUpAndMeasuresWithinBudget() {
+        FakeClock clock = new FakeClock();
+        FakeKernel kernel = new FakeKernel("only", clock, 0, 1e-3, 0.5);
+        new KernelSelector(List.of(kernel), null, clock);
+
+        // Calentamiento más, por cada tamaño y magnitud, mediciones de como mucho el presupuesto.
+        long bound = KernelSelector.WARMUP_NANOS + 2 * KernelSelector.MEASURE_BUDGET_NANOS
+                + (long) KernelSelector.SIZE_BUCKETS.length * KernelSelector.CALIBRATION_MAGNITUDES.length
+                * 2 * KernelSelector.MEASURE_BUDGET_NANOS;
+        assertTrue(clock.now <= bound, "la calibración tardó " + clock.now + " ns");
+    }
+}
@@ -0,0 +1,77 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import common.LongList;
+import common.Primes;
+
+/**
+ * Compara el modo analítico (Euclides–Euler con Lucas–Lehmer) con los kernels que recorren el rango.
+ * EuclidEuler vive en el Maestro; aquí el perfecto de cada exponente se calcula con la misma fórmula.
+ */
+class LucasLehmerTest {
+
+    private static final long LIMIT = 10_000_000;
+    // Mayor exponente cuyo perfecto cabe en un long, como EuclidEuler.MAX_EXPONENT.
+    private static final int MAX_EXPONENT = 32;
+
+    /**
+     * Perfectos pares de [lo, hi] según el modo analítico.
+     */
+    private static String analytic(long lo, long hi) {
+        LongList found = new LongList();
+        for (int p = 2; p <= MAX_EXPONENT; p++) {
+            long perfect = (1L << (p - 1)) * ((1L << p) - 1);
+            if (perfect >= lo && perfect <= hi && LucasLehmer.isMersennePrime(p)) {
+                found.add(perfect);
+            }
+        }
+        return found.toString();
+    }
+
+    @Test
+    void analyticMatchesTheSieveKernelUpToTenMillion() {
+        assertEquals(new SieveKernel().findPerfectNumbers(1, LIMIT).toString(), analytic(1, LIMIT));
+    }
+
+    @Test
+    void analyticMatchesTheSqrtKernelAroundEachPerfect() {
+        // El kernel sqrt tarda minutos en [1, 10^7]: se compara al principio del rango y cerca de cada perfecto.
+        SqrtTrialKernel kernel = new SqrtTrialKernel();
+        assertEquals(kernel.findPerfectNumbers(1, 100_000).toString(), analytic(1, 100_000));
+        for (long perfect : new long[]{6, 28, 496, 8128}) {
+            for (long[] w : new long[][]{{perfect - 1, perfect}, {perfect, perfect + 1}, {perfect + 1, perfect + 1000}}) {
+                assertEquals(kernel.findPerfectNumbers(w[0], w[1]).toString(), analytic(w[0], w[1]),
+                        "[" + w[0] + ", " + w[1] + "]");
+            }
+        }
+        long top = LIMIT - 100_000;
+        assertEquals(kernel.findPerfectNumbers(top, LIMIT).toString(), analytic(top, LIMIT));
+    }
+
+    @Test
+    void mersenneExponentsUpToMaxExponent() {
+        int[] mersenne = {2, 3, 5, 7, 13, 17, 19, 31};
+        for (int p = 1; p <= MAX_EXPONENT; p++) {
+            boolean expected = Arrays.binarySearch(mersenne, p) >= 0;
+            assertEquals(expected, LucasLehmer.isMersennePrime(p), "p = " + p);
+        }
+        // Más allá de un long, donde la reducción módulo 2^p - 1 hace falta de verdad.
+        assertTrue(LucasLehmer.isMersennePrime(61));
+        assertFalse(LucasLehmer.isMersennePrime(67));
+        assertTrue(LucasLehmer.isMersennePrime(127));
+    }
+
+    @Test
+    void compositeExponentsAreRejected() {
+        for (int p = 4; p <= 64; p++) {
+            if (!Primes.isPrime(p)) {
+                assertFalse(LucasLehmer.isMersennePrime(p), "p = " + p);
+            }
+        }
+    }
+}
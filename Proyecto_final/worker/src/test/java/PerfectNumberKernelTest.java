@@ -0,0 +1,45 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import common.LongList;
+
+/**
+ * Compara cada kernel disponible con la división de prueba del algoritmo secuencial original en rangos pequeños.
+ */
+class PerfectNumberKernelTest {
+
+    private static final int LIMIT = 10_000;
+
+    /**
+     * Perfectos de [lo, hi] por división de prueba.
+     */
+    private static String trialDivision(long lo, long hi) {
+        LongList found = new LongList();
+        for (long n = Math.max(1, lo); n <= hi; n++) {
+            if (DivisorSumSieveTest.naiveAliquotSum(n) == n) {
+                found.add(n);
+            }
+        }
+        return found.toString();
+    }
+
+    @Test
+    void everyKernelMatchesTrialDivision() {
+        String expected = trialDivision(1, LIMIT);
+        for (PerfectNumberKernel kernel : KernelSelector.availableKernels()) {
+            assertEquals(expected, kernel.findPerfectNumbers(1, LIMIT).toString(), "kernel " + kernel.name());
+        }
+    }
+
+    @Test
+    void everyKernelMatchesTrialDivisionOnShortWindows() {
+        long[][] windows = {{-10, 5}, {6, 6}, {7, 27}, {28, 28}, {400, 500}, {497, 8127}, {8128, 8128}};
+        for (PerfectNumberKernel kernel : KernelSelector.availableKernels()) {
+            for (long[] w : windows) {
+                assertEquals(trialDivision(w[0], w[1]), kernel.findPerfectNumbers(w[0], w[1]).toString(),
+                        "kernel " + kernel.name() + " en [" + w[0] + ", " + w[1] + "]");
+            }
+        }
+    }
+}
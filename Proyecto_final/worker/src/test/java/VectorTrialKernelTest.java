@@ -0,0 +1,53 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compara el kernel vectorial con la división de prueba escalar alrededor de EXACT_LIMIT, donde pasa de las
+ * cuentas en double al kernel escalar. Cerca de 2^50 el kernel ingenuo (n/2 divisiones por número) no termina,
+ * así que la referencia es SqrtTrialKernel, que PerfectNumberKernelTest compara con el ingenuo.
+ */
+class VectorTrialKernelTest {
+
+    private PerfectNumberKernel simd;
+
+    @BeforeEach
+    void requireVectorApi() {
+        simd = KernelSelector.vectorKernel();
+        assumeTrue(simd != null, "la JVM no tiene la Vector API o el hardware no tiene vectores");
+    }
+
+    private static void assertSameAsScalar(PerfectNumberKernel simd, long lo, long hi) {
+        assertEquals(new SqrtTrialKernel().findPerfectNumbers(lo, hi).toString(), simd.findPerfectNumbers(lo, hi).toString(),
+                "[" + lo + ", " + hi + "]");
+    }
+
+    @Test
+    void agreesWithScalarKernelAcrossExactLimit() {
+        long limit = VectorTrialKernel.EXACT_LIMIT;
+        assertSameAsScalar(simd, limit - 20, limit + 3);
+        assertSameAsScalar(simd, limit - 1, limit);
+    }
+
+    @Test
+    void doesNotReportAlmostPerfectPowersOfTwo() {
+        // s(2^k) = 2^k - 1: un error de redondeo de una unidad en la suma los daría por perfectos.
+        long almost = VectorTrialKernel.EXACT_LIMIT / 2;
+        assertSameAsScalar(simd, almost - 5, almost + 5);
+        assertEquals(0, VectorTrialKernel.perfectLanes(almost, 1));
+    }
+
+    @Test
+    void findsLargestPerfectNumbersBelowExactLimitInEveryLane() {
+        // 2^16·(2^17 - 1) y 2^18·(2^19 - 1), en cada posición posible del bloque.
+        for (long perfect : new long[]{8_589_869_056L, 137_438_691_328L}) {
+            for (int lane = 0; lane < VectorTrialKernel.LANES; lane++) {
+                int mask = VectorTrialKernel.perfectLanes(perfect - lane, lane + 1);
+                assertEquals(1 << lane, mask, perfect + " en el carril " + lane);
+            }
+            assertSameAsScalar(simd, perfect - 3, perfect + 3);
+        }
+    }
+}